@@ -0,0 +1,139 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.benchmarks.startup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An application to launch: an uberjar, or a testsuite module whose uberjar
+ * is found in, or built into, its {@code target} directory.
+ *
+ * <p>Specified as {@code location[=path]}, where {@code path} is the request
+ * path expected to answer with a 200, {@code /} by default.</p>
+ */
+final class App {
+
+    private static final String UBERJAR_SUFFIX = "-thorntail.jar";
+
+    private App(Path location, String path) {
+        this.location = location.toAbsolutePath().normalize();
+        this.path = path.startsWith("/") ? path : "/" + path;
+        String fileName = this.location.getFileName().toString();
+        if (fileName.endsWith(UBERJAR_SUFFIX)) {
+            this.name = fileName.substring(0, fileName.length() - UBERJAR_SUFFIX.length());
+        } else if (fileName.endsWith(".jar")) {
+            this.name = fileName.substring(0, fileName.length() - 4);
+        } else {
+            this.name = fileName;
+        }
+    }
+
+    static List<App> parse(String specs) {
+        return Arrays.stream(specs.split(","))
+                .map(String::trim)
+                .filter(spec -> !spec.isEmpty())
+                .map(App::parseOne)
+                .collect(Collectors.toList());
+    }
+
+    private static App parseOne(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq < 0) {
+            return new App(Paths.get(spec), "/");
+        }
+        return new App(Paths.get(spec.substring(0, eq)), spec.substring(eq + 1));
+    }
+
+    String name() {
+        return this.name;
+    }
+
+    String path() {
+        return this.path;
+    }
+
+    /**
+     * Locate the uberjar, building the module first if asked to and none exists yet.
+     */
+    Path uberjar(boolean build) throws IOException, InterruptedException {
+        if (Files.isRegularFile(this.location)) {
+            return this.location;
+        }
+        if (!Files.isDirectory(this.location)) {
+            throw new IllegalArgumentException("No such uberjar or module: " + this.location);
+        }
+        Path uberjar = findUberjar();
+        if (uberjar == null && build) {
+            build();
+            uberjar = findUberjar();
+        }
+        if (uberjar == null) {
+            throw new IllegalArgumentException("No *" + UBERJAR_SUFFIX + " in " + this.location.resolve("target")
+                                                       + ", build the module first or use --build");
+        }
+        return uberjar;
+    }
+
+    private Path findUberjar() throws IOException {
+        Path target = this.location.resolve("target");
+        if (!Files.isDirectory(target)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(UBERJAR_SUFFIX))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private void build() throws IOException, InterruptedException {
+        String version = System.getProperty("startup.thorntail.version");
+        if (version == null) {
+            throw new IllegalStateException("Building " + this.name + " requires -Dstartup.thorntail.version");
+        }
+        Path log = Files.createDirectories(this.location.resolve("target")).resolve("startup-build.log");
+        Process maven = new ProcessBuilder(System.getProperty("startup.maven", "mvn"),
+                                           "-B", "-q", "-DskipTests",
+                                           "-f", this.location.resolve("pom.xml").toString(),
+                                           "package", "io.thorntail:thorntail-maven-plugin:" + version + ":package")
+                .directory(this.location.toFile())
+                .redirectOutput(log.toFile())
+                .redirectErrorStream(true)
+                .start();
+        int exit = maven.waitFor();
+        if (exit != 0) {
+            throw new IOException("Building " + this.name + " failed with " + exit + ", see " + log);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    private final Path location;
+
+    private final String path;
+
+    private final String name;
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.benchmarks.startup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples the memory footprint of another JVM: heap and metaspace usage
+ * through {@code jstat}, and the resident set size through {@code /proc} on
+ * Linux. Values that cannot be sampled are reported as {@code -1}.
+ */
+final class Footprint {
+
+    private Footprint() {
+    }
+
+    static void sample(long pid, long[] values) {
+        values[Metric.HEAP.ordinal()] = -1;
+        values[Metric.METASPACE.ordinal()] = -1;
+        values[Metric.RSS.ordinal()] = -1;
+        if (pid < 0) {
+            return;
+        }
+        Map<String, Double> gc = jstat(pid);
+        if (gc.containsKey("EU") && gc.containsKey("OU")) {
+            double heap = gc.getOrDefault("S0U", 0d) + gc.getOrDefault("S1U", 0d) + gc.get("EU") + gc.get("OU");
+            values[Metric.HEAP.ordinal()] = fromKilobytes(heap);
+        }
+        if (gc.containsKey("MU")) {
+            values[Metric.METASPACE.ordinal()] = fromKilobytes(gc.get("MU"));
+        }
+        values[Metric.RSS.ordinal()] = rss(pid);
+    }
+
+    /**
+     * @return the columns of {@code jstat -gc}, in kilobytes, or nothing if jstat is unavailable
+     */
+    private static Map<String, Double> jstat(long pid) {
+        Map<String, Double> columns = new HashMap<>();
+        Path jstat = jdkTool("jstat");
+        if (jstat == null) {
+            return columns;
+        }
+        try {
+            Process process = new ProcessBuilder(jstat.toString(), "-gc", Long.toString(pid))
+                    .redirectErrorStream(true)
+                    .start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String header = reader.readLine();
+                String row = reader.readLine();
+                if (header != null && row != null) {
+                    String[] names = header.trim().split("\\s+");
+                    String[] values = row.trim().split("\\s+");
+                    for (int i = 0; i < names.length && i < values.length; ++i) {
+                        try {
+                            columns.put(names[i], Double.parseDouble(values[i]));
+                        } catch (NumberFormatException e) {
+                            // not a row of values, e.g. an attach error
+                        }
+                    }
+                }
+            }
+            process.waitFor();
+        } catch (IOException e) {
+            columns.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            columns.clear();
+        }
+        return columns;
+    }
+
+    private static long rss(long pid) {
+        Path status = Paths.get("/proc", Long.toString(pid), "status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            List<String> lines = Files.readAllLines(status, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    return fromKilobytes(Double.parseDouble(line.substring(6).trim().split("\\s+")[0]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall through
+        }
+        return -1;
+    }
+
+    private static Path jdkTool(String name) {
+        Path javaHome = Paths.get(System.getProperty("java.home"));
+        // java.home points to the jre directory of a Java 8 JDK
+        for (Path home : new Path[]{javaHome, javaHome.getParent()}) {
+            if (home == null) {
+                continue;
+            }
+            for (String candidate : new String[]{name, name + ".exe"}) {
+                Path tool = home.resolve("bin").resolve(candidate);
+                if (Files.isExecutable(tool)) {
+                    return tool;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long fromKilobytes(double kilobytes) {
+        return (long) (kilobytes * 1024);
+    }
+}
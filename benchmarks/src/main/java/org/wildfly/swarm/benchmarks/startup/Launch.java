@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.benchmarks.startup;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.wildfly.swarm.tools.exec.SwarmExecutor;
+import org.wildfly.swarm.tools.exec.SwarmProcess;
+
+/**
+ * Launches an uberjar once, and measures it until its first successful
+ * response.
+ */
+final class Launch {
+
+    Launch(Path uberjar, App app, int port, List<String> jvmArguments, long timeoutSeconds) {
+        this.uberjar = uberjar;
+        this.app = app;
+        this.port = port;
+        this.jvmArguments = jvmArguments;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * @param logs the directory receiving the output of the process
+     * @param number the number of this launch, used to name its files
+     * @return the value of each {@link Metric}, by ordinal
+     */
+    long[] run(Path logs, int number) throws IOException, InterruptedException {
+        String prefix = this.app.name() + "-" + number;
+        Path processFile = Files.createDirectories(logs).resolve(prefix + ".process");
+        Files.deleteIfExists(processFile);
+        Files.createFile(processFile);
+        URL url = new URL("http", "localhost", this.port, this.app.path());
+
+        long[] values = new long[Metric.values().length];
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(this.timeoutSeconds);
+        SwarmProcess process = new SwarmExecutor()
+                .withExecutableJar(this.uberjar)
+                .withJVMArguments(this.jvmArguments)
+                .withProperty("thorntail.http.port", Integer.toString(this.port))
+                .withStdoutFile(logs.resolve(prefix + ".out.log"))
+                .withStderrFile(logs.resolve(prefix + ".err.log"))
+                .withProcessFile(processFile.toFile())
+                .execute();
+        try {
+            CompletableFuture<Long> ready = CompletableFuture.supplyAsync(() -> {
+                try {
+                    if (!process.awaitReadiness(this.timeoutSeconds, TimeUnit.SECONDS)) {
+                        throw new CompletionException(new IOException(this.app + " did not report its readiness within " + this.timeoutSeconds + "s"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+                return elapsedMillis(start);
+            });
+
+            while (status(url) != HttpURLConnection.HTTP_OK) {
+                if (!process.isAlive()) {
+                    throw new IOException(this.app + " exited with " + process.exitValue() + " before answering " + url);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IOException(this.app + " did not answer " + url + " with a 200 within " + this.timeoutSeconds + "s");
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            values[Metric.FIRST_RESPONSE.ordinal()] = elapsedMillis(start);
+
+            Footprint.sample(process.pid(), values);
+
+            // a launch that did not report its readiness in time has no boot time, it failed
+            try {
+                values[Metric.BOOT.ordinal()] = ready.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                throw new IOException(this.app + " failed to report its readiness", e.getCause());
+            } catch (TimeoutException e) {
+                throw new IOException(this.app + " did not report its readiness within " + this.timeoutSeconds + "s");
+            }
+            return values;
+        } finally {
+            process.stop();
+        }
+    }
+
+    private static int status(URL url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setUseCaches(false);
+            return connection.getResponseCode();
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    private final Path uberjar;
+
+    private final App app;
+
+    private final int port;
+
+    private final List<String> jvmArguments;
+
+    private final long timeoutSeconds;
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.benchmarks.startup;
+
+/**
+ * The values recorded for each launch of an application.
+ */
+enum Metric {
+
+    /** From launching the JVM until the container logs that it is ready. */
+    BOOT("boot", true),
+    /** From launching the JVM until the application answers with a 200. */
+    FIRST_RESPONSE("first-response", true),
+    /** Used heap, right after the first response. */
+    HEAP("heap", false),
+    /** Used metaspace, right after the first response. */
+    METASPACE("metaspace", false),
+    /** Resident set size of the process, right after the first response. */
+    RSS("rss", false);
+
+    Metric(String key, boolean millis) {
+        this.key = key;
+        this.millis = millis;
+    }
+
+    String key() {
+        return this.key;
+    }
+
+    String format(long value) {
+        if (value < 0) {
+            return "n/a";
+        }
+        if (this.millis) {
+            return value + " ms";
+        }
+        return String.format("%.1f MB", value / (1024.0 * 1024.0));
+    }
+
+    private final String key;
+
+    private final boolean millis;
+}
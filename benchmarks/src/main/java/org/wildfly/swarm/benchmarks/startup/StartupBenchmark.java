@@ -0,0 +1,125 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.benchmarks.startup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Measures the startup and footprint of applications packaged as uberjars.
+ *
+ * <p>Every application is launched a few times in a row through
+ * {@link org.wildfly.swarm.tools.exec.SwarmExecutor}, after some discarded
+ * warmup launches, and the medians of its {@link Metric}s are written to a
+ * properties file. Given the file of a previous run as baseline, the exit
+ * status is {@code 1} if any median regressed by more than the allowed
+ * percentage, or if any measured launch failed.</p>
+ *
+ * <pre>
+ * StartupBenchmark [--build] [--launches=5] [--warmups=1] [--port=8080] [--timeout=120]
+ *                  [--jvm-args="-Xmx256m ..."] [--result=startup-result.properties]
+ *                  [--baseline=file] [--max-regression=10] location[=path][,location[=path]...]
+ * </pre>
+ *
+ * @see App
+ */
+public final class StartupBenchmark {
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String... args) throws Exception {
+        boolean build = false;
+        int launches = 5;
+        int warmups = 1;
+        int port = 8080;
+        long timeoutSeconds = 120;
+        List<String> jvmArguments = new ArrayList<>();
+        Path result = Paths.get("startup-result.properties");
+        Path baseline = null;
+        double maxRegression = 10;
+        List<App> apps = new ArrayList<>();
+
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1).trim() : "";
+            if (arg.equals("--build")) {
+                build = true;
+            } else if (arg.startsWith("--launches=")) {
+                launches = Integer.parseInt(value);
+            } else if (arg.startsWith("--warmups=")) {
+                warmups = Integer.parseInt(value);
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(value);
+            } else if (arg.startsWith("--timeout=")) {
+                timeoutSeconds = Long.parseLong(value);
+            } else if (arg.startsWith("--jvm-args=")) {
+                for (String jvmArgument : value.split("\\s+")) {
+                    if (!jvmArgument.isEmpty()) {
+                        jvmArguments.add(jvmArgument);
+                    }
+                }
+            } else if (arg.startsWith("--result=")) {
+                result = Paths.get(value);
+            } else if (arg.startsWith("--baseline=")) {
+                baseline = value.isEmpty() ? null : Paths.get(value);
+            } else if (arg.startsWith("--max-regression=")) {
+                maxRegression = Double.parseDouble(value);
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                apps.addAll(App.parse(arg));
+            }
+        }
+        if (apps.isEmpty() || launches < 1) {
+            System.err.println("Usage: StartupBenchmark [options] location[=path][,location[=path]...]");
+            System.exit(2);
+        }
+
+        Path logs = result.toAbsolutePath().resolveSibling("startup-logs");
+        StartupReport report = new StartupReport();
+        for (App app : apps) {
+            Launch launch = new Launch(app.uberjar(build), app, port, jvmArguments, timeoutSeconds);
+            for (int i = 0; i < warmups + launches; ++i) {
+                long[] values;
+                try {
+                    values = launch.run(logs, i);
+                } catch (IOException e) {
+                    System.err.println("Launch " + i + " of " + app + " failed: " + e.getMessage());
+                    if (i >= warmups) {
+                        report.fail(app);
+                    }
+                    continue;
+                }
+                if (i >= warmups) {
+                    report.add(app, values);
+                }
+            }
+        }
+
+        report.write(result);
+        Properties previous = null;
+        if (baseline != null && Files.exists(baseline)) {
+            previous = StartupReport.load(baseline);
+        }
+        int regressions = report.print(previous, maxRegression, System.out);
+        System.exit(regressions > 0 || report.failures() > 0 ? 1 : 0);
+    }
+}
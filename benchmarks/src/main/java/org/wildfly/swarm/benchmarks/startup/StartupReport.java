@@ -0,0 +1,170 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.benchmarks.startup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Collects the launches of each application, and summarizes them as the
+ * median, minimum and maximum of every {@link Metric}.
+ *
+ * <p>Summaries are stored as properties named {@code <app>.<metric>.<stat>},
+ * so that the result of one release can serve as the baseline of the next.</p>
+ */
+final class StartupReport {
+
+    void add(App app, long[] values) {
+        this.launches.computeIfAbsent(app.name(), name -> new ArrayList<>()).add(values);
+    }
+
+    /**
+     * Record a launch that failed, and has no value for any {@link Metric}.
+     */
+    void fail(App app) {
+        this.launches.computeIfAbsent(app.name(), name -> new ArrayList<>());
+        this.failures.merge(app.name(), 1, Integer::sum);
+    }
+
+    /**
+     * @return the number of failed launches, of all applications
+     */
+    int failures() {
+        return this.failures.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    Properties summary() {
+        Properties summary = new Properties();
+        for (Map.Entry<String, List<long[]>> entry : this.launches.entrySet()) {
+            String app = entry.getKey();
+            summary.setProperty(app + ".launches", Integer.toString(entry.getValue().size()));
+            summary.setProperty(app + ".failures", Integer.toString(this.failures.getOrDefault(app, 0)));
+            for (Metric metric : Metric.values()) {
+                long[] sorted = sorted(entry.getValue(), metric);
+                if (sorted.length == 0) {
+                    continue;
+                }
+                summary.setProperty(key(app, metric, MEDIAN), Long.toString(sorted[sorted.length / 2]));
+                summary.setProperty(key(app, metric, MIN), Long.toString(sorted[0]));
+                summary.setProperty(key(app, metric, MAX), Long.toString(sorted[sorted.length - 1]));
+            }
+        }
+        return summary;
+    }
+
+    void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            summary().store(out, "Thorntail startup benchmark");
+        }
+    }
+
+    static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * Print the medians of every application, compared with the baseline if
+     * there is one.
+     *
+     * @param baseline the summary of a previous run, or {@code null}
+     * @param maxRegression the relative increase of a median, in percent, above which it is reported as a regression
+     * @return the number of regressions
+     */
+    int print(Properties baseline, double maxRegression, PrintStream out) {
+        Properties summary = summary();
+        String format = "%-40s %-16s %12s %12s %12s %12s %9s%n";
+        out.printf(format, "application", "metric", "median", "min", "max", "baseline", "change");
+        int regressions = 0;
+        for (String app : this.launches.keySet()) {
+            for (Metric metric : Metric.values()) {
+                long median = value(summary, key(app, metric, MEDIAN));
+                if (median < 0) {
+                    continue;
+                }
+                long previous = baseline == null ? -1 : value(baseline, key(app, metric, MEDIAN));
+                String change = "";
+                if (previous > 0) {
+                    double percent = (median - previous) * 100.0 / previous;
+                    change = String.format("%+.1f%%", percent);
+                    if (percent > maxRegression) {
+                        change += " !";
+                        ++regressions;
+                    }
+                }
+                out.printf(format, app, metric.key(),
+                           metric.format(median),
+                           metric.format(value(summary, key(app, metric, MIN))),
+                           metric.format(value(summary, key(app, metric, MAX))),
+                           previous < 0 ? "" : metric.format(previous),
+                           change);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : this.failures.entrySet()) {
+            out.printf("%s: %d failed launch(es)%n", entry.getKey(), entry.getValue());
+        }
+        if (regressions > 0) {
+            out.printf("%d regression(s) above %.1f%%%n", regressions, maxRegression);
+        }
+        return regressions;
+    }
+
+    private static long[] sorted(List<long[]> launches, Metric metric) {
+        return launches.stream()
+                .mapToLong(values -> values[metric.ordinal()])
+                .filter(value -> value >= 0)
+                .sorted()
+                .toArray();
+    }
+
+    private static long value(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String key(String app, Metric metric, String stat) {
+        return app + "." + metric.key() + "." + stat;
+    }
+
+    private static final String MEDIAN = "median";
+
+    private static final String MIN = "min";
+
+    private static final String MAX = "max";
+
+    private final Map<String, List<long[]>> launches = new LinkedHashMap<>();
+
+    private final Map<String, Integer> failures = new LinkedHashMap<>();
+}
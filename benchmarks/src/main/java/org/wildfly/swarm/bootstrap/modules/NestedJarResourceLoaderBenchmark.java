@@ -0,0 +1,120 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.modules;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Explosion of an uberjar's nested module jars by
+ * {@link NestedJarResourceLoader#explodedJar(URL)}, measured cold: the
+ * loader's caches are cleared and the exploded directory removed before each
+ * invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class NestedJarResourceLoaderBenchmark {
+
+    @Setup
+    public void setup() throws IOException {
+        this.jar = File.createTempFile("benchmark-uberjar", ".jar");
+        Random random = new Random(42);
+        byte[] content = new byte[16 * 1024];
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(this.jar.toPath()))) {
+            for (int module = 0; module < MODULES; ++module) {
+                String prefix = "modules/org/benchmark/module" + module + "/main/";
+                out.putNextEntry(new JarEntry(prefix + "module.xml"));
+                out.write(("<module name=\"org.benchmark.module" + module + "\"/>").getBytes("UTF-8"));
+                out.closeEntry();
+                out.putNextEntry(new JarEntry(prefix + "module" + module + ".jar"));
+                random.nextBytes(content);
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        this.url = new URL("jar:" + this.jar.toURI().toURL().toExternalForm() + "!/modules/org/benchmark/module0/main/");
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.jar.delete();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() throws Exception {
+        ((Map<?, ?>) cache("exploded")).clear();
+        ((Collection<?>) cache("explosionNotRequired")).clear();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteExploded() throws IOException {
+        if (this.exploded != null) {
+            try (Stream<Path> paths = Files.walk(this.exploded)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+            this.exploded = null;
+        }
+    }
+
+    @Benchmark
+    public Path explode() throws IOException {
+        this.exploded = NestedJarResourceLoader.explodedJar(this.url);
+        return this.exploded;
+    }
+
+    private static Object cache(String name) throws ReflectiveOperationException {
+        Field field = NestedJarResourceLoader.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    private static final int MODULES = 200;
+
+    private File jar;
+
+    private URL url;
+
+    private Path exploded;
+}
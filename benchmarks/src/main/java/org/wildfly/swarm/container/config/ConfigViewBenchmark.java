@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.config;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.swarm.spi.api.config.ConfigKey;
+
+/**
+ * Lookups of {@link ConfigViewImpl#valueOf(ConfigKey)} in a view of a few
+ * hundred properties: a plain value, a missing key and an expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigViewBenchmark {
+
+    @Setup
+    public void setup() {
+        ConfigViewFactory factory = new ConfigViewFactory(new Properties(), new HashMap<>());
+        for (int i = 0; i < PROPERTIES; ++i) {
+            factory.withProperty("thorntail.benchmark.key" + i + ".value", "value" + i);
+        }
+        factory.withProperty("thorntail.benchmark.expression", "${thorntail.benchmark.key1.value}-suffix");
+        this.configView = factory.get(true);
+
+        this.present = ConfigKey.parse("thorntail.benchmark.key" + (PROPERTIES / 2) + ".value");
+        this.missing = ConfigKey.parse("thorntail.benchmark.missing.value");
+        this.expression = ConfigKey.parse("thorntail.benchmark.expression");
+    }
+
+    @Benchmark
+    public Object valueOfPresent() {
+        return this.configView.valueOf(this.present);
+    }
+
+    @Benchmark
+    public Object valueOfMissing() {
+        return this.configView.valueOf(this.missing);
+    }
+
+    @Benchmark
+    public Object valueOfExpression() {
+        return this.configView.valueOf(this.expression);
+    }
+
+    private static final int PROPERTIES = 500;
+
+    private ConfigViewImpl configView;
+
+    private ConfigKey present;
+
+    private ConfigKey missing;
+
+    private ConfigKey expression;
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.swarm.container.config.ConfigViewFactory;
+import org.wildfly.swarm.container.runtime.cdi.DeploymentContextImpl;
+import org.wildfly.swarm.spi.api.Defaultable;
+import org.wildfly.swarm.spi.api.annotations.Configurable;
+
+/**
+ * Binding of configuration values to the {@link Configurable} fields of a
+ * fraction-like component by {@link ConfigurableManager#scan(Object)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigurableManagerBenchmark {
+
+    @Setup
+    public void setup() {
+        ConfigViewFactory factory = new ConfigViewFactory(new Properties(), new HashMap<>());
+        factory.withProperty("thorntail.benchmark.host", "example.org");
+        factory.withProperty("thorntail.benchmark.port", "8443");
+        factory.withProperty("thorntail.benchmark.enabled", "true");
+        factory.withProperty("thorntail.benchmark.timeout", "30000");
+        this.manager = new ConfigurableManager(factory.get(true), new DeploymentContextImpl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.manager.close();
+    }
+
+    @Benchmark
+    public Component scan() throws Exception {
+        Component component = new Component();
+        this.manager.scan(component);
+        return component;
+    }
+
+    public static class Component {
+        @Configurable("thorntail.benchmark.host")
+        public Defaultable<String> host = Defaultable.string("localhost");
+
+        @Configurable("thorntail.benchmark.port")
+        public Defaultable<Integer> port = Defaultable.integer(8080);
+
+        @Configurable("thorntail.benchmark.enabled")
+        public Defaultable<Boolean> enabled = Defaultable.bool(false);
+
+        @Configurable("thorntail.benchmark.timeout")
+        public Defaultable<Long> timeout = Defaultable.longInteger(1000);
+
+        @Configurable("thorntail.benchmark.unset")
+        public Defaultable<String> unset = Defaultable.string("default");
+    }
+
+    private ConfigurableManager manager;
+}
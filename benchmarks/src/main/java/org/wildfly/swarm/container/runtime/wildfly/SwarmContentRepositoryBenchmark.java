@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime.wildfly;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing and spooling of deployment content by
+ * {@link SwarmContentRepository#addContent(java.io.InputStream)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SwarmContentRepositoryBenchmark {
+
+    @Param({"1048576", "16777216"})
+    public int size;
+
+    @Setup
+    public void setup() {
+        this.content = new byte[this.size];
+        new Random(42).nextBytes(this.content);
+    }
+
+    @Setup(Level.Iteration)
+    public void newRepository() {
+        this.repository = new SwarmContentRepository();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeContent() throws IOException {
+        this.repository.removeAllContent();
+    }
+
+    @Benchmark
+    public byte[] addContent() throws IOException {
+        return this.repository.addContent(new ByteArrayInputStream(this.content));
+    }
+
+    private byte[] content;
+
+    private SwarmContentRepository repository;
+}
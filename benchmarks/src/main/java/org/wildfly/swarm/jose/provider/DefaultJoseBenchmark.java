@@ -0,0 +1,94 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.jose.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.swarm.jose.Jose;
+import org.wildfly.swarm.jose.JoseFraction;
+
+/**
+ * HS256 signing and direct A128GCM encryption by {@link DefaultJoseImpl},
+ * with the inline JWK set used by the jose4j testsuite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DefaultJoseBenchmark {
+
+    @Setup
+    public void setup() {
+        JoseFraction fraction = new JoseFraction();
+        fraction.keystorePath("inline");
+        fraction.keystoreType("jwk");
+        fraction.inlinedKeystoreJwkSet(JWK_SET);
+        fraction.signatureKeyAlias("HMacKey");
+        fraction.signatureAlgorithm("HS256");
+        fraction.encryptionKeyAlias("AesGcmKey");
+        fraction.keyEncryptionAlgorithm("dir");
+        this.jose = new DefaultJoseImpl(fraction);
+
+        this.jws = this.jose.sign(PAYLOAD);
+        this.jwe = this.jose.encrypt(PAYLOAD);
+    }
+
+    @Benchmark
+    public String sign() {
+        return this.jose.sign(PAYLOAD);
+    }
+
+    @Benchmark
+    public String verify() {
+        return this.jose.verify(this.jws);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return this.jose.encrypt(PAYLOAD);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return this.jose.decrypt(this.jwe);
+    }
+
+    private static final String PAYLOAD = "{\"sub\":\"benchmark\",\"iss\":\"https://thorntail.io\",\"groups\":[\"user\",\"admin\"]}";
+
+    private static final String JWK_SET = "{\"keys\":["
+            + "{\"kty\":\"oct\",\"alg\":\"HS256\",\"kid\":\"HMacKey\","
+            + "\"k\":\"AyM1SysPpbyDfgZld3umj1qzKObwVMkoqQ-EstJQLr_T-1qS0gZH75aKtMN3Yj0iPS4hcgUuTwjAzZr1Z9CAow\"},"
+            + "{\"kty\":\"oct\",\"alg\":\"A128GCM\",\"kid\":\"AesGcmKey\",\"k\":\"GawgguFyGrWKav7AX4VKUg\"}"
+            + "]}";
+
+    private Jose jose;
+
+    private String jws;
+
+    private String jwe;
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.keycloak.deployment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolution of request paths to multi-tenant Keycloak deployments by the
+ * {@link PathTrie} of {@link KeycloakAdapterConfigResolver}, compared with the
+ * scan over all the entry paths it replaces. Half of the tenants also have a
+ * more specific admin path, and the request paths never match exactly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathTrieBenchmark {
+
+    @Param({"100", "500"})
+    public int tenants;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < this.tenants; ++i) {
+            this.pathDeployments.put("/tenant-" + i, "tenant-" + i);
+            if (i % 2 == 0) {
+                this.pathDeployments.put("/tenant-" + i + "/admin", "tenant-" + i + "-admin");
+            }
+        }
+        this.trie = new PathTrie<>(this.pathDeployments);
+        this.paths = new String[PATHS];
+        for (int i = 0; i < PATHS; ++i) {
+            int tenant = (i * 7919) % this.tenants;
+            this.paths[i] = "/tenant-" + tenant + (i % 3 == 0 ? "/admin/users/" : "/orders/") + i;
+        }
+    }
+
+    @Benchmark
+    public String trie() {
+        return this.trie.longestPrefix(nextPath());
+    }
+
+    @Benchmark
+    public String scan() {
+        String path = nextPath();
+        return this.pathDeployments.entrySet()
+                .stream()
+                .filter(e -> path.startsWith(e.getKey()))
+                .findFirst()
+                .map(Map.Entry::getValue)
+                .orElse(null);
+    }
+
+    private String nextPath() {
+        return this.paths[this.next++ & (PATHS - 1)];
+    }
+
+    private static final int PATHS = 1024;
+
+    private final Map<String, String> pathDeployments = new HashMap<>();
+
+    private PathTrie<String> trie;
+
+    private String[] paths;
+
+    private int next;
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering of the monitor {@code /heap} and {@code /threads} payloads, with
+ * and without the short-lived cache used by {@link MonitorService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlatformInfoBenchmark {
+
+    @Benchmark
+    public String heap() {
+        return this.uncached.heapJson();
+    }
+
+    @Benchmark
+    public String threads() {
+        return this.uncached.threadsJson();
+    }
+
+    @Benchmark
+    public String heapCached() {
+        return this.cached.heapJson();
+    }
+
+    @Benchmark
+    public String threadsCached() {
+        return this.cached.threadsJson();
+    }
+
+    private final PlatformInfo uncached = new PlatformInfo(0);
+
+    private final PlatformInfo cached = new PlatformInfo(TimeUnit.SECONDS.toMillis(1));
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.smallrye.metrics.MetricRegistries;
+import io.smallrye.metrics.MetricsRequestHandler;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full {@code /metrics} scrape rendered by {@link PrometheusExposition},
+ * compared with the SmallRye {@link MetricsRequestHandler} it replaces for
+ * text scrapes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetricsExpositionBenchmark {
+
+    // every parameter value runs in its own fork, hence its own registry
+    @Param({"100", "1000"})
+    public int metrics;
+
+    @Setup
+    public void setup() {
+        MetricRegistry registry = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+        for (int i = 0; i < this.metrics; ++i) {
+            Tag tag = new Tag("instance", Integer.toString(i % 10));
+            switch (i % 4) {
+                case 0:
+                    registry.counter("benchmark.counter" + i, tag).inc(i);
+                    break;
+                case 1:
+                    registry.concurrentGauge("benchmark.gauge" + i, tag).inc();
+                    break;
+                case 2:
+                    registry.histogram("benchmark.histogram" + i, tag).update(i);
+                    break;
+                default:
+                    registry.timer("benchmark.timer" + i, tag).update(i, TimeUnit.MILLISECONDS);
+                    break;
+            }
+        }
+        this.scopes = PrometheusExposition.scopes("/metrics");
+    }
+
+    @Benchmark
+    public int exposition() {
+        return render(false);
+    }
+
+    @Benchmark
+    public int expositionGzip() {
+        return render(true);
+    }
+
+    @Benchmark
+    public int smallrye() throws Exception {
+        int[] length = new int[1];
+        this.smallrye.handleRequest("/metrics", "GET", Stream.of("text/plain"), (status, message, headers) -> length[0] = message.length());
+        return length[0];
+    }
+
+    private int render(boolean gzip) {
+        ByteBuffer buffer = this.exposition.render(this.scopes, PrometheusExposition.Format.TEXT, gzip);
+        try {
+            return buffer.remaining();
+        } finally {
+            this.exposition.release(buffer);
+        }
+    }
+
+    private final PrometheusExposition exposition = new PrometheusExposition();
+
+    private final MetricsRequestHandler smallrye = new MetricsRequestHandler();
+
+    private MetricRegistry.Type[] scopes;
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.swarm.topology.Topology;
+
+/**
+ * Lookups against a {@link TopologyManager} holding a few hundred
+ * registrations, single-threaded and under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TopologyManagerBenchmark {
+
+    @Setup
+    public void setup() {
+        this.manager = new TopologyManager();
+        List<Registration> registrations = new ArrayList<>();
+        for (int service = 0; service < SERVICES; ++service) {
+            for (int instance = 0; instance < INSTANCES; ++instance) {
+                registrations.add(new Registration("benchmark", "service-" + service, "10.0." + service + "." + instance, 8080, "http"));
+            }
+        }
+        this.manager.replaceAll("benchmark", registrations);
+    }
+
+    @Benchmark
+    public Set<Registration> registrationsForService() {
+        return this.manager.registrationsForService("service-" + (SERVICES / 2));
+    }
+
+    @Benchmark
+    public Set<Registration> registrationsForServiceAndTag() {
+        return this.manager.registrationsForService("service-" + (SERVICES / 2), "http");
+    }
+
+    @Benchmark
+    public Map<String, List<Topology.Entry>> asMap() {
+        return this.manager.asMap();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<Registration> registrationsForServiceContended() {
+        return this.manager.registrationsForService("service-" + (SERVICES / 2));
+    }
+
+    @Benchmark
+    public long version() {
+        return this.manager.version();
+    }
+
+    private static final int SERVICES = 50;
+
+    private static final int INSTANCES = 4;
+
+    private TopologyManager manager;
+}
@@ -65,6 +65,60 @@ public class FluentdFraction implements Fraction<FluentdFraction> {
         return tag;
     }
 
+    public FluentdFraction async(boolean async) {
+        this.async = async;
+        return this;
+    }
+
+    public boolean async() {
+        return this.async;
+    }
+
+    public FluentdFraction queueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public int queueSize() {
+        return this.queueSize;
+    }
+
+    public FluentdFraction batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int batchSize() {
+        return this.batchSize;
+    }
+
+    public FluentdFraction overflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    public FluentdFraction sampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    public int sampleRate() {
+        return this.sampleRate;
+    }
+
+    public FluentdFraction packedForward(boolean packedForward) {
+        this.packedForward = packedForward;
+        return this;
+    }
+
+    public boolean packedForward() {
+        return this.packedForward;
+    }
+
     @AttributeDocumentation("Host name of the fluentd server")
     private String hostname;
 
@@ -77,4 +131,22 @@ public class FluentdFraction implements Fraction<FluentdFraction> {
     @AttributeDocumentation("Logging tag")
     private String tag = "local";
 
+    @AttributeDocumentation("Send records from a background thread, in batches, instead of on the logging thread")
+    private boolean async;
+
+    @AttributeDocumentation("Maximum number of records buffered in asynchronous mode, rounded up to a power of two")
+    private int queueSize = 8192;
+
+    @AttributeDocumentation("Maximum number of records sent in one message in asynchronous mode")
+    private int batchSize = 256;
+
+    @AttributeDocumentation("What to do with records when the buffer is full in asynchronous mode: DROP, BLOCK or SAMPLE")
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    @AttributeDocumentation("With the SAMPLE policy, one in how many records below WARN are kept once the buffer is half full")
+    private int sampleRate = 10;
+
+    @AttributeDocumentation("Send batches in the PackedForward mode of the forward protocol, rather than in the Forward mode")
+    private boolean packedForward = true;
+
 }
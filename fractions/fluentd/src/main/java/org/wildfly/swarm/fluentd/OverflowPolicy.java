@@ -0,0 +1,23 @@
+package org.wildfly.swarm.fluentd;
+
+/**
+ * What the asynchronous fluentd handler does with a record when its buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Drop the record.
+     */
+    DROP,
+
+    /**
+     * Block the logging thread until there is room in the buffer.
+     */
+    BLOCK,
+
+    /**
+     * Once the buffer is half full, only keep one in {@code sample-rate} records below {@code WARN}, and drop
+     * records when it is full.
+     */
+    SAMPLE
+}
@@ -65,6 +65,12 @@ public class FluentdCustomizer implements Customizer {
             handlerProps.put("hostname", hostname);
             handlerProps.put("port", "" + port);
             handlerProps.put("tag", this.fluentdFraction.getTag());
+            handlerProps.put("async", Boolean.toString(this.fluentdFraction.async()));
+            handlerProps.put("queueSize", Integer.toString(this.fluentdFraction.queueSize()));
+            handlerProps.put("batchSize", Integer.toString(this.fluentdFraction.batchSize()));
+            handlerProps.put("overflowPolicy", this.fluentdFraction.overflowPolicy().name());
+            handlerProps.put("sampleRate", Integer.toString(this.fluentdFraction.sampleRate()));
+            handlerProps.put("packedForward", Boolean.toString(this.fluentdFraction.packedForward()));
 
             final CustomHandler<?> fluentd = new CustomHandler<>("fluentd-handler")
                     .module("org.wildfly.swarm.fluentd:runtime")
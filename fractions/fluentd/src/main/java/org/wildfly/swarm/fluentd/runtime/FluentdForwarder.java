@@ -0,0 +1,155 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.wildfly.swarm.logging.runtime.BatchSender;
+
+/**
+ * The writer thread of the asynchronous fluentd handler.
+ *
+ * <p>Drains up to {@code batchSize} records from the ring buffer, encodes them as msgpack {@code [time, record]}
+ * entries and sends them in one message of the fluentd forward protocol: in {@code PackedForward} mode the
+ * entries are sent as a single binary, in {@code Forward} mode as an array. Connecting, retrying and stopping are
+ * left to the {@link BatchSender}.</p>
+ */
+final class FluentdForwarder extends BatchSender {
+
+    FluentdForwarder(String hostname, int port, String tag, RecordRingBuffer buffer, int batchSize, boolean packed,
+                     FluentdStatistics statistics, BiConsumer<String, Exception> errorReporter) {
+        super("fluentd-forwarder", "fluentd", hostname, port, errorReporter);
+        this.tag = MsgPackWriter.encode(tag);
+        this.buffer = buffer;
+        this.batchSize = batchSize;
+        this.packed = packed;
+        this.statistics = statistics;
+    }
+
+    @Override
+    protected boolean isEmpty() {
+        return this.buffer.isEmpty();
+    }
+
+    @Override
+    protected int encodeBatch() {
+        this.entries.reset();
+        int count = 0;
+        ExtLogRecord record;
+        while (count < this.batchSize && (record = this.buffer.poll()) != null) {
+            encode(record);
+            ++count;
+        }
+        if (count > 0) {
+            frame(count);
+        }
+        return count;
+    }
+
+    @Override
+    protected void writeBatch(OutputStream out) throws IOException {
+        out.write(this.message.array(), 0, this.message.size());
+    }
+
+    @Override
+    protected int clear() {
+        int count = 0;
+        while (this.buffer.poll() != null) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    protected void dropped(long records) {
+        this.statistics.dropped(records);
+    }
+
+    @Override
+    protected void sent(int records) {
+        this.statistics.sent(records);
+    }
+
+    @Override
+    protected void failed() {
+        this.statistics.failed();
+    }
+
+    private void encode(ExtLogRecord record) {
+        MsgPackWriter out = this.entries;
+        out.writeArrayHeader(2);
+        out.writeLong(TimeUnit.MILLISECONDS.toSeconds(record.getMillis()));
+        out.writeMapHeader(7);
+        out.writeRaw(SEQUENCE);
+        out.writeLong(record.getSequenceNumber());
+        out.writeRaw(LEVEL);
+        out.writeString(record.getLevel().getName());
+        out.writeRaw(THREAD_NAME);
+        out.writeString(record.getThreadName());
+        out.writeRaw(MESSAGE);
+        out.writeString(record.getFormattedMessage());
+        out.writeRaw(THREAD_ID);
+        out.writeLong(record.getThreadID());
+        out.writeRaw(MDC);
+        Map<String, String> mdc = record.getMdcCopy();
+        out.writeMapHeader(mdc.size());
+        for (Map.Entry<String, String> entry : mdc.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeString(entry.getValue());
+        }
+        out.writeRaw(NDC);
+        out.writeString(record.getNdc());
+    }
+
+    private void frame(int count) {
+        MsgPackWriter message = this.message;
+        message.reset();
+        if (this.packed) {
+            message.writeArrayHeader(3);
+            message.writeRaw(this.tag);
+            message.writeBinaryHeader(this.entries.size());
+            message.writeRaw(this.entries.array(), 0, this.entries.size());
+            message.writeMapHeader(1);
+            message.writeRaw(SIZE);
+            message.writeLong(count);
+        } else {
+            message.writeArrayHeader(2);
+            message.writeRaw(this.tag);
+            message.writeArrayHeader(count);
+            message.writeRaw(this.entries.array(), 0, this.entries.size());
+        }
+    }
+
+    private static final byte[] SEQUENCE = MsgPackWriter.encode(FluentdHandler.Key.SEQUENCE.getKey());
+
+    private static final byte[] LEVEL = MsgPackWriter.encode(FluentdHandler.Key.LEVEL.getKey());
+
+    private static final byte[] THREAD_NAME = MsgPackWriter.encode(FluentdHandler.Key.THREAD_NAME.getKey());
+
+    private static final byte[] MESSAGE = MsgPackWriter.encode(FluentdHandler.Key.MESSAGE.getKey());
+
+    private static final byte[] THREAD_ID = MsgPackWriter.encode(FluentdHandler.Key.THREAD_ID.getKey());
+
+    private static final byte[] MDC = MsgPackWriter.encode(FluentdHandler.Key.MDC.getKey());
+
+    private static final byte[] NDC = MsgPackWriter.encode(FluentdHandler.Key.NDC.getKey());
+
+    private static final byte[] SIZE = MsgPackWriter.encode("size");
+
+    private final byte[] tag;
+
+    private final RecordRingBuffer buffer;
+
+    private final int batchSize;
+
+    private final boolean packed;
+
+    private final FluentdStatistics statistics;
+
+    private final MsgPackWriter entries = new MsgPackWriter(64 * 1024);
+
+    private final MsgPackWriter message = new MsgPackWriter(64 * 1024);
+}
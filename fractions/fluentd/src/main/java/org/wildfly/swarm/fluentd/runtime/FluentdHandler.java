@@ -1,15 +1,26 @@
 package org.wildfly.swarm.fluentd.runtime;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.ErrorManager;
 import java.util.logging.Logger;
 
 import org.fluentd.logger.sender.RawSocketSender;
 import org.jboss.logmanager.ExtHandler;
 import org.jboss.logmanager.ExtLogRecord;
+import org.wildfly.swarm.fluentd.OverflowPolicy;
 
 /**
+ * Sends log records to a fluentd daemon.
+ *
+ * <p>By default each record is emitted on the logging thread. In asynchronous mode, records are put into a
+ * bounded ring buffer instead, and sent in batches by a {@link FluentdForwarder} thread, so that a slow or
+ * unreachable fluentd never blocks logging threads unless the {@link OverflowPolicy#BLOCK} policy asks for it.</p>
+ *
  * @author Heiko Braun
  * @since 14/11/2016
  */
@@ -61,8 +72,36 @@ public class FluentdHandler extends ExtHandler {
         this.tag = tag;
     }
 
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    public void setPackedForward(boolean packedForward) {
+        this.packedForward = packedForward;
+    }
+
     @Override
     protected void doPublish(ExtLogRecord record) {
+        if (this.async) {
+            enqueue(record);
+            return;
+        }
 
         synchronized (this) {
             if (!initialized) {
@@ -91,6 +130,64 @@ public class FluentdHandler extends ExtHandler {
 
     }
 
+    private void enqueue(ExtLogRecord record) {
+        FluentdForwarder forwarder = this.forwarder;
+        if (forwarder == null) {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                if (this.forwarder == null) {
+                    startForwarder();
+                }
+                forwarder = this.forwarder;
+            }
+        }
+        RecordRingBuffer buffer = this.buffer;
+
+        if (this.overflowPolicy == OverflowPolicy.SAMPLE
+                && record.getLevel().intValue() < java.util.logging.Level.WARNING.intValue()
+                && buffer.size() > buffer.capacity() / 2
+                && ThreadLocalRandom.current().nextInt(this.sampleRate) != 0) {
+            this.statistics.dropped(1);
+            return;
+        }
+
+        // the message, MDC and NDC must be captured before handing the record over to another thread
+        record.copyAll();
+        while (!buffer.offer(record)) {
+            if (this.overflowPolicy != OverflowPolicy.BLOCK || this.forwarder != forwarder) {
+                this.statistics.dropped(1);
+                return;
+            }
+            forwarder.signal();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        forwarder.signal();
+    }
+
+    private void startForwarder() {
+        this.buffer = new RecordRingBuffer(this.queueSize);
+        this.statistics = new FluentdStatistics(this.buffer);
+        FluentdForwarder forwarder = new FluentdForwarder(this.hostname, this.port, this.tag, this.buffer, this.batchSize,
+                                                          this.packedForward, this.statistics,
+                                                          (message, e) -> reportError(message, e, ErrorManager.WRITE_FAILURE));
+        forwarder.start();
+        // set before logging anything, as this handler may well receive that record too
+        this.forwarder = forwarder;
+        if (FluentdMetrics.isAvailable()) {
+            FluentdMetrics.register(this.statistics);
+        }
+        log.info("Sending records to fluentd asynchronously");
+    }
+
+    /**
+     * @return the counters of the asynchronous mode, once the first record was published
+     */
+    synchronized FluentdStatistics statistics() {
+        return this.statistics;
+    }
+
     private void initialize() {
         try {
             this.sender = new RawSocketSender(hostname, port);
@@ -103,7 +200,10 @@ public class FluentdHandler extends ExtHandler {
 
     @Override
     public void flush() {
-        // should not happen
+        FluentdForwarder forwarder = this.forwarder;
+        if (forwarder != null) {
+            forwarder.signal();
+        }
     }
 
     @Override
@@ -114,6 +214,16 @@ public class FluentdHandler extends ExtHandler {
             safeClose(this.sender);
             this.sender = null;
             this.initialized = false;
+
+            this.closed = true;
+            if (this.forwarder != null) {
+                FluentdForwarder forwarder = this.forwarder;
+                this.forwarder = null;
+                forwarder.stop(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (FluentdMetrics.isAvailable()) {
+                    FluentdMetrics.unregister(this.statistics);
+                }
+            }
         }
     }
 
@@ -130,6 +240,10 @@ public class FluentdHandler extends ExtHandler {
 
     private static final java.util.logging.Logger log = Logger.getLogger("org.wildfly.swarm.fluentd");
 
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
     private String hostname;
 
     private int port;
@@ -140,4 +254,24 @@ public class FluentdHandler extends ExtHandler {
 
     private String tag;
 
+    private boolean async;
+
+    private int queueSize = 8192;
+
+    private int batchSize = 256;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    private int sampleRate = 10;
+
+    private boolean packedForward = true;
+
+    private volatile FluentdForwarder forwarder;
+
+    private boolean closed;
+
+    private RecordRingBuffer buffer;
+
+    private FluentdStatistics statistics;
+
 }
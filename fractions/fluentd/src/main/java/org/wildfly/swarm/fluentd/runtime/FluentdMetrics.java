@@ -0,0 +1,73 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+
+/**
+ * Exposes the {@link FluentdStatistics} in the vendor scope, if the MicroProfile Metrics fraction is present.
+ */
+final class FluentdMetrics {
+
+    static final String QUEUED = "fluentd.records.queued";
+
+    static final String DROPPED = "fluentd.records.dropped";
+
+    static final String SENT = "fluentd.records.sent";
+
+    static final String FAILURES = "fluentd.send.failures";
+
+    private static FluentdStatistics registered;
+
+    private FluentdMetrics() {
+    }
+
+    static boolean isAvailable() {
+        try {
+            Class.forName("io.smallrye.metrics.MetricRegistries", false, FluentdMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static synchronized void register(FluentdStatistics statistics) {
+        // a handler replaced on reconfiguration takes over the names
+        MetricRegistry registry = MetricRegistries.get(MetricRegistry.Type.VENDOR);
+        remove(registry);
+        registry.register(metadata(QUEUED, MetricType.GAUGE, "Log records waiting to be sent to fluentd"),
+                          (Gauge<Long>) statistics::queued);
+        Counter dropped = registry.counter(metadata(DROPPED, MetricType.COUNTER, "Log records dropped because the buffer was full, or fluentd unreachable on shutdown"));
+        Counter sent = registry.counter(metadata(SENT, MetricType.COUNTER, "Log records sent to fluentd"));
+        Counter failures = registry.counter(metadata(FAILURES, MetricType.COUNTER, "Failed attempts to send a batch to fluentd"));
+        statistics.countInto(dropped::inc, sent::inc, failures::inc);
+        registered = statistics;
+    }
+
+    static synchronized void unregister(FluentdStatistics statistics) {
+        // the replaced handler is closed after its successor registered, and must leave its metrics alone
+        if (registered != statistics) {
+            return;
+        }
+        remove(MetricRegistries.get(MetricRegistry.Type.VENDOR));
+        registered = null;
+    }
+
+    private static void remove(MetricRegistry registry) {
+        registry.remove(QUEUED);
+        registry.remove(DROPPED);
+        registry.remove(SENT);
+        registry.remove(FAILURES);
+    }
+
+    private static Metadata metadata(String name, MetricType type, String description) {
+        return Metadata.builder()
+                .withName(name)
+                .withType(type)
+                .withDescription(description)
+                .build();
+    }
+}
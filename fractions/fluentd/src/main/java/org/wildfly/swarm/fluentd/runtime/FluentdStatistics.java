@@ -0,0 +1,71 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Counters of the asynchronous fluentd handler.
+ */
+final class FluentdStatistics {
+
+    FluentdStatistics(RecordRingBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    long queued() {
+        return this.buffer.size();
+    }
+
+    long dropped() {
+        return this.dropped.sum();
+    }
+
+    long sent() {
+        return this.sent.sum();
+    }
+
+    long failures() {
+        return this.failures.sum();
+    }
+
+    /**
+     * Also count the dropped and sent records, and the failures, into the given counters, typically metrics.
+     */
+    void countInto(LongConsumer dropped, LongConsumer sent, LongConsumer failures) {
+        this.droppedCounter = dropped;
+        this.sentCounter = sent;
+        this.failuresCounter = failures;
+    }
+
+    void dropped(long records) {
+        this.dropped.add(records);
+        this.droppedCounter.accept(records);
+    }
+
+    void sent(long records) {
+        this.sent.add(records);
+        this.sentCounter.accept(records);
+    }
+
+    void failed() {
+        this.failures.increment();
+        this.failuresCounter.accept(1);
+    }
+
+    private static final LongConsumer NONE = n -> {
+    };
+
+    private final RecordRingBuffer buffer;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private volatile LongConsumer droppedCounter = NONE;
+
+    private volatile LongConsumer sentCounter = NONE;
+
+    private volatile LongConsumer failuresCounter = NONE;
+}
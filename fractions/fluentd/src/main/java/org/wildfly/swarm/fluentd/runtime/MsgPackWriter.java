@@ -0,0 +1,215 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Encodes msgpack values into a growable byte array, which is reused across batches.
+ */
+final class MsgPackWriter {
+
+    MsgPackWriter(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    static byte[] encode(String value) {
+        MsgPackWriter writer = new MsgPackWriter(value.length() + 5);
+        writer.writeString(value);
+        return Arrays.copyOf(writer.bytes, writer.size);
+    }
+
+    void reset() {
+        this.size = 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    byte[] array() {
+        return this.bytes;
+    }
+
+    void writeNil() {
+        ensure(1);
+        this.bytes[this.size++] = (byte) 0xc0;
+    }
+
+    void writeArrayHeader(int length) {
+        if (length < 16) {
+            writeByte(0x90 | length);
+        } else if (length < 0x10000) {
+            writeByteAndShort(0xdc, length);
+        } else {
+            writeByteAndInt(0xdd, length);
+        }
+    }
+
+    void writeMapHeader(int length) {
+        if (length < 16) {
+            writeByte(0x80 | length);
+        } else if (length < 0x10000) {
+            writeByteAndShort(0xde, length);
+        } else {
+            writeByteAndInt(0xdf, length);
+        }
+    }
+
+    void writeBinaryHeader(int length) {
+        if (length < 0x100) {
+            ensure(2);
+            this.bytes[this.size++] = (byte) 0xc4;
+            this.bytes[this.size++] = (byte) length;
+        } else if (length < 0x10000) {
+            writeByteAndShort(0xc5, length);
+        } else {
+            writeByteAndInt(0xc6, length);
+        }
+    }
+
+    void writeLong(long value) {
+        if (value >= 0) {
+            if (value < 0x80) {
+                writeByte((int) value);
+            } else if (value < 0x100) {
+                ensure(2);
+                this.bytes[this.size++] = (byte) 0xcc;
+                this.bytes[this.size++] = (byte) value;
+            } else if (value < 0x10000) {
+                writeByteAndShort(0xcd, (int) value);
+            } else if (value < 0x100000000L) {
+                writeByteAndInt(0xce, (int) value);
+            } else {
+                writeByteAndLong(0xcf, value);
+            }
+        } else {
+            if (value >= -32) {
+                writeByte((int) value);
+            } else if (value >= Byte.MIN_VALUE) {
+                ensure(2);
+                this.bytes[this.size++] = (byte) 0xd0;
+                this.bytes[this.size++] = (byte) value;
+            } else if (value >= Short.MIN_VALUE) {
+                writeByteAndShort(0xd1, (int) value);
+            } else if (value >= Integer.MIN_VALUE) {
+                writeByteAndInt(0xd2, (int) value);
+            } else {
+                writeByteAndLong(0xd3, value);
+            }
+        }
+    }
+
+    /**
+     * Write a string as UTF-8, without going through an intermediate byte array. Unpaired surrogates are
+     * written as {@code ?}, like {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeNil();
+            return;
+        }
+        int length = value.length();
+        int encodedLength = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                encodedLength += 1;
+            } else if (c < 0x800) {
+                encodedLength += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                encodedLength += 4;
+                ++i;
+            } else if (Character.isSurrogate(c)) {
+                encodedLength += 1;
+            } else {
+                encodedLength += 3;
+            }
+        }
+
+        if (encodedLength < 32) {
+            writeByte(0xa0 | encodedLength);
+        } else if (encodedLength < 0x100) {
+            ensure(2);
+            this.bytes[this.size++] = (byte) 0xd9;
+            this.bytes[this.size++] = (byte) encodedLength;
+        } else if (encodedLength < 0x10000) {
+            writeByteAndShort(0xda, encodedLength);
+        } else {
+            writeByteAndInt(0xdb, encodedLength);
+        }
+
+        ensure(encodedLength);
+        byte[] bytes = this.bytes;
+        int pos = this.size;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xc0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                bytes[pos++] = '?';
+            } else {
+                bytes[pos++] = (byte) (0xe0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        this.size = pos;
+    }
+
+    void writeRaw(byte[] value) {
+        writeRaw(value, 0, value.length);
+    }
+
+    void writeRaw(byte[] value, int offset, int length) {
+        ensure(length);
+        System.arraycopy(value, offset, this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        this.bytes[this.size++] = (byte) value;
+    }
+
+    private void writeByteAndShort(int type, int value) {
+        ensure(3);
+        this.bytes[this.size++] = (byte) type;
+        this.bytes[this.size++] = (byte) (value >> 8);
+        this.bytes[this.size++] = (byte) value;
+    }
+
+    private void writeByteAndInt(int type, int value) {
+        ensure(5);
+        this.bytes[this.size++] = (byte) type;
+        this.bytes[this.size++] = (byte) (value >> 24);
+        this.bytes[this.size++] = (byte) (value >> 16);
+        this.bytes[this.size++] = (byte) (value >> 8);
+        this.bytes[this.size++] = (byte) value;
+    }
+
+    private void writeByteAndLong(int type, long value) {
+        ensure(9);
+        this.bytes[this.size++] = (byte) type;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.bytes[this.size++] = (byte) (value >> shift);
+        }
+    }
+
+    private void ensure(int length) {
+        if (this.size + length > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + length));
+        }
+    }
+
+    private byte[] bytes;
+
+    private int size;
+}
@@ -0,0 +1,90 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * A bounded, lock-free queue of log records for many logging threads and a single writer thread.
+ *
+ * <p>Each slot carries a sequence number telling whether it is free for the producer claiming a position, or
+ * holds a record for the consumer, as in Dmitry Vyukov's bounded queue. A full buffer is reported to the
+ * producer instead of waiting.</p>
+ */
+final class RecordRingBuffer {
+
+    RecordRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.records = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return this.mask + 1;
+    }
+
+    int size() {
+        return (int) Math.max(0, this.tail.get() - this.head.get());
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return {@code false} if the buffer is full
+     */
+    boolean offer(ExtLogRecord record) {
+        long position = this.tail.get();
+        for (;;) {
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.records.set(index, record);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Only to be called by the single consumer.
+     *
+     * @return the oldest record, or {@code null} if there is none
+     */
+    ExtLogRecord poll() {
+        long position = this.head.get();
+        int index = (int) position & this.mask;
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        ExtLogRecord record = this.records.get(index);
+        this.records.set(index, null);
+        this.sequences.set(index, position + this.mask + 1);
+        this.head.lazySet(position + 1);
+        return record;
+    }
+
+    private final int mask;
+
+    private final AtomicReferenceArray<ExtLogRecord> records;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+}
@@ -0,0 +1,109 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A fluentd daemon accepting forward protocol messages on a local port, one connection at a time.
+ */
+final class FakeFluentd implements AutoCloseable {
+
+    FakeFluentd() throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.thread = new Thread(this::accept, "fake-fluentd");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return a local port nothing listens on, connections to it are refused
+     */
+    static int unusedPort() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            return server.getLocalPort();
+        }
+    }
+
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 10s");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    int port() {
+        return this.server.getLocalPort();
+    }
+
+    /**
+     * @return the next message received, as decoded by {@link MsgPackReader}
+     */
+    List<?> message() throws InterruptedException {
+        List<?> message = this.messages.poll(10, TimeUnit.SECONDS);
+        if (message == null) {
+            throw new AssertionError("no message received within 10s");
+        }
+        return message;
+    }
+
+    /**
+     * @return the {@code [time, record]} entries of a {@code Forward} or {@code PackedForward} message
+     */
+    static List<List<?>> entries(List<?> message) throws IOException {
+        List<List<?>> entries = new ArrayList<>();
+        Object payload = message.get(1);
+        if (payload instanceof byte[]) {
+            byte[] bytes = (byte[]) payload;
+            MsgPackReader reader = new MsgPackReader(bytes);
+            int count = ((Number) ((Map<?, ?>) message.get(2)).get("size")).intValue();
+            for (int i = 0; i < count; ++i) {
+                entries.add((List<?>) reader.read());
+            }
+        } else {
+            for (Object entry : (List<?>) payload) {
+                entries.add((List<?>) entry);
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.server.close();
+    }
+
+    private void accept() {
+        while (!this.server.isClosed()) {
+            try (Socket socket = this.server.accept()) {
+                MsgPackReader reader = new MsgPackReader(new BufferedInputStream(socket.getInputStream()));
+                for (;;) {
+                    this.messages.add((List<?>) reader.read());
+                }
+            } catch (EOFException e) {
+                // the forwarder reconnects
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private final ServerSocket server;
+
+    private final Thread thread;
+
+    private final BlockingQueue<List<?>> messages = new LinkedBlockingQueue<>();
+}
@@ -0,0 +1,187 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.wildfly.swarm.fluentd.runtime.FakeFluentd.await;
+import static org.wildfly.swarm.fluentd.runtime.FakeFluentd.entries;
+
+public class FluentdForwarderTest {
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.forwarder != null) {
+            this.forwarder.stop(5, TimeUnit.SECONDS);
+        }
+        if (this.fluentd != null) {
+            this.fluentd.close();
+        }
+    }
+
+    @Test
+    public void testPackedForward() throws Exception {
+        this.fluentd = new FakeFluentd();
+        start(this.fluentd.port(), 256, true, record(Level.INFO, "first"), record(Level.WARNING, "second"));
+
+        List<?> message = this.fluentd.message();
+        assertThat(message).hasSize(3);
+        assertThat(message.get(0)).isEqualTo("app.log");
+        assertThat(message.get(1)).isInstanceOf(byte[].class);
+        assertThat(message.get(2)).isEqualTo(Collections.singletonMap("size", 2L));
+
+        List<List<?>> entries = entries(message);
+        assertThat(entries).hasSize(2);
+        assertEntry(entries.get(0), "INFO", "first");
+        assertEntry(entries.get(1), "WARNING", "second");
+
+        await(() -> this.statistics.sent() == 2);
+        assertThat(this.statistics.dropped()).isEqualTo(0);
+        assertThat(this.errors).isEmpty();
+    }
+
+    @Test
+    public void testForward() throws Exception {
+        this.fluentd = new FakeFluentd();
+        start(this.fluentd.port(), 256, false, record(Level.INFO, "first"), record(Level.SEVERE, "second"));
+
+        List<?> message = this.fluentd.message();
+        assertThat(message).hasSize(2);
+        assertThat(message.get(0)).isEqualTo("app.log");
+        assertThat(message.get(1)).isInstanceOf(List.class);
+
+        List<List<?>> entries = entries(message);
+        assertThat(entries).hasSize(2);
+        assertEntry(entries.get(0), "INFO", "first");
+        assertEntry(entries.get(1), "SEVERE", "second");
+    }
+
+    @Test
+    public void testRecordFields() throws Exception {
+        this.fluentd = new FakeFluentd();
+        ExtLogRecord record = record(Level.INFO, "with context");
+        record.setMillis(1_500_000_000_123L);
+        record.putMdc("user", "jdoe");
+        record.setNdc("request-1");
+        record.copyAll();
+        start(this.fluentd.port(), 256, true, record);
+
+        List<?> entry = entries(this.fluentd.message()).get(0);
+        assertThat(entry.get(0)).isEqualTo(1_500_000_000L);
+        Map<?, ?> fields = (Map<?, ?>) entry.get(1);
+        assertThat(fields.get("sequence")).isEqualTo(record.getSequenceNumber());
+        assertThat(fields.get("threadName")).isEqualTo(record.getThreadName());
+        assertThat(fields.get("threadId")).isEqualTo((long) record.getThreadID());
+        assertThat(fields.get("mdc")).isEqualTo(Collections.singletonMap("user", "jdoe"));
+        assertThat(fields.get("ndc")).isEqualTo("request-1");
+    }
+
+    @Test
+    public void testBatchSize() throws Exception {
+        this.fluentd = new FakeFluentd();
+        List<ExtLogRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            records.add(record(Level.INFO, "record " + i));
+        }
+        start(this.fluentd.port(), 2, true, records.toArray(new ExtLogRecord[0]));
+
+        List<String> messages = new ArrayList<>();
+        for (int expected : new int[]{2, 2, 1}) {
+            List<List<?>> entries = entries(this.fluentd.message());
+            assertThat(entries).hasSize(expected);
+            for (List<?> entry : entries) {
+                messages.add((String) ((Map<?, ?>) entry.get(1)).get("message"));
+            }
+        }
+        assertThat(messages).isEqualTo(Arrays.asList("record 0", "record 1", "record 2", "record 3", "record 4"));
+        await(() -> this.statistics.sent() == 5);
+    }
+
+    @Test
+    public void testRecordsQueuedLaterAreSentOnSignal() throws Exception {
+        this.fluentd = new FakeFluentd();
+        start(this.fluentd.port(), 256, true);
+
+        this.buffer.offer(record(Level.INFO, "late"));
+        this.forwarder.signal();
+
+        assertEntry(entries(this.fluentd.message()).get(0), "INFO", "late");
+    }
+
+    @Test
+    public void testStopSendsWhatIsBuffered() throws Exception {
+        this.fluentd = new FakeFluentd();
+        start(this.fluentd.port(), 1, true);
+        for (int i = 0; i < 10; ++i) {
+            this.buffer.offer(record(Level.INFO, "record " + i));
+        }
+        this.forwarder.stop(5, TimeUnit.SECONDS);
+        this.forwarder = null;
+
+        assertThat(this.statistics.sent()).isEqualTo(10);
+        assertThat(this.statistics.dropped()).isEqualTo(0);
+        assertThat(this.buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testUnreachableFluentdDropsOnStop() throws Exception {
+        start(FakeFluentd.unusedPort(), 256, true, record(Level.INFO, "first"), record(Level.INFO, "second"));
+
+        await(() -> this.statistics.failures() >= 2);
+        this.forwarder.stop(5, TimeUnit.SECONDS);
+        this.forwarder = null;
+
+        assertThat(this.statistics.sent()).isEqualTo(0);
+        assertThat(this.statistics.dropped()).isEqualTo(2);
+        // reported once per outage, not once per attempt
+        assertThat(this.errors).hasSize(1);
+    }
+
+    private void start(int port, int batchSize, boolean packed, ExtLogRecord... records) {
+        this.buffer = new RecordRingBuffer(64);
+        this.statistics = new FluentdStatistics(this.buffer);
+        for (ExtLogRecord record : records) {
+            assertThat(this.buffer.offer(record)).isTrue();
+        }
+        this.forwarder = new FluentdForwarder("127.0.0.1", port, "app.log", this.buffer, batchSize, packed, this.statistics,
+                                              (message, e) -> this.errors.add(message));
+        this.forwarder.start();
+    }
+
+    private static void assertEntry(List<?> entry, String level, String message) {
+        assertThat(entry).hasSize(2);
+        assertThat(entry.get(0)).isInstanceOf(Long.class);
+        Map<?, ?> fields = (Map<?, ?>) entry.get(1);
+        assertThat(fields.keySet()).isEqualTo(new HashSet<>(Arrays.asList(
+                "sequence", "level", "threadName", "message", "threadId", "mdc", "ndc")));
+        assertThat(fields.get("level")).isEqualTo(level);
+        assertThat(fields.get("message")).isEqualTo(message);
+    }
+
+    static ExtLogRecord record(Level level, String message) {
+        ExtLogRecord record = new ExtLogRecord(level, message, ExtLogRecord.FormatStyle.NO_FORMAT, FluentdForwarderTest.class.getName());
+        record.copyAll();
+        return record;
+    }
+
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    private FakeFluentd fluentd;
+
+    private RecordRingBuffer buffer;
+
+    private FluentdStatistics statistics;
+
+    private FluentdForwarder forwarder;
+}
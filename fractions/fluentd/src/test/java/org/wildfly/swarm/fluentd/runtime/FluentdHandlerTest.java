@@ -0,0 +1,145 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.wildfly.swarm.fluentd.runtime.FakeFluentd.await;
+import static org.wildfly.swarm.fluentd.runtime.FakeFluentd.entries;
+import static org.wildfly.swarm.fluentd.runtime.FluentdForwarderTest.record;
+
+public class FluentdHandlerTest {
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.handler != null) {
+            this.handler.close();
+        }
+        if (this.fluentd != null) {
+            this.fluentd.close();
+        }
+    }
+
+    @Test
+    public void testAsyncSendsEveryRecord() throws Exception {
+        this.fluentd = new FakeFluentd();
+        this.handler = handler(this.fluentd.port(), 4, "block");
+
+        for (int i = 0; i < 200; ++i) {
+            this.handler.publish(record(Level.INFO, "record " + i));
+        }
+
+        int received = 0;
+        while (received < 200) {
+            for (List<?> entry : entries(this.fluentd.message())) {
+                assertThat(((Map<?, ?>) entry.get(1)).get("message")).isEqualTo("record " + received++);
+            }
+        }
+        FluentdStatistics statistics = this.handler.statistics();
+        await(() -> statistics.sent() == 200);
+        assertThat(statistics.dropped()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDropPolicy() throws Exception {
+        this.handler = handler(FakeFluentd.unusedPort(), 4, "drop");
+        FluentdStatistics statistics = awaitForwarderRetrying();
+
+        for (int i = 0; i < 20; ++i) {
+            this.handler.publish(record(Level.SEVERE, "record " + i));
+        }
+
+        assertThat(statistics.queued()).isEqualTo(4);
+        assertThat(statistics.dropped()).isEqualTo(16);
+    }
+
+    @Test
+    public void testBlockPolicy() throws Exception {
+        this.handler = handler(FakeFluentd.unusedPort(), 4, "block");
+        FluentdStatistics statistics = awaitForwarderRetrying();
+
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 5; ++i) {
+                this.handler.publish(record(Level.INFO, "record " + i));
+            }
+        });
+        publisher.start();
+
+        await(() -> statistics.queued() == 4);
+        publisher.join(200);
+        // waits for room in the buffer instead of dropping the fifth record
+        assertThat(publisher.isAlive()).isTrue();
+        assertThat(statistics.dropped()).isEqualTo(0);
+
+        // until the handler is closed
+        this.handler.close();
+        publisher.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(publisher.isAlive()).isFalse();
+        assertThat(statistics.sent()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSamplePolicy() throws Exception {
+        this.handler = handler(FakeFluentd.unusedPort(), 64, "sample");
+        // keep practically none of the sampled records
+        this.handler.setSampleRate(Integer.MAX_VALUE);
+        FluentdStatistics statistics = awaitForwarderRetrying();
+
+        for (int i = 0; i < 64; ++i) {
+            this.handler.publish(record(Level.INFO, "record " + i));
+        }
+
+        // sampled once more than half full
+        assertThat(statistics.queued()).isEqualTo(33);
+        assertThat(statistics.dropped()).isEqualTo(31);
+
+        for (int i = 0; i < 10; ++i) {
+            this.handler.publish(record(Level.WARNING, "warning " + i));
+        }
+
+        // warnings are never sampled
+        assertThat(statistics.queued()).isEqualTo(43);
+        assertThat(statistics.dropped()).isEqualTo(31);
+
+        for (int i = 0; i < 30; ++i) {
+            this.handler.publish(record(Level.SEVERE, "error " + i));
+        }
+
+        // but dropped once the buffer is full
+        assertThat(statistics.queued()).isEqualTo(64);
+        assertThat(statistics.dropped()).isEqualTo(40);
+    }
+
+    /**
+     * Publish a first record, which the forwarder keeps retrying to send to an unreachable fluentd without taking
+     * any other record from the buffer.
+     */
+    private FluentdStatistics awaitForwarderRetrying() throws InterruptedException {
+        this.handler.publish(record(Level.SEVERE, "first"));
+        FluentdStatistics statistics = this.handler.statistics();
+        await(() -> statistics.failures() >= 1);
+        assertThat(statistics.queued()).isEqualTo(0);
+        return statistics;
+    }
+
+    private static FluentdHandler handler(int port, int queueSize, String overflowPolicy) {
+        FluentdHandler handler = new FluentdHandler();
+        handler.setHostname("127.0.0.1");
+        handler.setPort(port);
+        handler.setTag("app.log");
+        handler.setAsync(true);
+        handler.setQueueSize(queueSize);
+        handler.setBatchSize(1);
+        handler.setOverflowPolicy(overflowPolicy);
+        return handler;
+    }
+
+    private FakeFluentd fluentd;
+
+    private FluentdHandler handler;
+}
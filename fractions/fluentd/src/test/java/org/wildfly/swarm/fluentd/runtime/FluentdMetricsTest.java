@@ -0,0 +1,98 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.logging.Level;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.wildfly.swarm.fluentd.runtime.FluentdForwarderTest.record;
+
+public class FluentdMetricsTest {
+
+    @After
+    public void tearDown() {
+        FluentdMetrics.unregister(this.statistics);
+    }
+
+    @Test
+    public void testCountersFollowTheStatistics() {
+        RecordRingBuffer buffer = new RecordRingBuffer(4);
+        this.statistics = new FluentdStatistics(buffer);
+        FluentdMetrics.register(this.statistics);
+
+        buffer.offer(record(Level.INFO, "queued"));
+        this.statistics.dropped(3);
+        this.statistics.sent(5);
+        this.statistics.sent(2);
+        this.statistics.failed();
+
+        assertThat(counter(FluentdMetrics.DROPPED).getCount()).isEqualTo(3);
+        assertThat(counter(FluentdMetrics.SENT).getCount()).isEqualTo(7);
+        assertThat(counter(FluentdMetrics.FAILURES).getCount()).isEqualTo(1);
+        assertThat(registry().getGauges().get(new MetricID(FluentdMetrics.QUEUED)).getValue()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testCountersCanBeIncremented() {
+        this.statistics = new FluentdStatistics(new RecordRingBuffer(4));
+        FluentdMetrics.register(this.statistics);
+
+        // like any other counter, e.g. when a reporter resets or adjusts it
+        counter(FluentdMetrics.DROPPED).inc();
+        counter(FluentdMetrics.DROPPED).inc(2);
+
+        assertThat(counter(FluentdMetrics.DROPPED).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testReplacedHandlerStartsFromZero() {
+        FluentdStatistics first = new FluentdStatistics(new RecordRingBuffer(4));
+        FluentdMetrics.register(first);
+        first.sent(10);
+
+        this.statistics = new FluentdStatistics(new RecordRingBuffer(4));
+        FluentdMetrics.register(this.statistics);
+        this.statistics.sent(1);
+
+        assertThat(counter(FluentdMetrics.SENT).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReplacedHandlerLeavesItsSuccessorRegistered() {
+        FluentdStatistics first = new FluentdStatistics(new RecordRingBuffer(4));
+        FluentdMetrics.register(first);
+
+        this.statistics = new FluentdStatistics(new RecordRingBuffer(4));
+        FluentdMetrics.register(this.statistics);
+        FluentdMetrics.unregister(first);
+        this.statistics.sent(2);
+
+        assertThat(counter(FluentdMetrics.SENT).getCount()).isEqualTo(2);
+        assertThat(registry().getGauges().containsKey(new MetricID(FluentdMetrics.QUEUED))).isTrue();
+    }
+
+    @Test
+    public void testUnregister() {
+        FluentdStatistics statistics = new FluentdStatistics(new RecordRingBuffer(4));
+        FluentdMetrics.register(statistics);
+        FluentdMetrics.unregister(statistics);
+
+        assertThat(registry().getCounters().containsKey(new MetricID(FluentdMetrics.DROPPED))).isFalse();
+        assertThat(registry().getGauges().containsKey(new MetricID(FluentdMetrics.QUEUED))).isFalse();
+    }
+
+    private static Counter counter(String name) {
+        return registry().getCounters().get(new MetricID(name));
+    }
+
+    private static MetricRegistry registry() {
+        return MetricRegistries.get(MetricRegistry.Type.VENDOR);
+    }
+
+    private FluentdStatistics statistics;
+}
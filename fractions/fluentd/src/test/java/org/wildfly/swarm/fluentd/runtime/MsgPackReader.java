@@ -0,0 +1,115 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the subset of msgpack written by {@link MsgPackWriter}, to check its output: integers are read as
+ * {@link Long}, strings as {@link String}, binaries as {@code byte[]}, arrays as {@link List} and maps as
+ * {@link Map}.
+ */
+final class MsgPackReader {
+
+    MsgPackReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    MsgPackReader(byte[] bytes) {
+        this(new ByteArrayInputStream(bytes));
+    }
+
+    Object read() throws IOException {
+        int type = this.in.readUnsignedByte();
+        if (type <= 0x7f) {
+            return (long) type;
+        }
+        if (type >= 0xe0) {
+            return (long) (byte) type;
+        }
+        if ((type & 0xf0) == 0x80) {
+            return readMap(type & 0x0f);
+        }
+        if ((type & 0xf0) == 0x90) {
+            return readArray(type & 0x0f);
+        }
+        if ((type & 0xe0) == 0xa0) {
+            return readString(type & 0x1f);
+        }
+        switch (type) {
+            case 0xc0:
+                return null;
+            case 0xc4:
+                return readBytes(this.in.readUnsignedByte());
+            case 0xc5:
+                return readBytes(this.in.readUnsignedShort());
+            case 0xc6:
+                return readBytes(this.in.readInt());
+            case 0xcc:
+                return (long) this.in.readUnsignedByte();
+            case 0xcd:
+                return (long) this.in.readUnsignedShort();
+            case 0xce:
+                return this.in.readInt() & 0xffffffffL;
+            case 0xcf:
+            case 0xd3:
+                return this.in.readLong();
+            case 0xd0:
+                return (long) this.in.readByte();
+            case 0xd1:
+                return (long) this.in.readShort();
+            case 0xd2:
+                return (long) this.in.readInt();
+            case 0xd9:
+                return readString(this.in.readUnsignedByte());
+            case 0xda:
+                return readString(this.in.readUnsignedShort());
+            case 0xdb:
+                return readString(this.in.readInt());
+            case 0xdc:
+                return readArray(this.in.readUnsignedShort());
+            case 0xdd:
+                return readArray(this.in.readInt());
+            case 0xde:
+                return readMap(this.in.readUnsignedShort());
+            case 0xdf:
+                return readMap(this.in.readInt());
+            default:
+                throw new IOException("Unexpected msgpack type 0x" + Integer.toHexString(type));
+        }
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        this.in.readFully(bytes);
+        return bytes;
+    }
+
+    private String readString(int length) throws IOException {
+        return new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private List<Object> readArray(int length) throws IOException {
+        List<Object> values = new ArrayList<>(length);
+        for (int i = 0; i < length; ++i) {
+            values.add(read());
+        }
+        return values;
+    }
+
+    private Map<Object, Object> readMap(int length) throws IOException {
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < length; ++i) {
+            values.put(read(), read());
+        }
+        return values;
+    }
+
+    private final DataInputStream in;
+}
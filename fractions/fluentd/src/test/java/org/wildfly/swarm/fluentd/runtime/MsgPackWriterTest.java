@@ -0,0 +1,208 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MsgPackWriterTest {
+
+    @Test
+    public void testFixStr() throws Exception {
+        assertString(repeat('a', 0), 0xa0, 1);
+        assertString(repeat('a', 31), 0xbf, 1);
+    }
+
+    @Test
+    public void testStr8() throws Exception {
+        assertString(repeat('a', 32), 0xd9, 2);
+        assertString(repeat('a', 255), 0xd9, 2);
+    }
+
+    @Test
+    public void testStr16() throws Exception {
+        assertString(repeat('a', 256), 0xda, 3);
+        assertString(repeat('a', 65535), 0xda, 3);
+    }
+
+    @Test
+    public void testStr32() throws Exception {
+        assertString(repeat('a', 65536), 0xdb, 5);
+    }
+
+    @Test
+    public void testLengthIsCountedInEncodedBytes() throws Exception {
+        // 16 characters, but 32 bytes of UTF-8
+        assertString(repeat('\u00e9', 16), 0xd9, 2);
+        // 11 characters, but 33 bytes of UTF-8
+        assertString(repeat('\u20ac', 11), 0xd9, 2);
+        // 8 code points, but 32 bytes of UTF-8
+        assertString(repeat("\ud83d\ude00", 8), 0xd9, 2);
+    }
+
+    @Test
+    public void testSurrogatePair() throws Exception {
+        byte[] bytes = written(w -> w.writeString("\ud83d\ude00"));
+
+        assertThat(bytes).isEqualTo(new byte[]{(byte) 0xa4, (byte) 0xf0, (byte) 0x9f, (byte) 0x98, (byte) 0x80});
+    }
+
+    @Test
+    public void testUnpairedSurrogatesAreReplaced() throws Exception {
+        for (String value : new String[]{"\ud83d", "\ude00", "a\ud83db", "a\ude00\ud83d", "\ud83d\ud83d\ude00"}) {
+            byte[] bytes = written(w -> w.writeString(value));
+
+            assertThat(Arrays.copyOfRange(bytes, 1, bytes.length)).isEqualTo(value.getBytes(StandardCharsets.UTF_8));
+            assertThat(new MsgPackReader(bytes).read()).isEqualTo(new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testNullString() throws Exception {
+        assertThat(written(w -> w.writeString(null))).isEqualTo(new byte[]{(byte) 0xc0});
+    }
+
+    @Test
+    public void testPositiveIntegers() throws Exception {
+        assertLong(0, 0x00, 1);
+        assertLong(0x7f, 0x7f, 1);
+        assertLong(0x80, 0xcc, 2);
+        assertLong(0xff, 0xcc, 2);
+        assertLong(0x100, 0xcd, 3);
+        assertLong(0xffff, 0xcd, 3);
+        assertLong(0x10000, 0xce, 5);
+        assertLong(0xffffffffL, 0xce, 5);
+        assertLong(0x100000000L, 0xcf, 9);
+        assertLong(Long.MAX_VALUE, 0xcf, 9);
+    }
+
+    @Test
+    public void testNegativeIntegers() throws Exception {
+        assertLong(-1, 0xff, 1);
+        assertLong(-32, 0xe0, 1);
+        assertLong(-33, 0xd0, 2);
+        assertLong(Byte.MIN_VALUE, 0xd0, 2);
+        assertLong(Byte.MIN_VALUE - 1, 0xd1, 3);
+        assertLong(Short.MIN_VALUE, 0xd1, 3);
+        assertLong(Short.MIN_VALUE - 1, 0xd2, 5);
+        assertLong(Integer.MIN_VALUE, 0xd2, 5);
+        assertLong(Integer.MIN_VALUE - 1L, 0xd3, 9);
+        assertLong(Long.MIN_VALUE, 0xd3, 9);
+    }
+
+    @Test
+    public void testArrayHeaders() throws Exception {
+        assertThat(written(w -> w.writeArrayHeader(15))[0] & 0xff).isEqualTo(0x9f);
+        assertThat(written(w -> w.writeArrayHeader(16))).isEqualTo(new byte[]{(byte) 0xdc, 0x00, 0x10});
+        assertThat(written(w -> w.writeArrayHeader(65535))).isEqualTo(new byte[]{(byte) 0xdc, (byte) 0xff, (byte) 0xff});
+        assertThat(written(w -> w.writeArrayHeader(65536))).isEqualTo(new byte[]{(byte) 0xdd, 0x00, 0x01, 0x00, 0x00});
+    }
+
+    @Test
+    public void testMapHeaders() throws Exception {
+        assertThat(written(w -> w.writeMapHeader(15))[0] & 0xff).isEqualTo(0x8f);
+        assertThat(written(w -> w.writeMapHeader(16))).isEqualTo(new byte[]{(byte) 0xde, 0x00, 0x10});
+        assertThat(written(w -> w.writeMapHeader(65535))).isEqualTo(new byte[]{(byte) 0xde, (byte) 0xff, (byte) 0xff});
+        assertThat(written(w -> w.writeMapHeader(65536))).isEqualTo(new byte[]{(byte) 0xdf, 0x00, 0x01, 0x00, 0x00});
+    }
+
+    @Test
+    public void testBinaryHeaders() throws Exception {
+        assertThat(written(w -> w.writeBinaryHeader(255))).isEqualTo(new byte[]{(byte) 0xc4, (byte) 0xff});
+        assertThat(written(w -> w.writeBinaryHeader(256))).isEqualTo(new byte[]{(byte) 0xc5, 0x01, 0x00});
+        assertThat(written(w -> w.writeBinaryHeader(65535))).isEqualTo(new byte[]{(byte) 0xc5, (byte) 0xff, (byte) 0xff});
+        assertThat(written(w -> w.writeBinaryHeader(65536))).isEqualTo(new byte[]{(byte) 0xc6, 0x00, 0x01, 0x00, 0x00});
+    }
+
+    @Test
+    public void testNestedValuesRoundTrip() throws Exception {
+        byte[] bytes = written(w -> {
+            w.writeArrayHeader(2);
+            w.writeLong(1234567890);
+            w.writeMapHeader(2);
+            w.writeString("message");
+            w.writeString("hello \"world\"\n");
+            w.writeString("ndc");
+            w.writeNil();
+        });
+
+        List<?> values = (List<?>) new MsgPackReader(bytes).read();
+        assertThat(values).hasSize(2);
+        assertThat(values.get(0)).isEqualTo(1234567890L);
+        Map<?, ?> record = (Map<?, ?>) values.get(1);
+        assertThat(record.get("message")).isEqualTo("hello \"world\"\n");
+        assertThat(record.containsKey("ndc")).isTrue();
+        assertThat(record.get("ndc")).isNull();
+    }
+
+    @Test
+    public void testGrowsAndResets() throws Exception {
+        MsgPackWriter writer = new MsgPackWriter(1);
+        String value = repeat('x', 1000);
+        writer.writeString(value);
+
+        assertThat(writer.size()).isEqualTo(1003);
+        assertThat(new MsgPackReader(Arrays.copyOf(writer.array(), writer.size())).read()).isEqualTo(value);
+
+        writer.reset();
+        writer.writeLong(1);
+        assertThat(writer.size()).isEqualTo(1);
+        assertThat(writer.array()[0]).isEqualTo((byte) 1);
+    }
+
+    @Test
+    public void testWriteRaw() throws Exception {
+        byte[] tag = MsgPackWriter.encode("app.log");
+        byte[] bytes = written(w -> {
+            w.writeArrayHeader(2);
+            w.writeRaw(tag);
+            w.writeRaw(new byte[]{0x00, 0x2a, 0x00}, 1, 1);
+        });
+
+        assertThat(new MsgPackReader(bytes).read()).isEqualTo(Arrays.asList("app.log", 42L));
+    }
+
+    private static void assertString(String value, int type, int headerLength) throws Exception {
+        byte[] bytes = written(w -> w.writeString(value));
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(bytes[0] & 0xff).isEqualTo(type);
+        assertThat(bytes.length).isEqualTo(headerLength + utf8.length);
+        assertThat(Arrays.copyOfRange(bytes, headerLength, bytes.length)).isEqualTo(utf8);
+        assertThat(new MsgPackReader(bytes).read()).isEqualTo(value);
+        assertThat(MsgPackWriter.encode(value)).isEqualTo(bytes);
+    }
+
+    private static void assertLong(long value, int type, int length) throws Exception {
+        byte[] bytes = written(w -> w.writeLong(value));
+
+        assertThat(bytes[0] & 0xff).isEqualTo(type);
+        assertThat(bytes.length).isEqualTo(length);
+        assertThat(new MsgPackReader(bytes).read()).isEqualTo(value);
+    }
+
+    private static byte[] written(Consumer<MsgPackWriter> writes) {
+        MsgPackWriter writer = new MsgPackWriter(16);
+        writes.accept(writer);
+        return Arrays.copyOf(writer.array(), writer.size());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
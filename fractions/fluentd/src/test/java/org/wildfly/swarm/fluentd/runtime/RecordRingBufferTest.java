@@ -0,0 +1,134 @@
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RecordRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new RecordRingBuffer(0).capacity()).isEqualTo(4);
+        assertThat(new RecordRingBuffer(3).capacity()).isEqualTo(4);
+        assertThat(new RecordRingBuffer(4).capacity()).isEqualTo(4);
+        assertThat(new RecordRingBuffer(5).capacity()).isEqualTo(8);
+        assertThat(new RecordRingBuffer(8192).capacity()).isEqualTo(8192);
+        assertThat(new RecordRingBuffer(8193).capacity()).isEqualTo(16384);
+    }
+
+    @Test
+    public void testEmpty() {
+        RecordRingBuffer buffer = new RecordRingBuffer(4);
+
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.size()).isEqualTo(0);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    public void testFull() {
+        RecordRingBuffer buffer = new RecordRingBuffer(4);
+        for (int i = 0; i < 4; ++i) {
+            assertThat(buffer.offer(record(i))).isTrue();
+        }
+
+        assertThat(buffer.size()).isEqualTo(4);
+        assertThat(buffer.offer(record(4))).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        assertThat(buffer.poll().getMessage()).isEqualTo("0");
+        assertThat(buffer.offer(record(5))).isTrue();
+        assertThat(buffer.offer(record(6))).isFalse();
+    }
+
+    @Test
+    public void testWrapsAroundInOrder() {
+        RecordRingBuffer buffer = new RecordRingBuffer(4);
+        int next = 0;
+        int expected = 0;
+        // offers and polls at different paces, so that the positions wrap around at every index
+        for (int round = 0; round < 25; ++round) {
+            for (int i = 0; i < 3 && buffer.offer(record(next)); ++i) {
+                ++next;
+            }
+            for (int i = 0; i < 2 + round % 2; ++i) {
+                ExtLogRecord record = buffer.poll();
+                if (record == null) {
+                    break;
+                }
+                assertThat(record.getMessage()).isEqualTo(Integer.toString(expected++));
+            }
+            assertThat(buffer.size()).isEqualTo(next - expected);
+        }
+        ExtLogRecord record;
+        while ((record = buffer.poll()) != null) {
+            assertThat(record.getMessage()).isEqualTo(Integer.toString(expected++));
+        }
+        assertThat(expected).isEqualTo(next);
+        assertThat(next).isGreaterThan(50);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        RecordRingBuffer buffer = new RecordRingBuffer(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; ++p) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; ++i) {
+                    ExtLogRecord record = record(producer * perProducer + i);
+                    while (!buffer.offer(record)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        int polled = 0;
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (polled < producers * perProducer && System.currentTimeMillis() < deadline) {
+            ExtLogRecord record = buffer.poll();
+            if (record == null) {
+                Thread.yield();
+                continue;
+            }
+            int value = Integer.parseInt(record.getMessage());
+            int producer = value / perProducer;
+            // the records of each producer come out in the order they went in
+            assertThat(value % perProducer).isEqualTo(last[producer] + 1);
+            last[producer] = value % perProducer;
+            ++polled;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(polled).isEqualTo(producers * perProducer);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    static ExtLogRecord record(int number) {
+        return new ExtLogRecord(Level.INFO, Integer.toString(number), ExtLogRecord.FormatStyle.NO_FORMAT, RecordRingBufferTest.class.getName());
+    }
+}
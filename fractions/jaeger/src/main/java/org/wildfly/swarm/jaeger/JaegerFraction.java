@@ -19,12 +19,20 @@ public class JaegerFraction implements Fraction<JaegerFraction> {
     @AttributeDocumentation("The service name. Required (via this parameter, system property or env var). Ex.: `order-manager`")
     private Defaultable<String> serviceName = Defaultable.string(getDefault(JAEGER_SERVICE_NAME));
 
-    @AttributeDocumentation("The sampler type. Ex.: `const`")
+    @AttributeDocumentation("The sampler type. Ex.: `const`. The `thorntail` sampler combines per-operation rate limits, a higher rate for the operations with a high latency, and a global budget of spans per second")
     private Defaultable<String> samplerType = Defaultable.string(getDefault(JAEGER_SAMPLER_TYPE));
     @AttributeDocumentation("The sampler parameter (number). Ex.: `1`")
     private Defaultable<String> samplerParameter = Defaultable.string(getDefault(JAEGER_SAMPLER_PARAM));
     @AttributeDocumentation("The host name and port when using the remote controlled sampler")
     private Defaultable<String> samplerManagerHost = Defaultable.string(getDefault(JAEGER_SAMPLER_MANAGER_HOST_PORT));
+    @AttributeDocumentation("The number of traces per second started for each operation by the `thorntail` sampler")
+    private Defaultable<Float> samplerOperationsPerSecond = Defaultable.floating(1);
+    @AttributeDocumentation("The number of traces per second started by the `thorntail` sampler for each operation whose p99 latency exceeds the latency threshold")
+    private Defaultable<Float> samplerSlowOperationsPerSecond = Defaultable.floating(10);
+    @AttributeDocumentation("The latency threshold (ms) of the `thorntail` sampler")
+    private Defaultable<Integer> samplerLatencyThreshold = Defaultable.integer(1000);
+    @AttributeDocumentation("The maximum number of spans per second reported when using the `thorntail` sampler, 0 for no limit")
+    private Defaultable<Integer> samplerMaxSpansPerSecond = Defaultable.integer(1000);
 
     @AttributeDocumentation("Whether the reporter should also log the spans")
     private Defaultable<String> reporterLogSpans = Defaultable.string(getDefault(JAEGER_REPORTER_LOG_SPANS));
@@ -36,6 +44,10 @@ public class JaegerFraction implements Fraction<JaegerFraction> {
     private Defaultable<String> reporterFlushInterval = Defaultable.string(getDefault(JAEGER_REPORTER_FLUSH_INTERVAL));
     @AttributeDocumentation("The reporter's maximum queue size")
     private Defaultable<String> reporterMaxQueueSize = Defaultable.string(getDefault(JAEGER_REPORTER_MAX_QUEUE_SIZE));
+    @AttributeDocumentation("The maximum number of spans sent together by the span export pipeline")
+    private Defaultable<Integer> reporterBatchSize = Defaultable.integer(100);
+    @AttributeDocumentation("Whether to report the spans through the non-blocking span export pipeline, which drops spans when its queue is full and exposes its counters as vendor metrics. By default this is false.")
+    private Defaultable<Boolean> spanExportPipeline = Defaultable.bool(false);
 
     @AttributeDocumentation("Whether to enable propagation of B3 headers in the configured Tracer. By default this is false.")
     private Defaultable<Boolean> enableB3HeaderPropagation = Defaultable.bool(false);
@@ -65,6 +77,22 @@ public class JaegerFraction implements Fraction<JaegerFraction> {
         return samplerManagerHost.get();
     }
 
+    public Float getSamplerOperationsPerSecond() {
+        return samplerOperationsPerSecond.get();
+    }
+
+    public Float getSamplerSlowOperationsPerSecond() {
+        return samplerSlowOperationsPerSecond.get();
+    }
+
+    public Integer getSamplerLatencyThreshold() {
+        return samplerLatencyThreshold.get();
+    }
+
+    public Integer getSamplerMaxSpansPerSecond() {
+        return samplerMaxSpansPerSecond.get();
+    }
+
     public String getReporterLogSpans() {
         return reporterLogSpans.get();
     }
@@ -85,6 +113,14 @@ public class JaegerFraction implements Fraction<JaegerFraction> {
         return reporterMaxQueueSize.get();
     }
 
+    public Integer getReporterBatchSize() {
+        return reporterBatchSize.get();
+    }
+
+    public Boolean isSpanExportPipelineEnabled() {
+        return spanExportPipeline.get();
+    }
+
     public Boolean isB3HeaderPropagationEnabled() {
         return enableB3HeaderPropagation.get();
     }
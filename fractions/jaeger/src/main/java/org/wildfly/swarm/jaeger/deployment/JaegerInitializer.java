@@ -27,8 +27,15 @@ import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
 
 import io.jaegertracing.Configuration;
+import io.jaegertracing.internal.JaegerTracer;
+import io.jaegertracing.internal.reporters.CompositeReporter;
+import io.jaegertracing.internal.reporters.LoggingReporter;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.spi.Reporter;
+import io.jaegertracing.spi.Sampler;
 import io.opentracing.util.GlobalTracer;
 import org.jboss.logging.Logger;
+import org.wildfly.swarm.tracing.export.SpanExportMetrics;
 
 import static io.jaegertracing.Configuration.JAEGER_AGENT_HOST;
 import static io.jaegertracing.Configuration.JAEGER_AGENT_PORT;
@@ -52,6 +59,10 @@ import static io.jaegertracing.Configuration.SenderConfiguration;
 public class JaegerInitializer implements ServletContextListener {
     private static final Logger logger = Logger.getLogger(JaegerInitializer.class);
 
+    private static final String EXPORTER = "jaeger";
+
+    private SpanExportReporter exportReporter;
+
     @Override
     public void contextInitialized(ServletContextEvent servletContextEvent) {
         ServletContext sc = servletContextEvent.getServletContext();
@@ -62,25 +73,47 @@ public class JaegerInitializer implements ServletContextListener {
             serviceName = "thorntail/unknown";
         }
 
-        Configuration configuration = new Configuration(serviceName)
-                .withSampler(
-                        new Configuration.SamplerConfiguration()
-                                .withType(
-                                        getProperty(sc, JAEGER_SAMPLER_TYPE))
-                                .withParam(
-                                        getPropertyAsNumber(sc, JAEGER_SAMPLER_PARAM))
-                                .withManagerHostPort(
-                                        getProperty(sc, JAEGER_SAMPLER_MANAGER_HOST_PORT)))
+        Configuration.SamplerConfiguration samplerConfiguration;
+        ThorntailSampler thorntailSampler = null;
+        if (ThorntailSampler.TYPE.equals(getProperty(sc, JAEGER_SAMPLER_TYPE))) {
+            thorntailSampler = new ThorntailSampler(
+                    getPropertyAsDouble(sc, "samplerOperationsPerSecond", 1),
+                    getPropertyAsDouble(sc, "samplerSlowOperationsPerSecond", 10),
+                    getPropertyAsLong(sc, "samplerLatencyThreshold", 1000),
+                    getPropertyAsLong(sc, "samplerMaxSpansPerSecond", 1000));
+            // A placeholder, the Thorntail sampler is installed when the tracer is built
+            samplerConfiguration = new Configuration.SamplerConfiguration()
+                    .withType(ConstSampler.TYPE)
+                    .withParam(1);
+        } else {
+            samplerConfiguration = new Configuration.SamplerConfiguration()
+                    .withType(
+                            getProperty(sc, JAEGER_SAMPLER_TYPE))
+                    .withParam(
+                            getPropertyAsNumber(sc, JAEGER_SAMPLER_PARAM))
+                    .withManagerHostPort(
+                            getProperty(sc, JAEGER_SAMPLER_MANAGER_HOST_PORT));
+        }
+
+        SpanExportReporter exportReporter = null;
+        if (Boolean.TRUE.equals(getPropertyAsBoolean(sc, "spanExportPipeline"))) {
+            Integer queueSize = getPropertyAsInt(sc, JAEGER_REPORTER_MAX_QUEUE_SIZE);
+            Integer flushInterval = getPropertyAsInt(sc, JAEGER_REPORTER_FLUSH_INTERVAL);
+            exportReporter = new SpanExportReporter(senderConfiguration(sc).getSender(),
+                                                    queueSize != null ? queueSize : 10000,
+                                                    (int) getPropertyAsLong(sc, "reporterBatchSize", 100),
+                                                    flushInterval != null ? flushInterval : 1000);
+            SpanExportMetrics.register(EXPORTER, exportReporter.statistics());
+            this.exportReporter = exportReporter;
+        }
+
+        Configuration configuration = (thorntailSampler == null && exportReporter == null ? new Configuration(serviceName) : new ThorntailConfiguration(serviceName, thorntailSampler, exportReporter))
+                .withSampler(samplerConfiguration)
                 .withReporter(
                         new ReporterConfiguration()
                                 .withLogSpans(
                                         getPropertyAsBoolean(sc, JAEGER_REPORTER_LOG_SPANS))
-                                .withSender(
-                                        new SenderConfiguration()
-                                                .withAuthUsername(getProperty(sc, JAEGER_USER))
-                                                .withAuthPassword(getProperty(sc, JAEGER_PASSWORD))
-                                                .withAgentHost(getProperty(sc, JAEGER_AGENT_HOST))
-                                                .withAgentPort(getPropertyAsInt(sc, JAEGER_AGENT_PORT)))
+                                .withSender(senderConfiguration(sc))
                                 .withFlushInterval(
                                         getPropertyAsInt(sc, JAEGER_REPORTER_FLUSH_INTERVAL))
                                 .withMaxQueueSize(
@@ -88,13 +121,6 @@ public class JaegerInitializer implements ServletContextListener {
                                 )
                 );
 
-        String remoteEndpoint = getProperty(sc, JAEGER_ENDPOINT);
-        if (remoteEndpoint != null && remoteEndpoint.trim().length() > 0) {
-            configuration.getReporter()
-                    .withSender(new SenderConfiguration()
-                                        .withEndpoint(remoteEndpoint));
-        }
-
         String enableB3HeaderPropagation = getProperty(sc, "enableB3HeaderPropagation");
         if (enableB3HeaderPropagation != null && Boolean.parseBoolean(enableB3HeaderPropagation)) {
             logger.info("Enabling B3 Header Propagation for Jaeger");
@@ -109,6 +135,81 @@ public class JaegerInitializer implements ServletContextListener {
 
     @Override
     public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        if (this.exportReporter != null) {
+            this.exportReporter.close();
+            SpanExportMetrics.unregister(EXPORTER, this.exportReporter.statistics());
+        }
+    }
+
+    // A new one every time, so that the default reporter closed below does not share its sender
+    private static SenderConfiguration senderConfiguration(ServletContext sc) {
+        String remoteEndpoint = getProperty(sc, JAEGER_ENDPOINT);
+        if (remoteEndpoint != null && remoteEndpoint.trim().length() > 0) {
+            return new SenderConfiguration()
+                    .withEndpoint(remoteEndpoint);
+        }
+        return new SenderConfiguration()
+                .withAuthUsername(getProperty(sc, JAEGER_USER))
+                .withAuthPassword(getProperty(sc, JAEGER_PASSWORD))
+                .withAgentHost(getProperty(sc, JAEGER_AGENT_HOST))
+                .withAgentPort(getPropertyAsInt(sc, JAEGER_AGENT_PORT));
+    }
+
+    /**
+     * Builds the tracer with the Thorntail sampler, if set, which is fed the latency of the operations by the
+     * reporter, and with the span export pipeline instead of the default reporter, if set.
+     */
+    private static class ThorntailConfiguration extends Configuration {
+        ThorntailConfiguration(String serviceName, ThorntailSampler sampler, SpanExportReporter exportReporter) {
+            super(serviceName);
+            this.sampler = sampler;
+            this.exportReporter = exportReporter;
+        }
+
+        @Override
+        protected JaegerTracer.Builder createTracerBuilder(String serviceName) {
+            return new JaegerTracer.Builder(serviceName) {
+                @Override
+                public JaegerTracer.Builder withSampler(Sampler configured) {
+                    return super.withSampler(sampler != null ? sampler : configured);
+                }
+
+                @Override
+                public JaegerTracer.Builder withReporter(Reporter configured) {
+                    Reporter reporter = configured;
+                    if (exportReporter != null) {
+                        // Configuration always builds the default reporter, stop its threads right away
+                        configured.close();
+                        reporter = exportReporter;
+                        if (Boolean.TRUE.equals(getReporter().getLogSpans())) {
+                            reporter = new CompositeReporter(reporter, new LoggingReporter());
+                        }
+                    }
+                    return super.withReporter(sampler != null ? sampler.reporter(reporter) : reporter);
+                }
+            };
+        }
+
+        private final ThorntailSampler sampler;
+
+        private final SpanExportReporter exportReporter;
+    }
+
+    private static double getPropertyAsDouble(ServletContext sc, String name, double defaultValue) {
+        String value = getProperty(sc, name);
+        if (value != null && !value.isEmpty()) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                logger.error("Failed to parse number for property '" + name + "' with value '" + value + "'", e);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static long getPropertyAsLong(ServletContext sc, String name, long defaultValue) {
+        Integer value = getPropertyAsInt(sc, name);
+        return value != null ? value : defaultValue;
     }
 
     private static String getProperty(ServletContext sc, String name) {
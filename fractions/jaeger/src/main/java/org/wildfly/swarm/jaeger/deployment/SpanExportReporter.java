@@ -0,0 +1,90 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.jaeger.deployment;
+
+import io.jaegertracing.internal.JaegerSpan;
+import io.jaegertracing.internal.exceptions.SenderException;
+import io.jaegertracing.spi.Reporter;
+import io.jaegertracing.spi.Sender;
+import org.wildfly.swarm.tracing.export.SpanExportStatistics;
+import org.wildfly.swarm.tracing.export.SpanExporter;
+
+/**
+ * A span reporter that never makes the request threads wait for the tracing
+ * backend, sending the spans through a {@link SpanExporter} into the UDP or
+ * HTTP {@link Sender}, which packs them into messages of the maximum size.
+ */
+final class SpanExportReporter implements Reporter {
+
+    SpanExportReporter(Sender sender, int queueSize, int batchSize, int flushIntervalMillis) {
+        this.exporter = new SpanExporter<>("jaeger-span-export", new JaegerSender(sender), queueSize, batchSize, flushIntervalMillis);
+    }
+
+    @Override
+    public void report(JaegerSpan span) {
+        this.exporter.export(span);
+    }
+
+    @Override
+    public void close() {
+        this.exporter.close();
+    }
+
+    SpanExportStatistics statistics() {
+        return this.exporter;
+    }
+
+    private static final class JaegerSender implements SpanExporter.Sender<JaegerSpan> {
+        JaegerSender(Sender sender) {
+            this.sender = sender;
+        }
+
+        @Override
+        public int append(JaegerSpan span) throws SpanExporter.SendException {
+            try {
+                return this.sender.append(span);
+            } catch (SenderException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override
+        public int flush() throws SpanExporter.SendException {
+            try {
+                return this.sender.flush();
+            } catch (SenderException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override
+        public int close() throws SpanExporter.SendException {
+            try {
+                return this.sender.close();
+            } catch (SenderException e) {
+                throw failed(e);
+            }
+        }
+
+        private static SpanExporter.SendException failed(SenderException e) {
+            return new SpanExporter.SendException(e.getMessage(), e, e.getDroppedSpanCount());
+        }
+
+        private final Sender sender;
+    }
+
+    private final SpanExporter<JaegerSpan> exporter;
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.jaeger.deployment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import io.jaegertracing.internal.JaegerSpan;
+import io.jaegertracing.internal.samplers.SamplingStatus;
+import io.jaegertracing.spi.Reporter;
+import io.jaegertracing.spi.Sampler;
+import io.opentracing.tag.Tags;
+
+/**
+ * A sampler for busy services, selected with the {@value #TYPE} sampler type.
+ *
+ * <p>Traces are started at most {@code operationsPerSecond} times a second
+ * for each operation, and not at all once the spans reported in the current
+ * second reach {@code maxSpansPerSecond}, unless it is 0. Operations whose
+ * p99 latency exceeds {@code latencyThreshold} milliseconds are sampled at
+ * the higher {@code slowOperationsPerSecond} rate, so that the traces of slow
+ * endpoints are not drowned out.</p>
+ *
+ * <p>Whether a request is slow is only known once it completes, long after
+ * the sampling decision, so the latency is tracked per operation, from the
+ * spans passing through the {@link #reporter(Reporter) reporter} that start
+ * the work of a request in this service: the root spans, and the server spans
+ * continuing a trace propagated from another service. Only sampled spans are
+ * reported, so an operation is only judged once a window of at least
+ * {@value #WINDOW_SECONDS} seconds holds {@value #MIN_SAMPLES} of them; a
+ * window is extended until it does. The rate limits are lock-free, and the
+ * number of tracked operations is bounded; the operations beyond it share a
+ * single rate limit.</p>
+ */
+public class ThorntailSampler implements Sampler {
+
+    public static final String TYPE = "thorntail";
+
+    public ThorntailSampler(double operationsPerSecond, double slowOperationsPerSecond, long latencyThresholdMillis, long maxSpansPerSecond) {
+        this(operationsPerSecond, slowOperationsPerSecond, latencyThresholdMillis, maxSpansPerSecond, System::nanoTime);
+    }
+
+    ThorntailSampler(double operationsPerSecond, double slowOperationsPerSecond, long latencyThresholdMillis, long maxSpansPerSecond,
+                     LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.operationsPerSecond = operationsPerSecond;
+        this.slowOperationsPerSecond = Math.max(operationsPerSecond, slowOperationsPerSecond);
+        this.latencyThresholdMicros = TimeUnit.MILLISECONDS.toMicros(latencyThresholdMillis);
+        this.maxSpansPerSecond = maxSpansPerSecond;
+        this.sampled = SamplingStatus.of(true, tags(operationsPerSecond));
+        this.sampledSlow = SamplingStatus.of(true, tags(this.slowOperationsPerSecond));
+        this.notSampled = SamplingStatus.of(false, tags(operationsPerSecond));
+        this.other = new Operation();
+        this.spanWindowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public SamplingStatus sample(String operation, long id) {
+        if (overBudget()) {
+            return this.notSampled;
+        }
+        Operation op = operation(operation);
+        boolean slow = op.slow;
+        if (!(slow ? op.slowLimit : op.limit).tryAcquire()) {
+            return this.notSampled;
+        }
+        return slow ? this.sampledSlow : this.sampled;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return a reporter feeding the sampler with the reported spans, before handing them to the given one
+     */
+    public Reporter reporter(Reporter delegate) {
+        return new Reporter() {
+            @Override
+            public void report(JaegerSpan span) {
+                spanReported(span);
+                delegate.report(span);
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+        };
+    }
+
+    void spanReported(JaegerSpan span) {
+        this.spans.increment();
+        if (span.context().getParentId() == 0 || Tags.SPAN_KIND_SERVER.equals(span.getTags().get(Tags.SPAN_KIND.getKey()))) {
+            latency(span.getOperationName(), span.getDuration());
+        }
+    }
+
+    void latency(String operation, long durationMicros) {
+        operation(operation).record(durationMicros);
+    }
+
+    boolean isSlow(String operation) {
+        return operation(operation).slow;
+    }
+
+    private boolean overBudget() {
+        if (this.maxSpansPerSecond <= 0) {
+            return false;
+        }
+        long now = this.nanoClock.getAsLong();
+        long start = this.spanWindowStart.get();
+        if (now - start >= ONE_SECOND_NANOS && this.spanWindowStart.compareAndSet(start, now)) {
+            this.spans.reset();
+            return false;
+        }
+        return this.spans.sum() >= this.maxSpansPerSecond;
+    }
+
+    private Operation operation(String name) {
+        Operation op = this.operations.get(name);
+        if (op == null) {
+            if (this.operations.size() >= MAX_OPERATIONS) {
+                return this.other;
+            }
+            op = this.operations.computeIfAbsent(name, n -> new Operation());
+        }
+        return op;
+    }
+
+    private static Map<String, Object> tags(double param) {
+        Map<String, Object> tags = new HashMap<>();
+        tags.put("sampler.type", TYPE);
+        tags.put("sampler.param", param);
+        return tags;
+    }
+
+    private final class Operation {
+        void record(long durationMicros) {
+            this.count.increment();
+            if (durationMicros > latencyThresholdMicros) {
+                this.slowCount.increment();
+            }
+            long now = nanoClock.getAsLong();
+            long start = this.windowStart.get();
+            if (now - start >= WINDOW_NANOS && this.count.sum() >= MIN_SAMPLES && this.windowStart.compareAndSet(start, now)) {
+                long count = this.count.sumThenReset();
+                long slowCount = this.slowCount.sumThenReset();
+                // more than 1% of the requests over the threshold means a p99 above it
+                this.slow = slowCount * 100 > count;
+            }
+        }
+
+        private final RateLimit limit = new RateLimit(operationsPerSecond, nanoClock);
+
+        private final RateLimit slowLimit = new RateLimit(slowOperationsPerSecond, nanoClock);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder slowCount = new LongAdder();
+
+        private final AtomicLong windowStart = new AtomicLong(nanoClock.getAsLong());
+
+        private volatile boolean slow;
+    }
+
+    /**
+     * A lock-free rate limit allowing bursts of one second, implemented as a
+     * generic cell rate algorithm: a single CAS on the theoretical arrival
+     * time of the next trace.
+     */
+    static final class RateLimit {
+        RateLimit(double perSecond, LongSupplier nanoClock) {
+            this.interval = perSecond > 0 ? (long) (ONE_SECOND_NANOS / perSecond) : Long.MAX_VALUE;
+            this.tolerance = perSecond > 1 ? ONE_SECOND_NANOS - this.interval : 0;
+            this.nanoClock = nanoClock;
+            this.arrival = new AtomicLong(nanoClock.getAsLong() - this.tolerance);
+        }
+
+        boolean tryAcquire() {
+            if (this.interval == Long.MAX_VALUE) {
+                return false;
+            }
+            long now = this.nanoClock.getAsLong();
+            while (true) {
+                long arrival = this.arrival.get();
+                if (arrival - now > this.tolerance) {
+                    return false;
+                }
+                long next = (arrival - now < 0 ? now : arrival) + this.interval;
+                if (this.arrival.compareAndSet(arrival, next)) {
+                    return true;
+                }
+            }
+        }
+
+        private final long interval;
+
+        private final long tolerance;
+
+        private final LongSupplier nanoClock;
+
+        private final AtomicLong arrival;
+    }
+
+    static final int MAX_OPERATIONS = 2000;
+
+    static final long WINDOW_SECONDS = 30;
+
+    /**
+     * The fewest requests a p99 can be told from, one in a hundred being over the threshold.
+     */
+    static final long MIN_SAMPLES = 100;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(WINDOW_SECONDS);
+
+    private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier nanoClock;
+
+    private final double operationsPerSecond;
+
+    private final double slowOperationsPerSecond;
+
+    private final long latencyThresholdMicros;
+
+    private final long maxSpansPerSecond;
+
+    private final SamplingStatus sampled;
+
+    private final SamplingStatus sampledSlow;
+
+    private final SamplingStatus notSampled;
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    private final Operation other;
+
+    private final AtomicLong spanWindowStart;
+
+    private final LongAdder spans = new LongAdder();
+}
@@ -49,12 +49,18 @@ public class JaegerInstaller implements DeploymentProcessor {
             setContextParamIfNotNull(webXml, JAEGER_SAMPLER_TYPE, fraction.getSamplerType());
             setContextParamIfNotNull(webXml, JAEGER_SAMPLER_PARAM, fraction.getSamplerParameter());
             setContextParamIfNotNull(webXml, JAEGER_SAMPLER_MANAGER_HOST_PORT, fraction.getSamplerManagerHost());
+            setContextParamIfNotNull(webXml, "samplerOperationsPerSecond", String.valueOf(fraction.getSamplerOperationsPerSecond()));
+            setContextParamIfNotNull(webXml, "samplerSlowOperationsPerSecond", String.valueOf(fraction.getSamplerSlowOperationsPerSecond()));
+            setContextParamIfNotNull(webXml, "samplerLatencyThreshold", String.valueOf(fraction.getSamplerLatencyThreshold()));
+            setContextParamIfNotNull(webXml, "samplerMaxSpansPerSecond", String.valueOf(fraction.getSamplerMaxSpansPerSecond()));
             setContextParamIfNotNull(webXml, JAEGER_REPORTER_LOG_SPANS, fraction.getReporterLogSpans());
             setContextParamIfNotNull(webXml, JAEGER_AGENT_HOST, fraction.getAgentHost());
             setContextParamIfNotNull(webXml, JAEGER_AGENT_PORT, fraction.getAgentPort());
             setContextParamIfNotNull(webXml, JAEGER_ENDPOINT, fraction.getRemoteReporterHttpEndpoint());
             setContextParamIfNotNull(webXml, JAEGER_REPORTER_FLUSH_INTERVAL, fraction.getReporterFlushInterval());
             setContextParamIfNotNull(webXml, JAEGER_REPORTER_MAX_QUEUE_SIZE, fraction.getReporterMaxQueueSize());
+            setContextParamIfNotNull(webXml, "reporterBatchSize", String.valueOf(fraction.getReporterBatchSize()));
+            setContextParamIfNotNull(webXml, "spanExportPipeline", String.valueOf(fraction.isSpanExportPipelineEnabled()));
             setContextParamIfNotNull(webXml, JAEGER_USER, fraction.getUser());
             setContextParamIfNotNull(webXml, JAEGER_PASSWORD, fraction.getPassword());
             webXml.setContextParam("skipOpenTracingResolver", "true");
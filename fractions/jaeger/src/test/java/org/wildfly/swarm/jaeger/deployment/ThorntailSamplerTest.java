@@ -0,0 +1,189 @@
+package org.wildfly.swarm.jaeger.deployment;
+
+import java.util.concurrent.TimeUnit;
+
+import io.jaegertracing.internal.JaegerSpan;
+import io.jaegertracing.internal.JaegerTracer;
+import io.jaegertracing.internal.reporters.InMemoryReporter;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.internal.samplers.SamplingStatus;
+import io.opentracing.tag.Tags;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ThorntailSamplerTest {
+
+    @Test
+    public void testRateLimitBurstsOneSecond() {
+        ThorntailSampler.RateLimit limit = new ThorntailSampler.RateLimit(10, () -> this.now);
+
+        assertThat(acquired(limit, 20)).isEqualTo(10);
+
+        this.now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(acquired(limit, 20)).isEqualTo(1);
+
+        this.now += TimeUnit.SECONDS.toNanos(5);
+        assertThat(acquired(limit, 20)).isEqualTo(10);
+    }
+
+    @Test
+    public void testRateLimitBelowOnePerSecond() {
+        ThorntailSampler.RateLimit limit = new ThorntailSampler.RateLimit(0.5, () -> this.now);
+
+        assertThat(acquired(limit, 5)).isEqualTo(1);
+
+        this.now += TimeUnit.SECONDS.toNanos(1);
+        assertThat(acquired(limit, 5)).isEqualTo(0);
+
+        this.now += TimeUnit.SECONDS.toNanos(1);
+        assertThat(acquired(limit, 5)).isEqualTo(1);
+    }
+
+    @Test
+    public void testRateLimitZero() {
+        ThorntailSampler.RateLimit limit = new ThorntailSampler.RateLimit(0, () -> this.now);
+
+        assertThat(acquired(limit, 5)).isEqualTo(0);
+    }
+
+    @Test
+    public void testOperationsAreLimitedSeparately() {
+        ThorntailSampler sampler = sampler(2, 0);
+
+        assertThat(sampled(sampler, "GET /a", 5)).isEqualTo(2);
+        assertThat(sampled(sampler, "GET /b", 5)).isEqualTo(2);
+    }
+
+    @Test
+    public void testSpansPerSecondBudget() {
+        ThorntailSampler sampler = sampler(100, 5);
+        JaegerTracer tracer = tracer(sampler, new InMemoryReporter());
+
+        for (int i = 0; i < 5; ++i) {
+            finish(tracer.buildSpan("GET /a").start(), 1);
+        }
+        assertThat(sampled(sampler, "GET /b", 1)).isEqualTo(0);
+
+        this.now += TimeUnit.SECONDS.toNanos(1);
+        assertThat(sampled(sampler, "GET /b", 1)).isEqualTo(1);
+    }
+
+    @Test
+    public void testSlowOperationIsSampledMore() {
+        ThorntailSampler sampler = sampler(1, 0);
+
+        record(sampler, "GET /a", 98, 10);
+        record(sampler, "GET /a", 2, 150);
+        assertThat(sampler.isSlow("GET /a")).isFalse();
+
+        // the window has elapsed: 2 of 101 requests over the threshold
+        this.now += TimeUnit.SECONDS.toNanos(ThorntailSampler.WINDOW_SECONDS);
+        record(sampler, "GET /a", 1, 10);
+        assertThat(sampler.isSlow("GET /a")).isTrue();
+        assertThat(sampler.isSlow("GET /b")).isFalse();
+
+        SamplingStatus status = sampler.sample("GET /a", 1);
+        assertThat(status.isSampled()).isTrue();
+        assertThat(status.getTags().get("sampler.param")).isEqualTo(10.0);
+        assertThat(sampled(sampler, "GET /a", 20)).isEqualTo(9);
+
+        // back to the regular rate once the p99 is under the threshold again
+        this.now += TimeUnit.SECONDS.toNanos(ThorntailSampler.WINDOW_SECONDS);
+        record(sampler, "GET /a", 100, 10);
+        assertThat(sampler.isSlow("GET /a")).isFalse();
+    }
+
+    @Test
+    public void testOnePercentIsNotSlow() {
+        ThorntailSampler sampler = sampler(1, 0);
+
+        record(sampler, "GET /a", 99, 10);
+        this.now += TimeUnit.SECONDS.toNanos(ThorntailSampler.WINDOW_SECONDS);
+        record(sampler, "GET /a", 1, 150);
+
+        assertThat(sampler.isSlow("GET /a")).isFalse();
+    }
+
+    @Test
+    public void testWindowIsExtendedUntilEnoughSamples() {
+        ThorntailSampler sampler = sampler(1, 0);
+
+        record(sampler, "GET /a", 50, 150);
+        this.now += TimeUnit.SECONDS.toNanos(ThorntailSampler.WINDOW_SECONDS);
+        record(sampler, "GET /a", 1, 150);
+        assertThat(sampler.isSlow("GET /a")).isFalse();
+
+        this.now += TimeUnit.SECONDS.toNanos(ThorntailSampler.WINDOW_SECONDS);
+        record(sampler, "GET /a", ThorntailSampler.MIN_SAMPLES - 51, 150);
+        assertThat(sampler.isSlow("GET /a")).isTrue();
+    }
+
+    @Test
+    public void testLatencyOfRootAndServerSpans() {
+        ThorntailSampler sampler = sampler(1, 0);
+        InMemoryReporter reporter = new InMemoryReporter();
+        JaegerTracer tracer = tracer(sampler, reporter);
+
+        JaegerSpan client = tracer.buildSpan("client").start();
+        for (int i = 0; i < ThorntailSampler.MIN_SAMPLES; ++i) {
+            // an in-process child span is part of the request of its parent
+            finish(tracer.buildSpan("GET /a").asChildOf(client).start(), 150);
+            // a server span continues a trace from another service
+            finish(tracer.buildSpan("GET /b").asChildOf(client).withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER).start(), 150);
+            finish(tracer.buildSpan("GET /c").start(), 150);
+        }
+        this.now += TimeUnit.SECONDS.toNanos(ThorntailSampler.WINDOW_SECONDS);
+        finish(tracer.buildSpan("GET /b").asChildOf(client).withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER).start(), 150);
+        finish(tracer.buildSpan("GET /c").start(), 150);
+
+        assertThat(sampler.isSlow("GET /a")).isFalse();
+        assertThat(sampler.isSlow("GET /b")).isTrue();
+        assertThat(sampler.isSlow("GET /c")).isTrue();
+        assertThat(reporter.getSpans()).hasSize(3 * (int) ThorntailSampler.MIN_SAMPLES + 2);
+    }
+
+    private ThorntailSampler sampler(double operationsPerSecond, long maxSpansPerSecond) {
+        return new ThorntailSampler(operationsPerSecond, 10, 100, maxSpansPerSecond, () -> this.now);
+    }
+
+    // every span is sampled, the sampler under test only sees them through its reporter
+    private static JaegerTracer tracer(ThorntailSampler sampler, InMemoryReporter reporter) {
+        return new JaegerTracer.Builder("test")
+                .withSampler(new ConstSampler(true))
+                .withReporter(sampler.reporter(reporter))
+                .build();
+    }
+
+    private static void finish(JaegerSpan span, long durationMillis) {
+        span.finish(span.getStart() + TimeUnit.MILLISECONDS.toMicros(durationMillis));
+    }
+
+    private static void record(ThorntailSampler sampler, String operation, long count, long durationMillis) {
+        for (long i = 0; i < count; ++i) {
+            sampler.latency(operation, TimeUnit.MILLISECONDS.toMicros(durationMillis));
+        }
+    }
+
+    private static int sampled(ThorntailSampler sampler, String operation, int count) {
+        int sampled = 0;
+        for (int i = 0; i < count; ++i) {
+            if (sampler.sample(operation, i).isSampled()) {
+                ++sampled;
+            }
+        }
+        return sampled;
+    }
+
+    private static int acquired(ThorntailSampler.RateLimit limit, int count) {
+        int acquired = 0;
+        for (int i = 0; i < count; ++i) {
+            if (limit.tryAcquire()) {
+                ++acquired;
+            }
+        }
+        return acquired;
+    }
+
+    private long now = TimeUnit.HOURS.toNanos(1);
+}
@@ -15,9 +15,15 @@
  */
 package org.wildfly.swarm.jose;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
 /**
  * Supports the protection of data with JOSE Signature (RFC7515) and Encryption (RFC7516)
  * using JSON Web Algorithms (RFC7518).
+ *
+ * @see StreamingJose for detached payloads too large to be held in memory
  */
 public interface Jose {
     /**
@@ -101,4 +107,93 @@ public interface Jose {
      * @throws JoseException
      */
     DecryptionOutput decryption(String jwe) throws JoseException;
-}
\ No newline at end of file
+
+    /**
+     * Sign many inputs, spreading the work over the common fork-join pool, which is shared with the other parallel
+     * streams of the JVM: prefer {@link #signAll(List, Executor)} when the key store may block, e.g. on a network file
+     * system or a hardware security module.
+     * @param inputs the data and optional JWS headers which have to be integrity-protected
+     * @return the signed data in the JWS Compact or JSON format, in the order of the inputs
+     * @throws JoseException if any of the inputs can not be signed
+     */
+    default List<String> signAll(List<SignatureInput> inputs) throws JoseException {
+        return inputs.parallelStream().map(this::sign).collect(Collectors.toList());
+    }
+
+    /**
+     * Sign many inputs, each as a task of the given executor.
+     * @param inputs the data and optional JWS headers which have to be integrity-protected
+     * @param executor runs the signatures
+     * @return the signed data in the JWS Compact or JSON format, in the order of the inputs
+     * @throws JoseException if any of the inputs can not be signed, the remaining ones are then cancelled
+     */
+    default List<String> signAll(List<SignatureInput> inputs, Executor executor) throws JoseException {
+        return JoseBatch.map(inputs, this::sign, executor);
+    }
+
+    /**
+     * Verify many JWS sequences, spreading the work over the common fork-join pool.
+     * @param jwsList the JWS sequences
+     * @return verified data and metadata, in the order of the sequences
+     * @throws JoseException if any of the sequences fails verification
+     * @see #signAll(List)
+     */
+    default List<VerificationOutput> verificationAll(List<String> jwsList) throws JoseException {
+        return jwsList.parallelStream().map(this::verification).collect(Collectors.toList());
+    }
+
+    /**
+     * Verify many JWS sequences, each as a task of the given executor.
+     * @param jwsList the JWS sequences
+     * @param executor runs the verifications
+     * @return verified data and metadata, in the order of the sequences
+     * @throws JoseException if any of the sequences fails verification, the remaining ones are then cancelled
+     */
+    default List<VerificationOutput> verificationAll(List<String> jwsList, Executor executor) throws JoseException {
+        return JoseBatch.map(jwsList, this::verification, executor);
+    }
+
+    /**
+     * Encrypt many inputs, spreading the work over the common fork-join pool.
+     * @param inputs the data and optional metadata which have to be encrypted and integrity-protected
+     * @return the encrypted data, in the order of the inputs
+     * @throws JoseException if any of the inputs can not be encrypted
+     * @see #signAll(List)
+     */
+    default List<String> encryptAll(List<EncryptionInput> inputs) throws JoseException {
+        return inputs.parallelStream().map(this::encrypt).collect(Collectors.toList());
+    }
+
+    /**
+     * Encrypt many inputs, each as a task of the given executor.
+     * @param inputs the data and optional metadata which have to be encrypted and integrity-protected
+     * @param executor runs the encryptions
+     * @return the encrypted data, in the order of the inputs
+     * @throws JoseException if any of the inputs can not be encrypted, the remaining ones are then cancelled
+     */
+    default List<String> encryptAll(List<EncryptionInput> inputs, Executor executor) throws JoseException {
+        return JoseBatch.map(inputs, this::encrypt, executor);
+    }
+
+    /**
+     * Decrypt many JWE sequences, spreading the work over the common fork-join pool.
+     * @param jweList the JWE sequences
+     * @return decrypted data and verified metadata, in the order of the sequences
+     * @throws JoseException if any of the sequences can not be decrypted
+     * @see #signAll(List)
+     */
+    default List<DecryptionOutput> decryptionAll(List<String> jweList) throws JoseException {
+        return jweList.parallelStream().map(this::decryption).collect(Collectors.toList());
+    }
+
+    /**
+     * Decrypt many JWE sequences, each as a task of the given executor.
+     * @param jweList the JWE sequences
+     * @param executor runs the decryptions
+     * @return decrypted data and verified metadata, in the order of the sequences
+     * @throws JoseException if any of the sequences can not be decrypted, the remaining ones are then cancelled
+     */
+    default List<DecryptionOutput> decryptionAll(List<String> jweList, Executor executor) throws JoseException {
+        return JoseBatch.map(jweList, this::decryption, executor);
+    }
+}
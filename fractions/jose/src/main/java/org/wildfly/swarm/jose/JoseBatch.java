@@ -0,0 +1,72 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.jose;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Runs the batch operations of {@link Jose} on an executor.
+ */
+final class JoseBatch {
+
+    private JoseBatch() {
+    }
+
+    /**
+     * Apply the operation to each input as a task of the executor, and wait for the results, in the order of the
+     * inputs. The first failure is rethrown as is, once the tasks not started yet are cancelled.
+     */
+    static <T, R> List<R> map(List<T> inputs, Function<T, R> operation, Executor executor) {
+        List<CompletableFuture<R>> tasks = new ArrayList<>(inputs.size());
+        try {
+            for (T input : inputs) {
+                tasks.add(CompletableFuture.supplyAsync(() -> operation.apply(input), executor));
+            }
+        } catch (RejectedExecutionException e) {
+            cancel(tasks);
+            throw e;
+        }
+        List<R> results = new ArrayList<>(tasks.size());
+        for (CompletableFuture<R> task : tasks) {
+            try {
+                results.add(task.join());
+            } catch (CompletionException e) {
+                cancel(tasks);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private static void cancel(List<? extends CompletableFuture<?>> tasks) {
+        for (CompletableFuture<?> task : tasks) {
+            task.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.jose;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A {@link Jose} signing and verifying detached payloads read a chunk at a time, so that large payloads are never
+ * held in memory. Not every implementation supports it, check for it with {@code instanceof}:
+ *
+ * <pre>
+ * Jose jose = JoseLookup.lookup().get();
+ * if (jose instanceof StreamingJose) {
+ *     String jws = ((StreamingJose) jose).signDetached(data);
+ * }
+ * </pre>
+ *
+ * <p>The JWS is always in the JWS Compact format with an empty payload part, whatever the configured signature
+ * format. The payload is base64url-encoded as configured, or signed as is with the {@code b64} header set to
+ * {@code false}.</p>
+ */
+public interface StreamingJose extends Jose {
+
+    /**
+     * Sign the data read from the stream as a detached payload.
+     * @param data the data to be signed, read until the end of the stream but not closed
+     * @return the JWS Compact sequence, to be sent along with the data
+     * @throws JoseException
+     */
+    default String signDetached(InputStream data) throws JoseException {
+        return signDetached(Collections.emptyMap(), data);
+    }
+
+    /**
+     * Sign the data read from the stream as a detached payload.
+     * @param headers optional JWS headers which have to be integrity-protected
+     * @param data the data to be signed, read until the end of the stream but not closed
+     * @return the JWS Compact sequence, to be sent along with the data
+     * @throws JoseException
+     */
+    String signDetached(Map<String, Object> headers, InputStream data) throws JoseException;
+
+    /**
+     * Sign the remaining bytes of the buffer as a detached payload. The position of the buffer is not changed.
+     * @param headers optional JWS headers which have to be integrity-protected
+     * @param data the data to be signed
+     * @return the JWS Compact sequence, to be sent along with the data
+     * @throws JoseException
+     */
+    String signDetached(Map<String, Object> headers, ByteBuffer data) throws JoseException;
+
+    /**
+     * Verify a JWS Compact sequence against the detached data read from the stream.
+     * @param jws the JWS Compact sequence, with an empty payload part.
+     * @param detachedData the signed data, read until the end of the stream but not closed
+     * @return the verified metadata, without data
+     * @throws JoseException
+     */
+    VerificationOutput verificationDetached(String jws, InputStream detachedData) throws JoseException;
+
+    /**
+     * Verify a JWS Compact sequence against the remaining bytes of the buffer. The position of the buffer is not changed.
+     * @param jws the JWS Compact sequence, with an empty payload part.
+     * @param detachedData the signed data
+     * @return the verified metadata, without data
+     * @throws JoseException
+     */
+    VerificationOutput verificationDetached(String jws, ByteBuffer detachedData) throws JoseException;
+}
@@ -17,11 +17,20 @@ package org.wildfly.swarm.jose.provider;
 
 import static org.wildfly.swarm.jose.JoseProperties.DEFAULT_JOSE_FORMAT;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.function.Supplier;
 
 import org.apache.cxf.common.util.Base64UrlUtility;
 import org.apache.cxf.common.util.StringUtils;
+import org.apache.cxf.jaxrs.json.basic.JsonMapObjectReaderWriter;
 import org.apache.cxf.rs.security.jose.common.JoseConstants;
 import org.apache.cxf.rs.security.jose.jwa.ContentAlgorithm;
 import org.apache.cxf.rs.security.jose.jwa.KeyAlgorithm;
@@ -44,24 +53,35 @@ import org.apache.cxf.rs.security.jose.jws.JwsHeaders;
 import org.apache.cxf.rs.security.jose.jws.JwsJsonConsumer;
 import org.apache.cxf.rs.security.jose.jws.JwsJsonProducer;
 import org.apache.cxf.rs.security.jose.jws.JwsJsonSignatureEntry;
+import org.apache.cxf.rs.security.jose.jws.JwsSignature;
 import org.apache.cxf.rs.security.jose.jws.JwsSignatureProvider;
 import org.apache.cxf.rs.security.jose.jws.JwsSignatureVerifier;
 import org.apache.cxf.rs.security.jose.jws.JwsUtils;
+import org.apache.cxf.rs.security.jose.jws.JwsVerificationSignature;
 import org.wildfly.swarm.jose.DecryptionOutput;
 import org.wildfly.swarm.jose.EncryptionInput;
-import org.wildfly.swarm.jose.Jose;
 import org.wildfly.swarm.jose.JoseConfiguration;
 import org.wildfly.swarm.jose.JoseException;
 import org.wildfly.swarm.jose.JoseOperation;
 import org.wildfly.swarm.jose.JoseProperties;
 import org.wildfly.swarm.jose.SignatureInput;
+import org.wildfly.swarm.jose.StreamingJose;
 import org.wildfly.swarm.jose.VerificationOutput;
 
-public class DefaultJoseImpl implements Jose {
+public class DefaultJoseImpl implements StreamingJose {
+    private static final JsonMapObjectReaderWriter JSON = new JsonMapObjectReaderWriter();
+
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
     private JoseConfiguration config;
 
+    private final JoseProviderCache providers;
+
+    private volatile JsonWebKeys inlinedJwkSet;
+
     public DefaultJoseImpl(JoseConfiguration config) {
         this.config = config;
+        this.providers = new JoseProviderCache(config::keystorePath);
     }
 
     @Override
@@ -71,20 +91,24 @@ public class DefaultJoseImpl implements Jose {
 
     @Override
     public String sign(SignatureInput input) {
+        JwsHeaders headers = signatureHeaders(input.getHeaders());
+        JwsSignatureProvider provider = getSignatureProvider(headers);
+
+        return DEFAULT_JOSE_FORMAT == config.signatureFormat()
+                ? signCompact(provider, headers, input.getData()) : signJson(provider, headers, input.getData());
+    }
+
+    private JwsHeaders signatureHeaders(Map<String, Object> inputHeaders) {
         JwsHeaders headers = new JwsHeaders();
-        headers.asMap().putAll(input.getHeaders());
+        headers.asMap().putAll(inputHeaders);
         if (!config.signatureDataEncoding()) {
             headers.setPayloadEncodingStatus(false);
         }
         if (config.includeSignatureKeyAlias()) {
             headers.setKeyId(signatureKeyAlias());
         }
-        Properties props = prepareSignatureVerificationProperties(JoseOperation.SIGN);
         headers.setSignatureAlgorithm(SignatureAlgorithm.getAlgorithm(config.signatureAlgorithm()));
-        JwsSignatureProvider provider = getSignatureProvider(props, headers);
-
-        return DEFAULT_JOSE_FORMAT == config.signatureFormat()
-                ? signCompact(provider, headers, input.getData()) : signJson(provider, headers, input.getData());
+        return headers;
     }
 
     private String signCompact(JwsSignatureProvider provider, JwsHeaders headers, String data) {
@@ -129,16 +153,15 @@ public class DefaultJoseImpl implements Jose {
     }
 
     private VerificationOutput getVerificationOutput(String jws, String detachedData) throws JoseException {
-        Properties props = prepareSignatureVerificationProperties(JoseOperation.VERIFICATION);
         return DEFAULT_JOSE_FORMAT == config.signatureFormat()
-                ? verifyCompact(props, jws, detachedData) : verifyJson(props, jws, detachedData);
+                ? verifyCompact(jws, detachedData) : verifyJson(jws, detachedData);
     }
 
-    private VerificationOutput verifyCompact(Properties props, String jws, String detachedData) {
+    private VerificationOutput verifyCompact(String jws, String detachedData) {
         try {
             JwsCompactConsumer consumer = new JwsCompactConsumer(jws, detachedData);
 
-            JwsSignatureVerifier verifier = getJwsSignatureVerifier(props, consumer.getJwsHeaders());
+            JwsSignatureVerifier verifier = getJwsSignatureVerifier(consumer.getJwsHeaders());
             if (!consumer.verifySignatureWith(verifier)) {
                 throw new JoseException("JWS Compact Signature Verification Failure");
             }
@@ -150,7 +173,7 @@ public class DefaultJoseImpl implements Jose {
         }
     }
 
-    private VerificationOutput verifyJson(Properties props, String jws, String detachedData) {
+    private VerificationOutput verifyJson(String jws, String detachedData) {
         try {
             JwsJsonConsumer consumer = new JwsJsonConsumer(jws, detachedData);
             List<JwsJsonSignatureEntry> entries = consumer.getSignatureEntries();
@@ -160,7 +183,7 @@ public class DefaultJoseImpl implements Jose {
             }
             JwsJsonSignatureEntry entry = entries.get(0);
 
-            JwsSignatureVerifier verifier = getJwsSignatureVerifier(props, entry.getProtectedHeader());
+            JwsSignatureVerifier verifier = getJwsSignatureVerifier(entry.getProtectedHeader());
             if (!entry.verifySignatureWith(verifier)) {
                 throw new JoseException("JWS JSON Signature Verification Failure");
             }
@@ -172,26 +195,154 @@ public class DefaultJoseImpl implements Jose {
         }
     }
 
-    private JwsSignatureProvider getSignatureProvider(Properties props, JwsHeaders headers) {
-        if (isInlinedJwkSetAvailable()) {
-            return JwsUtils.getSignatureProvider(loadJsonWebKey(signatureKeyAlias()));
-        } else {
-            return JwsUtils.loadSignatureProvider(props, headers);
+    @Override
+    public String signDetached(Map<String, Object> headers, InputStream data) {
+        return signStream(headers, data::read);
+    }
+
+    @Override
+    public String signDetached(Map<String, Object> headers, ByteBuffer data) {
+        return signStream(headers, payload(data));
+    }
+
+    private String signStream(Map<String, Object> inputHeaders, Payload payload) {
+        try {
+            JwsHeaders headers = signatureHeaders(inputHeaders);
+            JwsSignature signature = getSignatureProvider(headers).createJwsSignature(headers);
+            String protectedHeader = Base64UrlUtility.encode(StringUtils.toBytesUTF8(JSON.toJson(headers)));
+            writeSigningInput(signature::update, protectedHeader, config.signatureDataEncoding(), payload);
+            return protectedHeader + ".." + Base64UrlUtility.encode(signature.sign());
+        } catch (Exception ex) {
+            throw new JoseException("JWS Detached Signature Creation Failure", ex);
         }
     }
 
-    private JwsSignatureVerifier getJwsSignatureVerifier(Properties props, JwsHeaders headers) {
-        if (config.acceptSignatureAlias()) {
-            props.setProperty(JoseConstants.RSSEC_KEY_STORE_ALIAS, headers.getKeyId());
+    @Override
+    public VerificationOutput verificationDetached(String jws, InputStream detachedData) {
+        return verifyStream(jws, detachedData::read);
+    }
+
+    @Override
+    public VerificationOutput verificationDetached(String jws, ByteBuffer detachedData) {
+        return verifyStream(jws, payload(detachedData));
+    }
+
+    private VerificationOutput verifyStream(String jws, Payload payload) {
+        try {
+            int headerEnd = jws.indexOf('.');
+            if (headerEnd < 0 || jws.indexOf('.', headerEnd + 1) != headerEnd + 1) {
+                throw new JoseException("JWS Detached Signature Verification Failure:"
+                        + " a JWS Compact sequence with an empty payload part is expected");
+            }
+            String protectedHeader = jws.substring(0, headerEnd);
+            JwsHeaders headers = new JwsHeaders(JSON.fromJsonToJsonObject(
+                    new String(Base64UrlUtility.decode(protectedHeader), StandardCharsets.UTF_8)).asMap());
+
+            JwsSignatureVerifier verifier = getJwsSignatureVerifier(headers);
+            if (verifier.getAlgorithm() != headers.getSignatureAlgorithm()) {
+                throw new JoseException("JWS Detached Signature Verification Failure: unexpected algorithm");
+            }
+            JwsVerificationSignature signature = verifier.createJwsVerificationSignature(headers);
+            boolean encoded = !Boolean.FALSE.equals(headers.getPayloadEncodingStatus());
+            writeSigningInput(signature::update, protectedHeader, encoded, payload);
+            if (!signature.verify(Base64UrlUtility.decode(jws.substring(headerEnd + 2)))) {
+                throw new JoseException("JWS Detached Signature Verification Failure");
+            }
+            return new VerificationOutput(headers.asMap(), null);
+        } catch (JoseException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new JoseException("JWS Detached Signature Verification Failure", ex);
         }
+    }
 
-        if (isInlinedJwkSetAvailable()) {
-            return JwsUtils.getSignatureVerifier(loadJsonWebKey(verificationKeyAlias()));
-        } else {
-            return JwsUtils.loadSignatureVerifier(props, headers);
+    /**
+     * Feed the JWS signing input, the protected header, a dot and the payload, to the signature in chunks.
+     * An encoded payload is base64url-encoded a chunk at a time, so neither the payload nor its encoding is ever
+     * held in memory as a whole.
+     */
+    private static void writeSigningInput(SignatureUpdate signature, String protectedHeader, boolean encoded,
+                                          Payload payload) throws IOException {
+        byte[] header = (protectedHeader + ".").getBytes(StandardCharsets.US_ASCII);
+        signature.update(header, 0, header.length);
+
+        // a multiple of 3, so that chunks encode without padding
+        byte[] chunk = new byte[3 * 2048];
+        if (!encoded) {
+            int n;
+            while ((n = payload.read(chunk, 0, chunk.length)) != -1) {
+                signature.update(chunk, 0, n);
+            }
+            return;
+        }
+        byte[] encodedChunk = new byte[4 * 2048];
+        int filled = 0;
+        int n;
+        while ((n = payload.read(chunk, filled, chunk.length - filled)) != -1) {
+            filled += n;
+            if (filled == chunk.length) {
+                int length = BASE64URL.encode(chunk, encodedChunk);
+                signature.update(encodedChunk, 0, length);
+                filled = 0;
+            }
+        }
+        if (filled > 0) {
+            byte[] tail = BASE64URL.encode(Arrays.copyOf(chunk, filled));
+            signature.update(tail, 0, tail.length);
         }
     }
 
+    private static Payload payload(ByteBuffer data) {
+        ByteBuffer buffer = data.duplicate();
+        return (b, off, len) -> {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        };
+    }
+
+    /**
+     * The detached payload, read like an {@link InputStream}.
+     */
+    private interface Payload {
+        int read(byte[] b, int off, int len) throws IOException;
+    }
+
+    /**
+     * The {@code update} method shared by {@link JwsSignature} and {@link JwsVerificationSignature}.
+     */
+    private interface SignatureUpdate {
+        void update(byte[] b, int off, int len);
+    }
+
+    private JwsSignatureProvider getSignatureProvider(JwsHeaders headers) {
+        String alias = signatureKeyAlias();
+        return providers.get(JoseOperation.SIGN, alias, config.signatureAlgorithm(), null, () -> {
+            if (isInlinedJwkSetAvailable()) {
+                return JwsUtils.getSignatureProvider(loadJsonWebKey(alias));
+            } else {
+                return JwsUtils.loadSignatureProvider(prepareSignatureVerificationProperties(JoseOperation.SIGN), headers);
+            }
+        });
+    }
+
+    private JwsSignatureVerifier getJwsSignatureVerifier(JwsHeaders headers) {
+        boolean inlined = isInlinedJwkSetAvailable();
+        String alias = !inlined && config.acceptSignatureAlias() ? headers.getKeyId() : verificationKeyAlias();
+        return providers.get(JoseOperation.VERIFICATION, alias, headers.getAlgorithm(), null, () -> {
+            if (inlined) {
+                return JwsUtils.getSignatureVerifier(loadJsonWebKey(alias));
+            } else {
+                Properties props = prepareSignatureVerificationProperties(JoseOperation.VERIFICATION);
+                props.setProperty(JoseConstants.RSSEC_KEY_STORE_ALIAS, alias);
+                return JwsUtils.loadSignatureVerifier(props, headers);
+            }
+        });
+    }
+
     @Override
     public String encrypt(String data) {
         return encrypt(new EncryptionInput(data));
@@ -199,13 +350,12 @@ public class DefaultJoseImpl implements Jose {
 
     @Override
     public String encrypt(EncryptionInput input) {
-        Properties props = prepareEncryptionDecryptionProperties(JoseOperation.ENCRYPTION);
         JweHeaders headers = new JweHeaders();
         headers.asMap().putAll(input.getHeaders());
         if (config.includeEncryptionKeyAlias()) {
             headers.setKeyId(encryptionKeyAlias());
         }
-        JweEncryptionProvider provider = getEncryptionProvider(props, headers);
+        JweEncryptionProvider provider = getEncryptionProvider(headers);
 
         return DEFAULT_JOSE_FORMAT == config.encryptionFormat()
                 ? encryptCompact(provider, headers, input.getData()) : encryptJson(provider, headers, input.getData());
@@ -237,22 +387,15 @@ public class DefaultJoseImpl implements Jose {
 
     @Override
     public DecryptionOutput decryption(String jwe) throws JoseException {
-        Properties props = prepareEncryptionDecryptionProperties(JoseOperation.DECRYPTION);
-
         return DEFAULT_JOSE_FORMAT == config.signatureFormat()
-                ? decryptCompact(props, jwe) : decryptJson(props, jwe);
+                ? decryptCompact(jwe) : decryptJson(jwe);
     }
 
-    private DecryptionOutput decryptCompact(Properties props, String jwe) {
+    private DecryptionOutput decryptCompact(String jwe) {
         try {
             JweCompactConsumer consumer = new JweCompactConsumer(jwe);
 
-            if (config.acceptEncryptionAlias()) {
-                JweHeaders header = consumer.getJweHeaders();
-                props.setProperty(JoseConstants.RSSEC_KEY_STORE_ALIAS, header.getKeyId());
-            }
-
-            JweDecryptionProvider decryptor = getDecryptionProvider(props, consumer.getJweHeaders());
+            JweDecryptionProvider decryptor = getDecryptionProvider(consumer.getJweHeaders());
             String decryptedData = consumer.getDecryptedContentText(decryptor);
             return new DecryptionOutput(consumer.getJweHeaders().asMap(), decryptedData);
         } catch (Exception ex) {
@@ -260,7 +403,7 @@ public class DefaultJoseImpl implements Jose {
         }
     }
 
-    private DecryptionOutput decryptJson(Properties props, String jwe) {
+    private DecryptionOutput decryptJson(String jwe) {
         try {
             JweJsonConsumer consumer = new JweJsonConsumer(jwe);
 
@@ -269,12 +412,7 @@ public class DefaultJoseImpl implements Jose {
                         + " only a single recipient is supported at the moment");
             }
 
-            if (config.acceptEncryptionAlias()) {
-                JweHeaders header = consumer.getProtectedHeader();
-                props.setProperty(JoseConstants.RSSEC_KEY_STORE_ALIAS, header.getKeyId());
-            }
-
-            JweDecryptionProvider decryptor = getDecryptionProvider(props, consumer.getProtectedHeader());
+            JweDecryptionProvider decryptor = getDecryptionProvider(consumer.getProtectedHeader());
             JweDecryptionOutput output = consumer.decryptWith(decryptor);
             return new DecryptionOutput(consumer.getProtectedHeader().asMap(), output.getContentText());
         } catch (JoseException ex) {
@@ -284,33 +422,54 @@ public class DefaultJoseImpl implements Jose {
         }
     }
 
-    private JweEncryptionProvider getEncryptionProvider(Properties props, JweHeaders headers) {
-        if (isInlinedJwkSetAvailable()) {
-            if (KeyAlgorithm.DIRECT == KeyAlgorithm.getAlgorithm(config.keyEncryptionAlgorithm())) {
-                return JweUtils.getDirectKeyJweEncryption(loadJsonWebKey(encryptionKeyAlias()));
+    private JweEncryptionProvider getEncryptionProvider(JweHeaders headers) {
+        String alias = encryptionKeyAlias();
+        Supplier<JweEncryptionProvider> loader = () -> {
+            if (isInlinedJwkSetAvailable()) {
+                if (KeyAlgorithm.DIRECT == KeyAlgorithm.getAlgorithm(config.keyEncryptionAlgorithm())) {
+                    return JweUtils.getDirectKeyJweEncryption(loadJsonWebKey(alias));
+                } else {
+                    return JweUtils.createJweEncryptionProvider(loadJsonWebKey(alias), headers);
+                }
             } else {
-                return JweUtils.createJweEncryptionProvider(loadJsonWebKey(encryptionKeyAlias()), headers);
+                return JweUtils.loadEncryptionProvider(prepareEncryptionDecryptionProperties(JoseOperation.ENCRYPTION), headers);
             }
-        } else {
-            return JweUtils.loadEncryptionProvider(props, headers);
-        }
-    }
-
-    private JweDecryptionProvider getDecryptionProvider(Properties props, JweHeaders headers) {
-        if (config.acceptEncryptionAlias()) {
-            props.setProperty(JoseConstants.RSSEC_KEY_STORE_ALIAS, headers.getKeyId());
+        };
+        if (!isReusableEncryption(config.keyEncryptionAlgorithm())) {
+            return loader.get();
         }
-
-        if (isInlinedJwkSetAvailable()) {
-            if (KeyAlgorithm.DIRECT == KeyAlgorithm.getAlgorithm(config.keyEncryptionAlgorithm())) {
-                return JweUtils.getDirectKeyJweDecryption(loadJsonWebKey(encryptionKeyAlias()));
+        return providers.get(JoseOperation.ENCRYPTION, alias, config.keyEncryptionAlgorithm(),
+                             config.contentEncryptionAlgorithm(), loader);
+    }
+
+    /**
+     * ECDH-ES and PBES2 key encryption keep per-message state, an ephemeral key or a salt, in the provider, which
+     * therefore can't be shared between threads, see {@link JoseProviderCache}.
+     */
+    private static boolean isReusableEncryption(String keyAlgorithm) {
+        return keyAlgorithm != null && !keyAlgorithm.startsWith("ECDH-ES") && !keyAlgorithm.startsWith("PBES2");
+    }
+
+    private JweDecryptionProvider getDecryptionProvider(JweHeaders headers) {
+        boolean inlined = isInlinedJwkSetAvailable();
+        String alias = inlined ? encryptionKeyAlias()
+                : config.acceptEncryptionAlias() ? headers.getKeyId() : decryptionKeyAlias();
+        Supplier<JweDecryptionProvider> loader = () -> {
+            if (inlined) {
+                if (KeyAlgorithm.DIRECT == KeyAlgorithm.getAlgorithm(config.keyEncryptionAlgorithm())) {
+                    return JweUtils.getDirectKeyJweDecryption(loadJsonWebKey(alias));
+                } else {
+                    return JweUtils.createJweDecryptionProvider(loadJsonWebKey(alias),
+                        ContentAlgorithm.getAlgorithm(config.contentEncryptionAlgorithm()));
+                }
             } else {
-                return JweUtils.createJweDecryptionProvider(loadJsonWebKey(encryptionKeyAlias()),
-                    ContentAlgorithm.getAlgorithm(config.contentEncryptionAlgorithm()));
+                Properties props = prepareEncryptionDecryptionProperties(JoseOperation.DECRYPTION);
+                props.setProperty(JoseConstants.RSSEC_KEY_STORE_ALIAS, alias);
+                return JweUtils.loadDecryptionProvider(props, headers);
             }
-        } else {
-            return JweUtils.loadDecryptionProvider(props, headers);
-        }
+        };
+        return providers.get(JoseOperation.DECRYPTION, alias, headers.getAlgorithm(),
+                             headers.getHeader(JoseConstants.JWE_HEADER_CONTENT_ENC_ALGORITHM), loader);
     }
 
     private boolean isInlinedJwkSetAvailable() {
@@ -319,7 +478,11 @@ public class DefaultJoseImpl implements Jose {
     }
 
     private JsonWebKey loadJsonWebKey(String kid) {
-        JsonWebKeys jwkSet = JwkUtils.readJwkSet(config.inlinedKeystoreJwkSet());
+        JsonWebKeys jwkSet = this.inlinedJwkSet;
+        if (jwkSet == null) {
+            jwkSet = JwkUtils.readJwkSet(config.inlinedKeystoreJwkSet());
+            this.inlinedJwkSet = jwkSet;
+        }
         JsonWebKey jwkKey = jwkSet.getKey(kid);
         if (jwkKey == null) {
             throw new JoseException("JWK key is not available");
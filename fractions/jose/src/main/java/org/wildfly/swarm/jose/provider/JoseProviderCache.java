@@ -0,0 +1,168 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.jose.provider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.wildfly.swarm.jose.JoseOperation;
+
+/**
+ * Keeps the signature, verification, encryption and decryption providers loaded from the key store, keyed by
+ * operation, key alias and algorithms, so that the key store is not opened and parsed on every operation.
+ *
+ * <p>The cached providers are dropped when the key store file changes, or when the configured path does, which is
+ * checked at most once a second. The path is read from the configuration on each check rather than once when the
+ * cache is created, so a key store created or configured after deployment is picked up. A key store loaded from the
+ * class path is never found on the file system, so it never changes. The number of entries is bounded, as aliases
+ * and algorithms may come from the headers of incoming tokens: once full, providers are loaded but not cached.</p>
+ *
+ * <p>A cached provider is used by many threads at once. The CXF signature and verification providers only hold the
+ * key, and create the JCA {@code Signature} or {@code Mac} for each message; the decryption providers likewise
+ * create their {@code Cipher} for each message. Encryption providers hold the content encryption key when the key
+ * is used directly, and otherwise generate it, along with the IV, for each message. ECDH-ES and PBES2 key encryption
+ * are the exceptions: their providers keep per-message state, an ephemeral key pair or a salt, so they must not be
+ * shared and are never passed to this cache.</p>
+ */
+final class JoseProviderCache {
+
+    JoseProviderCache(Supplier<String> keystorePath) {
+        this(keystorePath, CHECK_INTERVAL_NANOS);
+    }
+
+    JoseProviderCache(Supplier<String> keystorePath, long checkIntervalNanos) {
+        this.keystorePath = keystorePath;
+        this.checkIntervalNanos = checkIntervalNanos;
+    }
+
+    /**
+     * Return the provider for the given operation, alias and algorithms, loading it if it isn't cached.
+     * Exceptions thrown by the loader are propagated and nothing is cached.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(JoseOperation operation, String alias, Object algorithm, Object contentAlgorithm, Supplier<T> loader) {
+        checkKeystore();
+        // a provider loaded while the key store changes goes into the map being replaced
+        Map<Key, Object> providers = this.providers;
+        Key key = new Key(operation, alias, algorithm, contentAlgorithm);
+        Object provider = providers.get(key);
+        if (provider == null) {
+            provider = loader.get();
+            if (providers.size() < MAX_ENTRIES) {
+                Object existing = providers.putIfAbsent(key, provider);
+                if (existing != null) {
+                    provider = existing;
+                }
+            }
+        }
+        return (T) provider;
+    }
+
+    private void checkKeystore() {
+        if (this.checked && System.nanoTime() - this.nextCheck < 0) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (this.checked && now - this.nextCheck < 0) {
+                return;
+            }
+            String path = this.keystorePath.get();
+            long modified = lastModified(path);
+            if (this.checked && (!Objects.equals(path, this.path) || modified != this.lastModified)) {
+                this.providers = new ConcurrentHashMap<>();
+            }
+            this.path = path;
+            this.lastModified = modified;
+            this.nextCheck = now + this.checkIntervalNanos;
+            this.checked = true;
+        }
+    }
+
+    private static long lastModified(String keystorePath) {
+        if (keystorePath == null) {
+            return 0;
+        }
+        try {
+            return Files.getLastModifiedTime(Paths.get(keystorePath)).toMillis();
+        } catch (IOException | InvalidPathException e) {
+            // on the class path, removed, or being replaced: reload once it is back
+            return -1;
+        }
+    }
+
+    private static final class Key {
+        Key(JoseOperation operation, String alias, Object algorithm, Object contentAlgorithm) {
+            this.operation = operation;
+            this.alias = alias;
+            this.algorithm = algorithm;
+            this.contentAlgorithm = contentAlgorithm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.operation == other.operation
+                    && Objects.equals(this.alias, other.alias)
+                    && Objects.equals(this.algorithm, other.algorithm)
+                    && Objects.equals(this.contentAlgorithm, other.contentAlgorithm);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.operation, this.alias, this.algorithm, this.contentAlgorithm);
+        }
+
+        private final JoseOperation operation;
+
+        private final String alias;
+
+        private final Object algorithm;
+
+        private final Object contentAlgorithm;
+    }
+
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int MAX_ENTRIES = 256;
+
+    private final Supplier<String> keystorePath;
+
+    private final long checkIntervalNanos;
+
+    private volatile Map<Key, Object> providers = new ConcurrentHashMap<>();
+
+    private volatile boolean checked;
+
+    private volatile long nextCheck;
+
+    private String path;
+
+    private long lastModified;
+}
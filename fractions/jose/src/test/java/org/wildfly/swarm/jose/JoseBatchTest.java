@@ -0,0 +1,122 @@
+package org.wildfly.swarm.jose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class JoseBatchTest {
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testResultsInInputOrder() {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            inputs.add(i);
+        }
+
+        List<String> results = JoseBatch.map(inputs, i -> {
+            // the later inputs finish first
+            sleep(100 - i);
+            return "result " + i;
+        }, this.executor);
+
+        assertThat(results).hasSize(100);
+        for (int i = 0; i < 100; ++i) {
+            assertThat(results.get(i)).isEqualTo("result " + i);
+        }
+    }
+
+    @Test
+    public void testRunsOnTheExecutor() {
+        List<String> threads = JoseBatch.map(Arrays.asList(1, 2, 3), i -> Thread.currentThread().getName(), this.executor);
+
+        for (String thread : threads) {
+            assertThat(thread).startsWith("batch-");
+        }
+    }
+
+    @Test
+    public void testEmptyInputs() {
+        assertThat(JoseBatch.map(Collections.<String>emptyList(), s -> s, this.executor)).isEmpty();
+    }
+
+    @Test
+    public void testFailureIsRethrownAndTheRestCancelled() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            inputs.add(i);
+        }
+
+        try {
+            JoseBatch.map(inputs, i -> {
+                started.incrementAndGet();
+                if (i == 0) {
+                    failed.countDown();
+                    throw new JoseException("JWS Compact Signature Creation Failure");
+                }
+                await(failed);
+                sleep(10);
+                return i;
+            }, this.executor);
+            fail("the failure of the first input is expected");
+        } catch (JoseException e) {
+            assertThat(e.getMessage()).isEqualTo("JWS Compact Signature Creation Failure");
+        }
+
+        this.executor.shutdown();
+        assertThat(this.executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        // the tasks running at the time of the failure, not the queued ones
+        assertThat(started.get()).isLessThan(100);
+    }
+
+    @Test
+    public void testRejectedTasks() {
+        this.executor.shutdown();
+
+        try {
+            JoseBatch.map(Arrays.asList(1, 2, 3), i -> i, this.executor);
+            fail("the rejection is expected");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4, r -> new Thread(r, "batch-" + this.threads.incrementAndGet()));
+}
@@ -0,0 +1,284 @@
+package org.wildfly.swarm.jose.provider;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.swarm.jose.Jose;
+import org.wildfly.swarm.jose.JoseConfiguration;
+import org.wildfly.swarm.jose.JoseException;
+import org.wildfly.swarm.jose.JoseProperties;
+import org.wildfly.swarm.jose.SignatureInput;
+import org.wildfly.swarm.jose.StreamingJose;
+import org.wildfly.swarm.jose.VerificationOutput;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class DefaultJoseImplTest {
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testRoundTrips() {
+        Jose jose = new DefaultJoseImpl(config());
+
+        assertThat(jose.verify(jose.sign("Hello"))).isEqualTo("Hello");
+        assertThat(jose.decrypt(jose.encrypt("Hello"))).isEqualTo("Hello");
+        // a fresh IV for each message, with the same cached provider
+        assertThat(jose.encrypt("Hello")).isNotEqualTo(jose.encrypt("Hello"));
+    }
+
+    @Test
+    public void testTamperedSignatureIsRejected() {
+        Jose jose = new DefaultJoseImpl(config());
+        String jws = jose.sign("Hello");
+        String other = jose.sign("Hi");
+        String tampered = jws.substring(0, jws.lastIndexOf('.')) + other.substring(other.lastIndexOf('.'));
+
+        try {
+            jose.verify(tampered);
+            fail("the signature of another payload is expected to be rejected");
+        } catch (JoseException e) {
+            // expected
+        }
+        assertThat(jose.verify(jws)).isEqualTo("Hello");
+    }
+
+    @Test
+    public void testConcurrentRoundTrips() throws Exception {
+        Jose jose = new DefaultJoseImpl(config());
+        Set<String> encrypted = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; ++t) {
+            int thread = t;
+            results.add(this.executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; ++i) {
+                    String data = "thread " + thread + " message " + i;
+                    assertThat(jose.verify(jose.sign(data))).isEqualTo(data);
+                    String jwe = jose.encrypt(data);
+                    encrypted.add(jwe);
+                    assertThat(jose.decrypt(jwe)).isEqualTo(data);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        assertThat(encrypted).hasSize(THREADS * ROUNDS);
+    }
+
+    @Test
+    public void testConcurrentVerificationOfTokensSignedElsewhere() throws Exception {
+        Jose signer = new DefaultJoseImpl(config());
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; ++i) {
+            tokens.add(signer.sign("message " + i));
+        }
+        Jose verifier = new DefaultJoseImpl(config());
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; ++t) {
+            results.add(this.executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; ++i) {
+                    assertThat(verifier.verify(tokens.get(i))).isEqualTo("message " + i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void testBatchesOnExecutor() {
+        Jose jose = new DefaultJoseImpl(config());
+        List<SignatureInput> inputs = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; ++i) {
+            inputs.add(new SignatureInput("message " + i));
+        }
+
+        List<VerificationOutput> verified = jose.verificationAll(jose.signAll(inputs, this.executor), this.executor);
+
+        assertThat(verified).hasSize(ROUNDS);
+        for (int i = 0; i < ROUNDS; ++i) {
+            assertThat(verified.get(i).getData()).isEqualTo("message " + i);
+        }
+    }
+
+    @Test
+    public void testStreamingRoundTrips() {
+        StreamingJose jose = new DefaultJoseImpl(config());
+
+        for (int size : SIZES) {
+            byte[] data = data(size);
+            String jws = jose.signDetached(new ByteArrayInputStream(data));
+
+            assertThat(jws.split("\\.", -1)[1]).isEmpty();
+            assertThat(jose.verificationDetached(jws, new ByteArrayInputStream(data)).getData()).isNull();
+            VerificationOutput output = jose.verificationDetached(jws, new TricklingInputStream(data));
+            assertThat(output.getHeaders().get("kid")).isEqualTo("HMacKey");
+            assertThat(output.getHeaders().containsKey("b64")).isFalse();
+            assertThat(jose.verificationDetached(jws, ByteBuffer.wrap(data)).getHeaders().get("alg")).isEqualTo("HS256");
+            assertRejected(jose, jws, data);
+        }
+    }
+
+    @Test
+    public void testStreamingMatchesWholePayloadEncoding() {
+        // each side verifies the other only if the payload is encoded the same, a chunk at a time or as a whole
+        StreamingJose jose = new DefaultJoseImpl(config());
+        Jose detached = new DefaultJoseImpl(config().signatureDataDetached(true));
+
+        for (int size : SIZES) {
+            if (size == 0) {
+                continue;
+            }
+            byte[] data = data(size);
+            String text = new String(data, StandardCharsets.US_ASCII);
+            String streamed = jose.signDetached(Collections.emptyMap(), new TricklingInputStream(data));
+            String whole = detached.sign(text);
+
+            assertThat(detached.verifyDetached(streamed, text)).isEqualTo(text);
+            jose.verificationDetached(whole, ByteBuffer.wrap(data));
+        }
+    }
+
+    @Test
+    public void testStreamingUnencodedPayload() {
+        StreamingJose jose = new DefaultJoseImpl(config().signatureDataEncoding(false));
+        Jose detached = new DefaultJoseImpl(config().signatureDataEncoding(false).signatureDataDetached(true));
+
+        for (int size : SIZES) {
+            byte[] data = data(size);
+            String jws = jose.signDetached(new TricklingInputStream(data));
+
+            VerificationOutput output = jose.verificationDetached(jws, new ByteArrayInputStream(data));
+            assertThat(output.getHeaders().get("b64")).isEqualTo(Boolean.FALSE);
+            jose.verificationDetached(jws, ByteBuffer.wrap(data));
+            assertRejected(jose, jws, data);
+            if (size > 0) {
+                String text = new String(data, StandardCharsets.US_ASCII);
+                assertThat(detached.verifyDetached(jws, text)).isEqualTo(text);
+                jose.verificationDetached(detached.sign(text), new ByteArrayInputStream(data));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingBufferPositionIsKept() {
+        StreamingJose jose = new DefaultJoseImpl(config());
+        byte[] data = data(6145);
+        ByteBuffer buffer = ByteBuffer.allocate(data.length + 10);
+        buffer.position(10);
+        buffer.put(data);
+        buffer.position(10);
+
+        String jws = jose.signDetached(Collections.emptyMap(), buffer);
+
+        assertThat(buffer.position()).isEqualTo(10);
+        jose.verificationDetached(jws, ByteBuffer.wrap(data));
+        jose.verificationDetached(jws, buffer);
+        assertThat(buffer.position()).isEqualTo(10);
+    }
+
+    private static void assertRejected(StreamingJose jose, String jws, byte[] data) {
+        byte[] tampered = Arrays.copyOf(data, data.length + 1);
+        if (data.length > 0) {
+            tampered = data.clone();
+            tampered[data.length / 2] ^= 1;
+        }
+        try {
+            jose.verificationDetached(jws, new ByteArrayInputStream(tampered));
+            fail("tampered data of " + data.length + " bytes is expected to be rejected");
+        } catch (JoseException e) {
+            // expected
+        }
+        try {
+            jose.verificationDetached(jws, ByteBuffer.wrap(tampered));
+            fail("tampered data of " + data.length + " bytes is expected to be rejected");
+        } catch (JoseException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Printable ASCII, so that it can also be signed as a string.
+     */
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            data[i] = (byte) (' ' + i % 95);
+        }
+        return data;
+    }
+
+    /**
+     * Returns fewer bytes than asked for, so that chunks are filled over several reads.
+     */
+    private static final class TricklingInputStream extends ByteArrayInputStream {
+        TricklingInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1000));
+        }
+    }
+
+    static JoseConfiguration config() {
+        return new JoseConfiguration()
+                .keystoreType("jwk")
+                .keystorePath(JoseProperties.JWK_KEYSTORE_INLINE)
+                .inlinedKeystoreJwkSet(JWK_SET)
+                .signatureKeyAlias("HMacKey")
+                .signatureAlgorithm("HS256")
+                .encryptionKeyAlias("AesGcmKey")
+                .keyEncryptionAlgorithm("dir");
+    }
+
+    private static final String JWK_SET = "{\"keys\":["
+            + "{\"kty\":\"oct\",\"alg\":\"HS256\",\"kid\":\"HMacKey\","
+            + "\"k\":\"AyM1SysPpbyDfgZld3umj1qzKObwVMkoqQ-EstJQLr_T-1qS0gZH75aKtMN3Yj0iPS4hcgUuTwjAzZr1Z9CAow\"},"
+            + "{\"kty\":\"oct\",\"alg\":\"A128GCM\",\"kid\":\"AesGcmKey\",\"k\":\"GawgguFyGrWKav7AX4VKUg\"}"
+            + "]}";
+
+    /**
+     * Around the 6 KiB chunks the payload is encoded in, and not a multiple of their size.
+     */
+    private static final int[] SIZES = {0, 1, 2, 3, 4, 6143, 6144, 6145, 3 * 6144 + 7, 100_003};
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 200;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+}
@@ -0,0 +1,195 @@
+package org.wildfly.swarm.jose.provider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.jose.JoseOperation;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class JoseProviderCacheTest {
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("jose");
+        this.keystore = this.dir.resolve("keystore.jwk");
+        Files.write(this.keystore, "first".getBytes(StandardCharsets.UTF_8));
+        this.path.set(this.keystore.toString());
+        // checked on every call
+        this.cache = new JoseProviderCache(this.path::get, 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.keystore);
+        Files.deleteIfExists(this.dir.resolve("other.jwk"));
+        Files.delete(this.dir);
+    }
+
+    @Test
+    public void testCachedPerOperationAliasAndAlgorithms() {
+        Object signature = get(JoseOperation.SIGN, "alias", "RS256", null);
+
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isSameAs(signature);
+        assertThat(get(JoseOperation.VERIFICATION, "alias", "RS256", null)).isNotSameAs(signature);
+        assertThat(get(JoseOperation.SIGN, "other", "RS256", null)).isNotSameAs(signature);
+        assertThat(get(JoseOperation.SIGN, "alias", "RS512", null)).isNotSameAs(signature);
+        assertThat(get(JoseOperation.SIGN, null, "RS256", null)).isNotSameAs(signature);
+        assertThat(get(JoseOperation.ENCRYPTION, "alias", "RSA-OAEP", "A128GCM"))
+                .isNotSameAs(get(JoseOperation.ENCRYPTION, "alias", "RSA-OAEP", "A256GCM"));
+        assertThat(this.loads.get()).isEqualTo(7);
+    }
+
+    @Test
+    public void testReloadsWhenKeystoreIsReplaced() throws IOException {
+        Object provider = get(JoseOperation.SIGN, "alias", "RS256", null);
+
+        Path replacement = this.dir.resolve("other.jwk");
+        Files.write(replacement, "second".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(replacement, laterThan(this.keystore));
+        Files.move(replacement, this.keystore, StandardCopyOption.REPLACE_EXISTING);
+
+        Object reloaded = get(JoseOperation.SIGN, "alias", "RS256", null);
+        assertThat(reloaded).isNotSameAs(provider);
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isSameAs(reloaded);
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testReloadsWhenKeystoreIsRemovedAndRestored() throws IOException {
+        Object provider = get(JoseOperation.SIGN, "alias", "RS256", null);
+        FileTime modified = Files.getLastModifiedTime(this.keystore);
+
+        Files.delete(this.keystore);
+        Object whileRemoved = get(JoseOperation.SIGN, "alias", "RS256", null);
+        assertThat(whileRemoved).isNotSameAs(provider);
+
+        Files.write(this.keystore, "first".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(this.keystore, modified);
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isNotSameAs(whileRemoved);
+        assertThat(this.loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testKeystoreCreatedAfterTheCache() throws IOException {
+        Files.delete(this.keystore);
+        Object provider = get(JoseOperation.SIGN, "alias", "RS256", null);
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isSameAs(provider);
+
+        Files.write(this.keystore, "first".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isNotSameAs(provider);
+    }
+
+    @Test
+    public void testPathIsReadLazily() {
+        AtomicInteger reads = new AtomicInteger();
+        JoseProviderCache cache = new JoseProviderCache(() -> {
+            reads.incrementAndGet();
+            return this.path.get();
+        }, 0);
+        assertThat(reads.get()).isEqualTo(0);
+
+        cache.get(JoseOperation.SIGN, "alias", "RS256", null, Object::new);
+
+        assertThat(reads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReloadsWhenPathChanges() throws IOException {
+        Object provider = get(JoseOperation.SIGN, "alias", "RS256", null);
+        Path other = this.dir.resolve("other.jwk");
+        Files.write(other, "second".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(other, Files.getLastModifiedTime(this.keystore));
+
+        this.path.set(other.toString());
+
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isNotSameAs(provider);
+    }
+
+    @Test
+    public void testClassPathKeystoreNeverChanges() {
+        this.path.set("keystore.jks");
+        Object provider = get(JoseOperation.SIGN, "alias", "RS256", null);
+
+        for (int i = 0; i < 10; ++i) {
+            assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isSameAs(provider);
+        }
+        this.path.set(null);
+        provider = get(JoseOperation.SIGN, "alias", "RS256", null);
+        assertThat(get(JoseOperation.SIGN, "alias", "RS256", null)).isSameAs(provider);
+    }
+
+    @Test
+    public void testChecksAtMostOncePerInterval() throws IOException {
+        JoseProviderCache cache = new JoseProviderCache(this.path::get, TimeUnit.HOURS.toNanos(1));
+        Object provider = cache.get(JoseOperation.SIGN, "alias", "RS256", null, Object::new);
+
+        Files.setLastModifiedTime(this.keystore, laterThan(this.keystore));
+
+        assertThat(cache.get(JoseOperation.SIGN, "alias", "RS256", null, Object::new)).isSameAs(provider);
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        try {
+            this.cache.get(JoseOperation.SIGN, "alias", "RS256", null, () -> {
+                throw new IllegalStateException("no such key");
+            });
+            fail("the load failure is expected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("no such key");
+        }
+
+        get(JoseOperation.SIGN, "alias", "RS256", null);
+        assertThat(this.loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBoundedNumberOfEntries() {
+        for (int i = 0; i < 300; ++i) {
+            get(JoseOperation.VERIFICATION, "alias" + i, "RS256", null);
+        }
+        assertThat(this.loads.get()).isEqualTo(300);
+
+        for (int i = 0; i < 300; ++i) {
+            get(JoseOperation.VERIFICATION, "alias" + i, "RS256", null);
+        }
+        // the first 256 are cached, the others loaded on each call
+        assertThat(this.loads.get()).isEqualTo(300 + 300 - 256);
+    }
+
+    private Object get(JoseOperation operation, String alias, Object algorithm, Object contentAlgorithm) {
+        Supplier<Object> loader = () -> {
+            this.loads.incrementAndGet();
+            return new Object();
+        };
+        return this.cache.get(operation, alias, algorithm, contentAlgorithm, loader);
+    }
+
+    private static FileTime laterThan(Path file) throws IOException {
+        return FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + TimeUnit.MINUTES.toMillis(1));
+    }
+
+    private final AtomicReference<String> path = new AtomicReference<>();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Path dir;
+
+    private Path keystore;
+
+    private JoseProviderCache cache;
+}
@@ -16,8 +16,6 @@
 package org.wildfly.swarm.keycloak.deployment;
 
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.Supplier;
 
 import org.keycloak.adapters.KeycloakConfigResolver;
 import org.keycloak.adapters.KeycloakDeployment;
@@ -28,10 +26,10 @@ import org.keycloak.adapters.OIDCHttpFacade;
  */
 public class KeycloakAdapterConfigResolver implements KeycloakConfigResolver {
 
-    private static Map<String, KeycloakDeployment> pathDeployments;
+    private static volatile PathTrie<KeycloakDeployment> pathDeployments;
 
     public static void setPathDeployments(Map<String, KeycloakDeployment> map) {
-        pathDeployments = map;
+        pathDeployments = new PathTrie<>(map);
     }
 
     @Override
@@ -39,24 +37,11 @@ public class KeycloakAdapterConfigResolver implements KeycloakConfigResolver {
         // Select the deployment using the relative request path
         String path = request.getRelativePath();
 
-        // Try to get the exact match first
-        Optional<KeycloakDeployment> dep = Optional.ofNullable(pathDeployments.get(path));
-
-        // If no exact match exists then iterate over the pathDeployments entries
-        // and find the first deployment whose entry path is a prefix of the request path
-        return dep.orElse(getMatchingPathDeployment(path)
-                .orElseThrow(throwException(path)));
-    }
-
-    private Optional<KeycloakDeployment> getMatchingPathDeployment(String path) {
-        return pathDeployments.entrySet()
-                .stream()
-                .filter(e -> path.startsWith(e.getKey()))
-                .findFirst()
-                .map(Map.Entry::getValue);
-    }
-
-    private static Supplier<IllegalStateException> throwException(String path) {
-        return () -> new IllegalStateException("No Keycloak configuration for the path " + path);
+        // An exact match is the longest prefix, otherwise the most specific entry path wins
+        KeycloakDeployment deployment = pathDeployments.longestPrefix(path);
+        if (deployment == null) {
+            throw new IllegalStateException("No Keycloak configuration for the path " + path);
+        }
+        return deployment;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.keycloak.deployment;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable character trie mapping path prefixes to values, which finds the
+ * value of the longest prefix of a path without allocating.
+ *
+ * <p>The children of a node are kept in a sorted array and found by binary
+ * search, so a lookup costs one search per character of the path, whatever the
+ * number of prefixes.</p>
+ */
+final class PathTrie<T> {
+
+    PathTrie(Map<String, T> prefixes) {
+        Builder<T> root = new Builder<>();
+        for (Map.Entry<String, T> entry : prefixes.entrySet()) {
+            Builder<T> node = root;
+            String prefix = entry.getKey();
+            for (int i = 0; i < prefix.length(); ++i) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Builder<>());
+            }
+            node.value = entry.getValue();
+        }
+        this.root = root.build();
+    }
+
+    /**
+     * @return the value of the longest prefix of the given path, or null if none of the prefixes match
+     */
+    T longestPrefix(String path) {
+        Node<T> node = this.root;
+        T match = node.value;
+        for (int i = 0; i < path.length(); ++i) {
+            int index = Arrays.binarySearch(node.keys, path.charAt(i));
+            if (index < 0) {
+                break;
+            }
+            node = node.children[index];
+            if (node.value != null) {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+
+    private static final class Node<T> {
+        Node(char[] keys, Node<T>[] children, T value) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+        }
+
+        private final char[] keys;
+
+        private final Node<T>[] children;
+
+        private final T value;
+    }
+
+    private static final class Builder<T> {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T> build() {
+            char[] keys = new char[this.children.size()];
+            Node<T>[] nodes = new Node[this.children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder<T>> child : this.children.entrySet()) {
+                keys[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                ++i;
+            }
+            return new Node<>(keys, nodes, this.value);
+        }
+
+        private final Map<Character, Builder<T>> children = new TreeMap<>();
+
+        private T value;
+    }
+
+    private final Node<T> root;
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.keycloak.deployment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PathTrieTest {
+
+    @Test
+    public void testLongestPrefixWins() {
+        Map<String, String> prefixes = new HashMap<>();
+        prefixes.put("/api", "api");
+        prefixes.put("/api/tenant1", "tenant1");
+        prefixes.put("/api/tenant1/admin", "admin");
+        prefixes.put("/api/tenant2", "tenant2");
+        PathTrie<String> trie = new PathTrie<>(prefixes);
+
+        assertThat(trie.longestPrefix("/api/tenant1")).isEqualTo("tenant1");
+        assertThat(trie.longestPrefix("/api/tenant1/admin/users")).isEqualTo("admin");
+        assertThat(trie.longestPrefix("/api/tenant1/adm")).isEqualTo("tenant1");
+        assertThat(trie.longestPrefix("/api/tenant2/orders")).isEqualTo("tenant2");
+        assertThat(trie.longestPrefix("/api/tenant3")).isEqualTo("api");
+        assertThat(trie.longestPrefix("/other")).isNull();
+        assertThat(trie.longestPrefix("")).isNull();
+    }
+
+    @Test
+    public void testEmptyPrefixMatchesEverything() {
+        Map<String, String> prefixes = new HashMap<>();
+        prefixes.put("", "default");
+        prefixes.put("/tenant1", "tenant1");
+        PathTrie<String> trie = new PathTrie<>(prefixes);
+
+        assertThat(trie.longestPrefix("/tenant1/x")).isEqualTo("tenant1");
+        assertThat(trie.longestPrefix("/tenant2")).isEqualTo("default");
+        assertThat(trie.longestPrefix("")).isEqualTo("default");
+    }
+}
@@ -25,6 +25,7 @@ import org.wildfly.swarm.spi.api.annotations.Configurable;
 
 import static org.wildfly.swarm.logstash.LogstashProperties.DEFAULT_HOSTNAME;
 import static org.wildfly.swarm.logstash.LogstashProperties.DEFAULT_PORT;
+import static org.wildfly.swarm.spi.api.Defaultable.bool;
 import static org.wildfly.swarm.spi.api.Defaultable.ifAnyExplicitlySet;
 import static org.wildfly.swarm.spi.api.Defaultable.integer;
 import static org.wildfly.swarm.spi.api.Defaultable.string;
@@ -93,6 +94,33 @@ public class LogstashFraction implements Fraction<LogstashFraction> {
         return this.enabled.get();
     }
 
+    public LogstashFraction async(boolean async) {
+        this.async.set(async);
+        return this;
+    }
+
+    public boolean async() {
+        return this.async.get();
+    }
+
+    public LogstashFraction queueSize(int queueSize) {
+        this.queueSize.set(queueSize);
+        return this;
+    }
+
+    public int queueSize() {
+        return this.queueSize.get();
+    }
+
+    public LogstashFraction batchSize(int batchSize) {
+        this.batchSize.set(batchSize);
+        return this;
+    }
+
+    public int batchSize() {
+        return this.batchSize.get();
+    }
+
     @AttributeDocumentation("Host name of the Logstash server")
     private Defaultable<String> hostname = string(DEFAULT_HOSTNAME);
 
@@ -105,6 +133,15 @@ public class LogstashFraction implements Fraction<LogstashFraction> {
     @AttributeDocumentation("Logstash formatter properties")
     private Properties formatterProperties = new Properties();
 
+    @AttributeDocumentation("Send log records from a background thread, in batches, dropping them when the queue is full instead of blocking")
+    private Defaultable<Boolean> async = bool(false);
+
+    @AttributeDocumentation("Maximum number of log records waiting to be sent, in asynchronous mode")
+    private Defaultable<Integer> queueSize = integer(8192);
+
+    @AttributeDocumentation("Maximum number of log records sent in one write, in asynchronous mode")
+    private Defaultable<Integer> batchSize = integer(256);
+
     @AttributeDocumentation("Log level")
     private Level level;
 
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logstash.runtime;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.logging.ErrorManager;
+
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * Sends log records to a Logstash TCP input without blocking the logging threads.
+ *
+ * <p>Records are put into a bounded queue and written by a {@link LogstashSender} thread, in batches of
+ * newline-delimited JSON, reconnecting with a backoff when Logstash is unreachable. When the queue is full,
+ * records are dropped rather than making the caller wait, so a slow Logstash never adds latency to requests.</p>
+ *
+ * <p>The JSON is encoded by the handler itself, with the same fields as the Logstash formatter, plus the
+ * {@code metaData} entries given as comma-separated {@code key=value} pairs. Fields are renamed with
+ * {@code keyOverrides}, given as comma-separated {@code key=name} pairs as for the formatter.</p>
+ *
+ * <p>If the MicroProfile Metrics fraction is present, the queued and dropped records are exposed as vendor
+ * metrics.</p>
+ */
+public class AsyncLogstashHandler extends ExtHandler {
+
+    public AsyncLogstashHandler() {
+        setAutoFlush(false);
+    }
+
+    public void setHostname(String hostname) {
+        this.hostname = hostname;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void setMetaData(String metaData) {
+        this.metaData = encodeMetaData(metaData);
+    }
+
+    public void setKeyOverrides(String keyOverrides) {
+        this.keyOverrides = parseKeyOverrides(keyOverrides);
+    }
+
+    @Override
+    protected void doPublish(ExtLogRecord record) {
+        LogstashSender sender = this.sender;
+        if (sender == null) {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                if (this.sender == null) {
+                    startSender();
+                }
+                sender = this.sender;
+            }
+        }
+        // the message, MDC and NDC must be captured before handing the record over to another thread
+        record.copyAll();
+        if (this.queue.offer(record)) {
+            sender.signal();
+        } else {
+            this.dropped.increment();
+            this.droppedCounter.accept(1);
+        }
+    }
+
+    private void startSender() {
+        this.queue = new ArrayBlockingQueue<>(this.queueSize);
+        if (LogstashMetrics.isAvailable()) {
+            this.droppedCounter = LogstashMetrics.register(this, () -> this.queue.size());
+        }
+        LogstashSender sender = new LogstashSender(this.hostname, this.port, this.metaData, this.keyOverrides,
+                                                   this.queue, this.batchSize, this.dropped, this.droppedCounter,
+                                                   (message, e) -> reportError(message, e, ErrorManager.WRITE_FAILURE));
+        sender.start();
+        this.sender = sender;
+    }
+
+    /**
+     * @return the number of records dropped since Logstash was last reachable
+     */
+    long dropped() {
+        return this.dropped.sum();
+    }
+
+    static byte[] encodeMetaData(String metaData) {
+        JsonWriter out = new JsonWriter(64);
+        if (metaData != null) {
+            for (String entry : metaData.split(",")) {
+                int eq = entry.indexOf('=');
+                String key = (eq < 0 ? entry : entry.substring(0, eq)).trim();
+                if (key.isEmpty()) {
+                    continue;
+                }
+                out.writeByte(',');
+                out.writeRaw(JsonWriter.fieldName(key));
+                out.writeString(eq < 0 ? "" : entry.substring(eq + 1).trim());
+            }
+        }
+        return Arrays.copyOf(out.array(), out.size());
+    }
+
+    static Map<LogstashSender.Key, String> parseKeyOverrides(String keyOverrides) {
+        Map<LogstashSender.Key, String> overrides = new EnumMap<>(LogstashSender.Key.class);
+        if (keyOverrides != null) {
+            for (String entry : keyOverrides.split(",")) {
+                int eq = entry.indexOf('=');
+                String name = (eq < 0 ? entry : entry.substring(0, eq)).trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                LogstashSender.Key key = LogstashSender.Key.forName(name);
+                if (key == null || eq < 0 || entry.substring(eq + 1).trim().isEmpty()) {
+                    throw new IllegalArgumentException("Invalid key override: " + entry.trim());
+                }
+                overrides.put(key, entry.substring(eq + 1).trim());
+            }
+        }
+        return overrides;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        synchronized (this) {
+            this.closed = true;
+            if (this.sender != null) {
+                LogstashSender sender = this.sender;
+                this.sender = null;
+                sender.stop(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (LogstashMetrics.isAvailable()) {
+                    LogstashMetrics.unregister(this);
+                }
+            }
+        }
+    }
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private String hostname;
+
+    private int port;
+
+    private int queueSize = 8192;
+
+    private int batchSize = 256;
+
+    private byte[] metaData = new byte[0];
+
+    private Map<LogstashSender.Key, String> keyOverrides = new EnumMap<>(LogstashSender.Key.class);
+
+    private final LongAdder dropped = new LongAdder();
+
+    private LongConsumer droppedCounter = n -> {
+    };
+
+    private volatile LogstashSender sender;
+
+    private volatile BlockingQueue<ExtLogRecord> queue;
+
+    private boolean closed;
+}
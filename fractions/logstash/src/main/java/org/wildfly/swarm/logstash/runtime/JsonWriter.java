@@ -0,0 +1,188 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logstash.runtime;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.wildfly.swarm.logging.runtime.IsoTimestamp;
+
+/**
+ * A reusable, growable buffer that JSON is written into as UTF-8.
+ *
+ * <p>Strings are escaped and encoded straight into the buffer and field names are written as pre-encoded bytes,
+ * so that once the buffer has grown to the size of a batch, encoding a record allocates nothing.</p>
+ */
+final class JsonWriter {
+
+    JsonWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Encode a field name, with its quotes and the colon following it, to be written with {@link #writeRaw(byte[])}.
+     */
+    static byte[] fieldName(String name) {
+        JsonWriter out = new JsonWriter(name.length() + 8);
+        out.writeString(name);
+        out.writeByte(':');
+        return Arrays.copyOf(out.buffer, out.size);
+    }
+
+    void reset() {
+        this.size = 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    byte[] array() {
+        return this.buffer;
+    }
+
+    void writeByte(int b) {
+        ensureCapacity(1);
+        this.buffer[this.size++] = (byte) b;
+    }
+
+    void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+        this.size += bytes.length;
+    }
+
+    void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            this.buffer[this.size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            ++digits;
+        }
+        int pos = this.size + digits;
+        do {
+            this.buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        this.size += digits;
+    }
+
+    /**
+     * Write a JSON string, or {@code null}.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        int length = value.length();
+        // worst case: every char takes a six byte escape
+        ensureCapacity(length * 6 + 2);
+        byte[] buffer = this.buffer;
+        int pos = this.size;
+        buffer[pos++] = '"';
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buffer[pos++] = (byte) c;
+                    continue;
+                }
+                buffer[pos++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        buffer[pos++] = (byte) c;
+                        break;
+                    case '\n':
+                        buffer[pos++] = 'n';
+                        break;
+                    case '\r':
+                        buffer[pos++] = 'r';
+                        break;
+                    case '\t':
+                        buffer[pos++] = 't';
+                        break;
+                    default:
+                        buffer[pos++] = 'u';
+                        buffer[pos++] = '0';
+                        buffer[pos++] = '0';
+                        buffer[pos++] = HEX[c >> 4];
+                        buffer[pos++] = HEX[c & 0xf];
+                }
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xc0 | c >> 6);
+                buffer[pos++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer[pos++] = (byte) (0xf0 | cp >> 18);
+                buffer[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                buffer[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                buffer[pos++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, not representable in UTF-8
+                buffer[pos++] = '?';
+            } else {
+                buffer[pos++] = (byte) (0xe0 | c >> 12);
+                buffer[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[pos++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        buffer[pos++] = '"';
+        this.size = pos;
+    }
+
+    /**
+     * Write the given time as a quoted ISO-8601 UTC timestamp with milliseconds, e.g. {@code "2020-01-31T12:00:00.000Z"}.
+     */
+    void writeTimestamp(long millis) {
+        ensureCapacity(IsoTimestamp.LENGTH + 2);
+        if (!IsoTimestamp.write(millis, this.buffer, this.size + 1)) {
+            writeString(Instant.ofEpochMilli(millis).toString());
+            return;
+        }
+        this.buffer[this.size] = '"';
+        this.buffer[this.size + IsoTimestamp.LENGTH + 1] = '"';
+        this.size += IsoTimestamp.LENGTH + 2;
+    }
+
+    private void writeAscii(String value) {
+        writeRaw(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = this.size + extra;
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+        }
+    }
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+
+    private int size;
+}
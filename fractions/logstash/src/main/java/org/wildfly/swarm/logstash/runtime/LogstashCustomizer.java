@@ -15,11 +15,15 @@
  */
 package org.wildfly.swarm.logstash.runtime;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import org.jboss.logging.Logger;
 import org.wildfly.swarm.config.logging.CustomHandler;
 import org.wildfly.swarm.logging.LoggingFraction;
 import org.wildfly.swarm.logstash.LogstashFraction;
@@ -47,21 +51,57 @@ public class LogstashCustomizer implements Customizer {
 
             handlerProps.put("hostname", this.logstash.hostname());
             handlerProps.put("port", "" + this.logstash.port());
+            if (this.logstash.async()) {
+                handlerProps.put("queueSize", "" + this.logstash.queueSize());
+                handlerProps.put("batchSize", "" + this.logstash.batchSize());
+                asyncFormatterProperties(handlerProps);
+            }
 
             final CustomHandler<?> logstashHandler = new CustomHandler<>("logstash-handler")
-                    .module("org.jboss.logmanager.ext")
-                    .attributeClass("org.jboss.logmanager.ext.handlers.SocketHandler")
-                    .namedFormatter("logstash")
                     .properties(handlerProps)
                     .level(this.logstash.level());
 
+            if (this.logstash.async()) {
+                // the handler writes the JSON itself, from its own thread
+                logstashHandler
+                        .module("org.wildfly.swarm.logstash:runtime")
+                        .attributeClass("org.wildfly.swarm.logstash.runtime.AsyncLogstashHandler");
+            } else {
+                logstashHandler
+                        .module("org.jboss.logmanager.ext")
+                        .attributeClass("org.jboss.logmanager.ext.handlers.SocketHandler")
+                        .namedFormatter("logstash");
+                this.logging
+                        .customFormatter("logstash", "org.jboss.logmanager.ext", "org.jboss.logmanager.ext.formatters.LogstashFormatter",
+                                this.logstash.formatterProperties());
+            }
+
             this.logging
-                    .customFormatter("logstash", "org.jboss.logmanager.ext", "org.jboss.logmanager.ext.formatters.LogstashFormatter",
-                            this.logstash.formatterProperties())
                     .customHandler(logstashHandler)
                     .subresources()
                     .rootLogger()
                     .handler(logstashHandler.getKey());
         }
     }
+
+    /**
+     * The asynchronous handler writes the JSON itself, and only supports the formatter properties that don't cost
+     * anything per record; the others are left out with a warning rather than silently.
+     */
+    private void asyncFormatterProperties(Properties handlerProps) {
+        Properties formatterProps = this.logstash.formatterProperties();
+        for (String name : formatterProps.stringPropertyNames()) {
+            String value = formatterProps.getProperty(name);
+            if (ASYNC_FORMATTER_PROPERTIES.contains(name)) {
+                handlerProps.put(name, value);
+            } else if (!("exceptionOutputType".equals(name) && "FORMATTED".equalsIgnoreCase(value))) {
+                // the stack trace is always written as formatted text
+                LOG.warnf("The Logstash formatter property %s=%s is not supported in async mode and is ignored", name, value);
+            }
+        }
+    }
+
+    private static final Set<String> ASYNC_FORMATTER_PROPERTIES = new HashSet<>(Arrays.asList("metaData", "keyOverrides"));
+
+    private static final Logger LOG = Logger.getLogger(LogstashCustomizer.class);
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logstash.runtime;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+
+/**
+ * Exposes the queue and the dropped records of the {@link AsyncLogstashHandler} in the vendor scope, if the
+ * MicroProfile Metrics fraction is present.
+ */
+final class LogstashMetrics {
+
+    static final String QUEUED = "logstash.records.queued";
+
+    static final String DROPPED = "logstash.records.dropped";
+
+    private static Object registered;
+
+    private LogstashMetrics() {
+    }
+
+    static boolean isAvailable() {
+        try {
+            Class.forName("io.smallrye.metrics.MetricRegistries", false, LogstashMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the counter of dropped records, to be incremented by the handler
+     */
+    static synchronized LongConsumer register(Object owner, LongSupplier queued) {
+        // a handler replaced on reconfiguration takes over the names
+        MetricRegistry registry = MetricRegistries.get(MetricRegistry.Type.VENDOR);
+        remove(registry);
+        registry.register(metadata(QUEUED, MetricType.GAUGE, "Log records waiting to be sent to Logstash"),
+                          (Gauge<Long>) queued::getAsLong);
+        Counter dropped = registry.counter(metadata(DROPPED, MetricType.COUNTER, "Log records dropped because the queue was full, or Logstash unreachable on shutdown"));
+        registered = owner;
+        return dropped::inc;
+    }
+
+    static synchronized void unregister(Object owner) {
+        // the replaced handler is closed after its successor registered, and must leave its metrics alone
+        if (registered != owner) {
+            return;
+        }
+        remove(MetricRegistries.get(MetricRegistry.Type.VENDOR));
+        registered = null;
+    }
+
+    private static void remove(MetricRegistry registry) {
+        registry.remove(QUEUED);
+        registry.remove(DROPPED);
+    }
+
+    private static Metadata metadata(String name, MetricType type, String description) {
+        return Metadata.builder()
+                .withName(name)
+                .withType(type)
+                .withDescription(description)
+                .build();
+    }
+}
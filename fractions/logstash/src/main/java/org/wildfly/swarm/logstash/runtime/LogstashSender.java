@@ -0,0 +1,284 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logstash.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.wildfly.swarm.logging.runtime.BatchSender;
+
+/**
+ * The writer thread of the {@link AsyncLogstashHandler}.
+ *
+ * <p>Drains up to {@code batchSize} records from the queue, encodes them as newline-delimited JSON with the fields
+ * of the Logstash formatter, and sends them to the Logstash TCP input in a single write. Connecting, retrying and
+ * stopping are left to the {@link BatchSender}; once Logstash is back, the number of records dropped during the
+ * outage is reported.</p>
+ */
+final class LogstashSender extends BatchSender {
+
+    /**
+     * The fields of a record, named after the keys of the Logstash formatter's {@code keyOverrides}.
+     */
+    enum Key {
+        TIMESTAMP("timestamp", "@timestamp"),
+        SEQUENCE("sequence"),
+        LOGGER_CLASS_NAME("loggerClassName"),
+        LOGGER_NAME("loggerName"),
+        LEVEL("level"),
+        MESSAGE("message"),
+        THREAD_NAME("threadName"),
+        THREAD_ID("threadId"),
+        MDC("mdc"),
+        NDC("ndc"),
+        HOST_NAME("hostName"),
+        PROCESS_NAME("processName"),
+        PROCESS_ID("processId"),
+        STACK_TRACE("stackTrace");
+
+        Key(String key) {
+            this(key, key);
+        }
+
+        Key(String key, String fieldName) {
+            this.key = key;
+            this.fieldName = fieldName;
+        }
+
+        /**
+         * @return the key with the given name, e.g. {@code loggerName} or {@code LOGGER_NAME}, or {@code null}
+         */
+        static Key forName(String name) {
+            for (Key key : values()) {
+                if (key.key.equalsIgnoreCase(name) || key.name().equalsIgnoreCase(name)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+
+        private final String key;
+
+        private final String fieldName;
+    }
+
+    LogstashSender(String hostname, int port, byte[] metaData, Map<Key, String> keyOverrides,
+                   BlockingQueue<ExtLogRecord> queue, int batchSize, LongAdder dropped, LongConsumer droppedCounter,
+                   BiConsumer<String, Exception> errorReporter) {
+        super("logstash-sender", "Logstash", hostname, port, errorReporter);
+        this.metaData = metaData;
+        this.queue = queue;
+        this.batchSize = batchSize;
+        this.dropped = dropped;
+        this.droppedCounter = droppedCounter;
+        this.timestampField = JsonWriter.fieldName(keyOverrides.getOrDefault(Key.TIMESTAMP, Key.TIMESTAMP.fieldName));
+        this.sequenceField = nextField(keyOverrides, Key.SEQUENCE);
+        this.loggerClassNameField = nextField(keyOverrides, Key.LOGGER_CLASS_NAME);
+        this.loggerNameField = nextField(keyOverrides, Key.LOGGER_NAME);
+        this.levelField = nextField(keyOverrides, Key.LEVEL);
+        this.messageField = nextField(keyOverrides, Key.MESSAGE);
+        this.threadNameField = nextField(keyOverrides, Key.THREAD_NAME);
+        this.threadIdField = nextField(keyOverrides, Key.THREAD_ID);
+        this.mdcField = nextField(keyOverrides, Key.MDC);
+        this.ndcField = nextField(keyOverrides, Key.NDC);
+        this.hostNameField = nextField(keyOverrides, Key.HOST_NAME);
+        this.processNameField = nextField(keyOverrides, Key.PROCESS_NAME);
+        this.processIdField = nextField(keyOverrides, Key.PROCESS_ID);
+        this.stackTraceField = nextField(keyOverrides, Key.STACK_TRACE);
+    }
+
+    @Override
+    protected boolean isEmpty() {
+        return this.queue.isEmpty();
+    }
+
+    @Override
+    protected int encodeBatch() {
+        this.out.reset();
+        int count = 0;
+        ExtLogRecord record;
+        while (count < this.batchSize && (record = this.queue.poll()) != null) {
+            encode(record);
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    protected void writeBatch(OutputStream out) throws IOException {
+        out.write(this.out.array(), 0, this.out.size());
+    }
+
+    @Override
+    protected int clear() {
+        int count = 0;
+        while (this.queue.poll() != null) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    protected void dropped(long records) {
+        this.dropped.add(records);
+        this.droppedCounter.accept(records);
+    }
+
+    @Override
+    protected void recovered() {
+        long dropped = this.dropped.sumThenReset();
+        if (dropped > 0) {
+            reportError("Dropped " + dropped + " log records while " + destination() + " was unavailable", null);
+        }
+    }
+
+    private void encode(ExtLogRecord record) {
+        JsonWriter out = this.out;
+        out.writeByte('{');
+        out.writeRaw(this.timestampField);
+        out.writeTimestamp(record.getMillis());
+        out.writeRaw(VERSION);
+        out.writeRaw(this.sequenceField);
+        out.writeLong(record.getSequenceNumber());
+        out.writeRaw(this.loggerClassNameField);
+        out.writeString(record.getLoggerClassName());
+        out.writeRaw(this.loggerNameField);
+        out.writeString(record.getLoggerName());
+        out.writeRaw(this.levelField);
+        out.writeString(record.getLevel().getName());
+        out.writeRaw(this.messageField);
+        out.writeString(record.getFormattedMessage());
+        out.writeRaw(this.threadNameField);
+        out.writeString(record.getThreadName());
+        out.writeRaw(this.threadIdField);
+        out.writeLong(record.getThreadID());
+        out.writeRaw(this.mdcField);
+        out.writeByte('{');
+        Map<String, String> mdc = record.getMdcCopy();
+        if (!mdc.isEmpty()) {
+            boolean first = true;
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                out.writeString(entry.getKey());
+                out.writeByte(':');
+                out.writeString(entry.getValue());
+            }
+        }
+        out.writeByte('}');
+        String ndc = record.getNdc();
+        if (ndc != null && !ndc.isEmpty()) {
+            out.writeRaw(this.ndcField);
+            out.writeString(ndc);
+        }
+        String hostName = record.getHostName();
+        if (hostName != null) {
+            out.writeRaw(this.hostNameField);
+            out.writeString(hostName);
+        }
+        String processName = record.getProcessName();
+        if (processName != null) {
+            out.writeRaw(this.processNameField);
+            out.writeString(processName);
+        }
+        out.writeRaw(this.processIdField);
+        out.writeLong(record.getProcessId());
+        Throwable thrown = record.getThrown();
+        if (thrown != null) {
+            out.writeRaw(this.stackTraceField);
+            out.writeString(stackTrace(thrown));
+        }
+        out.writeRaw(this.metaData);
+        out.writeByte('}');
+        out.writeByte('\n');
+    }
+
+    private static byte[] nextField(Map<Key, String> keyOverrides, Key key) {
+        return nextField(keyOverrides.getOrDefault(key, key.fieldName));
+    }
+
+    /**
+     * The bytes of a field name preceded by a comma, optionally followed by a constant string value.
+     */
+    private static byte[] nextField(String name, String... value) {
+        JsonWriter out = new JsonWriter(64);
+        out.writeByte(',');
+        out.writeRaw(JsonWriter.fieldName(name));
+        for (String v : value) {
+            out.writeString(v);
+        }
+        return Arrays.copyOf(out.array(), out.size());
+    }
+
+    private static String stackTrace(Throwable thrown) {
+        StringWriter stackTrace = new StringWriter();
+        thrown.printStackTrace(new PrintWriter(stackTrace));
+        return stackTrace.toString();
+    }
+
+    private static final byte[] VERSION = nextField("@version", "1");
+
+    private final byte[] timestampField;
+
+    private final byte[] sequenceField;
+
+    private final byte[] loggerClassNameField;
+
+    private final byte[] loggerNameField;
+
+    private final byte[] levelField;
+
+    private final byte[] messageField;
+
+    private final byte[] threadNameField;
+
+    private final byte[] threadIdField;
+
+    private final byte[] mdcField;
+
+    private final byte[] ndcField;
+
+    private final byte[] hostNameField;
+
+    private final byte[] processNameField;
+
+    private final byte[] processIdField;
+
+    private final byte[] stackTraceField;
+
+    private final byte[] metaData;
+
+    private final BlockingQueue<ExtLogRecord> queue;
+
+    private final int batchSize;
+
+    private final LongAdder dropped;
+
+    private final LongConsumer droppedCounter;
+
+    private final JsonWriter out = new JsonWriter(64 * 1024);
+}
@@ -0,0 +1,100 @@
+package org.wildfly.swarm.logstash.runtime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.swarm.logging.runtime.JsonParser;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.wildfly.swarm.logstash.runtime.FakeLogstash.await;
+import static org.wildfly.swarm.logstash.runtime.LogstashSenderTest.record;
+
+public class AsyncLogstashHandlerTest {
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.handler != null) {
+            this.handler.close();
+        }
+        if (this.logstash != null) {
+            this.logstash.close();
+        }
+    }
+
+    @Test
+    public void testSendsRecordsAsJsonLines() throws Exception {
+        this.logstash = new FakeLogstash();
+        // room for every record, the handler drops rather than waits
+        this.handler = handler(this.logstash.port(), 128);
+        this.handler.setMetaData("app=test");
+
+        for (int i = 0; i < 100; ++i) {
+            this.handler.publish(record(Level.INFO, "record " + i));
+        }
+
+        for (int i = 0; i < 100; ++i) {
+            Map<String, Object> json = JsonParser.parseObject(this.logstash.line());
+            assertThat(json.get("message")).isEqualTo("record " + i);
+            assertThat(json.get("app")).isEqualTo("test");
+        }
+        assertThat(this.handler.dropped()).isEqualTo(0);
+        assertThat(this.errors).isEmpty();
+    }
+
+    @Test
+    public void testDropsWhenQueueIsFull() throws Exception {
+        this.handler = handler(FakeLogstash.unusedPort(), 2);
+        // taken by the sender, which keeps retrying it
+        this.handler.publish(record(Level.INFO, "first"));
+        await(() -> this.errors.size() == 1);
+
+        for (int i = 0; i < 5; ++i) {
+            this.handler.publish(record(Level.INFO, "record " + i));
+        }
+
+        assertThat(this.handler.dropped()).isEqualTo(3);
+
+        this.handler.close();
+        // the queued records and the one being retried
+        assertThat(this.handler.dropped()).isEqualTo(6);
+    }
+
+    @Test
+    public void testNothingIsQueuedOnceClosed() throws Exception {
+        this.logstash = new FakeLogstash();
+        this.handler = handler(this.logstash.port(), 16);
+        this.handler.publish(record(Level.INFO, "before"));
+        this.handler.close();
+
+        this.handler.publish(record(Level.INFO, "after"));
+
+        assertThat(JsonParser.parseObject(this.logstash.line()).get("message")).isEqualTo("before");
+        assertThat(this.handler.dropped()).isEqualTo(0);
+    }
+
+    private AsyncLogstashHandler handler(int port, int queueSize) {
+        AsyncLogstashHandler handler = new AsyncLogstashHandler();
+        handler.setHostname("127.0.0.1");
+        handler.setPort(port);
+        handler.setQueueSize(queueSize);
+        handler.setBatchSize(1);
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String msg, Exception ex, int code) {
+                AsyncLogstashHandlerTest.this.errors.add(msg);
+            }
+        });
+        return handler;
+    }
+
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    private FakeLogstash logstash;
+
+    private AsyncLogstashHandler handler;
+}
@@ -0,0 +1,97 @@
+package org.wildfly.swarm.logstash.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A Logstash TCP input with the {@code json_lines} codec, on a local port, accepting one connection at a time.
+ */
+final class FakeLogstash implements AutoCloseable {
+
+    FakeLogstash() throws IOException {
+        this(0);
+    }
+
+    FakeLogstash(int port) throws IOException {
+        this.server = new ServerSocket();
+        this.server.setReuseAddress(true);
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread thread = new Thread(this::accept, "fake-logstash");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return a local port nothing listens on, connections to it are refused
+     */
+    static int unusedPort() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            return server.getLocalPort();
+        }
+    }
+
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 10s");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    int port() {
+        return this.server.getLocalPort();
+    }
+
+    /**
+     * @return the next line received
+     */
+    String line() throws InterruptedException {
+        String line = this.lines.poll(10, TimeUnit.SECONDS);
+        if (line == null) {
+            throw new AssertionError("no line received within 10s");
+        }
+        return line;
+    }
+
+    int connections() {
+        return this.connections;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.server.close();
+    }
+
+    private void accept() {
+        while (!this.server.isClosed()) {
+            try (Socket socket = this.server.accept()) {
+                ++this.connections;
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    this.lines.add(line);
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private final ServerSocket server;
+
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+    private volatile int connections;
+}
@@ -145,4 +145,46 @@ public class LogstashCustomizerTest {
                 .isEqualTo(Level.WARN);
     }
 
+    @Test
+    public void testAsyncHandler() {
+        this.customizer.logstash.enabled(true);
+        this.customizer.logstash.async(true);
+        this.customizer.logstash.queueSize(1024);
+        this.customizer.customize();
+
+        CustomHandler handler = this.customizer.logging.subresources().customHandler("logstash-handler");
+        assertThat( handler ).isNotNull();
+        assertThat( handler.module() ).isEqualTo( "org.wildfly.swarm.logstash:runtime" );
+        assertThat( handler.attributeClass() ).isEqualTo( "org.wildfly.swarm.logstash.runtime.AsyncLogstashHandler" );
+        assertThat( handler.namedFormatter() ).isNull();
+
+        Map props = handler.properties();
+
+        assertThat( props.get("hostname") ).isEqualTo( DEFAULT_HOSTNAME );
+        assertThat( props.get("queueSize") ).isEqualTo( "1024" );
+        assertThat( props.get("batchSize") ).isEqualTo( "256" );
+        assertThat( props.get("metaData") ).isEqualTo( "wildflySwarmNode=${jboss.node.name}" );
+
+        assertThat( this.customizer.logging.subresources().customFormatter("logstash") ).isNull();
+        assertThat(customizer.logging.subresources().rootLogger().handlers())
+                .contains("logstash-handler");
+    }
+
+    @Test
+    public void testAsyncHandlerFormatterProperties() {
+        this.customizer.logstash.enabled(true);
+        this.customizer.logstash.async(true);
+        this.customizer.logstash.metadata("keyOverrides", "message=msg");
+        this.customizer.logstash.metadata("exceptionOutputType", "FORMATTED");
+        this.customizer.logstash.metadata("dateFormat", "yyyy-MM-dd");
+        this.customizer.customize();
+
+        Map props = this.customizer.logging.subresources().customHandler("logstash-handler").properties();
+
+        assertThat( props.get("keyOverrides") ).isEqualTo( "message=msg" );
+        // not supported by the asynchronous handler, which warns about them
+        assertThat( props.containsKey("exceptionOutputType") ).isFalse();
+        assertThat( props.containsKey("dateFormat") ).isFalse();
+    }
+
 }
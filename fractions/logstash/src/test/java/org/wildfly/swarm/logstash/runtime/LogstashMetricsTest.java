@@ -0,0 +1,84 @@
+package org.wildfly.swarm.logstash.runtime;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.wildfly.swarm.logstash.runtime.FakeLogstash.await;
+import static org.wildfly.swarm.logstash.runtime.LogstashSenderTest.record;
+
+public class LogstashMetricsTest {
+
+    @After
+    public void tearDown() {
+        if (this.handler != null) {
+            this.handler.close();
+        }
+        LogstashMetrics.unregister(this);
+    }
+
+    @Test
+    public void testDroppedRecordsAreCounted() throws Exception {
+        this.handler = new AsyncLogstashHandler();
+        this.handler.setHostname("127.0.0.1");
+        this.handler.setPort(FakeLogstash.unusedPort());
+        this.handler.setQueueSize(2);
+        this.handler.setBatchSize(1);
+        this.handler.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String msg, Exception ex, int code) {
+                LogstashMetricsTest.this.errors.add(msg);
+            }
+        });
+        // taken by the sender, which keeps retrying it
+        this.handler.publish(record(Level.INFO, "first"));
+        await(() -> this.errors.size() == 1);
+
+        for (int i = 0; i < 5; ++i) {
+            this.handler.publish(record(Level.INFO, "record " + i));
+        }
+
+        assertThat(counter(LogstashMetrics.DROPPED).getCount()).isEqualTo(3);
+        assertThat(registry().getGauges().get(new MetricID(LogstashMetrics.QUEUED)).getValue()).isEqualTo(2L);
+
+        // unlike the count reported once Logstash is back, the counter is never reset
+        Counter dropped = counter(LogstashMetrics.DROPPED);
+        this.handler.close();
+        assertThat(dropped.getCount()).isEqualTo(6);
+        assertThat(registry().getCounters().containsKey(new MetricID(LogstashMetrics.DROPPED))).isFalse();
+    }
+
+    @Test
+    public void testReplacedHandlerLeavesItsSuccessorRegistered() {
+        Object replaced = new Object();
+        LogstashMetrics.register(replaced, () -> 0);
+        LongConsumer dropped = LogstashMetrics.register(this, () -> 1);
+        LogstashMetrics.unregister(replaced);
+        dropped.accept(2);
+
+        assertThat(counter(LogstashMetrics.DROPPED).getCount()).isEqualTo(2);
+        assertThat(registry().getGauges().get(new MetricID(LogstashMetrics.QUEUED)).getValue()).isEqualTo(1L);
+    }
+
+    private static Counter counter(String name) {
+        return registry().getCounters().get(new MetricID(name));
+    }
+
+    private static MetricRegistry registry() {
+        return MetricRegistries.get(MetricRegistry.Type.VENDOR);
+    }
+
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    private AsyncLogstashHandler handler;
+}
@@ -0,0 +1,318 @@
+package org.wildfly.swarm.logstash.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.swarm.logging.runtime.JsonParser;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.wildfly.swarm.logstash.runtime.FakeLogstash.await;
+
+public class LogstashSenderTest {
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.sender != null) {
+            this.sender.stop(5, TimeUnit.SECONDS);
+        }
+        if (this.logstash != null) {
+            this.logstash.close();
+        }
+    }
+
+    @Test
+    public void testRecordFields() throws Exception {
+        ExtLogRecord record = record(Level.WARNING, "a message");
+        record.setMillis(1_580_472_000_123L);
+        record.setLoggerName("org.example.Service");
+        record.setHostName("host.example.com");
+        record.setProcessName("app.jar");
+        record.setProcessId(4242);
+        record.copyAll();
+
+        Map<String, Object> json = encode(AsyncLogstashHandler.encodeMetaData("env=prod, region = eu-west"), record).get(0);
+
+        assertThat(json.get("@timestamp")).isEqualTo("2020-01-31T12:00:00.123Z");
+        assertThat(json.get("@version")).isEqualTo("1");
+        assertThat(json.get("sequence")).isEqualTo(record.getSequenceNumber());
+        assertThat(json.get("loggerClassName")).isEqualTo(record.getLoggerClassName());
+        assertThat(json.get("loggerName")).isEqualTo("org.example.Service");
+        assertThat(json.get("level")).isEqualTo("WARNING");
+        assertThat(json.get("message")).isEqualTo("a message");
+        assertThat(json.get("threadName")).isEqualTo(record.getThreadName());
+        assertThat(json.get("threadId")).isEqualTo((long) record.getThreadID());
+        assertThat(json.get("mdc")).isEqualTo(Collections.emptyMap());
+        assertThat(json.containsKey("ndc")).isFalse();
+        assertThat(json.get("hostName")).isEqualTo("host.example.com");
+        assertThat(json.get("processName")).isEqualTo("app.jar");
+        assertThat(json.get("processId")).isEqualTo(4242L);
+        assertThat(json.containsKey("stackTrace")).isFalse();
+        assertThat(json.get("env")).isEqualTo("prod");
+        assertThat(json.get("region")).isEqualTo("eu-west");
+    }
+
+    @Test
+    public void testControlCharactersAndQuotes() throws Exception {
+        StringBuilder controls = new StringBuilder();
+        for (char c = 0; c < 0x20; ++c) {
+            controls.append(c);
+        }
+        String message = "quote \" backslash \\ slash / " + controls + " del \u007f";
+
+        Map<String, Object> json = encode(record(Level.INFO, message)).get(0);
+
+        assertThat(json.get("message")).isEqualTo(message);
+    }
+
+    @Test
+    public void testNonAsciiText() throws Exception {
+        // two, three and four byte UTF-8 sequences, the latter from a surrogate pair
+        String message = "caf\u00e9 \u20ac \u4e2d\u6587 \ud83d\ude00 \ud834\udd1e";
+
+        Map<String, Object> json = encode(record(Level.INFO, message)).get(0);
+
+        assertThat(json.get("message")).isEqualTo(message);
+    }
+
+    @Test
+    public void testUnpairedSurrogatesAreReplaced() throws Exception {
+        Map<String, Object> json = encode(record(Level.INFO, "a\ud83d b\ude00 c\ud83d")).get(0);
+
+        assertThat(json.get("message")).isEqualTo("a? b? c?");
+    }
+
+    @Test
+    public void testMdcAndNdc() throws Exception {
+        ExtLogRecord record = record(Level.INFO, "with context");
+        record.putMdc("user", "j\"doe\n");
+        record.putMdc("tenant\t", "\ud83d\ude00");
+        record.setNdc("outer.\"inner\"");
+        record.copyAll();
+
+        Map<String, Object> json = encode(record).get(0);
+
+        Map<?, ?> mdc = (Map<?, ?>) json.get("mdc");
+        assertThat(mdc).hasSize(2);
+        assertThat(mdc.get("user")).isEqualTo("j\"doe\n");
+        assertThat(mdc.get("tenant\t")).isEqualTo("\ud83d\ude00");
+        assertThat(json.get("ndc")).isEqualTo("outer.\"inner\"");
+    }
+
+    @Test
+    public void testException() throws Exception {
+        ExtLogRecord record = record(Level.SEVERE, "failed");
+        record.setThrown(new IllegalStateException("outer \"quoted\"", new IOException("inner\tcause")));
+
+        Map<String, Object> json = encode(record).get(0);
+
+        String stackTrace = (String) json.get("stackTrace");
+        assertThat(stackTrace).startsWith("java.lang.IllegalStateException: outer \"quoted\"\n");
+        assertThat(stackTrace).contains("Caused by: java.io.IOException: inner\tcause");
+        assertThat(stackTrace).contains("\tat org.wildfly.swarm.logstash.runtime.LogstashSenderTest.testException");
+    }
+
+    @Test
+    public void testMetaData() throws Exception {
+        byte[] metaData = AsyncLogstashHandler.encodeMetaData("a=1, b = x=y ,c,, =ignored,d=\"quoted\"\\");
+
+        Map<String, Object> json = encode(metaData, record(Level.INFO, "message")).get(0);
+
+        assertThat(json.get("a")).isEqualTo("1");
+        assertThat(json.get("b")).isEqualTo("x=y");
+        assertThat(json.get("c")).isEqualTo("");
+        assertThat(json.get("d")).isEqualTo("\"quoted\"\\");
+        assertThat(json.containsKey("")).isFalse();
+        assertThat(new String(AsyncLogstashHandler.encodeMetaData(null), StandardCharsets.UTF_8)).isEqualTo("");
+    }
+
+    @Test
+    public void testKeyOverrides() throws Exception {
+        Map<LogstashSender.Key, String> keyOverrides = AsyncLogstashHandler.parseKeyOverrides("timestamp=time, message = msg,LOGGER_NAME=logger,,");
+
+        Map<String, Object> json = encode(new byte[0], keyOverrides, record(Level.INFO, "renamed")).get(0);
+
+        assertThat(json.get("msg")).isEqualTo("renamed");
+        assertThat(json.containsKey("message")).isFalse();
+        assertThat(json.containsKey("time")).isTrue();
+        assertThat(json.containsKey("@timestamp")).isFalse();
+        assertThat(json.containsKey("logger")).isTrue();
+        assertThat(json.get("level")).isEqualTo("INFO");
+        assertThat(json.get("@version")).isEqualTo("1");
+    }
+
+    @Test
+    public void testInvalidKeyOverrides() {
+        for (String keyOverrides : new String[]{"unknown=x", "message", "message= "}) {
+            try {
+                AsyncLogstashHandler.parseKeyOverrides(keyOverrides);
+                fail("Expected " + keyOverrides + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).contains(keyOverrides.trim());
+            }
+        }
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        BlockingQueue<ExtLogRecord> queue = new ArrayBlockingQueue<>(16);
+        for (int i = 0; i < 5; ++i) {
+            queue.add(record(Level.INFO, "record " + i));
+        }
+        LogstashSender sender = new LogstashSender("127.0.0.1", 0, new byte[0], Collections.emptyMap(), queue, 2, new LongAdder(), n -> { },
+                                                   (m, e) -> { });
+
+        List<String> messages = new ArrayList<>();
+        for (int expected : new int[]{2, 2, 1}) {
+            assertThat(sender.encodeBatch()).isEqualTo(expected);
+            List<Map<String, Object>> batch = written(sender);
+            assertThat(batch).hasSize(expected);
+            for (Map<String, Object> json : batch) {
+                messages.add((String) json.get("message"));
+            }
+        }
+        assertThat(sender.encodeBatch()).isEqualTo(0);
+        assertThat(messages).isEqualTo(Arrays.asList("record 0", "record 1", "record 2", "record 3", "record 4"));
+    }
+
+    @Test
+    public void testSendsQueuedRecords() throws Exception {
+        this.logstash = new FakeLogstash();
+        start(this.logstash.port(), 2);
+
+        for (int i = 0; i < 5; ++i) {
+            this.queue.add(record(Level.INFO, "record " + i));
+            this.sender.signal();
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            assertThat(JsonParser.parseObject(this.logstash.line()).get("message")).isEqualTo("record " + i);
+        }
+        assertThat(this.errors).isEmpty();
+    }
+
+    @Test
+    public void testReconnectsAndReportsDroppedRecords() throws Exception {
+        int port = FakeLogstash.unusedPort();
+        start(port, 16);
+        this.queue.add(record(Level.INFO, "while down"));
+        this.sender.signal();
+
+        await(() -> this.errors.size() == 1);
+        assertThat(this.errors.get(0)).isEqualTo("Error sending records to Logstash at 127.0.0.1:" + port);
+        // as if the handler had dropped records meanwhile
+        this.dropped.add(3);
+
+        this.logstash = new FakeLogstash(port);
+        assertThat(JsonParser.parseObject(this.logstash.line()).get("message")).isEqualTo("while down");
+        await(() -> this.errors.size() == 2);
+        assertThat(this.errors.get(1)).isEqualTo("Dropped 3 log records while Logstash at 127.0.0.1:" + port + " was unavailable");
+        assertThat(this.dropped.sum()).isEqualTo(0);
+
+        this.queue.add(record(Level.INFO, "after"));
+        this.sender.signal();
+        assertThat(JsonParser.parseObject(this.logstash.line()).get("message")).isEqualTo("after");
+        assertThat(this.errors).hasSize(2);
+    }
+
+    @Test
+    public void testStopDropsWhatCannotBeSent() throws Exception {
+        start(FakeLogstash.unusedPort(), 1);
+        for (int i = 0; i < 3; ++i) {
+            this.queue.add(record(Level.INFO, "record " + i));
+        }
+        this.sender.signal();
+        await(() -> this.errors.size() == 1);
+
+        this.sender.stop(5, TimeUnit.SECONDS);
+        this.sender = null;
+
+        assertThat(this.dropped.sum()).isEqualTo(3);
+        assertThat(this.queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testStopSendsWhatIsQueued() throws Exception {
+        this.logstash = new FakeLogstash();
+        start(this.logstash.port(), 1);
+        for (int i = 0; i < 10; ++i) {
+            this.queue.add(record(Level.INFO, "record " + i));
+        }
+
+        this.sender.stop(5, TimeUnit.SECONDS);
+        this.sender = null;
+
+        for (int i = 0; i < 10; ++i) {
+            assertThat(JsonParser.parseObject(this.logstash.line()).get("message")).isEqualTo("record " + i);
+        }
+        assertThat(this.dropped.sum()).isEqualTo(0);
+    }
+
+    private void start(int port, int batchSize) {
+        this.queue = new ArrayBlockingQueue<>(64);
+        this.sender = new LogstashSender("127.0.0.1", port, new byte[0], Collections.emptyMap(), this.queue, batchSize,
+                                         this.dropped, n -> { }, (message, e) -> this.errors.add(message));
+        this.sender.start();
+    }
+
+    private static List<Map<String, Object>> encode(ExtLogRecord... records) throws Exception {
+        return encode(new byte[0], records);
+    }
+
+    private static List<Map<String, Object>> encode(byte[] metaData, ExtLogRecord... records) throws Exception {
+        return encode(metaData, Collections.emptyMap(), records);
+    }
+
+    private static List<Map<String, Object>> encode(byte[] metaData, Map<LogstashSender.Key, String> keyOverrides,
+                                                    ExtLogRecord... records) throws Exception {
+        BlockingQueue<ExtLogRecord> queue = new ArrayBlockingQueue<>(records.length);
+        Collections.addAll(queue, records);
+        LogstashSender sender = new LogstashSender("127.0.0.1", 0, metaData, keyOverrides, queue, records.length,
+                                                   new LongAdder(), n -> { }, (m, e) -> { });
+        assertThat(sender.encodeBatch()).isEqualTo(records.length);
+        return written(sender);
+    }
+
+    private static List<Map<String, Object>> written(LogstashSender sender) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sender.writeBatch(out);
+        String lines = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(lines).endsWith("\n");
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (String line : lines.split("\n")) {
+            records.add(JsonParser.parseObject(line));
+        }
+        return records;
+    }
+
+    static ExtLogRecord record(Level level, String message) {
+        ExtLogRecord record = new ExtLogRecord(level, message, ExtLogRecord.FormatStyle.NO_FORMAT, LogstashSenderTest.class.getName());
+        record.copyAll();
+        return record;
+    }
+
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private FakeLogstash logstash;
+
+    private BlockingQueue<ExtLogRecord> queue;
+
+    private LogstashSender sender;
+}
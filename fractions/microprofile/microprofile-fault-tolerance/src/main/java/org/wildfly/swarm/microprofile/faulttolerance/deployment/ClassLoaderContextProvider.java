@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+/**
+ * Propagates the thread context class loader, which the EE thread factory otherwise takes care of.
+ */
+final class ClassLoaderContextProvider implements MiniConProp.ContextProvider {
+    static final ClassLoaderContextProvider INSTANCE = new ClassLoaderContextProvider();
+
+    @Override
+    public MiniConProp.ContextSnapshot capture() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return () -> {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(classLoader);
+            return () -> thread.setContextClassLoader(previous);
+        };
+    }
+}
@@ -15,7 +15,6 @@
  */
 package org.wildfly.swarm.microprofile.faulttolerance.deployment;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -30,6 +29,9 @@ import java.util.concurrent.TimeoutException;
 
 /**
  * Miniature context propagation API, adapted from MicroProfile Context Propagation and SmallRye Context Propagation.
+ * <p>
+ * Context providers return {@link ContextSnapshot#NOOP} when there is no context to propagate, in which case tasks
+ * are submitted as they are, without wrapping them or copying task collections.
  */
 final class MiniConProp {
     private MiniConProp() {
@@ -37,10 +39,16 @@ final class MiniConProp {
     }
 
     public static ExecutorService executorService(ContextProvider contextProvider, ExecutorService delegate) {
+        if (contextProvider == ContextProvider.NOOP) {
+            return delegate;
+        }
         return new ConPropExecutorService(contextProvider, delegate);
     }
 
     public static ScheduledExecutorService scheduledExecutorService(ContextProvider contextProvider, ScheduledExecutorService delegate) {
+        if (contextProvider == ContextProvider.NOOP) {
+            return delegate;
+        }
         return new ConPropScheduledExecutorService(contextProvider, delegate);
     }
 
@@ -51,7 +59,17 @@ final class MiniConProp {
         ContextProvider NOOP = () -> ContextSnapshot.NOOP;
 
         static ContextProvider compound(ContextProvider... contextProviders) {
-            return new CompoundContextProvider(Arrays.asList(contextProviders));
+            ContextProvider[] active = Arrays.stream(contextProviders)
+                    .filter(contextProvider -> contextProvider != NOOP)
+                    .toArray(ContextProvider[]::new);
+            switch (active.length) {
+                case 0:
+                    return NOOP;
+                case 1:
+                    return active[0];
+                default:
+                    return new CompoundContextProvider(active);
+            }
         }
     }
 
@@ -73,30 +91,53 @@ final class MiniConProp {
     // ---
 
     private static final class CompoundContextProvider implements ContextProvider {
-        private final List<ContextProvider> contextProviders;
+        private final ContextProvider[] contextProviders;
 
-        CompoundContextProvider(List<ContextProvider> contextProviders) {
+        CompoundContextProvider(ContextProvider[] contextProviders) {
             this.contextProviders = contextProviders;
         }
 
         @Override
         public ContextSnapshot capture() {
-            List<ContextSnapshot> snapshots = new ArrayList<>();
-            for (ContextProvider contextProvider : contextProviders) {
-                snapshots.add(contextProvider.capture());
+            // only allocated once some provider has context to propagate
+            ContextSnapshot[] snapshots = null;
+            for (int i = 0; i < contextProviders.length; i++) {
+                ContextSnapshot snapshot = contextProviders[i].capture();
+                if (snapshot != ContextSnapshot.NOOP) {
+                    if (snapshots == null) {
+                        snapshots = new ContextSnapshot[contextProviders.length];
+                    }
+                    snapshots[i] = snapshot;
+                }
             }
 
-            return () -> {
-                List<ActiveContextSnapshot> activeSnapshots = new ArrayList<>();
-                for (ContextSnapshot snapshot : snapshots) {
-                    activeSnapshots.add(snapshot.activate());
+            return snapshots == null ? ContextSnapshot.NOOP : new CompoundContextSnapshot(snapshots);
+        }
+    }
+
+    private static final class CompoundContextSnapshot implements ContextSnapshot {
+        // null elements are providers that had nothing to capture
+        private final ContextSnapshot[] snapshots;
+
+        CompoundContextSnapshot(ContextSnapshot[] snapshots) {
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        public ActiveContextSnapshot activate() {
+            ActiveContextSnapshot[] activeSnapshots = new ActiveContextSnapshot[snapshots.length];
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i] != null) {
+                    activeSnapshots[i] = snapshots[i].activate();
                 }
+            }
 
-                return () -> {
-                    for (int i = activeSnapshots.size() - 1; i >= 0; i--) {
-                        activeSnapshots.get(i).deactivate();
+            return () -> {
+                for (int i = activeSnapshots.length - 1; i >= 0; i--) {
+                    if (activeSnapshots[i] != null) {
+                        activeSnapshots[i].deactivate();
                     }
-                };
+                }
             };
         }
     }
@@ -144,7 +185,7 @@ final class MiniConProp {
     }
 
     private static class ConPropExecutorService implements ExecutorService {
-        protected final ContextProvider contextProvider;
+        private final ContextProvider contextProvider;
         private final ExecutorService delegate;
 
         ConPropExecutorService(ContextProvider contextProvider, ExecutorService delegate) {
@@ -179,66 +220,66 @@ final class MiniConProp {
 
         @Override
         public <T> Future<T> submit(Callable<T> task) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.submit(new ConPropCallable<>(contextSnapshot, task));
+            return delegate.submit(wrap(task));
         }
 
         @Override
         public <T> Future<T> submit(Runnable task, T result) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.submit(new ConPropRunnable(contextSnapshot, task), result);
+            return delegate.submit(wrap(task), result);
         }
 
         @Override
         public Future<?> submit(Runnable task) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.submit(new ConPropRunnable(contextSnapshot, task));
+            return delegate.submit(wrap(task));
         }
 
         @Override
         public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            List<Callable<T>> conPropTasks = new ArrayList<>(tasks.size());
-            for (Callable<T> task : tasks) {
-                conPropTasks.add(new ConPropCallable<>(contextSnapshot, task));
-            }
-            return delegate.invokeAll(conPropTasks);
+            return delegate.invokeAll(wrap(tasks));
         }
 
         @Override
         public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            List<Callable<T>> conPropTasks = new ArrayList<>(tasks.size());
-            for (Callable<T> task : tasks) {
-                conPropTasks.add(new ConPropCallable<>(contextSnapshot, task));
-            }
-            return delegate.invokeAll(conPropTasks, timeout, unit);
+            return delegate.invokeAll(wrap(tasks), timeout, unit);
         }
 
         @Override
         public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            List<Callable<T>> conPropTasks = new ArrayList<>(tasks.size());
-            for (Callable<T> task : tasks) {
-                conPropTasks.add(new ConPropCallable<>(contextSnapshot, task));
-            }
-            return delegate.invokeAny(conPropTasks);
+            return delegate.invokeAny(wrap(tasks));
         }
 
         @Override
         public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            List<Callable<T>> conPropTasks = new ArrayList<>(tasks.size());
-            for (Callable<T> task : tasks) {
-                conPropTasks.add(new ConPropCallable<>(contextSnapshot, task));
-            }
-            return delegate.invokeAny(conPropTasks, timeout, unit);
+            return delegate.invokeAny(wrap(tasks), timeout, unit);
         }
 
         @Override
         public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+
+        final Runnable wrap(Runnable task) {
             ContextSnapshot contextSnapshot = contextProvider.capture();
-            delegate.execute(new ConPropRunnable(contextSnapshot, command));
+            return contextSnapshot == ContextSnapshot.NOOP ? task : new ConPropRunnable(contextSnapshot, task);
+        }
+
+        final <V> Callable<V> wrap(Callable<V> task) {
+            ContextSnapshot contextSnapshot = contextProvider.capture();
+            return contextSnapshot == ContextSnapshot.NOOP ? task : new ConPropCallable<>(contextSnapshot, task);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private <T> Collection<? extends Callable<T>> wrap(Collection<? extends Callable<T>> tasks) {
+            ContextSnapshot contextSnapshot = contextProvider.capture();
+            if (contextSnapshot == ContextSnapshot.NOOP) {
+                return tasks;
+            }
+            Callable<T>[] conPropTasks = new Callable[tasks.size()];
+            int i = 0;
+            for (Callable<T> task : tasks) {
+                conPropTasks[i++] = new ConPropCallable<>(contextSnapshot, task);
+            }
+            return Arrays.asList(conPropTasks);
         }
     }
 
@@ -252,26 +293,22 @@ final class MiniConProp {
 
         @Override
         public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.schedule(new ConPropRunnable(contextSnapshot, command), delay, unit);
+            return delegate.schedule(wrap(command), delay, unit);
         }
 
         @Override
         public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.schedule(new ConPropCallable<>(contextSnapshot, callable), delay, unit);
+            return delegate.schedule(wrap(callable), delay, unit);
         }
 
         @Override
         public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.scheduleAtFixedRate(new ConPropRunnable(contextSnapshot, command), initialDelay, period, unit);
+            return delegate.scheduleAtFixedRate(wrap(command), initialDelay, period, unit);
         }
 
         @Override
         public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
-            ContextSnapshot contextSnapshot = contextProvider.capture();
-            return delegate.scheduleWithFixedDelay(new ConPropRunnable(contextSnapshot, command), initialDelay, delay, unit);
+            return delegate.scheduleWithFixedDelay(wrap(command), initialDelay, delay, unit);
         }
     }
 }
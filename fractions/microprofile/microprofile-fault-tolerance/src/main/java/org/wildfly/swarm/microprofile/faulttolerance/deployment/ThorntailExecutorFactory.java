@@ -16,6 +16,8 @@
 package org.wildfly.swarm.microprofile.faulttolerance.deployment;
 
 import io.smallrye.faulttolerance.DefaultExecutorFactory;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.jboss.logging.Logger;
 
 import javax.naming.InitialContext;
 import java.util.concurrent.ExecutorService;
@@ -23,10 +25,19 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 
 public class ThorntailExecutorFactory extends DefaultExecutorFactory {
+    static final String VIRTUAL_THREADS = "thorntail.microprofile.fault-tolerance.virtual-threads";
+
+    private static final Logger log = Logger.getLogger(ThorntailExecutorFactory.class);
+
     private final boolean tracingIntegrationRequired = TracingContextProvider.isRequired();
+    private final boolean virtualThreads = virtualThreads();
 
     @Override
     public ExecutorService createCoreExecutor(int size) {
+        if (virtualThreads) {
+            return MiniConProp.executorService(virtualThreadContextProvider(), new VirtualThreadExecutorService(size, false));
+        }
+
         ExecutorService baseExecutor = super.createCoreExecutor(size);
 
         if (tracingIntegrationRequired) {
@@ -38,6 +49,10 @@ public class ThorntailExecutorFactory extends DefaultExecutorFactory {
 
     @Override
     public ExecutorService createExecutor(int coreSize, int size) {
+        if (virtualThreads) {
+            return MiniConProp.executorService(virtualThreadContextProvider(), new VirtualThreadExecutorService(coreSize, true));
+        }
+
         ExecutorService baseExecutor = super.createExecutor(coreSize, size);
 
         if (tracingIntegrationRequired) {
@@ -49,6 +64,7 @@ public class ThorntailExecutorFactory extends DefaultExecutorFactory {
 
     @Override
     public ScheduledExecutorService createTimeoutExecutor(int size) {
+        // timeout tasks are short, so this stays on platform threads even with virtual threads enabled
         ScheduledExecutorService baseExecutor = super.createTimeoutExecutor(size);
 
         if (tracingIntegrationRequired) {
@@ -72,4 +88,26 @@ public class ThorntailExecutorFactory extends DefaultExecutorFactory {
     public int priority() {
         return 10;
     }
+
+    // virtual threads don't come from the EE thread factory, so the class loader has to be propagated explicitly
+    private MiniConProp.ContextProvider virtualThreadContextProvider() {
+        if (tracingIntegrationRequired) {
+            return MiniConProp.ContextProvider.compound(ClassLoaderContextProvider.INSTANCE, TracingContextProvider.INSTANCE);
+        } else {
+            return ClassLoaderContextProvider.INSTANCE;
+        }
+    }
+
+    private static boolean virtualThreads() {
+        return virtualThreads(ConfigProvider.getConfig().getOptionalValue(VIRTUAL_THREADS, Boolean.class).orElse(false),
+                              VirtualThreadExecutorService.isSupported());
+    }
+
+    static boolean virtualThreads(boolean requested, boolean supported) {
+        if (requested && !supported) {
+            log.warnf("%s is enabled, but virtual threads are not supported by this JVM, falling back to platform threads", VIRTUAL_THREADS);
+            return false;
+        }
+        return requested;
+    }
 }
@@ -19,6 +19,7 @@ import io.opentracing.Scope;
 import io.opentracing.ScopeManager;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.noop.NoopSpan;
 import io.opentracing.util.GlobalTracer;
 
 final class TracingContextProvider implements MiniConProp.ContextProvider {
@@ -39,7 +40,8 @@ final class TracingContextProvider implements MiniConProp.ContextProvider {
         ScopeManager scopeManager = tracer.scopeManager();
         Scope activeScope = scopeManager.active();
 
-        if (activeScope != null) {
+        // the noop tracer has an active scope, but nothing worth propagating
+        if (activeScope != null && !(activeScope.span() instanceof NoopSpan)) {
             Span span = activeScope.span();
             return () -> {
                 Scope propagated = scopeManager.activate(span, false);
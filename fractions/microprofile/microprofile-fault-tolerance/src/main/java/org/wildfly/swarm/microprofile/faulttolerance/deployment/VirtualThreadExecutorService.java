@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every task on a new virtual thread, with concurrency bounded by a semaphore instead of a pool size.
+ * <p>
+ * Without queueing, a task for which there is no permit is rejected, like a {@code ThreadPoolExecutor} with
+ * a {@code SynchronousQueue}. With queueing, it waits in an unbounded queue and is run by the next virtual thread
+ * that finishes its task, like a {@code ThreadPoolExecutor} with an unbounded queue.
+ * <p>
+ * Virtual threads are only available as of Java 21, so they are created reflectively, see {@link #isSupported()}.
+ */
+final class VirtualThreadExecutorService extends AbstractExecutorService {
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+    private final ThreadFactory threadFactory;
+    private final int concurrency;
+    private final boolean queueing;
+    private final Semaphore permits;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger running = new AtomicInteger();
+    private final Object termination = new Object();
+    private volatile boolean shutdown;
+
+    VirtualThreadExecutorService(int concurrency, boolean queueing) {
+        this(checkedVirtualThreadFactory(), concurrency, queueing);
+    }
+
+    // the permits, queue and shutdown don't depend on the kind of thread, which tests rely on
+    VirtualThreadExecutorService(ThreadFactory threadFactory, int concurrency, boolean queueing) {
+        this.threadFactory = threadFactory;
+        this.concurrency = concurrency;
+        this.queueing = queueing;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task);
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (permits.tryAcquire()) {
+            start(task);
+            return;
+        }
+        if (!queueing) {
+            throw new RejectedExecutionException("All " + concurrency + " permits are in use");
+        }
+        queue.add(task);
+        // the last running thread may have released its permit before the task was queued
+        if (permits.tryAcquire()) {
+            Runnable next = queue.poll();
+            if (next != null) {
+                start(next);
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    private void start(Runnable task) {
+        running.incrementAndGet();
+        try {
+            threadFactory.newThread(() -> work(task)).start();
+        } catch (RuntimeException | Error e) {
+            running.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void work(Runnable first) {
+        Thread current = Thread.currentThread();
+        threads.add(current);
+        try {
+            Runnable task = first;
+            while (task != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    current.getUncaughtExceptionHandler().uncaughtException(current, t);
+                }
+                task = queue.poll();
+                if (task == null) {
+                    permits.release();
+                    // a task may have been queued between the poll and the release
+                    if (queue.isEmpty() || !permits.tryAcquire()) {
+                        break;
+                    }
+                    task = queue.poll();
+                    if (task == null) {
+                        permits.release();
+                    }
+                }
+            }
+        } finally {
+            threads.remove(current);
+            if (running.decrementAndGet() == 0 && shutdown) {
+                signalTermination();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (isTerminated()) {
+            signalTermination();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            pending.add(task);
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        if (isTerminated()) {
+            signalTermination();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && running.get() == 0 && queue.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (termination) {
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(termination, remaining);
+            }
+            return true;
+        }
+    }
+
+    private void signalTermination() {
+        synchronized (termination) {
+            termination.notifyAll();
+        }
+    }
+
+    private static ThreadFactory checkedVirtualThreadFactory() {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by this JVM");
+        }
+        return VIRTUAL_THREAD_FACTORY;
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "smallrye-fault-tolerance-virtual-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // before Java 21, or a preview feature that isn't enabled
+            return null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracer;
+import io.opentracing.util.ThreadLocalScopeManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MiniConPropTest {
+
+    private static final ScopeManager SCOPE_MANAGER = new ThreadLocalScopeManager();
+
+    @BeforeClass
+    public static void registerTracer() {
+        Tracer tracer = mock(Tracer.class);
+        when(tracer.scopeManager()).thenReturn(SCOPE_MANAGER);
+        GlobalTracer.register(tracer);
+    }
+
+    @Before
+    public void setUp() {
+        this.callerClassLoader = Thread.currentThread().getContextClassLoader();
+        this.delegate = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "mini-con-prop-test");
+            thread.setContextClassLoader(this.workerClassLoader);
+            return thread;
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Thread.currentThread().setContextClassLoader(this.callerClassLoader);
+        this.delegate.shutdownNow();
+        this.delegate.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testClassLoaderIsRestoredAfterTask() throws Exception {
+        ExecutorService executor = MiniConProp.executorService(ClassLoaderContextProvider.INSTANCE, this.delegate);
+        Thread.currentThread().setContextClassLoader(this.taskClassLoader);
+
+        assertThat(executor.submit(MiniConPropTest::contextClassLoader).get(5, TimeUnit.SECONDS)).isSameAs(this.taskClassLoader);
+        assertThat(this.delegate.submit(MiniConPropTest::contextClassLoader).get(5, TimeUnit.SECONDS)).isSameAs(this.workerClassLoader);
+    }
+
+    @Test
+    public void testClassLoaderIsRestoredAfterFailingTask() throws Exception {
+        ExecutorService executor = MiniConProp.executorService(ClassLoaderContextProvider.INSTANCE, this.delegate);
+        Thread.currentThread().setContextClassLoader(this.taskClassLoader);
+
+        Future<?> failed = executor.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        assertThat(failure(failed)).isInstanceOf(IllegalStateException.class);
+        assertThat(this.delegate.submit(MiniConPropTest::contextClassLoader).get(5, TimeUnit.SECONDS)).isSameAs(this.workerClassLoader);
+    }
+
+    @Test
+    public void testSpanIsActiveDuringTaskAndClearedAfterwards() throws Exception {
+        ExecutorService executor = MiniConProp.executorService(TracingContextProvider.INSTANCE, this.delegate);
+        Span span = mock(Span.class);
+
+        try (Scope ignored = SCOPE_MANAGER.activate(span, false)) {
+            assertThat(executor.submit(MiniConPropTest::activeSpan).get(5, TimeUnit.SECONDS)).isSameAs(span);
+        }
+        assertThat(this.delegate.submit(MiniConPropTest::activeSpan).get(5, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    public void testSpanIsCapturedAtSubmission() throws Exception {
+        ExecutorService executor = MiniConProp.executorService(TracingContextProvider.INSTANCE, this.delegate);
+        Span span = mock(Span.class);
+        Future<Span> future;
+        try (Scope ignored = SCOPE_MANAGER.activate(span, false)) {
+            future = executor.submit(MiniConPropTest::activeSpan);
+        }
+        assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(span);
+        assertThat(SCOPE_MANAGER.active()).isNull();
+    }
+
+    @Test
+    public void testNothingToPropagateWithoutActiveSpan() {
+        assertThat(SCOPE_MANAGER.active()).isNull();
+        assertThat(TracingContextProvider.INSTANCE.capture()).isSameAs(MiniConProp.ContextSnapshot.NOOP);
+    }
+
+    @Test
+    public void testCompoundContextIsPropagatedAndRestored() throws Exception {
+        MiniConProp.ContextProvider contextProvider = MiniConProp.ContextProvider.compound(
+                ClassLoaderContextProvider.INSTANCE, TracingContextProvider.INSTANCE);
+        ExecutorService executor = MiniConProp.executorService(contextProvider, this.delegate);
+        Span span = mock(Span.class);
+        Thread.currentThread().setContextClassLoader(this.taskClassLoader);
+
+        List<Future<List<Object>>> futures;
+        try (Scope ignored = SCOPE_MANAGER.activate(span, false)) {
+            futures = executor.invokeAll(Collections.<Callable<List<Object>>>singletonList(MiniConPropTest::context));
+        }
+        assertThat(futures.get(0).get(5, TimeUnit.SECONDS)).isEqualTo(Arrays.asList(this.taskClassLoader, span));
+        assertThat(this.delegate.submit(MiniConPropTest::context).get(5, TimeUnit.SECONDS)).isEqualTo(Arrays.asList(this.workerClassLoader, null));
+    }
+
+    @Test
+    public void testScheduledTasksArePropagated() throws Exception {
+        ScheduledExecutorService executor = MiniConProp.scheduledExecutorService(
+                MiniConProp.ContextProvider.compound(ClassLoaderContextProvider.INSTANCE, TracingContextProvider.INSTANCE), this.delegate);
+        Span span = mock(Span.class);
+        Thread.currentThread().setContextClassLoader(this.taskClassLoader);
+
+        Future<List<Object>> future;
+        try (Scope ignored = SCOPE_MANAGER.activate(span, false)) {
+            future = executor.schedule(MiniConPropTest::context, 10, TimeUnit.MILLISECONDS);
+        }
+        assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo(Arrays.asList(this.taskClassLoader, span));
+        assertThat(this.delegate.submit(MiniConPropTest::context).get(5, TimeUnit.SECONDS)).isEqualTo(Arrays.asList(this.workerClassLoader, null));
+    }
+
+    @Test
+    public void testNoopProviderReturnsDelegate() {
+        assertThat(MiniConProp.executorService(MiniConProp.ContextProvider.NOOP, this.delegate)).isSameAs(this.delegate);
+        assertThat(MiniConProp.scheduledExecutorService(MiniConProp.ContextProvider.NOOP, this.delegate)).isSameAs(this.delegate);
+        assertThat(MiniConProp.ContextProvider.compound(MiniConProp.ContextProvider.NOOP, MiniConProp.ContextProvider.NOOP))
+                .isSameAs(MiniConProp.ContextProvider.NOOP);
+        assertThat(MiniConProp.ContextProvider.compound(MiniConProp.ContextProvider.NOOP, ClassLoaderContextProvider.INSTANCE))
+                .isSameAs(ClassLoaderContextProvider.INSTANCE);
+    }
+
+    private static ClassLoader contextClassLoader() {
+        return Thread.currentThread().getContextClassLoader();
+    }
+
+    private static Span activeSpan() {
+        Scope active = SCOPE_MANAGER.active();
+        return active == null ? null : active.span();
+    }
+
+    private static List<Object> context() {
+        return Arrays.asList(contextClassLoader(), activeSpan());
+    }
+
+    private static Throwable failure(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private final ClassLoader workerClassLoader = new URLClassLoader(new URL[0], null);
+
+    private final ClassLoader taskClassLoader = new URLClassLoader(new URL[0], null);
+
+    private ClassLoader callerClassLoader;
+
+    private ScheduledExecutorService delegate;
+}
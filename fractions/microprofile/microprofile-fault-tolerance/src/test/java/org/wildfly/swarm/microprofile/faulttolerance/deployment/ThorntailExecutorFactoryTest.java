@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ThorntailExecutorFactoryTest {
+
+    @Test
+    public void testFallsBackToPlatformThreadsWhenUnsupported() {
+        assertThat(ThorntailExecutorFactory.virtualThreads(true, false)).isFalse();
+    }
+
+    @Test
+    public void testVirtualThreadsOnlyWhenRequested() {
+        assertThat(ThorntailExecutorFactory.virtualThreads(true, true)).isTrue();
+        assertThat(ThorntailExecutorFactory.virtualThreads(false, true)).isFalse();
+        assertThat(ThorntailExecutorFactory.virtualThreads(false, false)).isFalse();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the executor on platform threads, the permits, queue and shutdown
+ * behave the same as on virtual threads.
+ */
+public class VirtualThreadExecutorServiceTest {
+
+    @After
+    public void tearDown() throws Exception {
+        this.release.countDown();
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testRejectsWhenSaturatedWithoutQueueing() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 2, false);
+        CountDownLatch started = new CountDownLatch(2);
+        this.executor.execute(blocking(started));
+        this.executor.execute(blocking(started));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            this.executor.execute(() -> { });
+            fail("Expected the task to be rejected");
+        } catch (RejectedExecutionException e) {
+            // all permits in use
+        }
+
+        this.release.countDown();
+        CountDownLatch ran = new CountDownLatch(1);
+        await(() -> {
+            try {
+                this.executor.execute(ran::countDown);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        });
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testQueuedTasksAreHandedOffInOrder() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 1, true);
+        CountDownLatch started = new CountDownLatch(1);
+        this.executor.execute(blocking(started));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; ++i) {
+            int n = i;
+            this.executor.execute(() -> {
+                order.add(n);
+                done.countDown();
+            });
+        }
+        this.release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        // the thread that held the permit ran the queued tasks
+        assertThat(this.created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrencyIsBoundedWhenQueueing() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 3, true);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; ++i) {
+            this.executor.execute(() -> {
+                int now = active.incrementAndGet();
+                maxActive.accumulateAndGet(now, Math::max);
+                Thread.yield();
+                active.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxActive.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    public void testFailingTaskKeepsItsPermit() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 1, true);
+        CountDownLatch ran = new CountDownLatch(1);
+        this.executor.execute(() -> {
+            throw new IllegalStateException("expected");
+        });
+        this.executor.execute(ran::countDown);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.uncaught).hasSize(1);
+    }
+
+    @Test
+    public void testShutdownRunsQueuedTasks() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 1, true);
+        CountDownLatch started = new CountDownLatch(1);
+        this.executor.execute(blocking(started));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        this.executor.execute(() -> queuedRan.set(true));
+
+        this.executor.shutdown();
+
+        assertThat(this.executor.isShutdown()).isTrue();
+        assertThat(this.executor.isTerminated()).isFalse();
+        try {
+            this.executor.execute(() -> { });
+            fail("Expected the task to be rejected");
+        } catch (RejectedExecutionException e) {
+            // shut down
+        }
+        assertThat(this.executor.awaitTermination(50, TimeUnit.MILLISECONDS)).isFalse();
+
+        this.release.countDown();
+        assertThat(this.executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.executor.isTerminated()).isTrue();
+        assertThat(queuedRan.get()).isTrue();
+    }
+
+    @Test
+    public void testShutdownNowReturnsQueuedTasksAndInterrupts() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 1, true);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        this.executor.execute(() -> {
+            started.countDown();
+            try {
+                this.release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Runnable first = () -> { };
+        Runnable second = () -> { };
+        this.executor.execute(first);
+        this.executor.execute(second);
+
+        List<Runnable> pending = this.executor.shutdownNow();
+
+        assertThat(pending).containsExactly(first, second);
+        assertThat(this.executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted.get()).isTrue();
+    }
+
+    @Test
+    public void testIdleExecutorTerminatesOnShutdown() throws Exception {
+        this.executor = new VirtualThreadExecutorService(this.threads, 1, false);
+
+        this.executor.shutdown();
+
+        assertThat(this.executor.isTerminated()).isTrue();
+        assertThat(this.executor.awaitTermination(0, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testVirtualThreadsOnlyWhereSupported() throws Exception {
+        if (!VirtualThreadExecutorService.isSupported()) {
+            assertThat(javaVersion()).isLessThan(21);
+            try {
+                new VirtualThreadExecutorService(1, false);
+                fail("Expected virtual threads to be unsupported");
+            } catch (IllegalStateException e) {
+                // before Java 21
+            }
+            return;
+        }
+        this.executor = new VirtualThreadExecutorService(1, false);
+        AtomicBoolean virtual = new AtomicBoolean();
+        CountDownLatch ran = new CountDownLatch(1);
+        this.executor.execute(() -> {
+            try {
+                virtual.set((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                ran.countDown();
+            }
+        });
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(virtual.get()).isTrue();
+    }
+
+    private Runnable blocking(CountDownLatch started) {
+        return () -> {
+            started.countDown();
+            try {
+                this.release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final List<Throwable> uncaught = new CopyOnWriteArrayList<>();
+
+    private final ThreadFactory threads = r -> {
+        Thread thread = new Thread(r, "test-executor-" + this.created.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, e) -> this.uncaught.add(e));
+        return thread;
+    };
+
+    private VirtualThreadExecutorService executor;
+}
@@ -15,6 +15,7 @@
  */
 package org.wildfly.swarm.microprofile.health;
 
+import static org.wildfly.swarm.spi.api.Defaultable.longInteger;
 import static org.wildfly.swarm.spi.api.Defaultable.string;
 
 import java.util.Optional;
@@ -49,4 +50,46 @@ public class HealthFraction implements Fraction<HealthFraction> {
     public Optional<String> securityRealm() {
         return securityRealm.explicit();
     }
+
+    @AttributeDocumentation("Interval in milliseconds at which health checks are evaluated in the background and cached (0 evaluates them on every request)")
+    @Configurable("thorntail.microprofile.health.cache-interval")
+    @Configurable("thorntail.health.cache-interval")
+    private Defaultable<Long> cacheInterval = longInteger(0);
+
+    @AttributeDocumentation("Maximum age in milliseconds of a cached health result before readiness probes report DOWN")
+    @Configurable("thorntail.microprofile.health.cache-staleness")
+    @Configurable("thorntail.health.cache-staleness")
+    private Defaultable<Long> cacheStaleness = longInteger(10000);
+
+    @AttributeDocumentation("Timeout in milliseconds for a background evaluation of the health checks")
+    @Configurable("thorntail.microprofile.health.check-timeout")
+    @Configurable("thorntail.health.check-timeout")
+    private Defaultable<Long> checkTimeout = longInteger(2000);
+
+    public HealthFraction cacheInterval(long cacheInterval) {
+        this.cacheInterval.set(cacheInterval);
+        return this;
+    }
+
+    public long cacheInterval() {
+        return cacheInterval.get();
+    }
+
+    public HealthFraction cacheStaleness(long cacheStaleness) {
+        this.cacheStaleness.set(cacheStaleness);
+        return this;
+    }
+
+    public long cacheStaleness() {
+        return cacheStaleness.get();
+    }
+
+    public HealthFraction checkTimeout(long checkTimeout) {
+        this.checkTimeout.set(checkTimeout);
+        return this;
+    }
+
+    public long checkTimeout() {
+        return checkTimeout.get();
+    }
 }
@@ -46,6 +46,18 @@ public interface Monitor {
 
     ModelNode threads();
 
+    default String getNodeInfoJson() {
+        return getNodeInfo().toJSONString(false);
+    }
+
+    default String heapJson() {
+        return heap().toJSONString(false);
+    }
+
+    default String threadsJson() {
+        return threads().toJSONString(false);
+    }
+
     void registerHealth(HealthMetaData metaData);
 
     void registerHealthReporter(Object healthReporter);
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.wildfly.security.manager.WildFlySecurityManager;
+import org.wildfly.swarm.microprofile.health.api.Monitor;
+import org.wildfly.swarm.microprofile.health.runtime.HealthResultCache.Kind;
+
+import io.smallrye.health.SmallRyeHealth;
+import io.smallrye.health.SmallRyeHealthReporter;
+
+/**
+ * Evaluates the health checks off the I/O and XNIO worker threads, on a pool
+ * of at most one thread per probe kind.
+ *
+ * <p>Callers asking for a kind that is already being evaluated share the
+ * evaluation in flight, so neither a burst of probes nor a hung check can
+ * pile up threads.</p>
+ */
+public class HealthEvaluator {
+
+    public HealthEvaluator(Monitor monitor) {
+        this.monitor = monitor;
+    }
+
+    public void start() {
+        int threads = Kind.values().length;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<>(threads), threadFactory("health-evaluator"));
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    public void stop() {
+        ThreadPoolExecutor executor = this.executor;
+        this.executor = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        this.inFlight.values().forEach(future -> future.completeExceptionally(new RejectedExecutionException("Health evaluator stopped")));
+    }
+
+    /**
+     * @return the evaluation of the given kind, completed exceptionally if the checks threw or the evaluator is stopped
+     */
+    public CompletableFuture<SmallRyeHealth> evaluate(SmallRyeHealthReporter reporter, Kind kind) {
+        CompletableFuture<SmallRyeHealth> created = new CompletableFuture<>();
+        for (;;) {
+            CompletableFuture<SmallRyeHealth> inFlight = this.inFlight.putIfAbsent(kind, created);
+            if (inFlight == null) {
+                break;
+            }
+            if (!inFlight.isDone()) {
+                return inFlight;
+            }
+            // completed, but not removed yet
+            this.inFlight.remove(kind, inFlight);
+        }
+        created.whenComplete((health, error) -> this.inFlight.remove(kind, created));
+
+        ThreadPoolExecutor executor = this.executor;
+        try {
+            if (executor == null) {
+                throw new RejectedExecutionException("Health evaluator stopped");
+            }
+            executor.execute(() -> {
+                try {
+                    created.complete(evaluate(this.monitor, reporter, kind));
+                } catch (Throwable t) {
+                    created.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Evaluate a probe kind with the deployment's TCCL in place.
+     */
+    static SmallRyeHealth evaluate(Monitor monitor, SmallRyeHealthReporter reporter, Kind kind) {
+        // THORN-2195: Use the correct TCCL when health checks are obtained
+        ClassLoader oldTccl = WildFlySecurityManager.getCurrentContextClassLoaderPrivileged();
+        try {
+            WildFlySecurityManager.setCurrentContextClassLoaderPrivileged(monitor.getContextClassLoader());
+            return kind.function.apply(reporter);
+        } finally {
+            WildFlySecurityManager.setCurrentContextClassLoaderPrivileged(oldTccl);
+        }
+    }
+
+    static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final Monitor monitor;
+
+    private final Map<Kind, CompletableFuture<SmallRyeHealth>> inFlight = new ConcurrentHashMap<>();
+
+    private volatile ThreadPoolExecutor executor;
+}
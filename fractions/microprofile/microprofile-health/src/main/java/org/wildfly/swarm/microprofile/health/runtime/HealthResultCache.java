@@ -0,0 +1,164 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.jboss.logging.Logger;
+import org.wildfly.swarm.microprofile.health.api.Monitor;
+
+import io.smallrye.health.SmallRyeHealth;
+import io.smallrye.health.SmallRyeHealthReporter;
+
+/**
+ * Evaluates the health checks in the background and keeps the last payload
+ * of each probe kind, so that probes are answered without running checks on
+ * the request thread.
+ *
+ * <p>All kinds are evaluated in parallel every interval, each bounded by the
+ * check timeout. An evaluation that times out keeps the previous result;
+ * once that exceeds the staleness budget, readiness probes report DOWN while
+ * liveness probes keep serving it, so that a hung check takes the instance
+ * out of rotation without getting it restarted.</p>
+ *
+ * @see HttpContexts
+ */
+public class HealthResultCache {
+
+    private static Logger LOG = Logger.getLogger("org.wildfly.swarm.microprofile.health");
+
+    public enum Kind {
+        HEALTH(SmallRyeHealthReporter::getHealth),
+        LIVENESS(SmallRyeHealthReporter::getLiveness),
+        READINESS(SmallRyeHealthReporter::getReadiness);
+
+        Kind(Function<SmallRyeHealthReporter, SmallRyeHealth> function) {
+            this.function = function;
+        }
+
+        final Function<SmallRyeHealthReporter, SmallRyeHealth> function;
+    }
+
+    public static final class Result {
+        Result(boolean down, String payload, long timestamp) {
+            this.down = down;
+            this.payload = payload;
+            this.timestamp = timestamp;
+        }
+
+        public boolean isDown() {
+            return this.down;
+        }
+
+        public String getPayload() {
+            return this.payload;
+        }
+
+        private final boolean down;
+
+        private final String payload;
+
+        private final long timestamp;
+    }
+
+    public HealthResultCache(Monitor monitor, HealthEvaluator evaluator, long intervalMillis, long stalenessMillis, long timeoutMillis) {
+        this.monitor = monitor;
+        this.evaluator = evaluator;
+        this.intervalMillis = intervalMillis;
+        this.stalenessMillis = stalenessMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public void start() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(HealthEvaluator.threadFactory("health-cache-scheduler"));
+        this.scheduler.scheduleWithFixedDelay(this::refresh, 0, this.intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        this.results.clear();
+    }
+
+    /**
+     * @param kind the probe kind
+     * @return the last result, or null if no evaluation has completed yet
+     */
+    public Result get(Kind kind) {
+        return this.results.get(kind);
+    }
+
+    /**
+     * @param result a cached result
+     * @return whether the result is older than the staleness budget
+     */
+    public boolean isStale(Result result) {
+        return System.currentTimeMillis() - result.timestamp > this.stalenessMillis;
+    }
+
+    private void refresh() {
+        SmallRyeHealthReporter reporter = (SmallRyeHealthReporter) this.monitor.getHealthReporter();
+        if (reporter == null) {
+            this.results.clear();
+            return;
+        }
+
+        // a kind still being evaluated, e.g. by a hung check, is joined rather than submitted again
+        Map<Kind, Future<SmallRyeHealth>> submitted = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            submitted.put(kind, this.evaluator.evaluate(reporter, kind));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+        for (Map.Entry<Kind, Future<SmallRyeHealth>> entry : submitted.entrySet()) {
+            try {
+                SmallRyeHealth health = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                this.results.put(entry.getKey(), new Result(health.isDown(), health.getPayload().toString(), System.currentTimeMillis()));
+            } catch (TimeoutException e) {
+                LOG.warnf("Health evaluation of %s exceeded %d ms", entry.getKey(), this.timeoutMillis);
+            } catch (ExecutionException e) {
+                LOG.warnf(e.getCause(), "Health evaluation of %s failed", entry.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private final Monitor monitor;
+
+    private final long intervalMillis;
+
+    private final long stalenessMillis;
+
+    private final long timeoutMillis;
+
+    private final Map<Kind, Result> results = new ConcurrentHashMap<>();
+
+    private final HealthEvaluator evaluator;
+
+    private ScheduledExecutorService scheduler;
+}
@@ -19,21 +19,21 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.function.Function;
 
 import javax.enterprise.inject.Vetoed;
 import javax.naming.NamingException;
 
-import org.wildfly.security.manager.WildFlySecurityManager;
 import org.wildfly.swarm.microprofile.health.api.Monitor;
+import org.wildfly.swarm.microprofile.health.runtime.HealthResultCache.Kind;
+import org.wildfly.swarm.microprofile.health.runtime.HealthResultCache.Result;
 
-import io.smallrye.health.SmallRyeHealth;
 import io.smallrye.health.SmallRyeHealthReporter;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
+import io.undertow.util.SameThreadExecutor;
 
 /**
  * The actual monitoring HTTP endpoints. These are wrapped by {@link SecureHttpContexts}.
@@ -56,6 +56,10 @@ public class HttpContexts implements HttpHandler {
         } catch (NamingException e) {
             throw new RuntimeException("Failed to lookup monitor", e);
         }
+
+        MonitorService service = (MonitorService) monitor;
+        this.healthResultCache = service.getHealthResultCache();
+        this.healthEvaluator = service.getHealthEvaluator();
     }
 
     @Override
@@ -70,13 +74,13 @@ public class HttpContexts implements HttpHandler {
             threads(exchange);
             return;
         } else if (HEALTH.equals(exchange.getRequestPath())) {
-            health(exchange, SmallRyeHealthReporter::getHealth, this::defaultUpHealthInfo);
+            health(exchange, Kind.HEALTH, this::defaultUpHealthInfo);
             return;
         } else if (HEALTH_LIVE.equals(exchange.getRequestPath())) {
-            health(exchange, SmallRyeHealthReporter::getLiveness, this::defaultUpHealthInfo);
+            health(exchange, Kind.LIVENESS, this::defaultUpHealthInfo);
             return;
         } else if (HEALTH_READY.equals(exchange.getRequestPath())) {
-            health(exchange, SmallRyeHealthReporter::getReadiness, this::defaultDownHealthInfo);
+            health(exchange, Kind.READINESS, this::defaultDownHealthInfo);
             return;
         }
 
@@ -92,34 +96,48 @@ public class HttpContexts implements HttpHandler {
         exchange.getResponseHeaders().put(new HttpString("Access-Control-Max-Age"), "1209600");
     }
 
-    private void health(HttpServerExchange exchange, Function<SmallRyeHealthReporter, SmallRyeHealth> healthFunction,
-            Consumer<HttpServerExchange> defaultHealthInfo) {
+    private void health(HttpServerExchange exchange, Kind kind, Consumer<HttpServerExchange> defaultHealthInfo) {
         if (monitor.getHealthReporter() != null) {
-            SmallRyeHealthReporter reporter = (SmallRyeHealthReporter) monitor.getHealthReporter();
-            SmallRyeHealth health;
-
-            // THORN-2195: Use the correct TCCL when health checks are obtained
-            ClassLoader oldTccl = WildFlySecurityManager.getCurrentContextClassLoaderPrivileged();
-            try {
-                WildFlySecurityManager.setCurrentContextClassLoaderPrivileged(monitor.getContextClassLoader());
-                health = healthFunction.apply(reporter);
-            } finally {
-                WildFlySecurityManager.setCurrentContextClassLoaderPrivileged(oldTccl);
-            }
-
-            if (health.isDown()) {
-                exchange.setStatusCode(503);
+            Result result = healthResultCache != null ? healthResultCache.get(kind) : null;
+            if (result == null) {
+                // not cached, or nothing evaluated yet right after boot
+                evaluate(exchange, kind);
+            } else if (kind == Kind.READINESS && healthResultCache.isStale(result)) {
+                // checks stopped completing in time, take the instance out of rotation
+                respond(exchange, true, DOWN_PAYLOAD);
             } else {
-                exchange.setStatusCode(200);
+                respond(exchange, result.isDown(), result.getPayload());
             }
-            responseHeaders(exchange);
-            exchange.getResponseSender().send(health.getPayload().toString());
-            exchange.endExchange();
         } else {
             defaultHealthInfo.accept(exchange);
         }
     }
 
+    private void evaluate(HttpServerExchange exchange, Kind kind) {
+        // checks are application code that may block; run them off the I/O
+        // and XNIO worker threads and respond once they complete
+        SmallRyeHealthReporter reporter = (SmallRyeHealthReporter) monitor.getHealthReporter();
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> healthEvaluator.evaluate(reporter, kind)
+                .whenComplete((health, error) -> exchange.getIoThread().execute(() -> {
+                    if (error != null) {
+                        respond(exchange, true, DOWN_PAYLOAD);
+                    } else {
+                        respond(exchange, health.isDown(), health.getPayload().toString());
+                    }
+                })));
+    }
+
+    private void respond(HttpServerExchange exchange, boolean down, String payload) {
+        if (down) {
+            exchange.setStatusCode(503);
+        } else {
+            exchange.setStatusCode(200);
+        }
+        responseHeaders(exchange);
+        exchange.getResponseSender().send(payload);
+        exchange.endExchange();
+    }
+
     private void defaultUpHealthInfo(HttpServerExchange exchange) {
         exchange.setStatusCode(200);
         responseHeaders(exchange);
@@ -130,23 +148,23 @@ public class HttpContexts implements HttpHandler {
     private void defaultDownHealthInfo(HttpServerExchange exchange) {
         exchange.setStatusCode(503);
         responseHeaders(exchange);
-        exchange.getResponseSender().send("{\"status\":\"DOWN\", \"checks\":[]}");
+        exchange.getResponseSender().send(DOWN_PAYLOAD);
         exchange.endExchange();
     }
 
     private void nodeInfo(HttpServerExchange exchange) {
         responseHeaders(exchange);
-        exchange.getResponseSender().send(monitor.getNodeInfo().toJSONString(false));
+        exchange.getResponseSender().send(monitor.getNodeInfoJson());
     }
 
     private void heap(HttpServerExchange exchange) {
         responseHeaders(exchange);
-        exchange.getResponseSender().send(monitor.heap().toJSONString(false));
+        exchange.getResponseSender().send(monitor.heapJson());
     }
 
     private void threads(HttpServerExchange exchange) {
         responseHeaders(exchange);
-        exchange.getResponseSender().send(monitor.threads().toJSONString(false));
+        exchange.getResponseSender().send(monitor.threadsJson());
     }
 
     public static List<String> getDefaultContextNames() {
@@ -167,7 +185,13 @@ public class HttpContexts implements HttpHandler {
 
     static final String EPHEMERAL_TOKEN = UUID.randomUUID().toString();
 
+    private static final String DOWN_PAYLOAD = "{\"status\":\"DOWN\", \"checks\":[]}";
+
     private final Monitor monitor;
 
+    private final HealthResultCache healthResultCache;
+
+    private final HealthEvaluator healthEvaluator;
+
     private final HttpHandler next;
 }
@@ -64,8 +64,16 @@ public class MonitorService implements Monitor, Service<MonitorService> {
     public static final ServiceName SERVICE_NAME = ServiceName.of("swarm", "health");
 
     public MonitorService(Optional<String> securityRealm) {
+        this(securityRealm, 0, 0, 0);
+    }
+
+    public MonitorService(Optional<String> securityRealm, long cacheInterval, long cacheStaleness, long checkTimeout) {
         this.securityRealm = securityRealm;
         this.contextClassLoader = new AtomicReference<ClassLoader>(null);
+        this.healthEvaluator = new HealthEvaluator(this);
+        if (cacheInterval > 0) {
+            this.healthResultCache = new HealthResultCache(this, this.healthEvaluator, cacheInterval, cacheStaleness, checkTimeout);
+        }
     }
 
     @Override
@@ -82,15 +90,38 @@ public class MonitorService implements Monitor, Service<MonitorService> {
         if (!securityRealm.isPresent()) {
             LOG.info("The monitoring endpoints have no security realm configuration");
         }
+
+        healthEvaluator.start();
+        if (healthResultCache != null) {
+            healthResultCache.start();
+        }
     }
 
     @Override
     public void stop(StopContext stopContext) {
+        if (healthResultCache != null) {
+            healthResultCache.stop();
+        }
+        healthEvaluator.stop();
         if (executorService != null) {
             executorService.shutdownNow();
         }
     }
 
+    /**
+     * @return the evaluator running the health checks off the request threads
+     */
+    public HealthEvaluator getHealthEvaluator() {
+        return healthEvaluator;
+    }
+
+    /**
+     * @return the background health result cache, or null if checks are evaluated per request
+     */
+    public HealthResultCache getHealthResultCache() {
+        return healthResultCache;
+    }
+
     @Override
     public MonitorService getValue() throws IllegalStateException, IllegalArgumentException {
         return this;
@@ -121,45 +152,27 @@ public class MonitorService implements Monitor, Service<MonitorService> {
 
     @Override
     public ModelNode heap() {
-
-        // /core-service=platform-mbean/type=memory:read-resource(include-runtime=true)
-
-        ModelNode op = new ModelNode();
-        op.get(ADDRESS).add("core-service", "platform-mbean");
-        op.get(ADDRESS).add("type", "memory");
-        op.get(OP).set("query");
-        op.get(SELECT).add("heap-memory-usage");
-        op.get(SELECT).add("non-heap-memory-usage");
-
-        try {
-            ModelNode response = controllerClient.execute(op);
-            return unwrap(response);
-        } catch (IOException e) {
-            return new ModelNode().get(FAILURE_DESCRIPTION).set(e.getMessage());
-        }
+        return platformInfo.heap();
     }
 
     @Override
     public ModelNode threads() {
+        return platformInfo.threads();
+    }
 
-        // /core-service=platform-mbean/type=threading:read-resource(include-runtime=true)
+    @Override
+    public String getNodeInfoJson() {
+        return platformInfo.nodeJson(this::getNodeInfo);
+    }
 
-        ModelNode op = new ModelNode();
-        op.get(ADDRESS).add("core-service", "platform-mbean");
-        op.get(ADDRESS).add("type", "threading");
-        op.get(OP).set("query");
-        op.get(SELECT).add("thread-count");
-        op.get(SELECT).add("peak-thread-count");
-        op.get(SELECT).add("total-started-thread-count");
-        op.get(SELECT).add("current-thread-cpu-time");
-        op.get(SELECT).add("current-thread-user-time");
+    @Override
+    public String heapJson() {
+        return platformInfo.heapJson();
+    }
 
-        try {
-            ModelNode response = controllerClient.execute(op);
-            return unwrap(response);
-        } catch (IOException e) {
-            return new ModelNode().get(FAILURE_DESCRIPTION).set(e.getMessage());
-        }
+    @Override
+    public String threadsJson() {
+        return platformInfo.threadsJson();
     }
 
     @Override
@@ -238,6 +251,13 @@ public class MonitorService implements Monitor, Service<MonitorService> {
 
     private static final long DEFAULT_PROBE_TIMEOUT_SECONDS = 2;
 
+    /**
+     * Overlapping scrapes of /node, /heap and /threads within this window share one rendering.
+     */
+    private static final long PLATFORM_INFO_TTL_MILLIS = 1000;
+
+    private final PlatformInfo platformInfo = new PlatformInfo(PLATFORM_INFO_TTL_MILLIS);
+
     private final InjectedValue<ServerEnvironment> serverEnvironmentValue = new InjectedValue<ServerEnvironment>();
 
     private final InjectedValue<ModelController> modelControllerValue = new InjectedValue<ModelController>();
@@ -257,4 +277,8 @@ public class MonitorService implements Monitor, Service<MonitorService> {
     private Object healthReporter;
 
     private AtomicReference<ClassLoader> contextClassLoader;
+
+    private final HealthEvaluator healthEvaluator;
+
+    private HealthResultCache healthResultCache;
 }
@@ -58,15 +58,18 @@ public class MonitorServiceActivator implements ServiceActivator {
     @Override
     public void activate(ServiceActivatorContext context) throws ServiceRegistryException {
         Optional<String> securityRealm = Optional.empty();
+        MonitorService service;
 
         if (!healthFractionInstance.isUnsatisfied()) {
-            securityRealm = healthFractionInstance.get().securityRealm();
+            HealthFraction fraction = healthFractionInstance.get();
+            securityRealm = fraction.securityRealm();
+            service = new MonitorService(securityRealm, fraction.cacheInterval(), fraction.cacheStaleness(), fraction.checkTimeout());
+        } else {
+            service = new MonitorService(securityRealm);
         }
 
         ServiceTarget target = context.getServiceTarget();
 
-        MonitorService service = new MonitorService(securityRealm);
-
         ServiceBuilder<MonitorService> monitorServiceServiceBuilder = target.addService(MonitorService.SERVICE_NAME, service);
 
         ServiceBuilder<MonitorService> serviceBuilder = monitorServiceServiceBuilder
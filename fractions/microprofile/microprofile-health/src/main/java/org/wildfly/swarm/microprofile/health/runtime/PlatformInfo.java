@@ -0,0 +1,150 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.function.Supplier;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Renders the <code>/heap</code> and <code>/threads</code> payloads straight from
+ * the platform MXBeans, and caches all monitoring payloads for a short time
+ * so that overlapping scrapes share one rendering.
+ *
+ * <p>The JSON layout matches what the corresponding platform-mbean management
+ * resources used to return.</p>
+ */
+final class PlatformInfo {
+
+    PlatformInfo(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    String heapJson() {
+        Cached cached = this.heap;
+        if (cached == null || cached.isExpired()) {
+            cached = new Cached(renderHeap(), this.ttlMillis);
+            this.heap = cached;
+        }
+        return cached.json;
+    }
+
+    String threadsJson() {
+        Cached cached = this.threads;
+        if (cached == null || cached.isExpired()) {
+            cached = new Cached(renderThreads(), this.ttlMillis);
+            this.threads = cached;
+        }
+        return cached.json;
+    }
+
+    String nodeJson(Supplier<ModelNode> nodeInfo) {
+        Cached cached = this.node;
+        if (cached == null || cached.isExpired()) {
+            cached = new Cached(nodeInfo.get().toJSONString(false), this.ttlMillis);
+            this.node = cached;
+        }
+        return cached.json;
+    }
+
+    ModelNode heap() {
+        ModelNode result = new ModelNode();
+        toModel(result.get("heap-memory-usage"), MEMORY.getHeapMemoryUsage());
+        toModel(result.get("non-heap-memory-usage"), MEMORY.getNonHeapMemoryUsage());
+        return result;
+    }
+
+    ModelNode threads() {
+        ModelNode result = new ModelNode();
+        result.get("thread-count").set(THREADS.getThreadCount());
+        result.get("peak-thread-count").set(THREADS.getPeakThreadCount());
+        result.get("total-started-thread-count").set(THREADS.getTotalStartedThreadCount());
+        result.get("current-thread-cpu-time").set(THREADS.getCurrentThreadCpuTime());
+        result.get("current-thread-user-time").set(THREADS.getCurrentThreadUserTime());
+        return result;
+    }
+
+    private synchronized String renderHeap() {
+        StringBuilder json = this.writer;
+        json.setLength(0);
+        json.append("{\"heap-memory-usage\" : ");
+        appendUsage(json, MEMORY.getHeapMemoryUsage());
+        json.append(", \"non-heap-memory-usage\" : ");
+        appendUsage(json, MEMORY.getNonHeapMemoryUsage());
+        json.append('}');
+        return json.toString();
+    }
+
+    private synchronized String renderThreads() {
+        StringBuilder json = this.writer;
+        json.setLength(0);
+        json.append("{\"thread-count\" : ").append(THREADS.getThreadCount());
+        json.append(", \"peak-thread-count\" : ").append(THREADS.getPeakThreadCount());
+        json.append(", \"total-started-thread-count\" : ").append(THREADS.getTotalStartedThreadCount());
+        json.append(", \"current-thread-cpu-time\" : ").append(THREADS.getCurrentThreadCpuTime());
+        json.append(", \"current-thread-user-time\" : ").append(THREADS.getCurrentThreadUserTime());
+        json.append('}');
+        return json.toString();
+    }
+
+    private static void appendUsage(StringBuilder json, MemoryUsage usage) {
+        json.append("{\"init\" : ").append(usage.getInit());
+        json.append(", \"used\" : ").append(usage.getUsed());
+        json.append(", \"committed\" : ").append(usage.getCommitted());
+        json.append(", \"max\" : ").append(usage.getMax());
+        json.append('}');
+    }
+
+    private static void toModel(ModelNode node, MemoryUsage usage) {
+        node.get("init").set(usage.getInit());
+        node.get("used").set(usage.getUsed());
+        node.get("committed").set(usage.getCommitted());
+        node.get("max").set(usage.getMax());
+    }
+
+    private static final class Cached {
+        Cached(String json, long ttlMillis) {
+            this.json = json;
+            this.expires = System.currentTimeMillis() + ttlMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= this.expires;
+        }
+
+        final String json;
+
+        final long expires;
+    }
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long ttlMillis;
+
+    private final StringBuilder writer = new StringBuilder(256);
+
+    private volatile Cached heap;
+
+    private volatile Cached threads;
+
+    private volatile Cached node;
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.smallrye.health.SmallRyeHealth;
+import io.smallrye.health.SmallRyeHealthReporter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.microprofile.health.api.Monitor;
+import org.wildfly.swarm.microprofile.health.runtime.HealthResultCache.Kind;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HealthEvaluatorTest {
+
+    @Before
+    public void setUp() {
+        Monitor monitor = mock(Monitor.class);
+        when(monitor.getContextClassLoader()).thenReturn(getClass().getClassLoader());
+        this.evaluator = new HealthEvaluator(monitor);
+        this.evaluator.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.release.countDown();
+        this.evaluator.stop();
+    }
+
+    @Test
+    public void testConcurrentCallersShareTheEvaluationInFlight() throws Exception {
+        CompletableFuture<SmallRyeHealth> first = this.evaluator.evaluate(this.reporter, Kind.LIVENESS);
+        CompletableFuture<SmallRyeHealth> second = this.evaluator.evaluate(this.reporter, Kind.LIVENESS);
+
+        Assert.assertSame(first, second);
+
+        this.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, this.liveness.get());
+
+        this.evaluator.evaluate(this.reporter, Kind.LIVENESS).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(2, this.liveness.get());
+    }
+
+    @Test
+    public void testHungKindDoesNotHoldOtherKinds() throws Exception {
+        CompletableFuture<SmallRyeHealth> liveness = this.evaluator.evaluate(this.reporter, Kind.LIVENESS);
+
+        this.evaluator.evaluate(this.reporter, Kind.READINESS).get(5, TimeUnit.SECONDS);
+
+        Assert.assertFalse(liveness.isDone());
+        Assert.assertEquals(1, this.readiness.get());
+    }
+
+    @Test
+    public void testStopFailsPendingAndLaterEvaluations() {
+        CompletableFuture<SmallRyeHealth> liveness = this.evaluator.evaluate(this.reporter, Kind.LIVENESS);
+
+        this.evaluator.stop();
+
+        Assert.assertTrue(liveness.isCompletedExceptionally());
+        Assert.assertTrue(this.evaluator.evaluate(this.reporter, Kind.READINESS).isCompletedExceptionally());
+    }
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger liveness = new AtomicInteger();
+
+    private final AtomicInteger readiness = new AtomicInteger();
+
+    private final SmallRyeHealthReporter reporter = new SmallRyeHealthReporter() {
+        @Override
+        public SmallRyeHealth getLiveness() {
+            liveness.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+        @Override
+        public SmallRyeHealth getReadiness() {
+            readiness.incrementAndGet();
+            return null;
+        }
+    };
+
+    private HealthEvaluator evaluator;
+}
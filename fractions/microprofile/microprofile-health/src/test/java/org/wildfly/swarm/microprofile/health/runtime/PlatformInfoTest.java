@@ -0,0 +1,52 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PlatformInfoTest {
+
+    @Test
+    public void testHeapJsonMatchesModel() {
+        PlatformInfo info = new PlatformInfo(60000);
+
+        ModelNode heap = ModelNode.fromJSONString(info.heapJson());
+
+        Assert.assertTrue(heap.get("heap-memory-usage", "used").asLong() > 0);
+        Assert.assertTrue(heap.get("non-heap-memory-usage").hasDefined("committed"));
+        Assert.assertEquals(info.heap().keys(), heap.keys());
+    }
+
+    @Test
+    public void testThreadsJsonMatchesModel() {
+        PlatformInfo info = new PlatformInfo(60000);
+
+        ModelNode threads = ModelNode.fromJSONString(info.threadsJson());
+
+        Assert.assertTrue(threads.get("thread-count").asInt() > 0);
+        Assert.assertEquals(info.threads().keys(), threads.keys());
+    }
+
+    @Test
+    public void testOverlappingScrapesShareRendering() {
+        PlatformInfo info = new PlatformInfo(60000);
+
+        Assert.assertSame(info.heapJson(), info.heapJson());
+        Assert.assertSame(info.threadsJson(), info.threadsJson());
+    }
+}
@@ -83,6 +83,10 @@ public class MicroProfileJWTAuthFraction implements Fraction<MicroProfileJWTAuth
     @Configurable("thorntail.microprofile.jwt.path.groups")
     private String groupsPath;
 
+    @AttributeDocumentation("Maximum number of verified tokens remembered until they expire, so that a token presented again is not verified again. Set to 0 to verify every request")
+    @Configurable("thorntail.microprofile.jwt.token.cache-size")
+    private Defaultable<Integer> tokenCacheSize = integer(1000);
+
     /**
      * Realm name
      */
@@ -206,6 +210,14 @@ public class MicroProfileJWTAuthFraction implements Fraction<MicroProfileJWTAuth
         this.groupsPath = groupsPath;
     }
 
+    public Defaultable<Integer> getTokenCacheSize() {
+        return tokenCacheSize;
+    }
+
+    public void setTokenCacheSize(Defaultable<Integer> tokenCacheSize) {
+        this.tokenCacheSize = tokenCacheSize;
+    }
+
     public Defaultable<String> getJwtRealm() {
         return jwtRealm;
     }
@@ -19,9 +19,11 @@ package org.wildfly.swarm.microprofile.jwtauth.deployment.auth;
 import static io.undertow.util.Headers.WWW_AUTHENTICATE;
 import static io.undertow.util.StatusCodes.UNAUTHORIZED;
 
+import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.security.acl.Group;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import javax.enterprise.inject.spi.CDI;
 import javax.security.auth.Subject;
@@ -52,8 +54,39 @@ public class JWTAuthMechanism implements AuthenticationMechanism {
 
     private IdentityManager identityManager;
 
+    private final VerifiedTokenCache tokenCache;
+
+    private final JwksRefresher jwksRefresher;
+
+    /**
+     * Whether a cached token was verified with a context that is still current, i.e. a key still in the JWK Set
+     */
+    private final Predicate<JWTAuthContextInfo> currentContext;
+
+    private volatile PrincipalProducer principalProducer;
+
     public JWTAuthMechanism(JWTAuthContextInfo authContextInfo) {
+        this(authContextInfo, 0);
+    }
+
+    /**
+     * @param authContextInfo the configuration used to validate tokens
+     * @param tokenCacheSize  the maximum number of verified tokens to remember, 0 to validate every request
+     */
+    public JWTAuthMechanism(JWTAuthContextInfo authContextInfo, int tokenCacheSize) {
         this.authContextInfo = authContextInfo;
+        this.tokenCache = tokenCacheSize > 0 ? new VerifiedTokenCache(tokenCacheSize) : null;
+        this.jwksRefresher = JwksRefresher.create(authContextInfo);
+        this.currentContext = jwksRefresher != null ? jwksRefresher::isCurrent : contextInfo -> true;
+    }
+
+    /**
+     * Stops refreshing the JWK Set in the background, once the deployment is undeployed.
+     */
+    void close() {
+        if (jwksRefresher != null) {
+            jwksRefresher.close();
+        }
     }
 
     /**
@@ -72,11 +105,33 @@ public class JWTAuthMechanism implements AuthenticationMechanism {
         if (jwtToken != null) {
             try {
                 identityManager = securityContext.getIdentityManager();
-                JWTCredential credential = new JWTCredential(jwtToken, authContextInfo);
+                ByteBuffer cacheKey = null;
+                JsonWebToken verified = null;
+                if (tokenCache != null) {
+                    cacheKey = VerifiedTokenCache.key(jwtToken);
+                    verified = tokenCache.get(cacheKey, currentContext);
+                }
+                JWTCredential credential;
+                JWTAuthContextInfo contextInfo = authContextInfo;
+                if (verified != null) {
+                    credential = new JWTCredential(jwtToken, authContextInfo);
+                    credential.setVerifiedToken(verified);
+                    cacheKey = null;
+                } else {
+                    contextInfo = jwksRefresher != null ? jwksRefresher.contextInfo(jwtToken) : authContextInfo;
+                    if (contextInfo == null) {
+                        UndertowLogger.SECURITY_LOGGER.info("Failed to validate JWT bearer token, its key id is not in the JWK Set");
+                        return AuthenticationMechanismOutcome.NOT_AUTHENTICATED;
+                    }
+                    credential = new JWTCredential(jwtToken, contextInfo);
+                }
                 // Install the JWT principal as the caller
                 Account account = identityManager.verify(credential.getName(), credential);
                 if (account != null) {
                     JsonWebToken jwtPrincipal = (JsonWebToken) account.getPrincipal();
+                    if (cacheKey != null) {
+                        tokenCache.put(cacheKey, jwtPrincipal, contextInfo);
+                    }
                     preparePrincipalProducer(jwtPrincipal);
                     securityContext.authenticationComplete(account, "MP-JWT", false);
                     // Workaround authenticated JWTPrincipal not being installed as user principal
@@ -104,7 +159,12 @@ public class JWTAuthMechanism implements AuthenticationMechanism {
     }
 
     private void preparePrincipalProducer(JsonWebToken jwtPrincipal) {
-        PrincipalProducer principalProducer = CDI.current().select(PrincipalProducer.class).get();
+        // The producer is request scoped, so the client proxy can be looked up once and reused
+        PrincipalProducer principalProducer = this.principalProducer;
+        if (principalProducer == null) {
+            principalProducer = CDI.current().select(PrincipalProducer.class).get();
+            this.principalProducer = principalProducer;
+        }
         principalProducer.setJsonWebToken(jwtPrincipal);
     }
 
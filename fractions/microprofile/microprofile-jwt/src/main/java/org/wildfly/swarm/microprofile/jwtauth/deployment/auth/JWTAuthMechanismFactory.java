@@ -27,8 +27,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
@@ -137,9 +139,28 @@ public class JWTAuthMechanismFactory implements AuthenticationMechanismFactory {
             contextInfo = optContextInfo.get();
         }
 
-        return new JWTAuthMechanism(contextInfo);
+        int tokenCacheSize = 0;
+        String tokenCacheSizeValue = getResource(properties, "tokenCacheSize", "MP-JWT-TOKEN-CACHE-SIZE");
+        if (tokenCacheSizeValue != null) {
+            tokenCacheSize = Integer.parseInt(tokenCacheSizeValue);
+        }
+        JWTAuthMechanism mechanism = new JWTAuthMechanism(contextInfo, tokenCacheSize);
+        mechanisms.add(mechanism);
+        return mechanism;
     }
 
+    /**
+     * Closes the mechanisms created so far, when the deployment they were created for is undeployed.
+     */
+    void close() {
+        for (JWTAuthMechanism mechanism : mechanisms) {
+            mechanism.close();
+        }
+        mechanisms.clear();
+    }
+
+    private final List<JWTAuthMechanism> mechanisms = new CopyOnWriteArrayList<>();
+
     private String getResource(Map<String, String> properties, String propName, String metaInfName) {
         String value = properties.get(propName);
         if (value == null) {
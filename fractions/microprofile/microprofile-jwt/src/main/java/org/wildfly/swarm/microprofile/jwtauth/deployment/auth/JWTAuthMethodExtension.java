@@ -17,9 +17,13 @@
 package org.wildfly.swarm.microprofile.jwtauth.deployment.auth;
 
 import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
 
 import io.undertow.servlet.ServletExtension;
 import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.ListenerInfo;
+import io.undertow.servlet.util.ImmediateInstanceFactory;
 
 /**
  * An extension that adds support for the MP-JWT custom authentication mechanism
@@ -27,13 +31,26 @@ import io.undertow.servlet.api.DeploymentInfo;
  */
 public class JWTAuthMethodExtension implements ServletExtension {
     /**
-     * This registers the JWTAuthMechanismFactory under the "MP-JWT" mechanism name
+     * This registers the JWTAuthMechanismFactory under the "MP-JWT" mechanism name, and closes the mechanisms it
+     * creates when the deployment is undeployed
      *
      * @param deploymentInfo - the deployment to augment
      * @param servletContext - the ServletContext for the deployment
      */
     @Override
     public void handleDeployment(DeploymentInfo deploymentInfo, ServletContext servletContext) {
-        deploymentInfo.addAuthenticationMechanism("MP-JWT", new JWTAuthMechanismFactory());
+        JWTAuthMechanismFactory factory = new JWTAuthMechanismFactory();
+        deploymentInfo.addAuthenticationMechanism("MP-JWT", factory);
+        ServletContextListener closer = new ServletContextListener() {
+            @Override
+            public void contextInitialized(ServletContextEvent sce) {
+            }
+
+            @Override
+            public void contextDestroyed(ServletContextEvent sce) {
+                factory.close();
+            }
+        };
+        deploymentInfo.addListener(new ListenerInfo(ServletContextListener.class, new ImmediateInstanceFactory<>(closer)));
     }
 }
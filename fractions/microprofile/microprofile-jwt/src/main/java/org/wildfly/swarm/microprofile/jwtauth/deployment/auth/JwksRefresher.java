@@ -0,0 +1,299 @@
+/**
+ *
+ *   Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.auth;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.logging.Logger;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwk.Use;
+import org.jose4j.jwx.JsonWebStructure;
+
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+
+/**
+ * Keeps the keys of a JWK Set indexed by their key id, and refreshes them in the background so that a request never
+ * waits for the JWK Set to be fetched when the refresh interval elapses.
+ *
+ * <p>For each signing key, a copy of the configured {@link JWTAuthContextInfo} with that key as the signer key is
+ * prepared ahead of time, so a token is verified against the one key its {@code kid} header names. Every fetch
+ * replaces the whole, immutable map at once, keeping the contexts of the keys that did not change; when it fails,
+ * the previous keys are kept and the fetch is retried with a backoff.</p>
+ *
+ * <p>A {@code kid} that is not in the map triggers a fetch, and at most one such fetch is done every
+ * {@value #UNKNOWN_KID_FETCH_INTERVAL_SECS} seconds, so that tokens with made up key ids cannot be used to hammer
+ * the JWKS endpoint. Only one fetch runs at a time, claimed without holding a lock: the requests that need the JWK
+ * Set while it runs, and the background refresh, wait for it rather than fetching it again.</p>
+ *
+ * <p>The background refresh runs until {@link #close()} is called when the deployment is undeployed.</p>
+ *
+ * <p>Besides {@code https:} URLs, {@code file:} locations are supported, which lets tests stand in a local file for
+ * the JWKS endpoint and rotate keys by rewriting it.</p>
+ */
+final class JwksRefresher {
+
+    private static final Logger log = Logger.getLogger(JwksRefresher.class);
+
+    /**
+     * @return a refresher for the JWK Set at the public key location of the given context, or null if it does not
+     * refer to a JWK Set that can be refreshed
+     */
+    static JwksRefresher create(JWTAuthContextInfo contextInfo) {
+        String location = contextInfo.getPublicKeyLocation();
+        if (location == null) {
+            return null;
+        }
+        boolean https = location.startsWith("https:");
+        if (!https && !location.startsWith("file:")) {
+            return null;
+        }
+        Integer interval = contextInfo.getJwksRefreshInterval();
+        long refreshMillis = TimeUnit.MINUTES.toMillis(interval != null && interval > 0 ? interval : DEFAULT_REFRESH_MINUTES);
+        JwksRefresher refresher = new JwksRefresher(contextInfo, location, refreshMillis);
+        // A file holding a PEM key or a single JWK is left to the default key resolution
+        if (!refresher.fetch() && !https) {
+            return null;
+        }
+        refresher.schedule(refresher.keys.isEmpty() ? MIN_RETRY_MILLIS : refreshMillis);
+        return refresher;
+    }
+
+    private JwksRefresher(JWTAuthContextInfo contextInfo, String location, long refreshMillis) {
+        this.contextInfo = contextInfo;
+        this.location = location;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * @param token the bearer token
+     * @return the context to verify the token with: the one for the key named by its {@code kid} header, the
+     * configured one if no keys could be fetched yet or the token cannot be matched to a key, or null if the key it
+     * names is not in the JWK Set even after fetching it again
+     */
+    JWTAuthContextInfo contextInfo(String token) {
+        Map<String, JWTAuthContextInfo> keys = this.keys;
+        if (keys.isEmpty()) {
+            return this.contextInfo;
+        }
+        String kid;
+        try {
+            kid = JsonWebStructure.fromCompactSerialization(token).getKeyIdHeaderValue();
+        } catch (Exception e) {
+            return this.contextInfo;
+        }
+        if (kid == null) {
+            // Without a key id, a token can only be matched to the key of a single-key set
+            return keys.size() == 1 ? keys.values().iterator().next() : this.contextInfo;
+        }
+        JWTAuthContextInfo keyContextInfo = keys.get(kid);
+        return keyContextInfo != null ? keyContextInfo : fetchUnknown(kid);
+    }
+
+    private JWTAuthContextInfo fetchUnknown(String kid) {
+        if (this.pendingFetch.get() != null || System.currentTimeMillis() >= this.nextUnknownKidFetch) {
+            fetchOrJoin(kid);
+        }
+        // the keys may have been fetched since the caller looked, even when no fetch is allowed now
+        return this.keys.get(kid);
+    }
+
+    /**
+     * Fetches the JWK Set, or waits for the fetch already running.
+     *
+     * @param unknownKid the key id that was not found, or null for the background refresh
+     * @return whether the JWK Set was fetched
+     */
+    private boolean fetchOrJoin(String unknownKid) {
+        CompletableFuture<Boolean> fetch = new CompletableFuture<>();
+        while (!this.pendingFetch.compareAndSet(null, fetch)) {
+            CompletableFuture<Boolean> pending = this.pendingFetch.get();
+            if (pending != null) {
+                return pending.join();
+            }
+        }
+        boolean fetched = false;
+        try {
+            if (unknownKid != null) {
+                // checked again now that the fetch is claimed, another one may just have finished
+                long now = System.currentTimeMillis();
+                if (now < this.nextUnknownKidFetch) {
+                    return false;
+                }
+                this.nextUnknownKidFetch = now + TimeUnit.SECONDS.toMillis(UNKNOWN_KID_FETCH_INTERVAL_SECS);
+                log.debugf("Fetching %s for the unknown key id %s", this.location, unknownKid);
+            }
+            fetched = fetch();
+            return fetched;
+        } finally {
+            this.pendingFetch.set(null);
+            fetch.complete(fetched);
+        }
+    }
+
+    /**
+     * @param keyContextInfo a context returned by {@link #contextInfo(String)}
+     * @return whether the context is still the one for its key, false once the key was removed from the JWK Set or
+     * replaced by another key with the same key id
+     */
+    boolean isCurrent(JWTAuthContextInfo keyContextInfo) {
+        if (keyContextInfo == this.contextInfo) {
+            return true;
+        }
+        for (JWTAuthContextInfo each : this.keys.values()) {
+            if (each == keyContextInfo) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops refreshing the JWK Set in the background. The keys fetched so far are kept.
+     */
+    synchronized void close() {
+        this.closed = true;
+        if (this.scheduled != null) {
+            this.scheduled.cancel(false);
+            this.scheduled = null;
+        }
+    }
+
+    synchronized boolean isRefreshScheduled() {
+        return this.scheduled != null;
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (!this.closed) {
+            this.scheduled = SCHEDULER.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh() {
+        if (fetchOrJoin(null)) {
+            this.retryMillis = MIN_RETRY_MILLIS;
+            schedule(this.refreshMillis);
+        } else {
+            // Keep the previous keys, which most likely still verify the tokens in use
+            long delay = this.retryMillis;
+            this.retryMillis = Math.min(delay * 2, Math.max(MIN_RETRY_MILLIS, this.refreshMillis));
+            schedule(Math.min(delay, this.refreshMillis));
+        }
+    }
+
+    private boolean fetch() {
+        try {
+            JsonWebKeySet jwks = new JsonWebKeySet(read(this.location));
+            Map<String, JWTAuthContextInfo> previous = this.keys;
+            Map<String, JWTAuthContextInfo> keys = new HashMap<>();
+            for (JsonWebKey jwk : jwks.getJsonWebKeys()) {
+                if (!(jwk instanceof PublicJsonWebKey) || Use.ENCRYPTION.equals(jwk.getUse())) {
+                    continue;
+                }
+                String kid = jwk.getKeyId() != null ? jwk.getKeyId() : "";
+                PublicKey key = ((PublicJsonWebKey) jwk).getPublicKey();
+                // an unchanged key keeps its context, so the tokens verified with it stay current
+                JWTAuthContextInfo keyContextInfo = previous.get(kid);
+                if (keyContextInfo == null || !key.equals(keyContextInfo.getSignerKey())) {
+                    keyContextInfo = keyContextInfo(key);
+                }
+                keys.put(kid, keyContextInfo);
+            }
+            this.keys = Collections.unmodifiableMap(keys);
+            log.debugf("Fetched %d keys from %s", keys.size(), this.location);
+            return true;
+        } catch (Exception e) {
+            log.warnf("Failed to fetch the JWK Set from %s: %s", this.location, e.getMessage());
+            return false;
+        }
+    }
+
+    private JWTAuthContextInfo keyContextInfo(PublicKey key) {
+        JWTAuthContextInfo keyContextInfo = new JWTAuthContextInfo(this.contextInfo);
+        keyContextInfo.setPublicKeyLocation(null);
+        keyContextInfo.setPublicKeyContent(null);
+        keyContextInfo.setSignerKey(key);
+        return keyContextInfo;
+    }
+
+    private static String read(String location) throws IOException {
+        URLConnection connection = new URL(location).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final int DEFAULT_REFRESH_MINUTES = 60;
+
+    private static final long MIN_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final long UNKNOWN_KID_FETCH_INTERVAL_SECS = 30;
+
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "mp-jwt-jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // a cancelled refresh would otherwise keep its undeployed refresher until the refresh interval elapses
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final JWTAuthContextInfo contextInfo;
+
+    private final String location;
+
+    private final long refreshMillis;
+
+    private volatile Map<String, JWTAuthContextInfo> keys = Collections.emptyMap();
+
+    private final AtomicReference<CompletableFuture<Boolean>> pendingFetch = new AtomicReference<>();
+
+    private volatile long nextUnknownKidFetch;
+
+    private long retryMillis = MIN_RETRY_MILLIS;
+
+    private ScheduledFuture<?> scheduled;
+
+    private boolean closed;
+}
@@ -0,0 +1,144 @@
+/**
+ *
+ *   Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.auth;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.eclipse.microprofile.jwt.Claims;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+
+/**
+ * A bounded cache of the tokens that passed verification, keyed by the SHA-256 hash of the raw token so that the
+ * tokens themselves are not kept around. An entry expires at the {@code exp} claim of its token, without the grace
+ * period allowed on verification; tokens without an {@code exp} claim are not cached.
+ *
+ * <p>Each entry remembers the context its token was verified with, which names the key for a token verified
+ * against a key of a refreshed JWK Set. A hit is only returned while that context is current, so that a token
+ * signed with a key removed from the JWK Set is verified again, and rejected, rather than accepted until it
+ * expires.</p>
+ *
+ * <p>When the cache is full, expired entries are purged, at most once a second, and new tokens are not cached
+ * until there is room again.</p>
+ */
+final class VerifiedTokenCache {
+
+    VerifiedTokenCache(int maxSize) {
+        this(maxSize, System::currentTimeMillis);
+    }
+
+    VerifiedTokenCache(int maxSize, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    static ByteBuffer key(String token) {
+        return ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param current whether the context a token was verified with still verifies it
+     * @return the verified token, or null if it is not cached, expired, or was verified with a context that is no
+     * longer current
+     */
+    JsonWebToken get(ByteBuffer key, Predicate<JWTAuthContextInfo> current) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (this.clock.getAsLong() >= entry.expiresAt || !current.test(entry.contextInfo)) {
+            this.entries.remove(key, entry);
+            return null;
+        }
+        return entry.token;
+    }
+
+    void put(ByteBuffer key, JsonWebToken token, JWTAuthContextInfo contextInfo) {
+        if (!token.containsClaim(Claims.exp.name())) {
+            return;
+        }
+        long exp = token.getExpirationTime();
+        if (exp <= 0) {
+            return;
+        }
+        long expiresAt = TimeUnit.SECONDS.toMillis(exp);
+        if (this.clock.getAsLong() >= expiresAt) {
+            return;
+        }
+        if (this.entries.size() >= this.maxSize) {
+            purgeExpired();
+            if (this.entries.size() >= this.maxSize) {
+                return;
+            }
+        }
+        this.entries.put(key, new Entry(token, contextInfo, expiresAt));
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    private void purgeExpired() {
+        long now = this.clock.getAsLong();
+        if (now < this.nextPurge) {
+            return;
+        }
+        this.nextPurge = now + PURGE_INTERVAL_MILLIS;
+        this.entries.values().removeIf(e -> now >= e.expiresAt);
+    }
+
+    private static final class Entry {
+        Entry(JsonWebToken token, JWTAuthContextInfo contextInfo, long expiresAt) {
+            this.token = token;
+            this.contextInfo = contextInfo;
+            this.expiresAt = expiresAt;
+        }
+
+        private final JsonWebToken token;
+
+        private final JWTAuthContextInfo contextInfo;
+
+        private final long expiresAt;
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+    private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final LongSupplier clock;
+
+    private volatile long nextPurge;
+}
@@ -19,6 +19,7 @@ package org.wildfly.swarm.microprofile.jwtauth.deployment.auth.jaas;
 
 import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
 import io.undertow.security.idm.Credential;
+import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
@@ -37,6 +38,8 @@ public class JWTCredential implements Credential {
 
     private Exception jwtException;
 
+    private JsonWebToken verifiedToken;
+
     /**
      * @param bearerToken
      * @param authContextInfo
@@ -98,4 +101,21 @@ public class JWTCredential implements Credential {
     public Exception getJwtException() {
         return jwtException;
     }
+
+    /**
+     * @return the token as previously verified for the same bearer token, or null if it still needs to be validated
+     */
+    public JsonWebToken getVerifiedToken() {
+        return verifiedToken;
+    }
+
+    /**
+     * Mark the bearer token as already verified, so that neither {@link #getName()} nor the login module parse it again.
+     *
+     * @param verifiedToken the result of an earlier validation of the same bearer token
+     */
+    public void setVerifiedToken(JsonWebToken verifiedToken) {
+        this.verifiedToken = verifiedToken;
+        this.name = verifiedToken.getName();
+    }
 }
@@ -61,8 +61,9 @@ public class JWTLoginModule extends RoleMappingLoginModule {
         try {
             callbackHandler.handle(new Callback[]{sac});
             JWTCredential jwtCredential = (JWTCredential) sac.getCredential();
-            // Validate the credential by
-            jwtPrincipal = validate(jwtCredential);
+            // A token the authentication mechanism already verified is not validated again
+            JsonWebToken verified = jwtCredential.getVerifiedToken();
+            jwtPrincipal = verified != null ? verified : validate(jwtCredential);
         } catch (Exception e) {
             if (logExceptions) {
                 log.infof(e, "Failed to validate token");
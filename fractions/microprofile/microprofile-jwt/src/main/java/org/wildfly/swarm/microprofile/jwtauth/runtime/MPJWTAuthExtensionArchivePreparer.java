@@ -175,6 +175,7 @@ public class MPJWTAuthExtensionArchivePreparer implements DeploymentProcessor {
             log.debugf("groupsPath: %s", fraction.getGroupsPath());
             war.addAsManifestResource(new StringAsset(fraction.getGroupsPath()), "MP-JWT-GROUPS-PATH");
         }
+        war.addAsManifestResource(new StringAsset(fraction.getTokenCacheSize().get().toString()), "MP-JWT-TOKEN-CACHE-SIZE");
 
         if (log.isTraceEnabled()) {
             log.trace("war: " + war.toString(true));
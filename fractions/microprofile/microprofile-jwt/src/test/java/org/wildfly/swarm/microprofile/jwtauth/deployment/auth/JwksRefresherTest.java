@@ -0,0 +1,218 @@
+/**
+ *
+ *   Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.auth;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Uses a local JWKS file in place of the JWKS endpoint; keys are rotated by rewriting it.
+ */
+public class JwksRefresherTest {
+
+    @Before
+    public void setUp() throws Exception {
+        jwksFile = File.createTempFile("jwks", ".json");
+        jwksFile.deleteOnExit();
+        key1 = rsaKey("key1");
+        key2 = rsaKey("key2");
+        key3 = rsaKey("key3");
+        contextInfo = new JWTAuthContextInfo();
+        contextInfo.setIssuedBy("https://issuer.example.com");
+        contextInfo.setPublicKeyLocation(jwksFile.toURI().toString());
+    }
+
+    @Test
+    public void testKeyIdSelectsKey() throws Exception {
+        writeJwks(key1, key2);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+        Assert.assertNotNull(refresher);
+
+        JWTAuthContextInfo keyContextInfo = refresher.contextInfo(token(key2));
+        Assert.assertEquals(key2.getPublicKey(), keyContextInfo.getSignerKey());
+        Assert.assertNull(keyContextInfo.getPublicKeyLocation());
+        Assert.assertEquals("https://issuer.example.com", keyContextInfo.getIssuedBy());
+        Assert.assertSame(keyContextInfo, refresher.contextInfo(token(key2)));
+        Assert.assertEquals(key1.getPublicKey(), refresher.contextInfo(token(key1)).getSignerKey());
+    }
+
+    @Test
+    public void testUnknownKeyIdFetchesOnce() throws Exception {
+        writeJwks(key1);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+
+        // rotated: the new key is fetched on first use
+        writeJwks(key1, key2);
+        Assert.assertEquals(key2.getPublicKey(), refresher.contextInfo(token(key2)).getSignerKey());
+
+        // rotated again right away: no further fetch until the interval has passed
+        writeJwks(key1, key2, key3);
+        Assert.assertNull(refresher.contextInfo(token(key3)));
+        Assert.assertEquals(key1.getPublicKey(), refresher.contextInfo(token(key1)).getSignerKey());
+    }
+
+    @Test
+    public void testConcurrentUnknownKeyIdFetchesOnce() throws Exception {
+        writeJwks(key1);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+        writeJwks(key1, key2);
+        String token = token(key2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<JWTAuthContextInfo>> results = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return refresher.contextInfo(token);
+                }));
+            }
+            start.countDown();
+            JWTAuthContextInfo keyContextInfo = results.get(0).get();
+            Assert.assertEquals(key2.getPublicKey(), keyContextInfo.getSignerKey());
+            for (Future<JWTAuthContextInfo> result : results) {
+                Assert.assertSame(keyContextInfo, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the requests shared one fetch, so the next unknown key id has to wait for the interval
+        writeJwks(key1, key2, key3);
+        Assert.assertNull(refresher.contextInfo(token(key3)));
+    }
+
+    @Test
+    public void testCloseStopsRefresh() throws Exception {
+        writeJwks(key1);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+        Assert.assertTrue(refresher.isRefreshScheduled());
+
+        refresher.close();
+
+        Assert.assertFalse(refresher.isRefreshScheduled());
+        // the keys fetched so far still verify tokens
+        Assert.assertEquals(key1.getPublicKey(), refresher.contextInfo(token(key1)).getSignerKey());
+    }
+
+    @Test
+    public void testUnchangedKeyStaysCurrent() throws Exception {
+        writeJwks(key1, key2);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+        JWTAuthContextInfo key1ContextInfo = refresher.contextInfo(token(key1));
+        JWTAuthContextInfo key2ContextInfo = refresher.contextInfo(token(key2));
+
+        // key2 removed, fetched for the unknown key3
+        writeJwks(key1, key3);
+        Assert.assertNotNull(refresher.contextInfo(token(key3)));
+
+        Assert.assertSame(key1ContextInfo, refresher.contextInfo(token(key1)));
+        Assert.assertTrue(refresher.isCurrent(key1ContextInfo));
+        Assert.assertFalse(refresher.isCurrent(key2ContextInfo));
+        Assert.assertTrue(refresher.isCurrent(contextInfo));
+    }
+
+    @Test
+    public void testReplacedKeyIsNotCurrent() throws Exception {
+        writeJwks(key1);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+        JWTAuthContextInfo oldContextInfo = refresher.contextInfo(token(key1));
+
+        // a new key under the same key id, fetched for the unknown key2
+        RsaJsonWebKey newKey1 = rsaKey("key1");
+        writeJwks(newKey1, key2);
+        Assert.assertNotNull(refresher.contextInfo(token(key2)));
+
+        Assert.assertFalse(refresher.isCurrent(oldContextInfo));
+        JWTAuthContextInfo newContextInfo = refresher.contextInfo(token(newKey1));
+        Assert.assertEquals(newKey1.getPublicKey(), newContextInfo.getSignerKey());
+        Assert.assertTrue(refresher.isCurrent(newContextInfo));
+    }
+
+    @Test
+    public void testTokenWithoutKeyId() throws Exception {
+        writeJwks(key1);
+        JwksRefresher refresher = JwksRefresher.create(contextInfo);
+        Assert.assertEquals(key1.getPublicKey(), refresher.contextInfo(token(key1, null)).getSignerKey());
+
+        writeJwks(key1, key2);
+        refresher = JwksRefresher.create(contextInfo);
+        Assert.assertSame(contextInfo, refresher.contextInfo(token(key1, null)));
+    }
+
+    @Test
+    public void testNotAJwks() throws Exception {
+        Files.write(jwksFile.toPath(), "-----BEGIN PUBLIC KEY-----".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(JwksRefresher.create(contextInfo));
+
+        contextInfo.setPublicKeyLocation("classpath:publicKey.pem");
+        Assert.assertNull(JwksRefresher.create(contextInfo));
+    }
+
+    private void writeJwks(RsaJsonWebKey... keys) throws Exception {
+        Files.write(jwksFile.toPath(), new JsonWebKeySet(keys).toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static RsaJsonWebKey rsaKey(String kid) throws Exception {
+        RsaJsonWebKey key = RsaJwkGenerator.generateJwk(2048);
+        key.setKeyId(kid);
+        return key;
+    }
+
+    private static String token(RsaJsonWebKey key) throws Exception {
+        return token(key, key.getKeyId());
+    }
+
+    private static String token(RsaJsonWebKey key, String kid) throws Exception {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload("{\"sub\":\"jdoe\"}");
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        if (kid != null) {
+            jws.setKeyIdHeaderValue(kid);
+        }
+        jws.setKey(key.getPrivateKey());
+        return jws.getCompactSerialization();
+    }
+
+    private File jwksFile;
+
+    private RsaJsonWebKey key1;
+
+    private RsaJsonWebKey key2;
+
+    private RsaJsonWebKey key3;
+
+    private JWTAuthContextInfo contextInfo;
+}
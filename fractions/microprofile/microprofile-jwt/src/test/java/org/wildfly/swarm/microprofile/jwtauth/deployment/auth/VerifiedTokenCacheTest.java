@@ -0,0 +1,166 @@
+/**
+ *
+ *   Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.auth;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs the cache on a clock set by each test.
+ */
+public class VerifiedTokenCacheTest {
+
+    @Test
+    public void testHitUntilExpiry() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, () -> now);
+        JsonWebToken token = token("a", NOW_SECS + 60);
+        ByteBuffer key = VerifiedTokenCache.key("a");
+        cache.put(key, token, contextInfo);
+
+        Assert.assertSame(token, cache.get(VerifiedTokenCache.key("a"), ANY));
+        Assert.assertNull(cache.get(VerifiedTokenCache.key("b"), ANY));
+
+        now = TimeUnit.SECONDS.toMillis(NOW_SECS + 60) - 1;
+        Assert.assertSame(token, cache.get(key, ANY));
+
+        // no grace period
+        now = TimeUnit.SECONDS.toMillis(NOW_SECS + 60);
+        Assert.assertNull(cache.get(key, ANY));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiredTokensAreNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, () -> now);
+        cache.put(VerifiedTokenCache.key("expired"), token("expired", NOW_SECS - 1), contextInfo);
+        cache.put(VerifiedTokenCache.key("expiring"), token("expiring", NOW_SECS), contextInfo);
+
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTokensWithoutExpiryAreNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, () -> now);
+        cache.put(VerifiedTokenCache.key("no exp"), token("no exp", null), contextInfo);
+        cache.put(VerifiedTokenCache.key("zero exp"), token("zero exp", 0L), contextInfo);
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.get(VerifiedTokenCache.key("no exp"), ANY));
+    }
+
+    @Test
+    public void testMissWhenContextIsNoLongerCurrent() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, () -> now);
+        JWTAuthContextInfo rotated = new JWTAuthContextInfo();
+        ByteBuffer key = VerifiedTokenCache.key("a");
+        cache.put(key, token("a", NOW_SECS + 60), contextInfo);
+
+        Assert.assertNotNull(cache.get(key, c -> c == contextInfo));
+        Assert.assertNull(cache.get(key, c -> c == rotated));
+        // removed, not only skipped
+        Assert.assertNull(cache.get(key, ANY));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFullCachePurgesExpiredEntries() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(3, () -> now);
+        cache.put(VerifiedTokenCache.key("short 1"), token("short 1", NOW_SECS + 1), contextInfo);
+        cache.put(VerifiedTokenCache.key("short 2"), token("short 2", NOW_SECS + 1), contextInfo);
+        cache.put(VerifiedTokenCache.key("long"), token("long", NOW_SECS + 600), contextInfo);
+
+        // full, nothing expired: not cached
+        cache.put(VerifiedTokenCache.key("new"), token("new", NOW_SECS + 600), contextInfo);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertNull(cache.get(VerifiedTokenCache.key("new"), ANY));
+
+        now += 1000;
+        cache.put(VerifiedTokenCache.key("new"), token("new", NOW_SECS + 600), contextInfo);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(VerifiedTokenCache.key("long"), ANY));
+        Assert.assertNotNull(cache.get(VerifiedTokenCache.key("new"), ANY));
+    }
+
+    @Test
+    public void testPurgeAtMostOnceASecond() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2, () -> now);
+        cache.put(VerifiedTokenCache.key("a"), token("a", NOW_SECS + 1), contextInfo);
+        cache.put(VerifiedTokenCache.key("b"), token("b", NOW_SECS + 1), contextInfo);
+        // purges nothing, and delays the next purge by a second
+        now += 500;
+        cache.put(VerifiedTokenCache.key("c"), token("c", NOW_SECS + 600), contextInfo);
+
+        now += 500;
+        cache.put(VerifiedTokenCache.key("c"), token("c", NOW_SECS + 600), contextInfo);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get(VerifiedTokenCache.key("c"), ANY));
+
+        now += 500;
+        cache.put(VerifiedTokenCache.key("c"), token("c", NOW_SECS + 600), contextInfo);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotNull(cache.get(VerifiedTokenCache.key("c"), ANY));
+    }
+
+    @Test
+    public void testKeyIsTheTokenHash() {
+        Assert.assertEquals(VerifiedTokenCache.key("a.b.c"), VerifiedTokenCache.key("a.b.c"));
+        Assert.assertNotEquals(VerifiedTokenCache.key("a.b.c"), VerifiedTokenCache.key("a.b.d"));
+        Assert.assertEquals(32, VerifiedTokenCache.key("a.b.c").remaining());
+    }
+
+    private static JsonWebToken token(String name, Long exp) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", name);
+        if (exp != null) {
+            claims.put("exp", exp);
+        }
+        return new JsonWebToken() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Set<String> getClaimNames() {
+                return claims.keySet();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getClaim(String claimName) {
+                return (T) claims.get(claimName);
+            }
+        };
+    }
+
+    private static final long NOW_SECS = 1_580_472_000L;
+
+    private static final Predicate<JWTAuthContextInfo> ANY = c -> true;
+
+    private final JWTAuthContextInfo contextInfo = new JWTAuthContextInfo();
+
+    private long now = TimeUnit.SECONDS.toMillis(NOW_SECS);
+}
@@ -16,8 +16,15 @@
  */
 package org.wildfly.swarm.microprofile.metrics;
 
+import static org.wildfly.swarm.spi.api.Defaultable.bool;
+import static org.wildfly.swarm.spi.api.Defaultable.integer;
+import static org.wildfly.swarm.spi.api.Defaultable.string;
+
+import org.wildfly.swarm.config.runtime.AttributeDocumentation;
+import org.wildfly.swarm.spi.api.Defaultable;
 import org.wildfly.swarm.spi.api.Fraction;
 import org.wildfly.swarm.spi.api.Module;
+import org.wildfly.swarm.spi.api.annotations.Configurable;
 import org.wildfly.swarm.spi.api.annotations.DeploymentModule;
 
 /**
@@ -29,4 +36,43 @@ import org.wildfly.swarm.spi.api.annotations.DeploymentModule;
         export = true,
         services = Module.ServiceHandling.IMPORT)
 public class MicroprofileMetricsFraction implements Fraction<MicroprofileMetricsFraction> {
+
+    @AttributeDocumentation("Whether request count, in-flight requests, bytes and latency are recorded per route in the vendor scope")
+    @Configurable("thorntail.microprofile.metrics.http.enabled")
+    private Defaultable<Boolean> httpMetrics = bool(false);
+
+    @AttributeDocumentation("Comma-separated route templates requests are grouped by, such as /orders/{id}; other requests are grouped by their first path segment")
+    @Configurable("thorntail.microprofile.metrics.http.routes")
+    private Defaultable<String> httpRoutes = string("");
+
+    @AttributeDocumentation("Maximum number of distinct routes to record; further requests are recorded under the route 'other'")
+    @Configurable("thorntail.microprofile.metrics.http.max-routes")
+    private Defaultable<Integer> httpMaxRoutes = integer(100);
+
+    public MicroprofileMetricsFraction httpMetrics(boolean httpMetrics) {
+        this.httpMetrics.set(httpMetrics);
+        return this;
+    }
+
+    public boolean httpMetrics() {
+        return httpMetrics.get();
+    }
+
+    public MicroprofileMetricsFraction httpRoutes(String httpRoutes) {
+        this.httpRoutes.set(httpRoutes);
+        return this;
+    }
+
+    public String httpRoutes() {
+        return httpRoutes.get();
+    }
+
+    public MicroprofileMetricsFraction httpMaxRoutes(int httpMaxRoutes) {
+        this.httpMaxRoutes.set(httpMaxRoutes);
+        return this;
+    }
+
+    public int httpMaxRoutes() {
+        return httpMaxRoutes.get();
+    }
 }
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Snapshot;
+
+/**
+ * A cumulative histogram with HDR-style log-linear buckets.
+ *
+ * <p>Each power of two is split into {@value #SUB_BUCKETS} linear buckets,
+ * which bounds the relative error of any quantile to about 3%. Recording is
+ * lock-free: it increments one bucket of an {@link AtomicLongArray} and a few
+ * striped adders. Values above 2<sup>40</sup> (about 18 minutes in
+ * nanoseconds) are recorded in the last bucket.</p>
+ */
+final class LatencyHistogram implements Histogram {
+
+    @Override
+    public void update(int value) {
+        update((long) value);
+    }
+
+    @Override
+    public void update(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.buckets.incrementAndGet(index(Math.min(value, MAX_VALUE)));
+        this.count.increment();
+        this.min.accumulate(value);
+        this.max.accumulate(value);
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = this.buckets.get(i);
+        }
+        long max = this.max.get();
+        long min = this.min.get();
+        return new BucketSnapshot(counts, min == Long.MAX_VALUE ? 0 : min, max);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    static long upperBound(int index) {
+        return index + 1 < BUCKET_COUNT ? lowerBound(index + 1) - 1 : MAX_VALUE;
+    }
+
+    private static final class BucketSnapshot extends Snapshot {
+        BucketSnapshot(long[] counts, long min, long max) {
+            this.counts = counts;
+            this.min = min;
+            this.max = max;
+            long total = 0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                total += counts[i];
+                sum += counts[i] * (double) midpoint(i);
+            }
+            this.total = total;
+            this.mean = total == 0 ? 0 : sum / total;
+            double squares = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                if (counts[i] != 0) {
+                    double deviation = midpoint(i) - this.mean;
+                    squares += counts[i] * deviation * deviation;
+                }
+            }
+            this.stdDev = total <= 1 ? 0 : Math.sqrt(squares / (total - 1));
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (this.total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(Math.max(0, Math.min(1, quantile)) * this.total);
+            long seen = 0;
+            for (int i = 0; i < this.counts.length; ++i) {
+                seen += this.counts[i];
+                if (seen >= rank && this.counts[i] != 0) {
+                    return Math.max(this.min, Math.min(this.max, midpoint(i)));
+                }
+            }
+            return this.max;
+        }
+
+        /**
+         * @return the midpoint of every non-empty bucket, once per bucket
+         */
+        @Override
+        public long[] getValues() {
+            int size = 0;
+            for (long c : this.counts) {
+                if (c != 0) {
+                    ++size;
+                }
+            }
+            long[] values = new long[size];
+            int j = 0;
+            for (int i = 0; i < this.counts.length; ++i) {
+                if (this.counts[i] != 0) {
+                    values[j++] = midpoint(i);
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, this.total);
+        }
+
+        @Override
+        public long getMax() {
+            return this.max;
+        }
+
+        @Override
+        public double getMean() {
+            return this.mean;
+        }
+
+        @Override
+        public long getMin() {
+            return this.min;
+        }
+
+        @Override
+        public double getStdDev() {
+            return this.stdDev;
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            for (int i = 0; i < this.counts.length; ++i) {
+                if (this.counts[i] != 0) {
+                    out.printf("%d-%d: %d%n", lowerBound(i), upperBound(i), this.counts[i]);
+                }
+            }
+            out.flush();
+        }
+
+        private static long midpoint(int index) {
+            long lower = lowerBound(index);
+            return lower + (upperBound(index) - lower) / 2;
+        }
+
+        private final long[] counts;
+
+        private final long total;
+
+        private final long min;
+
+        private final long max;
+
+        private final double mean;
+
+        private final double stdDev;
+    }
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+}
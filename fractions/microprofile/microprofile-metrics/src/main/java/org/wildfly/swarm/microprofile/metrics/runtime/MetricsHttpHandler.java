@@ -16,27 +16,40 @@
  */
 package org.wildfly.swarm.microprofile.metrics.runtime;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import io.smallrye.metrics.MetricsRequestHandler;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.jboss.logging.Logger;
 
-import java.util.concurrent.CountDownLatch;
-
 /**
+ * Serves <code>/metrics</code> without blocking the I/O thread: all responses
+ * are rendered on the {@link MetricsRenderer} thread and sent from the I/O
+ * thread of their exchange.
+ * An exchange that has already been routed to the metrics endpoints is
+ * marked with an attachment, so that if it re-enters this handler after a
+ * dispatch, on whichever thread, it is passed on to the next handler.
+ *
  * @author hrupp
  */
 @SuppressWarnings("unused")
 public class MetricsHttpHandler implements HttpHandler {
 
     private static Logger LOG = Logger.getLogger("org.wildfly.swarm.microprofile.metrics");
-    private ThreadLocal<CountDownLatch> dispatched = new ThreadLocal<>();
+    static final AttachmentKey<Boolean> ROUTED = AttachmentKey.create(Boolean.class);
 
     private HttpHandler next;
     private final MetricsRequestHandler metricsHandler = new MetricsRequestHandler();
+    private final PrometheusExposition exposition = new PrometheusExposition();
+    private final MetricsRenderer renderer = new MetricsRenderer();
 
     public MetricsHttpHandler(HttpHandler next) {
         this.next = next;
@@ -47,26 +60,57 @@ public class MetricsHttpHandler implements HttpHandler {
 
         String requestPath = exchange.getRequestPath();
 
-        if (dispatched.get() != null && dispatched.get().getCount() == 1) {
+        if (exchange.getAttachment(ROUTED) != null || !requestPath.startsWith("/metrics")) {
             next.handleRequest(exchange);
-            dispatched.set(null);
             return;
         }
+        exchange.putAttachment(ROUTED, Boolean.TRUE);
 
-        if (!requestPath.startsWith("/metrics")) {
-            next.handleRequest(exchange);
+        String method = exchange.getRequestMethod().toString();
+        HeaderValues acceptHeaders = exchange.getRequestHeaders().get(Headers.ACCEPT);
+
+        // Text scrapes of whole scopes are rendered from pre-encoded buffers,
+        // JSON, OPTIONS and single-metric requests are left to SmallRye
+        PrometheusExposition.Format format = PrometheusExposition.negotiate(method, acceptHeaders);
+        MetricRegistry.Type[] scopes = format == null ? null : PrometheusExposition.scopes(requestPath);
+        if (scopes != null) {
+            exposition.handle(exchange, renderer, scopes, format);
             return;
         }
 
-        String method = exchange.getRequestMethod().toString();
-        HeaderValues acceptHeaders = exchange.getRequestHeaders().get(Headers.ACCEPT);
-        metricsHandler.handleRequest(requestPath, method, acceptHeaders == null ? null : acceptHeaders.stream(), (status, message, headers) -> {
-            exchange.setStatusCode(status);
-            headers.forEach(
-                    (key, value) -> exchange.getResponseHeaders().put(new HttpString(key), value)
+        // the header values belong to the exchange, copy them before leaving the I/O thread
+        List<String> accept = acceptHeaders == null ? null : new ArrayList<>(acceptHeaders);
+        renderer.handle(exchange, () -> {
+            Response[] response = new Response[1];
+            metricsHandler.handleRequest(requestPath, method, accept == null ? null : accept.stream(),
+                                         (status, message, headers) -> response[0] = new Response(status, message, headers));
+            return response[0];
+        }, (e, response) -> {
+            if (response == null) {
+                e.setStatusCode(500);
+                e.endExchange();
+                return;
+            }
+            e.setStatusCode(response.status);
+            response.headers.forEach(
+                    (key, value) -> e.getResponseHeaders().put(new HttpString(key), value)
             );
-            exchange.getResponseSender().send(message);
+            e.getResponseSender().send(response.message);
         });
 
     }
+
+    private static final class Response {
+        Response(int status, String message, Map<String, String> headers) {
+            this.status = status;
+            this.message = message;
+            this.headers = headers;
+        }
+
+        final int status;
+
+        final String message;
+
+        final Map<String, String> headers;
+    }
 }
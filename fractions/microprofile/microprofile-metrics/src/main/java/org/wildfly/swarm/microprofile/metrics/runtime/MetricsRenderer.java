@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.SameThreadExecutor;
+import org.jboss.logging.Logger;
+
+/**
+ * Renders the responses of the metrics endpoints off the I/O and XNIO worker
+ * threads, on a single dedicated thread, and sends them from the I/O thread
+ * of their exchange.
+ *
+ * <p>Renders run one at a time, which {@link PrometheusExposition} relies on.
+ * Requests beyond the bounded queue are answered with a 503 rather than
+ * piling up; the thread goes away when idle.</p>
+ */
+final class MetricsRenderer {
+
+    MetricsRenderer() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "metrics-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    /**
+     * Render on the renderer thread, then send the result from the exchange's I/O thread.
+     *
+     * @param render the rendering, which may take as long as the registered metrics take to read
+     * @param send   sends the rendered response, on the I/O thread
+     */
+    <T> void handle(HttpServerExchange exchange, Callable<T> render, BiConsumer<HttpServerExchange, T> send) {
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+            try {
+                this.executor.execute(() -> {
+                    T response;
+                    try {
+                        response = render.call();
+                    } catch (Throwable t) {
+                        LOG.warn("Failed to render metrics", t);
+                        exchange.getIoThread().execute(() -> fail(exchange, 500));
+                        return;
+                    }
+                    exchange.getIoThread().execute(() -> send.accept(exchange, response));
+                });
+            } catch (RejectedExecutionException e) {
+                fail(exchange, 503);
+            }
+        });
+    }
+
+    private static void fail(HttpServerExchange exchange, int status) {
+        exchange.setStatusCode(status);
+        exchange.endExchange();
+    }
+
+    private static final Logger LOG = Logger.getLogger("org.wildfly.swarm.microprofile.metrics");
+
+    private static final int QUEUE_SIZE = 32;
+
+    private final ThreadPoolExecutor executor;
+}
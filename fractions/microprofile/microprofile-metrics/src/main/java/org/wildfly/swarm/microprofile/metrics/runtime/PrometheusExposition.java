@@ -0,0 +1,784 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import io.smallrye.metrics.MetricRegistries;
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Counting;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Meter;
+import org.eclipse.microprofile.metrics.Metered;
+import org.eclipse.microprofile.metrics.Metric;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.SimpleTimer;
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.eclipse.microprofile.metrics.Timer;
+
+/**
+ * Renders the registries in the Prometheus text format (0.0.4) or in
+ * OpenMetrics, without going through strings.
+ *
+ * <p>Metric names, units, labels and help texts are encoded to bytes the first
+ * time a metric is seen and reused on every scrape, until the metric is
+ * removed or its metadata changes. Values are written into a
+ * single growable array, which is then copied, or gzipped, into a pooled
+ * direct buffer that is handed to the response sender and returned to the
+ * pool once the write completes.</p>
+ *
+ * <p>Scrapes are rendered and compressed one at a time on the thread of the
+ * {@link MetricsRenderer}, and each response is sent from its own I/O thread
+ * once rendered. The naming rules follow the MicroProfile Metrics 2.x
+ * OpenMetrics mapping.</p>
+ */
+final class PrometheusExposition {
+
+    enum Format {
+        TEXT("text/plain; version=0.0.4; charset=utf-8"),
+        OPENMETRICS("application/openmetrics-text; version=1.0.0; charset=utf-8");
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        final String contentType;
+    }
+
+    /**
+     * Pick the format with the highest quality value among all media ranges
+     * of all {@code Accept} headers; among equal ones, the first listed wins.
+     *
+     * @return the format to render the request in, or null if it is left to SmallRye
+     */
+    static Format negotiate(String method, HeaderValues accept) {
+        if (!"GET".equals(method)) {
+            return null;
+        }
+        if (accept == null || accept.isEmpty()) {
+            return Format.TEXT;
+        }
+        Format best = Format.TEXT;
+        double bestQuality = 0;
+        for (String header : accept) {
+            for (String range : header.split(",")) {
+                String[] parameters = range.split(";");
+                String mediaType = parameters[0].trim().toLowerCase(Locale.ROOT);
+                double quality = quality(parameters);
+                if (quality <= bestQuality) {
+                    continue;
+                }
+                if (mediaType.equals("application/openmetrics-text")) {
+                    best = Format.OPENMETRICS;
+                } else if (mediaType.equals("application/json")) {
+                    best = null;
+                } else if (mediaType.equals("text/plain") || mediaType.equals("text/*") || mediaType.equals("*/*")) {
+                    best = Format.TEXT;
+                } else {
+                    continue;
+                }
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; ++i) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return the scopes addressed by the request path, or null if it is left to SmallRye
+     */
+    static MetricRegistry.Type[] scopes(String requestPath) {
+        String scope = requestPath.substring(PATH.length());
+        if (scope.isEmpty() || scope.equals("/")) {
+            return ALL_SCOPES;
+        }
+        if (scope.endsWith("/")) {
+            scope = scope.substring(0, scope.length() - 1);
+        }
+        for (MetricRegistry.Type type : ALL_SCOPES) {
+            if (scope.equals("/" + type.getName())) {
+                return new MetricRegistry.Type[]{type};
+            }
+        }
+        return null;
+    }
+
+    void handle(HttpServerExchange exchange, MetricsRenderer renderer, MetricRegistry.Type[] scopes, Format format) {
+        boolean gzip = acceptsGzip(exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING));
+        renderer.handle(exchange, () -> render(scopes, format, gzip), (e, response) -> send(e, format, gzip, response));
+    }
+
+    private void send(HttpServerExchange exchange, Format format, boolean gzip, ByteBuffer response) {
+        exchange.setStatusCode(200);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, format.contentType);
+        if (gzip) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "gzip");
+        }
+        exchange.getResponseHeaders().put(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, response.remaining());
+        exchange.getResponseSender().send(response, new IoCallback() {
+            @Override
+            public void onComplete(HttpServerExchange exchange, Sender sender) {
+                release(response);
+                IoCallback.END_EXCHANGE.onComplete(exchange, sender);
+            }
+
+            @Override
+            public void onException(HttpServerExchange exchange, Sender sender, IOException exception) {
+                release(response);
+                IoCallback.END_EXCHANGE.onException(exchange, sender, exception);
+            }
+        });
+    }
+
+    /**
+     * Render the given scopes into a pooled buffer, which must be passed to
+     * {@link #release(ByteBuffer)} once written. Callers must not render concurrently.
+     */
+    ByteBuffer render(MetricRegistry.Type[] scopes, Format format, boolean gzip) {
+        try {
+            this.count = 0;
+            for (MetricRegistry.Type scope : scopes) {
+                writeScope(scope, format);
+            }
+            if (format == Format.OPENMETRICS) {
+                write(EOF);
+            }
+            return gzip ? gzip() : copy(this.bytes, this.count);
+        } finally {
+            this.groupMetrics.clear();
+            this.groupEncoded.clear();
+        }
+    }
+
+    private void writeScope(MetricRegistry.Type scope, Format format) {
+        MetricRegistry registry = MetricRegistries.get(scope);
+        Map<MetricID, Metric> metrics = registry.getMetrics();
+        Map<String, Metadata> metadata = registry.getMetadata();
+        Map<MetricID, Encoded> encodings = this.encoded.computeIfAbsent(scope, s -> new HashMap<>());
+        if (encodings.size() > metrics.size()) {
+            // metrics were removed since we last looked
+            encodings.keySet().retainAll(metrics.keySet());
+        }
+
+        // the map is sorted by name, so the series of a family are adjacent
+        String previousName = null;
+        for (Map.Entry<MetricID, Metric> entry : metrics.entrySet()) {
+            MetricID id = entry.getKey();
+            Metadata meta = metadata.get(id.getName());
+            if (meta == null) {
+                continue;
+            }
+            if (!id.getName().equals(previousName)) {
+                writeGroup(format);
+                previousName = id.getName();
+            }
+            Encoded encoded = encodings.get(id);
+            if (encoded == null || !encoded.describes(meta)) {
+                // new, or removed and registered again with other metadata
+                encoded = new Encoded(scope, id, meta);
+                encodings.put(id, encoded);
+            }
+            this.groupMetrics.add(entry.getValue());
+            this.groupEncoded.add(encoded);
+        }
+        writeGroup(format);
+    }
+
+    /**
+     * Write all series sharing a metric name. Compound metrics expand to
+     * several families, each of which must list all of its series in one block.
+     */
+    private void writeGroup(Format format) {
+        if (this.groupMetrics.isEmpty()) {
+            return;
+        }
+        Metric head = this.groupMetrics.get(0);
+        Encoded e = this.groupEncoded.get(0);
+        if (head instanceof Counter) {
+            series(format, TOTAL, EMPTY, COUNTER, COUNTER_COUNT);
+        } else if (head instanceof ConcurrentGauge) {
+            series(format, CURRENT, EMPTY, GAUGE, CONCURRENT_GAUGE_CURRENT);
+            series(format, MIN, EMPTY, GAUGE, CONCURRENT_GAUGE_MIN);
+            series(format, MAX, EMPTY, GAUGE, CONCURRENT_GAUGE_MAX);
+        } else if (head instanceof Gauge) {
+            series(format, EMPTY, e.unit, GAUGE, GAUGE_VALUE);
+        } else if (head instanceof Meter) {
+            series(format, TOTAL, EMPTY, COUNTER, METER_COUNT);
+            writeRates(format);
+        } else if (head instanceof Timer) {
+            writeRates(format);
+            writeSnapshots(SECONDS, NANOS_TO_SECONDS);
+        } else if (head instanceof SimpleTimer) {
+            series(format, TOTAL, EMPTY, COUNTER, SIMPLE_TIMER_COUNT);
+            series(format, ELAPSED_TIME, SECONDS, GAUGE, SIMPLE_TIMER_ELAPSED);
+        } else if (head instanceof Histogram) {
+            writeSnapshots(e.unit, e.scale);
+        }
+        this.groupMetrics.clear();
+        this.groupEncoded.clear();
+    }
+
+    private void writeRates(Format format) {
+        series(format, RATE, EMPTY, GAUGE, MEAN_RATE);
+        series(format, ONE_MIN_RATE, EMPTY, GAUGE, ONE_MINUTE_RATE);
+        series(format, FIVE_MIN_RATE, EMPTY, GAUGE, FIVE_MINUTE_RATE);
+        series(format, FIFTEEN_MIN_RATE, EMPTY, GAUGE, FIFTEEN_MINUTE_RATE);
+    }
+
+    private void series(Format format, byte[] suffix, byte[] unit, byte[] type, ToDoubleBiFunction<Metric, Encoded> value) {
+        // OpenMetrics names a counter family without its _total suffix
+        boolean bareCounter = type == COUNTER && format == Format.OPENMETRICS;
+        family(this.groupEncoded.get(0), bareCounter ? EMPTY : suffix, unit, type);
+        for (int i = 0; i < this.groupMetrics.size(); ++i) {
+            Encoded e = this.groupEncoded.get(i);
+            sample(e, suffix, unit, null);
+            writeDouble(value.applyAsDouble(this.groupMetrics.get(i), e));
+        }
+    }
+
+    private void writeSnapshots(byte[] unit, double scale) {
+        int size = this.groupMetrics.size();
+        if (this.snapshots.length < size) {
+            this.snapshots = new Snapshot[size];
+        }
+        // taking a snapshot copies the reservoir, so take each one only once
+        for (int i = 0; i < size; ++i) {
+            Metric metric = this.groupMetrics.get(i);
+            this.snapshots[i] = metric instanceof Timer ? ((Timer) metric).getSnapshot() : ((Histogram) metric).getSnapshot();
+        }
+
+        statistic(MIN, unit, scale, Snapshot::getMin);
+        statistic(MAX, unit, scale, Snapshot::getMax);
+        statistic(MEAN, unit, scale, Snapshot::getMean);
+        statistic(STDDEV, unit, scale, Snapshot::getStdDev);
+
+        family(this.groupEncoded.get(0), EMPTY, unit, SUMMARY);
+        for (int i = 0; i < size; ++i) {
+            Encoded e = this.groupEncoded.get(i);
+            Snapshot snapshot = this.snapshots[i];
+            sample(e, unit, COUNT, null);
+            writeLong(((Counting) this.groupMetrics.get(i)).getCount());
+            quantile(e, unit, QUANTILE_50, snapshot.getMedian() * scale);
+            quantile(e, unit, QUANTILE_75, snapshot.get75thPercentile() * scale);
+            quantile(e, unit, QUANTILE_95, snapshot.get95thPercentile() * scale);
+            quantile(e, unit, QUANTILE_98, snapshot.get98thPercentile() * scale);
+            quantile(e, unit, QUANTILE_99, snapshot.get99thPercentile() * scale);
+            quantile(e, unit, QUANTILE_999, snapshot.get999thPercentile() * scale);
+        }
+        Arrays.fill(this.snapshots, 0, size, null);
+    }
+
+    private void statistic(byte[] suffix, byte[] unit, double scale, ToDoubleFunction<Snapshot> value) {
+        family(this.groupEncoded.get(0), suffix, unit, GAUGE);
+        for (int i = 0; i < this.groupMetrics.size(); ++i) {
+            sample(this.groupEncoded.get(i), suffix, unit, null);
+            writeDouble(value.applyAsDouble(this.snapshots[i]) * scale);
+        }
+    }
+
+    private void quantile(Encoded e, byte[] unit, byte[] label, double value) {
+        sample(e, unit, EMPTY, label);
+        writeDouble(value);
+    }
+
+    /**
+     * Write the {@code # HELP} and {@code # TYPE} lines of a family.
+     */
+    private void family(Encoded e, byte[] suffix, byte[] unit, byte[] type) {
+        if (e.help != null) {
+            write(HELP);
+            write(e.name);
+            write(suffix);
+            write(unit);
+            write(SPACE);
+            write(e.help);
+            write(NEWLINE);
+        }
+        write(TYPE);
+        write(e.name);
+        write(suffix);
+        write(unit);
+        write(SPACE);
+        write(type);
+        write(NEWLINE);
+    }
+
+    /**
+     * Write a sample's name and labels, up to and including the space before the value.
+     */
+    private void sample(Encoded e, byte[] suffix, byte[] unit, byte[] extraLabel) {
+        write(e.name);
+        write(suffix);
+        write(unit);
+        if (e.labels.length > 0 || extraLabel != null) {
+            write(OPEN_BRACE);
+            write(e.labels);
+            if (extraLabel != null) {
+                if (e.labels.length > 0) {
+                    write(COMMA);
+                }
+                write(extraLabel);
+            }
+            write(CLOSE_BRACE);
+        }
+        write(SPACE);
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            write(NEWLINE);
+            return;
+        }
+        ensureCapacity(21);
+        if (value < 0) {
+            this.bytes[this.count++] = '-';
+            value = -value;
+        }
+        int start = this.count;
+        do {
+            this.bytes[this.count++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = this.count - 1; i < j; ++i, --j) {
+            byte b = this.bytes[i];
+            this.bytes[i] = this.bytes[j];
+            this.bytes[j] = b;
+        }
+        write(NEWLINE);
+    }
+
+    private void writeDouble(double value) {
+        if (Double.isNaN(value)) {
+            write(NAN);
+            write(NEWLINE);
+        } else if (Double.isInfinite(value)) {
+            write(value > 0 ? POSITIVE_INFINITY : NEGATIVE_INFINITY);
+            write(NEWLINE);
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            // integral values are by far the most common and need no formatting
+            writeLong((long) value);
+        } else {
+            String text = Double.toString(value);
+            ensureCapacity(text.length() + 1);
+            for (int i = 0; i < text.length(); ++i) {
+                this.bytes[this.count++] = (byte) text.charAt(i);
+            }
+            write(NEWLINE);
+        }
+    }
+
+    private void write(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, this.bytes, this.count, b.length);
+        this.count += b.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.count + extra > this.bytes.length) {
+            byte[] grown = new byte[Math.max(this.bytes.length * 2, this.count + extra)];
+            System.arraycopy(this.bytes, 0, grown, 0, this.count);
+            this.bytes = grown;
+        }
+    }
+
+    private ByteBuffer gzip() {
+        this.crc.reset();
+        this.crc.update(this.bytes, 0, this.count);
+        this.deflater.reset();
+        this.deflater.setInput(this.bytes, 0, this.count);
+        this.deflater.finish();
+
+        if (this.compressed.length < this.count / 2 + GZIP_OVERHEAD) {
+            this.compressed = new byte[this.count / 2 + GZIP_OVERHEAD];
+        }
+        System.arraycopy(GZIP_HEADER, 0, this.compressed, 0, GZIP_HEADER.length);
+        int length = GZIP_HEADER.length;
+        while (!this.deflater.finished()) {
+            if (length == this.compressed.length - GZIP_TRAILER_LENGTH) {
+                byte[] grown = new byte[this.compressed.length * 2];
+                System.arraycopy(this.compressed, 0, grown, 0, length);
+                this.compressed = grown;
+            }
+            length += this.deflater.deflate(this.compressed, length, this.compressed.length - GZIP_TRAILER_LENGTH - length);
+        }
+        length = writeIntLE(this.compressed, length, (int) this.crc.getValue());
+        length = writeIntLE(this.compressed, length, this.count);
+        return copy(this.compressed, length);
+    }
+
+    private static int writeIntLE(byte[] b, int offset, int value) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >> 8);
+        b[offset + 2] = (byte) (value >> 16);
+        b[offset + 3] = (byte) (value >> 24);
+        return offset + 4;
+    }
+
+    private ByteBuffer copy(byte[] source, int length) {
+        ByteBuffer buffer = this.pool.poll();
+        if (buffer == null || buffer.capacity() < length) {
+            buffer = ByteBuffer.allocateDirect(Math.max(INITIAL_CAPACITY, length + length / 4));
+        }
+        buffer.clear();
+        buffer.put(source, 0, length);
+        buffer.flip();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        if (this.pool.size() < MAX_POOLED_BUFFERS) {
+            this.pool.offer(buffer);
+        }
+    }
+
+    private static boolean acceptsGzip(HeaderValues acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String value : acceptEncoding) {
+            if (value.contains("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The byte encoding of a single metric series.
+     */
+    private static final class Encoded {
+        Encoded(MetricRegistry.Type scope, MetricID id, Metadata metadata) {
+            this.metadata = metadata;
+            this.name = encode(scope.getName() + "_" + sanitize(id.getName()));
+            this.labels = encode(labels(id.getTags()));
+            this.help = metadata.getDescription()
+                    .filter(description -> !description.isEmpty())
+                    .map(description -> escape(description, false).getBytes(StandardCharsets.UTF_8))
+                    .orElse(null);
+
+            String unit = metadata.getUnit().orElse(MetricUnits.NONE);
+            this.scale = scaleToBaseUnit(unit);
+            this.unit = encode(unitSuffix(unit));
+        }
+
+        boolean describes(Metadata metadata) {
+            return this.metadata == metadata || this.metadata.equals(metadata);
+        }
+
+        final Metadata metadata;
+
+        final byte[] name;
+
+        final byte[] labels;
+
+        final byte[] help;
+
+        final byte[] unit;
+
+        final double scale;
+    }
+
+    private static String labels(Map<String, String> tags) {
+        StringBuilder labels = new StringBuilder();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            labels.append(sanitize(tag.getKey())).append("=\"").append(escape(tag.getValue(), true)).append('"');
+        }
+        return labels.toString();
+    }
+
+    static String sanitize(String name) {
+        StringBuilder out = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+            if (valid) {
+                out.append(c);
+            } else if (out.length() == 0 || out.charAt(out.length() - 1) != '_') {
+                out.append('_');
+            }
+        }
+        return out.toString();
+    }
+
+    static String escape(String value, boolean quotes) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '"' && quotes) {
+                out.append("\\\"");
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    static String unitSuffix(String unit) {
+        if (MetricUnits.NONE.equals(unit) || unit.isEmpty()) {
+            return "";
+        }
+        if (scaleToSeconds(unit) != 0) {
+            return "_seconds";
+        }
+        if (scaleToBytes(unit) != 0) {
+            return "_bytes";
+        }
+        return "_" + sanitize(unit);
+    }
+
+    static double scaleToBaseUnit(String unit) {
+        double scale = scaleToSeconds(unit);
+        if (scale == 0) {
+            scale = scaleToBytes(unit);
+        }
+        return scale == 0 ? 1 : scale;
+    }
+
+    private static double scaleToSeconds(String unit) {
+        switch (unit) {
+            case MetricUnits.NANOSECONDS:
+                return 1e-9;
+            case MetricUnits.MICROSECONDS:
+                return 1e-6;
+            case MetricUnits.MILLISECONDS:
+                return 1e-3;
+            case MetricUnits.SECONDS:
+                return 1;
+            case MetricUnits.MINUTES:
+                return 60;
+            case MetricUnits.HOURS:
+                return 3600;
+            case MetricUnits.DAYS:
+                return 86400;
+            default:
+                return 0;
+        }
+    }
+
+    private static double scaleToBytes(String unit) {
+        switch (unit) {
+            case MetricUnits.BITS:
+                return 1.0 / 8;
+            case MetricUnits.KILOBITS:
+                return 1e3 / 8;
+            case MetricUnits.MEGABITS:
+                return 1e6 / 8;
+            case MetricUnits.GIGABITS:
+                return 1e9 / 8;
+            case MetricUnits.KIBIBITS:
+                return 1024.0 / 8;
+            case MetricUnits.MEBIBITS:
+                return 1024.0 * 1024 / 8;
+            case MetricUnits.GIBIBITS:
+                return 1024.0 * 1024 * 1024 / 8;
+            case MetricUnits.BYTES:
+                return 1;
+            case MetricUnits.KILOBYTES:
+                return 1e3;
+            case MetricUnits.MEGABYTES:
+                return 1e6;
+            case MetricUnits.GIGABYTES:
+                return 1e9;
+            default:
+                return 0;
+        }
+    }
+
+    private static byte[] encode(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static final String PATH = "/metrics";
+
+    private static final MetricRegistry.Type[] ALL_SCOPES = {
+            MetricRegistry.Type.BASE, MetricRegistry.Type.VENDOR, MetricRegistry.Type.APPLICATION
+    };
+
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    private static final ToDoubleBiFunction<Metric, Encoded> COUNTER_COUNT = (m, e) -> ((Counter) m).getCount();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> CONCURRENT_GAUGE_CURRENT = (m, e) -> ((ConcurrentGauge) m).getCount();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> CONCURRENT_GAUGE_MIN = (m, e) -> ((ConcurrentGauge) m).getMin();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> CONCURRENT_GAUGE_MAX = (m, e) -> ((ConcurrentGauge) m).getMax();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> GAUGE_VALUE = (m, e) -> {
+        Object value = ((Gauge<?>) m).getValue();
+        return value instanceof Number ? ((Number) value).doubleValue() * e.scale : Double.NaN;
+    };
+
+    private static final ToDoubleBiFunction<Metric, Encoded> METER_COUNT = (m, e) -> ((Meter) m).getCount();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> MEAN_RATE = (m, e) -> ((Metered) m).getMeanRate();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> ONE_MINUTE_RATE = (m, e) -> ((Metered) m).getOneMinuteRate();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> FIVE_MINUTE_RATE = (m, e) -> ((Metered) m).getFiveMinuteRate();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> FIFTEEN_MINUTE_RATE = (m, e) -> ((Metered) m).getFifteenMinuteRate();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> SIMPLE_TIMER_COUNT = (m, e) -> ((SimpleTimer) m).getCount();
+
+    private static final ToDoubleBiFunction<Metric, Encoded> SIMPLE_TIMER_ELAPSED = (m, e) -> ((SimpleTimer) m).getElapsedTime().toNanos() * NANOS_TO_SECONDS;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private static final int GZIP_OVERHEAD = 64;
+
+    private static final byte[] EMPTY = {};
+
+    private static final byte[] SPACE = encode(" ");
+
+    private static final byte[] NEWLINE = encode("\n");
+
+    private static final byte[] COMMA = encode(",");
+
+    private static final byte[] OPEN_BRACE = encode("{");
+
+    private static final byte[] CLOSE_BRACE = encode("}");
+
+    private static final byte[] HELP = encode("# HELP ");
+
+    private static final byte[] TYPE = encode("# TYPE ");
+
+    private static final byte[] EOF = encode("# EOF\n");
+
+    private static final byte[] COUNTER = encode("counter");
+
+    private static final byte[] GAUGE = encode("gauge");
+
+    private static final byte[] SUMMARY = encode("summary");
+
+    private static final byte[] TOTAL = encode("_total");
+
+    private static final byte[] CURRENT = encode("_current");
+
+    private static final byte[] MIN = encode("_min");
+
+    private static final byte[] MAX = encode("_max");
+
+    private static final byte[] MEAN = encode("_mean");
+
+    private static final byte[] STDDEV = encode("_stddev");
+
+    private static final byte[] COUNT = encode("_count");
+
+    private static final byte[] SECONDS = encode("_seconds");
+
+    private static final byte[] ELAPSED_TIME = encode("_elapsedTime");
+
+    private static final byte[] RATE = encode("_rate_per_second");
+
+    private static final byte[] ONE_MIN_RATE = encode("_one_min_rate_per_second");
+
+    private static final byte[] FIVE_MIN_RATE = encode("_five_min_rate_per_second");
+
+    private static final byte[] FIFTEEN_MIN_RATE = encode("_fifteen_min_rate_per_second");
+
+    private static final byte[] QUANTILE_50 = encode("quantile=\"0.5\"");
+
+    private static final byte[] QUANTILE_75 = encode("quantile=\"0.75\"");
+
+    private static final byte[] QUANTILE_95 = encode("quantile=\"0.95\"");
+
+    private static final byte[] QUANTILE_98 = encode("quantile=\"0.98\"");
+
+    private static final byte[] QUANTILE_99 = encode("quantile=\"0.99\"");
+
+    private static final byte[] QUANTILE_999 = encode("quantile=\"0.999\"");
+
+    private static final byte[] NAN = encode("NaN");
+
+    private static final byte[] POSITIVE_INFINITY = encode("+Inf");
+
+    private static final byte[] NEGATIVE_INFINITY = encode("-Inf");
+
+    private final Map<MetricRegistry.Type, Map<MetricID, Encoded>> encoded = new EnumMap<>(MetricRegistry.Type.class);
+
+    // guarded by this
+    private final List<Metric> groupMetrics = new ArrayList<>();
+
+    private final List<Encoded> groupEncoded = new ArrayList<>();
+
+    private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+    private byte[] compressed = new byte[INITIAL_CAPACITY];
+
+    private Snapshot[] snapshots = new Snapshot[16];
+
+    private int count;
+}
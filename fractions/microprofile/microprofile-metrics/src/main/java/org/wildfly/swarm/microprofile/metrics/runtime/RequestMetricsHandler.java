@@ -0,0 +1,115 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.smallrye.metrics.MetricRegistries;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+/**
+ * Records request count, in-flight requests, bytes and latency per route
+ * template, and exposes them in the vendor scope.
+ *
+ * <p>The {@code routes} and {@code maxRoutes} fields are set from the custom
+ * filter parameters. The configured templates are always recorded, the cap
+ * only applies to the routes made up from the first segment of unmatched
+ * paths, beyond which they are all recorded as {@code other}.</p>
+ *
+ * @see RequestMetricsInstaller
+ */
+public class RequestMetricsHandler implements HttpHandler {
+
+    static final String OTHER_ROUTE = "other";
+
+    public RequestMetricsHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    public void setRoutes(String routes) {
+        this.routes = routes;
+    }
+
+    public void setMaxRoutes(String maxRoutes) {
+        this.maxRoutes = maxRoutes;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        RouteMetrics metrics = routeMetrics(exchange.getRequestPath());
+        long start = System.nanoTime();
+        metrics.begin();
+        exchange.addExchangeCompleteListener((completed, nextListener) -> {
+            try {
+                metrics.end(System.nanoTime() - start, completed.getRequestContentLength(), completed.getResponseBytesSent());
+            } finally {
+                nextListener.proceed();
+            }
+        });
+        next.handleRequest(exchange);
+    }
+
+    RouteMetrics routeMetrics(String path) {
+        RouteTemplates templates = this.templates;
+        if (templates == null) {
+            templates = new RouteTemplates(this.routes);
+            this.templates = templates;
+        }
+        String route = templates.match(path);
+        RouteMetrics metrics = this.metrics.get(route);
+        if (metrics == null) {
+            boolean fallback = !templates.isTemplate(route);
+            if (fallback && this.fallbackRoutes.get() >= maxRoutes()) {
+                route = OTHER_ROUTE;
+                fallback = false;
+            }
+            boolean counted = fallback;
+            metrics = this.metrics.computeIfAbsent(route, r -> {
+                if (counted) {
+                    this.fallbackRoutes.incrementAndGet();
+                }
+                return new RouteMetrics(MetricRegistries.get(MetricRegistry.Type.VENDOR), r);
+            });
+        }
+        return metrics;
+    }
+
+    private int maxRoutes() {
+        try {
+            return this.maxRoutes == null ? DEFAULT_MAX_ROUTES : Integer.parseInt(this.maxRoutes.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_MAX_ROUTES;
+        }
+    }
+
+    private static final int DEFAULT_MAX_ROUTES = 100;
+
+    private final HttpHandler next;
+
+    private final Map<String, RouteMetrics> metrics = new ConcurrentHashMap<>();
+
+    private final AtomicInteger fallbackRoutes = new AtomicInteger();
+
+    private String routes;
+
+    private String maxRoutes;
+
+    private volatile RouteTemplates templates;
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.wildfly.swarm.microprofile.metrics.MicroprofileMetricsFraction;
+import org.wildfly.swarm.spi.api.Customizer;
+import org.wildfly.swarm.spi.runtime.annotations.Post;
+import org.wildfly.swarm.undertow.UndertowFraction;
+
+/**
+ * Install the http handler recording per-route request metrics, if enabled.
+ */
+@Post
+@ApplicationScoped
+public class RequestMetricsInstaller implements Customizer {
+
+    @Inject
+    Instance<UndertowFraction> undertowFractionInstance;
+
+    @Inject
+    MicroprofileMetricsFraction fraction;
+
+    @Override
+    public void customize() {
+        if (!fraction.httpMetrics()) {
+            return;
+        }
+        if (!undertowFractionInstance.isUnsatisfied()) {
+            UndertowFraction undertow = undertowFractionInstance.get();
+
+            if (undertow.subresources().filterConfiguration() == null) {
+                undertow.filterConfiguration();
+            }
+
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("routes", fraction.httpRoutes());
+            parameters.put("maxRoutes", Integer.toString(fraction.httpMaxRoutes()));
+
+            undertow.subresources().filterConfiguration()
+                    .customFilter("wfs-mp-request-metrics", customFilter -> {
+                        customFilter.module("org.wildfly.swarm.microprofile.metrics:runtime");
+                        customFilter.className("org.wildfly.swarm.microprofile.metrics.runtime.RequestMetricsHandler");
+                        customFilter.parameters(parameters);
+                    });
+
+            // outermost, so that the time spent in the other filters is included
+            undertow.subresources().server("default-server")
+                    .subresources().host("default-host")
+                    .filterRef("wfs-mp-request-metrics", f -> {
+                        f.priority(102);
+                    });
+        } else {
+            throw new RuntimeException("The request metrics require the undertow fraction!");
+        }
+    }
+}
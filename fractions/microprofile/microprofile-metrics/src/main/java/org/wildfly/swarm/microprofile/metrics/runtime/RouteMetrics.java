@@ -0,0 +1,163 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Metric;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.jboss.logging.Logger;
+
+/**
+ * The request metrics of a single route, registered in the given registry
+ * under a {@code route} tag.
+ */
+final class RouteMetrics {
+
+    static final String REQUESTS = "http.server.requests";
+
+    static final String ACTIVE_REQUESTS = "http.server.requests.active";
+
+    static final String BYTES_RECEIVED = "http.server.bytes.received";
+
+    static final String BYTES_SENT = "http.server.bytes.sent";
+
+    static final String DURATION = "http.server.request.duration";
+
+    RouteMetrics(MetricRegistry registry, String route) {
+        Tag tag = new Tag("route", route);
+        this.requests = register(registry, metadata(REQUESTS, MetricType.COUNTER, MetricUnits.NONE, "Number of completed requests"),
+                                 new AdderCounter(), tag);
+        this.active = register(registry, metadata(ACTIVE_REQUESTS, MetricType.GAUGE, MetricUnits.NONE, "Number of requests in progress"),
+                               new AdderGauge(), tag);
+        this.bytesReceived = register(registry, metadata(BYTES_RECEIVED, MetricType.COUNTER, MetricUnits.BYTES, "Request body bytes, as declared by Content-Length"),
+                                      new AdderCounter(), tag);
+        this.bytesSent = register(registry, metadata(BYTES_SENT, MetricType.COUNTER, MetricUnits.BYTES, "Response bytes sent"),
+                                  new AdderCounter(), tag);
+        this.duration = register(registry, metadata(DURATION, MetricType.HISTOGRAM, MetricUnits.NANOSECONDS, "Time from receiving a request until the exchange completes"),
+                                 new LatencyHistogram(), tag);
+    }
+
+    /**
+     * Register a metric, or reuse the one a previous handler, e.g. of an
+     * earlier deployment or another host, registered for the same route.
+     *
+     * @return the metric to record into
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Metric> T register(MetricRegistry registry, Metadata metadata, T metric, Tag tag) {
+        MetricID id = new MetricID(metadata.getName(), tag);
+        for (int attempt = 0; ; ++attempt) {
+            Metric existing = registry.getMetrics().get(id);
+            if (existing != null) {
+                if (existing.getClass() == metric.getClass()) {
+                    return (T) existing;
+                }
+                LOG.warnf("Metric %s is already registered by someone else, request metrics of this route are not exposed", id);
+                return metric;
+            }
+            try {
+                return registry.register(metadata, metric, tag);
+            } catch (IllegalArgumentException e) {
+                // registered concurrently, pick it up on the next attempt
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    void begin() {
+        this.active.increment();
+    }
+
+    void end(long durationNanos, long bytesReceived, long bytesSent) {
+        this.active.decrement();
+        this.requests.inc();
+        if (bytesReceived > 0) {
+            this.bytesReceived.inc(bytesReceived);
+        }
+        if (bytesSent > 0) {
+            this.bytesSent.inc(bytesSent);
+        }
+        this.duration.update(durationNanos);
+    }
+
+    private static Metadata metadata(String name, MetricType type, String unit, String description) {
+        return Metadata.builder()
+                .withName(name)
+                .withType(type)
+                .withUnit(unit)
+                .withDescription(description)
+                .build();
+    }
+
+    private static final class AdderCounter implements Counter {
+        @Override
+        public void inc() {
+            this.adder.increment();
+        }
+
+        @Override
+        public void inc(long n) {
+            this.adder.add(n);
+        }
+
+        @Override
+        public long getCount() {
+            return this.adder.sum();
+        }
+
+        private final LongAdder adder = new LongAdder();
+    }
+
+    private static final class AdderGauge implements Gauge<Long> {
+        void increment() {
+            this.adder.increment();
+        }
+
+        void decrement() {
+            this.adder.decrement();
+        }
+
+        @Override
+        public Long getValue() {
+            return this.adder.sum();
+        }
+
+        private final LongAdder adder = new LongAdder();
+    }
+
+    private static final Logger LOG = Logger.getLogger("org.wildfly.swarm.microprofile.metrics");
+
+    private final Counter requests;
+
+    private final AdderGauge active;
+
+    private final Counter bytesReceived;
+
+    private final Counter bytesSent;
+
+    private final Histogram duration;
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps request paths to route templates such as {@code /orders/{id}}.
+ *
+ * <p>A template segment in braces, or {@code *}, matches any single path
+ * segment, and a trailing {@code **} matches the rest of the path. Templates
+ * are tried in the order they were given. Paths matching none of them are
+ * grouped by their first segment, e.g. {@code /orders/*}.</p>
+ */
+final class RouteTemplates {
+
+    RouteTemplates(String templates) {
+        List<String> names = new ArrayList<>();
+        List<String[]> segments = new ArrayList<>();
+        if (templates != null) {
+            for (String template : templates.split(",")) {
+                template = template.trim();
+                if (template.isEmpty()) {
+                    continue;
+                }
+                if (!template.startsWith("/")) {
+                    template = "/" + template;
+                }
+                names.add(template);
+                segments.add(template.length() == 1 ? new String[0] : template.substring(1).split("/"));
+            }
+        }
+        this.names = names.toArray(new String[0]);
+        this.segments = segments.toArray(new String[0][]);
+    }
+
+    String match(String path) {
+        for (int i = 0; i < this.segments.length; ++i) {
+            if (matches(this.segments[i], path)) {
+                return this.names[i];
+            }
+        }
+        return firstSegment(path);
+    }
+
+    /**
+     * @return whether the route is one of the templates, rather than the first segment of an unmatched path
+     */
+    boolean isTemplate(String route) {
+        for (String name : this.names) {
+            if (name.equals(route)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String[] segments, String path) {
+        int length = path.length();
+        if (length > 1 && path.charAt(length - 1) == '/') {
+            --length;
+        }
+        int pos = 0;
+        for (String segment : segments) {
+            if (segment.equals("**")) {
+                return true;
+            }
+            if (pos >= length || path.charAt(pos) != '/') {
+                return false;
+            }
+            int start = pos + 1;
+            int end = path.indexOf('/', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            if (isVariable(segment)) {
+                if (end == start) {
+                    return false;
+                }
+            } else if (end - start != segment.length() || !path.regionMatches(start, segment, 0, segment.length())) {
+                return false;
+            }
+            pos = end;
+        }
+        return pos >= length;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"));
+    }
+
+    static String firstSegment(String path) {
+        if (path.length() <= 1) {
+            return "/";
+        }
+        int end = path.indexOf('/', 1);
+        if (end < 0 || end == path.length() - 1) {
+            return end < 0 ? path : path.substring(0, end);
+        }
+        return path.substring(0, end) + "/*";
+    }
+
+    private final String[] names;
+
+    private final String[][] segments;
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testSmallValuesHaveTheirOwnBucket() {
+        for (int value = 0; value < 32; ++value) {
+            assertThat(LatencyHistogram.index(value)).isEqualTo(value);
+            assertThat(LatencyHistogram.lowerBound(value)).isEqualTo(value);
+            assertThat(LatencyHistogram.upperBound(value)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoBoundaries() {
+        assertThat(LatencyHistogram.index(31)).isEqualTo(31);
+        assertThat(LatencyHistogram.index(32)).isEqualTo(32);
+        assertThat(LatencyHistogram.index(63)).isEqualTo(63);
+        assertThat(LatencyHistogram.index(64)).isEqualTo(64);
+        assertThat(LatencyHistogram.index(65)).isEqualTo(64);
+        assertThat(LatencyHistogram.index(66)).isEqualTo(65);
+        assertThat(LatencyHistogram.index(127)).isEqualTo(95);
+        assertThat(LatencyHistogram.index(128)).isEqualTo(96);
+        assertThat(LatencyHistogram.lowerBound(64)).isEqualTo(64);
+        assertThat(LatencyHistogram.upperBound(64)).isEqualTo(65);
+        assertThat(LatencyHistogram.lowerBound(96)).isEqualTo(128);
+        assertThat(LatencyHistogram.upperBound(95)).isEqualTo(127);
+    }
+
+    @Test
+    public void testLastBucketEndsAtMaximum() {
+        long max = (1L << 40) - 1;
+        assertThat(LatencyHistogram.index(max)).isEqualTo(LatencyHistogram.BUCKET_COUNT - 1);
+        assertThat(LatencyHistogram.upperBound(LatencyHistogram.BUCKET_COUNT - 1)).isEqualTo(max);
+    }
+
+    @Test
+    public void testEveryValueFallsWithinItsBucket() {
+        for (long value = 0; value < (1L << 40); value = value * 3 / 2 + 1) {
+            for (long v = Math.max(0, value - 2); v <= value + 2; ++v) {
+                int index = LatencyHistogram.index(v);
+                assertThat(LatencyHistogram.lowerBound(index) <= v && v <= LatencyHistogram.upperBound(index)).as(Long.toString(v)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testBucketsAreContiguousAndNarrow() {
+        for (int index = 1; index < LatencyHistogram.BUCKET_COUNT; ++index) {
+            long lower = LatencyHistogram.lowerBound(index);
+            assertThat(lower).isEqualTo(LatencyHistogram.upperBound(index - 1) + 1);
+            assertThat(LatencyHistogram.index(lower)).isEqualTo(index);
+            // 32 linear buckets per power of two
+            assertThat(LatencyHistogram.upperBound(index) - lower + 1 <= Math.max(1, lower / 32)).isTrue();
+        }
+    }
+
+    @Test
+    public void testQuantilesAreWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10000; ++value) {
+            histogram.update(value * 1000L);
+        }
+
+        Snapshot snapshot = histogram.getSnapshot();
+
+        assertThat(histogram.getCount()).isEqualTo(10000);
+        assertThat(snapshot.size()).isEqualTo(10000);
+        assertThat(snapshot.getMin()).isEqualTo(1000);
+        assertThat(snapshot.getMax()).isEqualTo(10000000);
+        assertWithin(snapshot.getMedian(), 5000000);
+        assertWithin(snapshot.get75thPercentile(), 7500000);
+        assertWithin(snapshot.get99thPercentile(), 9900000);
+        assertWithin(snapshot.get999thPercentile(), 9990000);
+        assertWithin(snapshot.getMean(), 5000500);
+        assertWithin(snapshot.getStdDev(), 2886896);
+        assertThat(snapshot.getValue(0)).isEqualTo(1000.0);
+        assertThat(snapshot.getValue(1)).isEqualTo(10000000.0);
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        Snapshot snapshot = new LatencyHistogram().getSnapshot();
+
+        assertThat(snapshot.size()).isEqualTo(0);
+        assertThat(snapshot.getMin()).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(0);
+        assertThat(snapshot.getMedian()).isEqualTo(0.0);
+        assertThat(snapshot.getValues().length).isEqualTo(0);
+    }
+
+    @Test
+    public void testOutOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.update(-5);
+        histogram.update(1L << 50);
+
+        Snapshot snapshot = histogram.getSnapshot();
+
+        assertThat(snapshot.getMin()).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(1L << 50);
+        assertThat(snapshot.getValues().length).isEqualTo(2);
+        assertThat(snapshot.getValues()[0]).isEqualTo(0);
+    }
+
+    private static void assertWithin(double actual, double expected) {
+        assertThat(Math.abs(actual - expected) <= expected * 0.03).as(actual + " ~ " + expected).isTrue();
+    }
+}
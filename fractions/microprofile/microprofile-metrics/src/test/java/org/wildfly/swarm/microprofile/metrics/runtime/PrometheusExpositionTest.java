@@ -0,0 +1,379 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import io.smallrye.metrics.MetricRegistries;
+import io.smallrye.metrics.exporters.PrometheusExporter;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricFilter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.fest.assertions.Delta;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Compares the pre-encoded exposition with the output of SmallRye's own
+ * Prometheus exporter, sample by sample.
+ */
+public class PrometheusExpositionTest {
+
+    private static final MetricRegistry.Type[] APPLICATION = {MetricRegistry.Type.APPLICATION};
+
+    @BeforeClass
+    public static void setGlobalTags() {
+        System.setProperty("mp.metrics.tags", "app=shop,tier=web");
+    }
+
+    @AfterClass
+    public static void clearGlobalTags() {
+        System.clearProperty("mp.metrics.tags");
+    }
+
+    @Before
+    public void setUp() {
+        this.registry = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+        this.registry.removeMatching(MetricFilter.ALL);
+    }
+
+    @After
+    public void tearDown() {
+        this.registry.removeMatching(MetricFilter.ALL);
+    }
+
+    @Test
+    public void testCounterMatchesSmallRye() {
+        this.registry.counter(metadata("requests", MetricType.COUNTER, MetricUnits.NONE, "Requests served"), new Tag("method", "GET")).inc(3);
+        this.registry.counter(metadata("requests", MetricType.COUNTER, MetricUnits.NONE, "Requests served"), new Tag("method", "POST")).inc();
+
+        assertMatchesSmallRye();
+    }
+
+    @Test
+    public void testConcurrentGaugeMatchesSmallRye() {
+        ConcurrentGauge gauge = this.registry.concurrentGauge("inflight");
+        gauge.inc();
+        gauge.inc();
+        gauge.dec();
+
+        assertMatchesSmallRye();
+    }
+
+    @Test
+    public void testGaugeIsScaledToBaseUnit() {
+        this.registry.register(metadata("latency", MetricType.GAUGE, MetricUnits.MILLISECONDS, "Last latency"), (Gauge<Long>) () -> 1500L);
+        this.registry.register(metadata("heap", MetricType.GAUGE, MetricUnits.KILOBYTES, null), (Gauge<Integer>) () -> 2);
+        this.registry.register(metadata("ratio", MetricType.GAUGE, MetricUnits.PERCENT, null), (Gauge<Double>) () -> 0.25);
+
+        assertMatchesSmallRye();
+        Exposition ours = parse(render(PrometheusExposition.Format.TEXT, false));
+        assertThat(ours.samples.get("application_latency_seconds{app=\"shop\",tier=\"web\"}")).isEqualTo(1.5);
+        assertThat(ours.samples.get("application_heap_bytes{app=\"shop\",tier=\"web\"}")).isEqualTo(2000.0);
+    }
+
+    @Test
+    public void testMeterMatchesSmallRye() {
+        this.registry.meter("hits", new Tag("region", "eu")).mark(7);
+
+        assertMatchesSmallRye();
+    }
+
+    @Test
+    public void testTimerMatchesSmallRye() {
+        Timer timer = this.registry.timer(metadata("calls", MetricType.TIMER, MetricUnits.NANOSECONDS, "Call duration"));
+        timer.update(10, TimeUnit.MILLISECONDS);
+        timer.update(30, TimeUnit.MILLISECONDS);
+        timer.update(2, TimeUnit.SECONDS);
+
+        assertMatchesSmallRye();
+    }
+
+    @Test
+    public void testSimpleTimerMatchesSmallRye() {
+        this.registry.simpleTimer("jobs").update(Duration.ofMillis(250));
+
+        assertMatchesSmallRye();
+    }
+
+    @Test
+    public void testHistogramMatchesSmallRye() {
+        Histogram sizes = this.registry.histogram(metadata("payload", MetricType.HISTOGRAM, MetricUnits.KILOBYTES, "Payload size"));
+        Histogram items = this.registry.histogram("items");
+        for (int i = 1; i <= 100; ++i) {
+            sizes.update(i);
+            items.update(i * 3);
+        }
+
+        assertMatchesSmallRye();
+    }
+
+    @Test
+    public void testTagValuesAreEscaped() {
+        this.registry.counter("tagged", new Tag("path", "/a\\b"), new Tag("query", "say \"hi\"")).inc();
+
+        String text = render(PrometheusExposition.Format.TEXT, false);
+
+        assertThat(text).contains("application_tagged_total{app=\"shop\",path=\"/a\\\\b\",query=\"say \\\"hi\\\"\",tier=\"web\"} 1\n");
+    }
+
+    @Test
+    public void testGlobalTagsAreRendered() {
+        this.registry.counter("tagged", new Tag("method", "GET")).inc();
+
+        String text = render(PrometheusExposition.Format.TEXT, false);
+
+        assertThat(text).contains("application_tagged_total{app=\"shop\",method=\"GET\",tier=\"web\"} 1\n");
+    }
+
+    @Test
+    public void testOpenMetricsNamesCounterFamilyWithoutTotal() {
+        this.registry.counter(metadata("requests", MetricType.COUNTER, MetricUnits.NONE, "Requests served")).inc(2);
+
+        String text = render(PrometheusExposition.Format.OPENMETRICS, false);
+
+        assertThat(text).contains("# HELP application_requests Requests served\n");
+        assertThat(text).contains("# TYPE application_requests counter\n");
+        assertThat(text).contains("application_requests_total{app=\"shop\",tier=\"web\"} 2\n");
+        assertThat(text).endsWith("# EOF\n");
+    }
+
+    @Test
+    public void testGzipInflatesToPlainRendering() throws IOException {
+        for (int i = 0; i < 500; ++i) {
+            this.registry.counter("counter" + i).inc(i);
+        }
+
+        String plain = render(PrometheusExposition.Format.TEXT, false);
+        String inflated = gunzip(renderBytes(PrometheusExposition.Format.TEXT, true));
+
+        assertThat(inflated).isEqualTo(plain);
+    }
+
+    @Test
+    public void testChangedMetadataIsEncodedAgain() {
+        this.registry.counter(metadata("requests", MetricType.COUNTER, MetricUnits.NONE, "Before")).inc();
+        assertThat(render(PrometheusExposition.Format.TEXT, false)).contains("# HELP application_requests_total Before\n");
+
+        this.registry.remove("requests");
+        this.registry.counter(metadata("requests", MetricType.COUNTER, MetricUnits.NONE, "After")).inc();
+
+        String text = render(PrometheusExposition.Format.TEXT, false);
+        assertThat(text).contains("# HELP application_requests_total After\n");
+        assertThat(text).excludes("Before");
+    }
+
+    @Test
+    public void testRemovedMetricIsNotRendered() {
+        this.registry.counter("first").inc();
+        this.registry.counter("second").inc();
+        render(PrometheusExposition.Format.TEXT, false);
+
+        this.registry.remove("first");
+
+        String text = render(PrometheusExposition.Format.TEXT, false);
+        assertThat(text).excludes("application_first");
+        assertThat(text).contains("application_second_total");
+    }
+
+    @Test
+    public void testNegotiateHonoursQualityValues() {
+        assertThat(negotiate()).isEqualTo(PrometheusExposition.Format.TEXT);
+        assertThat(negotiate("application/openmetrics-text; version=1.0.0")).isEqualTo(PrometheusExposition.Format.OPENMETRICS);
+        assertThat(negotiate("text/plain;q=0.5,application/openmetrics-text;q=0.9")).isEqualTo(PrometheusExposition.Format.OPENMETRICS);
+        assertThat(negotiate("application/openmetrics-text;q=0.3", "text/plain;version=0.0.4;q=0.8")).isEqualTo(PrometheusExposition.Format.TEXT);
+        assertThat(negotiate("image/png, application/json")).isNull();
+        assertThat(negotiate("application/json;q=0.1, */*;q=0.5")).isEqualTo(PrometheusExposition.Format.TEXT);
+        assertThat(negotiate("application/openmetrics-text;q=0, text/plain;q=0")).isEqualTo(PrometheusExposition.Format.TEXT);
+        // what Prometheus 2.x sends
+        assertThat(negotiate("application/openmetrics-text; version=0.0.1,text/plain;version=0.0.4;q=0.5,*/*;q=0.1"))
+                .isEqualTo(PrometheusExposition.Format.OPENMETRICS);
+    }
+
+    @Test
+    public void testNegotiateLeavesOtherMethodsToSmallRye() {
+        HeaderMap headers = new HeaderMap();
+        assertThat(PrometheusExposition.negotiate("OPTIONS", headers.get(Headers.ACCEPT))).isNull();
+    }
+
+    private void assertMatchesSmallRye() {
+        Exposition ours = parse(render(PrometheusExposition.Format.TEXT, false));
+        Exposition theirs = parse(new PrometheusExporter().exportOneScope(MetricRegistry.Type.APPLICATION).toString());
+
+        assertThat(ours.types).isEqualTo(theirs.types);
+        assertThat(ours.samples.keySet()).isEqualTo(theirs.samples.keySet());
+        for (Map.Entry<String, Double> sample : theirs.samples.entrySet()) {
+            if (sample.getKey().contains("rate_per_second")) {
+                // rates move with the clock between the two renderings
+                continue;
+            }
+            assertThat(ours.samples.get(sample.getKey())).as(sample.getKey()).isEqualTo(sample.getValue(), offset(sample.getValue()));
+        }
+        for (Map.Entry<String, String> help : theirs.help.entrySet()) {
+            assertThat(ours.help.get(help.getKey())).as(help.getKey()).isEqualTo(help.getValue());
+        }
+    }
+
+    private static Delta offset(double expected) {
+        return Delta.delta(Math.max(1e-9, Math.abs(expected) * 1e-9));
+    }
+
+    private static PrometheusExposition.Format negotiate(String... accept) {
+        HeaderMap headers = new HeaderMap();
+        headers.addAll(Headers.ACCEPT, Arrays.asList(accept));
+        return PrometheusExposition.negotiate("GET", headers.get(Headers.ACCEPT));
+    }
+
+    private String render(PrometheusExposition.Format format, boolean gzip) {
+        return new String(renderBytes(format, gzip), StandardCharsets.UTF_8);
+    }
+
+    private byte[] renderBytes(PrometheusExposition.Format format, boolean gzip) {
+        ByteBuffer buffer = this.exposition.render(APPLICATION, format, gzip);
+        try {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } finally {
+            this.exposition.release(buffer);
+        }
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Metadata metadata(String name, MetricType type, String unit, String description) {
+        return Metadata.builder()
+                .withName(name)
+                .withType(type)
+                .withUnit(unit)
+                .withDescription(description == null ? "" : description)
+                .build();
+    }
+
+    /**
+     * Families, help texts and samples of a text exposition, with the labels
+     * of each sample sorted so that both renderings compare equal.
+     */
+    private static Exposition parse(String text) {
+        Exposition exposition = new Exposition();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("# TYPE ")) {
+                String[] parts = line.substring(7).split(" ", 2);
+                exposition.types.put(parts[0], parts[1]);
+            } else if (line.startsWith("# HELP ")) {
+                String[] parts = line.substring(7).split(" ", 2);
+                exposition.help.put(parts[0], parts.length > 1 ? parts[1] : "");
+            } else if (!line.startsWith("#")) {
+                int valueStart = line.lastIndexOf(' ');
+                exposition.samples.put(sampleKey(line.substring(0, valueStart)), value(line.substring(valueStart + 1)));
+            }
+        }
+        return exposition;
+    }
+
+    private static String sampleKey(String series) {
+        int brace = series.indexOf('{');
+        if (brace < 0) {
+            return series;
+        }
+        List<String> labels = new ArrayList<>();
+        StringBuilder label = new StringBuilder();
+        boolean quoted = false;
+        for (int i = brace + 1; i < series.length() - 1; ++i) {
+            char c = series.charAt(i);
+            if (c == '\\' && quoted) {
+                label.append(c).append(series.charAt(++i));
+                continue;
+            }
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == ',' && !quoted) {
+                labels.add(label.toString());
+                label.setLength(0);
+            } else {
+                label.append(c);
+            }
+        }
+        labels.add(label.toString());
+        Collections.sort(labels);
+        return series.substring(0, brace) + "{" + String.join(",", labels) + "}";
+    }
+
+    private static double value(String text) {
+        switch (text) {
+            case "+Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return Double.parseDouble(text);
+        }
+    }
+
+    private static final class Exposition {
+        final Map<String, String> types = new TreeMap<>();
+
+        final Map<String, String> help = new TreeMap<>();
+
+        final Map<String, Double> samples = new TreeMap<>();
+    }
+
+    private final PrometheusExposition exposition = new PrometheusExposition();
+
+    private MetricRegistry registry;
+}
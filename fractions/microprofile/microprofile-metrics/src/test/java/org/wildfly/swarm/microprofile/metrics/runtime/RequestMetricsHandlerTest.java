@@ -0,0 +1,68 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.MetricFilter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RequestMetricsHandlerTest {
+
+    @After
+    public void tearDown() {
+        MetricRegistries.get(MetricRegistry.Type.VENDOR).removeMatching(MetricFilter.ALL);
+    }
+
+    @Test
+    public void testUnmatchedRoutesAreCapped() {
+        RequestMetricsHandler handler = handler(null, "2");
+
+        RouteMetrics first = handler.routeMetrics("/a/1");
+        RouteMetrics second = handler.routeMetrics("/b/1");
+        RouteMetrics other = handler.routeMetrics("/c/1");
+
+        assertThat(handler.routeMetrics("/a/2")).isSameAs(first);
+        assertThat(handler.routeMetrics("/b/2")).isSameAs(second);
+        assertThat(other).isNotSameAs(first).isNotSameAs(second);
+        assertThat(handler.routeMetrics("/d/1")).isSameAs(other);
+    }
+
+    @Test
+    public void testTemplatesAreRecordedPastTheCap() {
+        RequestMetricsHandler handler = handler("/orders/{id}", "2");
+
+        // a scanner probing junk first segments
+        RouteMetrics other = null;
+        for (int i = 0; i < 10; ++i) {
+            other = handler.routeMetrics("/junk" + i + "/x");
+        }
+
+        RouteMetrics orders = handler.routeMetrics("/orders/42");
+        assertThat(orders).isNotSameAs(other);
+        assertThat(handler.routeMetrics("/orders/43")).isSameAs(orders);
+    }
+
+    private static RequestMetricsHandler handler(String routes, String maxRoutes) {
+        RequestMetricsHandler handler = new RequestMetricsHandler(null);
+        handler.setRoutes(routes);
+        handler.setMaxRoutes(maxRoutes);
+        return handler;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricFilter;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RouteMetricsTest {
+
+    private final MetricRegistry registry = MetricRegistries.get(MetricRegistry.Type.VENDOR);
+
+    @After
+    public void tearDown() {
+        this.registry.removeMatching(MetricFilter.ALL);
+    }
+
+    @Test
+    public void testSameRouteReusesRegisteredMetrics() {
+        RouteMetrics first = new RouteMetrics(this.registry, "/orders/{id}");
+        RouteMetrics second = new RouteMetrics(this.registry, "/orders/{id}");
+
+        first.begin();
+        first.end(1000, 10, 20);
+        second.begin();
+        second.end(2000, 0, 5);
+
+        assertThat(counter(RouteMetrics.REQUESTS).getCount()).isEqualTo(2);
+        assertThat(counter(RouteMetrics.BYTES_RECEIVED).getCount()).isEqualTo(10);
+        assertThat(counter(RouteMetrics.BYTES_SENT).getCount()).isEqualTo(25);
+        assertThat(this.registry.getHistograms().get(id(RouteMetrics.DURATION)).getCount()).isEqualTo(2);
+        assertThat(this.registry.getGauges().get(id(RouteMetrics.ACTIVE_REQUESTS)).getValue()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testForeignMetricIsLeftInPlace() {
+        Counter foreign = this.registry.counter(RouteMetrics.REQUESTS, new Tag("route", "/"));
+
+        new RouteMetrics(this.registry, "/").end(1000, 0, 0);
+
+        assertThat(counter(RouteMetrics.REQUESTS, "/")).isSameAs(foreign);
+        assertThat(foreign.getCount()).isEqualTo(0);
+    }
+
+    private Counter counter(String name) {
+        return counter(name, "/orders/{id}");
+    }
+
+    private Counter counter(String name, String route) {
+        return this.registry.getCounters().get(new MetricID(name, new Tag("route", route)));
+    }
+
+    private static MetricID id(String name) {
+        return new MetricID(name, new Tag("route", "/orders/{id}"));
+    }
+}
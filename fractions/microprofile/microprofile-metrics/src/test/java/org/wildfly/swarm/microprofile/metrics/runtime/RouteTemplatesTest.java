@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RouteTemplatesTest {
+
+    @Test
+    public void testVariableSegments() {
+        RouteTemplates templates = new RouteTemplates("/orders/{id}, /orders/{id}/items/*");
+
+        assertThat(templates.match("/orders/42")).isEqualTo("/orders/{id}");
+        assertThat(templates.match("/orders/42/")).isEqualTo("/orders/{id}");
+        assertThat(templates.match("/orders/42/items/7")).isEqualTo("/orders/{id}/items/*");
+        assertThat(templates.match("/orders/42/items")).isEqualTo("/orders/*");
+        assertThat(templates.match("/orders//items/7")).isEqualTo("/orders/*");
+    }
+
+    @Test
+    public void testTrailingDoubleWildcard() {
+        RouteTemplates templates = new RouteTemplates("/static/**");
+
+        assertThat(templates.match("/static/css/site.css")).isEqualTo("/static/**");
+        assertThat(templates.match("/static/")).isEqualTo("/static/**");
+        assertThat(templates.match("/statics/a")).isEqualTo("/statics/*");
+    }
+
+    @Test
+    public void testFirstMatchingTemplateWins() {
+        RouteTemplates templates = new RouteTemplates("/orders/new,/orders/{id}");
+
+        assertThat(templates.match("/orders/new")).isEqualTo("/orders/new");
+        assertThat(templates.match("/orders/7")).isEqualTo("/orders/{id}");
+    }
+
+    @Test
+    public void testIsTemplate() {
+        RouteTemplates templates = new RouteTemplates("/orders/{id}");
+
+        assertThat(templates.isTemplate(templates.match("/orders/7"))).isTrue();
+        assertThat(templates.isTemplate(templates.match("/customers/7"))).isFalse();
+    }
+
+    @Test
+    public void testTemplatesAreNormalized() {
+        RouteTemplates templates = new RouteTemplates(" orders/{id} ,, ");
+
+        assertThat(templates.match("/orders/7")).isEqualTo("/orders/{id}");
+    }
+
+    @Test
+    public void testRootTemplate() {
+        RouteTemplates templates = new RouteTemplates("/");
+
+        assertThat(templates.match("/")).isEqualTo("/");
+        assertThat(templates.match("/index.html")).isEqualTo("/index.html");
+    }
+
+    @Test
+    public void testUnmatchedPathsAreGroupedByFirstSegment() {
+        RouteTemplates templates = new RouteTemplates(null);
+
+        assertThat(templates.match("/")).isEqualTo("/");
+        assertThat(templates.match("")).isEqualTo("/");
+        assertThat(templates.match("/customers")).isEqualTo("/customers");
+        assertThat(templates.match("/customers/")).isEqualTo("/customers");
+        assertThat(templates.match("/customers/7")).isEqualTo("/customers/*");
+        assertThat(templates.match("/customers/7/orders")).isEqualTo("/customers/*");
+    }
+}
@@ -15,21 +15,21 @@
  */
 package org.wildfly.swarm.monitor.runtime;
 
-import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Vetoed;
 import javax.naming.NamingException;
 
-import io.undertow.client.ClientCallback;
-import io.undertow.client.ClientExchange;
-import io.undertow.client.ClientResponse;
 import io.undertow.server.Connectors;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
@@ -39,50 +39,33 @@ import io.undertow.util.AttachmentKey;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import io.undertow.util.Protocols;
-import io.undertow.util.StringReadChannelListener;
+import io.undertow.util.SameThreadExecutor;
 import org.jboss.logging.Logger;
 import org.wildfly.swarm.monitor.HealthMetaData;
-import org.xnio.ChannelListeners;
 import org.xnio.IoUtils;
-import org.xnio.OptionMap;
-import org.xnio.Options;
-import org.xnio.Xnio;
-import org.xnio.XnioWorker;
-import org.xnio.channels.StreamSinkChannel;
 
 /**
  * The actual monitoring HTTP endpoints. These are wrapped by {@link SecureHttpContexts}.
  *
+ * <p>The <code>/health</code> aggregator invokes all registered health endpoints
+ * in parallel, each with its own deadline. They are handed to the root handler
+ * on the I/O thread of the probe, as if they had arrived on its connection, so
+ * the servlet container dispatches them to its own workers and nothing blocks
+ * on them. In-VM requests are recognised by their {@link #TOKEN} attachment and
+ * forwarded straight to the next handler.</p>
+ *
  * @author Heiko Braun
  */
 @Vetoed
 class HttpContexts implements HttpHandler {
 
-    protected ThreadLocal<CountDownLatch> dispatched = new ThreadLocal<>();
-
-    private AttachmentKey<List> RESPONSES = AttachmentKey.create(List.class);
-
     static AttachmentKey<String> TOKEN = AttachmentKey.create(String.class);
 
     public HttpContexts(HttpHandler next) {
-
-        try {
-            this.worker = Xnio.getInstance().createWorker(
-                    OptionMap.builder()
-                            .set(Options.WORKER_IO_THREADS, 5)
-                            .set(Options.WORKER_TASK_CORE_THREADS, 5)
-                            .set(Options.WORKER_TASK_MAX_THREADS, 10)
-                            .set(Options.TCP_NODELAY, true)
-                            .getMap()
-            );
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to create worker pool");
-        }
         this.next = next;
 
         try {
-            this.monitor = Monitor.lookup();
+            this.monitor = (MonitorService) Monitor.lookup();
         } catch (NamingException e) {
             throw new RuntimeException("Failed to lookup monitor", e);
         }
@@ -92,11 +75,9 @@ class HttpContexts implements HttpHandler {
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
 
-        //System.out.println(exchange.getRequestPath() +" on "+Thread.currentThread());
-
-        if (dispatched.get() != null && dispatched.get().getCount() == 1) {
+        if (exchange.getAttachment(TOKEN) != null) {
+            // in-VM invocation issued by the aggregator
             next.handleRequest(exchange);
-            dispatched.set(null);
             return;
         }
 
@@ -119,94 +100,76 @@ class HttpContexts implements HttpHandler {
 
     private void proxyRequests(HttpServerExchange exchange) {
 
-        if (monitor.getHealthURIs().isEmpty()) {
+        List<HealthMetaData> healthChecks = monitor.getHealthURIs();
+        if (healthChecks.isEmpty()) {
             noHealthEndpoints(exchange);
-        } else {
-
-            try {
-                final List<InVMResponse> responses = new CopyOnWriteArrayList<>();
-                CountDownLatch latch = new CountDownLatch(monitor.getHealthURIs().size());
-                dispatched.set(latch);
-
-                for (HealthMetaData healthCheck : monitor.getHealthURIs()) {
-                    invokeHealthInVM(exchange, healthCheck, responses, latch);
-                }
-
-                latch.await(10, TimeUnit.SECONDS);
-
-                if (latch.getCount() > 0) {
-                    throw new Exception("Probe timed out");
-                }
-
-
-                boolean failed = false;
-                if (!responses.isEmpty()) {
-
-                    if (responses.size() != monitor.getHealthURIs().size()) {
-                        throw new RuntimeException("The number of responses does not match!");
-                    }
-
-                    StringBuffer sb = new StringBuffer("{");
-                    sb.append("\"checks\": [\n");
-
-                    int i = 0;
-                    for (InVMResponse resp : responses) {
-
-                        sb.append(resp.getPayload());
-
-                        if (!failed) {
-                            failed = resp.getStatus() != 200;
-                        }
-
-                        if (i < responses.size() - 1) {
-                            sb.append(",\n");
-                        }
-                        i++;
-                    }
-                    sb.append("],\n");
-
-                    String outcome = failed ? "DOWN" : "UP"; // we don't have policies yet, so keep it simple
-                    sb.append("\"outcome\": \"" + outcome + "\"\n");
-                    sb.append("}\n");
-
-                    // send a response
-                    if (failed) {
-                        exchange.setStatusCode(503);
-                    }
-
-                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
-                    exchange.getResponseSender().send(sb.toString());
+            return;
+        }
 
-                } else {
-                    new RuntimeException("Responses should not be empty").printStackTrace();
-                    exchange.setStatusCode(500);
-                }
+        final int port = exchange.getConnection().getLocalAddress(InetSocketAddress.class).getPort();
+        final String host = exchange.getRequestHeaders().getFirst(Headers.HOST);
+        final HttpHandler rootHandler = ((HttpServerConnection) exchange.getConnection()).getRootHandler();
 
-                exchange.endExchange();
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+            List<CompletableFuture<InVMResponse>> responses = new ArrayList<>(healthChecks.size());
+            for (HealthMetaData healthCheck : healthChecks) {
+                responses.add(invokeHealthInVM(exchange, rootHandler, port, host, healthCheck));
+            }
 
+            // the last response or deadline may complete on any thread
+            CompletableFuture.allOf(responses.toArray(new CompletableFuture[responses.size()]))
+                    .whenComplete((ignored, t) -> exchange.getIoThread().execute(() -> sendAggregate(exchange, responses)));
+        });
+    }
 
-            } catch (Throwable t) {
-                LOG.error("Health check failed", t);
+    private void sendAggregate(HttpServerExchange exchange, List<CompletableFuture<InVMResponse>> responses) {
+        try {
+            boolean failed = false;
+            int count = responses.size();
+            ByteBuffer[] buffers = new ByteBuffer[count * 2 + 2];
+            buffers[0] = ByteBuffer.wrap(CHECKS_START);
+            for (int i = 0; i < count; i++) {
+                InVMResponse resp = responses.get(i).join();
+                failed |= resp.getStatus() != 200;
+                buffers[2 * i + 1] = ByteBuffer.wrap(resp.getPayload().getBytes(StandardCharsets.UTF_8));
+                buffers[2 * i + 2] = ByteBuffer.wrap(i < count - 1 ? CHECKS_SEPARATOR : CHECKS_END);
+            }
+            buffers[count * 2 + 1] = ByteBuffer.wrap(failed ? OUTCOME_DOWN : OUTCOME_UP);
 
-                if (!exchange.isResponseStarted()) {
-                    exchange.setStatusCode(500);
-                }
-                exchange.endExchange();
+            // we don't have policies yet, so keep it simple
+            if (failed) {
+                exchange.setStatusCode(503);
             }
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+            exchange.getResponseSender().send(buffers);
+        } catch (Throwable t) {
+            LOG.error("Health check failed", t);
 
+            if (!exchange.isResponseStarted()) {
+                exchange.setStatusCode(500);
+            }
+            exchange.endExchange();
         }
-
     }
 
-    private void invokeHealthInVM(final HttpServerExchange exchange, HealthMetaData healthCheck, List<InVMResponse> responses, CountDownLatch latch) {
-        try {
+    private CompletableFuture<InVMResponse> invokeHealthInVM(HttpServerExchange exchange, HttpHandler rootHandler, int port, String host, HealthMetaData healthCheck) {
+        final String delegateContext = healthCheck.getWebContext();
+        final CompletableFuture<InVMResponse> result = new CompletableFuture<>();
 
-            String delegateContext = healthCheck.getWebContext();
+        final ScheduledFuture<?> deadline;
+        try {
+            deadline = monitor.getProbeTimeouts().schedule(() -> result.complete(downResponse(delegateContext, 504)),
+                                                           monitor.getProbeTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // the monitor service is stopping
+            result.complete(downResponse(delegateContext, 503));
+            return result;
+        }
+        result.whenComplete((r, t) -> deadline.cancel(false));
 
-            final InVMConnection connection = new InVMConnection(
-                    worker,
-                    exchange.getConnection().getLocalAddress(InetSocketAddress.class).getPort()
-            );
+        try {
+            final InVMConnection connection = new InVMConnection(exchange.getIoThread(), exchange.getConnection().getWorker(),
+                                                                 port, monitor.getProbeBufferPool());
             final HttpServerExchange mockExchange = new HttpServerExchange(connection);
             mockExchange.setRequestScheme("http");
             mockExchange.setRequestMethod(new HttpString("GET"));
@@ -214,9 +177,10 @@ class HttpContexts implements HttpHandler {
             mockExchange.setRequestURI(delegateContext);
             mockExchange.setRequestPath(delegateContext);
             mockExchange.setRelativePath(delegateContext);
-            mockExchange.getRequestHeaders().add(Headers.HOST, exchange.getRequestHeaders().get(Headers.HOST).getFirst());
+            if (host != null) {
+                mockExchange.getRequestHeaders().add(Headers.HOST, host);
+            }
             mockExchange.putAttachment(TOKEN, EPHEMERAL_TOKEN);
-            mockExchange.putAttachment(RESPONSES, responses);
             connection.addCloseListener(new ServerConnection.CloseListener() {
                 @Override
                 public void closed(ServerConnection connection) {
@@ -225,89 +189,33 @@ class HttpContexts implements HttpHandler {
                     ((InVMConnection) connection).flushTo(sb);
                     LOG.trace("Response payload: " + sb.toString());
                     if ("application/json".equals(mockExchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE))) {
-                        responses.add(new InVMResponse(mockExchange.getStatusCode(), sb.toString()));
+                        result.complete(new InVMResponse(mockExchange.getStatusCode(), sb.toString()));
                     } else {
-                        StringBuffer json = new StringBuffer("{");
-                        json.append("\"id\"").append(":\"").append(mockExchange.getRelativePath()).append("\",");
-                        json.append("\"result\"").append(":\"").append("DOWN").append("\",");
-                            json.append("\"data\"").append(":").append("{");
-                                json.append("\"status-code\"").append(":").append(mockExchange.getStatusCode());
-                            json.append("}");
-                        json.append("}");
-
-                        responses.add(new InVMResponse(mockExchange.getStatusCode(), json.toString()));
+                        result.complete(downResponse(mockExchange.getRelativePath(), mockExchange.getStatusCode()));
                     }
-
-                    mockExchange.removeAttachment(RESPONSES);
                     IoUtils.safeClose(connection);
-                    latch.countDown();
                 }
             });
 
-            HttpServerConnection httpConnection = (HttpServerConnection) exchange.getConnection();
-            mockExchange.startBlocking();
-            Connectors.executeRootHandler(httpConnection.getRootHandler(), mockExchange);
-
-
+            // on the I/O thread: the servlet handler dispatches the endpoint to its worker
+            Connectors.executeRootHandler(rootHandler, mockExchange);
         } catch (Throwable t) {
             LOG.error("Health check failed", t);
-            latch.countDown();
+            result.complete(downResponse(delegateContext, 500));
         }
-    }
-
-    private static final AttachmentKey<String> RESPONSE_BODY = AttachmentKey.create(String.class);
-
-    private ClientCallback<ClientExchange> createClientCallback(final List<ClientResponse> responses, CountDownLatch latch) {
-
-        return new ClientCallback<ClientExchange>() {
-            @Override
-            public void completed(final ClientExchange result) {
-                result.setResponseListener(new ClientCallback<ClientExchange>() {
-                    @Override
-                    public void completed(final ClientExchange result) {
-                        responses.add(result.getResponse());
-                        new StringReadChannelListener(result.getConnection().getBufferPool()) {
 
-                            @Override
-                            protected void stringDone(String string) {
-                                result.getResponse().putAttachment(RESPONSE_BODY, string);
-                                latch.countDown();
-                            }
-
-                            @Override
-                            protected void error(IOException e) {
-                                LOG.error("Failed to read response", e);
-                                latch.countDown();
-
-                            }
-                        }.setup(result.getResponseChannel());
-                    }
-
-                    @Override
-                    public void failed(IOException e) {
-                        LOG.error("Failed to read response", e);
-                        latch.countDown();
-                    }
-                });
-
-                try {
-                    result.getRequestChannel().shutdownWrites();
-                    if (!result.getRequestChannel().flush()) {
-                        result.getRequestChannel().getWriteSetter().set(ChannelListeners.<StreamSinkChannel>flushingChannelListener(null, null));
-                        result.getRequestChannel().resumeWrites();
-                    }
-                } catch (IOException e) {
-                    LOG.error("Failed to read response", e);
-                    latch.countDown();
-                }
-            }
+        return result;
+    }
 
-            @Override
-            public void failed(IOException e) {
-                LOG.error("Probe invocation failed", e);
-                latch.countDown();
-            }
-        };
+    private static InVMResponse downResponse(String id, int statusCode) {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"id\"").append(":\"").append(id).append("\",");
+        json.append("\"result\"").append(":\"").append("DOWN").append("\",");
+            json.append("\"data\"").append(":").append("{");
+                json.append("\"status-code\"").append(":").append(statusCode);
+            json.append("}");
+        json.append("}");
+        return new InVMResponse(statusCode, json.toString());
     }
 
     private void noHealthEndpoints(HttpServerExchange exchange) {
@@ -343,18 +251,26 @@ class HttpContexts implements HttpHandler {
 
     static final String EPHEMERAL_TOKEN = UUID.randomUUID().toString();
 
-    private final Monitor monitor;
+    private static final byte[] CHECKS_START = "{\"checks\": [\n".getBytes(StandardCharsets.UTF_8);
 
-    private final HttpHandler next;
+    private static final byte[] CHECKS_SEPARATOR = ",\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] CHECKS_END = "],\n".getBytes(StandardCharsets.UTF_8);
 
-    private XnioWorker worker;
+    private static final byte[] OUTCOME_UP = "\"outcome\": \"UP\"\n}\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] OUTCOME_DOWN = "\"outcome\": \"DOWN\"\n}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final MonitorService monitor;
+
+    private final HttpHandler next;
 
-    class InVMResponse {
+    static class InVMResponse {
         private int status;
 
         private String payload;
 
-        public InVMResponse(int status, String payload) {
+        InVMResponse(int status, String payload) {
             this.status = status;
             this.payload = payload;
         }
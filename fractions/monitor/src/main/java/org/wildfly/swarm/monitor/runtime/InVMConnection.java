@@ -26,7 +26,6 @@ import io.undertow.UndertowLogger;
 import io.undertow.UndertowMessages;
 import io.undertow.conduits.EmptyStreamSourceConduit;
 import io.undertow.connector.ByteBufferPool;
-import io.undertow.server.DefaultByteBufferPool;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.HttpUpgradeListener;
 import io.undertow.server.SSLSessionInfo;
@@ -60,6 +59,8 @@ final class InVMConnection extends ServerConnection {
 
     private final ByteBufferPool bufferPool;
 
+    private final XnioIoThread ioThread;
+
     private final XnioWorker worker;
 
     private SSLSessionInfo sslSessionInfo;
@@ -70,8 +71,9 @@ final class InVMConnection extends ServerConnection {
 
     protected final List<CloseListener> closeListeners = new LinkedList<>();
 
-    InVMConnection(XnioWorker worker, int port) {
-        this.bufferPool = new DefaultByteBufferPool(false, 1024, 0, 0);
+    InVMConnection(XnioIoThread ioThread, XnioWorker worker, int port, ByteBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.ioThread = ioThread;
         this.worker = worker;
         this.address = new InetSocketAddress(port); // port carried forward from the initial
     }
@@ -96,12 +98,12 @@ final class InVMConnection extends ServerConnection {
 
     @Override
     public XnioWorker getWorker() {
-        return null;
+        return worker;
     }
 
     @Override
     public XnioIoThread getIoThread() {
-        return null;
+        return ioThread;
     }
 
     @Override
@@ -205,7 +207,7 @@ final class InVMConnection extends ServerConnection {
         ConduitStreamSinkChannel sinkChannel = new ConduitStreamSinkChannel(
                 Configurable.EMPTY,
                 new BufferedStreamSinkConduit(
-                        new NullStreamSinkConduit(worker.getIoThread()),
+                        new NullStreamSinkConduit(ioThread),
                         new PooledAdaptor(bufferPool.allocate())
                 )
         );
@@ -223,7 +225,7 @@ final class InVMConnection extends ServerConnection {
 
     @Override
     public ConduitStreamSourceChannel getSourceChannel() {
-        return new ConduitStreamSourceChannel(Configurable.EMPTY, new EmptyStreamSourceConduit(worker.getIoThread()));
+        return new ConduitStreamSourceChannel(Configurable.EMPTY, new EmptyStreamSourceConduit(ioThread));
     }
 
     @Override
@@ -22,9 +22,12 @@ import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.enterprise.inject.Vetoed;
 
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.server.DefaultByteBufferPool;
 import org.jboss.as.controller.ModelController;
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.domain.management.SecurityRealm;
@@ -75,6 +78,12 @@ public class MonitorService implements Monitor, Service<MonitorService> {
         executorService = Executors.newSingleThreadExecutor();
         serverEnvironment = serverEnvironmentValue.getValue();
         controllerClient = modelControllerValue.getValue().createClient(executorService);
+        probeBufferPool = new DefaultByteBufferPool(false, 1024, 64, 4);
+        probeTimeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "monitor-health-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         if (!securityRealm.isPresent()) {
             LOG.warn("You are running the monitoring endpoints without any security realm configuration!");
@@ -86,6 +95,10 @@ public class MonitorService implements Monitor, Service<MonitorService> {
         if (executorService != null) {
             executorService.shutdownNow();
         }
+        if (probeTimeouts != null) {
+            probeTimeouts.shutdownNow();
+            probeBufferPool.close();
+        }
     }
 
     @Override
@@ -191,6 +204,20 @@ public class MonitorService implements Monitor, Service<MonitorService> {
         }
     }
 
+    /**
+     * Shared by all in-VM health probe connections instead of a pool per probe.
+     */
+    ByteBufferPool getProbeBufferPool() {
+        return this.probeBufferPool;
+    }
+
+    /**
+     * Enforces the deadlines of the in-VM health probes.
+     */
+    ScheduledExecutorService getProbeTimeouts() {
+        return this.probeTimeouts;
+    }
+
     public Injector<ServerEnvironment> getServerEnvironmentInjector() {
         return this.serverEnvironmentValue;
     }
@@ -217,6 +244,10 @@ public class MonitorService implements Monitor, Service<MonitorService> {
 
     private ServerEnvironment serverEnvironment;
 
+    private ByteBufferPool probeBufferPool;
+
+    private ScheduledExecutorService probeTimeouts;
+
     private ModelControllerClient controllerClient;
 
     private CopyOnWriteArrayList<HealthMetaData> endpoints = new CopyOnWriteArrayList<HealthMetaData>();
@@ -15,16 +15,24 @@
  */
 package org.wildfly.swarm.netflix.ribbon.runtime;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import com.netflix.client.config.IClientConfig;
 import com.netflix.client.config.IClientConfigKey;
 import com.netflix.loadbalancer.AbstractServerList;
 import com.netflix.loadbalancer.Server;
+import org.wildfly.swarm.topology.runtime.Registration;
 import org.wildfly.swarm.topology.runtime.TopologyManager;
 
 /**
+ * Ribbon server list backed by the topology.
+ *
+ * <p>The server list is only rebuilt when the topology version changes;
+ * polls in between return the same immutable list.</p>
+ *
  * @author Bob McWhirter
  */
 public class TopologyServerList extends AbstractServerList<Server> {
@@ -37,23 +45,46 @@ public class TopologyServerList extends AbstractServerList<Server> {
 
     @Override
     public List<Server> getInitialListOfServers() {
-        String tag = (this.isSecure ? "https" : "http");
-        return TopologyManager.INSTANCE.registrationsForService(this.appName, tag)
-                .stream()
-                .map(reg -> new Server(reg.getAddress(), reg.getPort()))
-                .collect(Collectors.toList());
+        return servers();
     }
 
     @Override
     public List<Server> getUpdatedListOfServers() {
+        return servers();
+    }
+
+    private List<Server> servers() {
+        long version = TopologyManager.INSTANCE.version();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.version == version) {
+            return snapshot.servers;
+        }
+
         String tag = (this.isSecure ? "https" : "http");
-        return TopologyManager.INSTANCE.registrationsForService(this.appName, tag)
-                .stream()
-                .map(reg -> new Server(reg.getAddress(), reg.getPort()))
-                .collect(Collectors.toList());
+        Set<Registration> registrations = TopologyManager.INSTANCE.registrationsForService(this.appName, tag);
+        List<Server> servers = new ArrayList<>(registrations.size());
+        for (Registration registration : registrations) {
+            servers.add(new Server(registration.getAddress(), registration.getPort()));
+        }
+        snapshot = new Snapshot(version, Collections.unmodifiableList(servers));
+        this.snapshot = snapshot;
+        return snapshot.servers;
+    }
+
+    private static final class Snapshot {
+        Snapshot(long version, List<Server> servers) {
+            this.version = version;
+            this.servers = servers;
+        }
+
+        final long version;
+
+        final List<Server> servers;
     }
 
     private String appName;
 
     private Boolean isSecure;
+
+    private volatile Snapshot snapshot;
 }
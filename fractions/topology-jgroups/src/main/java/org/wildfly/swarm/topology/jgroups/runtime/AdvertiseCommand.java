@@ -23,15 +23,21 @@ import org.wildfly.swarm.topology.runtime.Registration;
  */
 public class AdvertiseCommand implements Command<Void, JGroupsTopologyConnector> {
 
-    public AdvertiseCommand(Registration registration) {
+    public AdvertiseCommand(Registration registration, long epoch, long version) {
         this.registration = registration;
+        this.epoch = epoch;
+        this.version = version;
     }
 
     @Override
     public Void execute(JGroupsTopologyConnector context) {
-        context.register(this.registration);
+        context.register(this.registration, this.epoch, this.version);
         return null;
     }
 
     private Registration registration;
+
+    private long epoch;
+
+    private long version;
 }
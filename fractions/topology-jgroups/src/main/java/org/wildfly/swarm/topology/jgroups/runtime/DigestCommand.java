@@ -15,19 +15,29 @@
  */
 package org.wildfly.swarm.topology.jgroups.runtime;
 
+import java.util.Map;
+
 import org.wildfly.clustering.dispatcher.Command;
 
 /**
- * @author Bob McWhirter
+ * Carries the registration versions a member currently knows about, keyed by
+ * source key. Receivers answer with a {@link SyncCommand} holding what the
+ * sender is missing of their own registrations, if anything.
  */
-public class RequestAdvertisementsCommand implements Command<Void, JGroupsTopologyConnector> {
+public class DigestCommand implements Command<Void, JGroupsTopologyConnector> {
 
-    public RequestAdvertisementsCommand() {
+    public DigestCommand(String senderSourceKey, Map<String, MemberVersion> digest) {
+        this.senderSourceKey = senderSourceKey;
+        this.digest = digest;
     }
 
     @Override
     public Void execute(JGroupsTopologyConnector context) throws Exception {
-        context.advertiseAll();
+        context.receiveDigest(this.senderSourceKey, this.digest);
         return null;
     }
+
+    private final String senderSourceKey;
+
+    private final Map<String, MemberVersion> digest;
 }
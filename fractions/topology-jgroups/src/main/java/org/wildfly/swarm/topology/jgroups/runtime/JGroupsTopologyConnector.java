@@ -16,6 +16,7 @@
 package org.wildfly.swarm.topology.jgroups.runtime;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -37,6 +38,18 @@ import org.wildfly.swarm.topology.runtime.Registration;
 import org.wildfly.swarm.topology.runtime.TopologyManager;
 
 /**
+ * Cluster-wide topology over a JGroups command dispatcher.
+ *
+ * <p>Each member versions its own registrations. Incremental changes are
+ * broadcast with that version; a member that notices it missed one of them,
+ * or that joins, sends the other members a compact digest of the versions it
+ * knows, and each of them answers with a single {@link SyncCommand} holding
+ * only the registrations added or removed since.</p>
+ *
+ * <p>The commands are not compatible with those of earlier releases, which
+ * rebroadcast all registrations on every view change: all the members of a
+ * cluster must be upgraded together.</p>
+ *
  * @author Bob McWhirter
  */
 public class JGroupsTopologyConnector implements Service<JGroupsTopologyConnector>, Group.Listener, TopologyConnector {
@@ -54,11 +67,15 @@ public class JGroupsTopologyConnector implements Service<JGroupsTopologyConnecto
 
     @Override
     public void start(StartContext startContext) throws StartException {
-        this.commandDispatcherFactoryInjector.getValue().getGroup().addListener(this);
+        this.group = this.commandDispatcherFactoryInjector.getValue().getGroup();
+        this.node = this.group.getLocalNode();
+        this.local = new LocalRegistrations(sourceKey(this.node), System.currentTimeMillis());
+        this.remote = new RemoteRegistrations(this.topologyManagerInjector.getValue());
         this.dispatcher = this.commandDispatcherFactoryInjector.getValue().createCommandDispatcher("netflix.runtime.manager", this);
-        this.node = this.commandDispatcherFactoryInjector.getValue().getGroup().getLocalNode();
+        // only once everything membershipChanged() uses is set up
+        this.group.addListener(this);
         try {
-            requestAdvertisements();
+            this.dispatcher.executeOnGroup(digest(), this.node);
         } catch (Exception e) {
             throw new StartException(e);
         }
@@ -76,17 +93,30 @@ public class JGroupsTopologyConnector implements Service<JGroupsTopologyConnecto
 
     @Override
     public void membershipChanged(List<Node> previousMembers, List<Node> members, boolean merged) {
+        List<Node> removed = new ArrayList<>();
+        removed.addAll(previousMembers);
+        removed.removeAll(members);
+        removed.forEach((e) -> this.remote.forget(sourceKey(e)));
+
         try {
-            advertiseAll();
+            if (merged) {
+                // partitions may have diverged arbitrarily, compare with everyone
+                this.dispatcher.executeOnGroup(digest(), this.node);
+            } else {
+                List<Node> added = new ArrayList<>();
+                added.addAll(members);
+                added.removeAll(previousMembers);
+                added.remove(this.node);
+                if (!added.isEmpty()) {
+                    DigestCommand digest = digest();
+                    for (Node each : added) {
+                        this.dispatcher.executeOnNode(digest, each);
+                    }
+                }
+            }
         } catch (Exception e) {
             TopologyMessages.MESSAGES.errorStartingAdvertisement(e);
         }
-        List<Node> removed = new ArrayList<>();
-        removed.addAll(previousMembers);
-        removed.removeAll(members);
-        removed.forEach((e) -> {
-            this.topologyManagerInjector.getValue().unregisterAll(sourceKey(e));
-        });
     }
 
     public synchronized void advertise(String name, SocketBinding binding, String... tags) throws Exception {
@@ -104,30 +134,48 @@ public class JGroupsTopologyConnector implements Service<JGroupsTopologyConnecto
     public synchronized void unadvertise(String appName, SocketBinding binding) throws Exception {
         Registration registration = this.registrations.remove(appName + ":" + binding.getName());
         if (registration != null) {
-            this.dispatcher.executeOnGroup(new UnadvertiseCommand(registration));
+            this.topologyManagerInjector.getValue().unregister(registration);
+            long version = this.local.unadvertise(registration);
+            if (version != 0) {
+                this.dispatcher.executeOnGroup(new UnadvertiseCommand(registration, this.local.version().getEpoch(), version), this.node);
+            }
         }
     }
 
-    protected void requestAdvertisements() throws Exception {
-        this.dispatcher.executeOnGroup(new RequestAdvertisementsCommand(), this.node);
+    protected void doAdvertise(Registration registration) throws Exception {
+        long version = this.local.advertise(registration);
+        if (version != 0) {
+            this.dispatcher.executeOnGroup(new AdvertiseCommand(registration, this.local.version().getEpoch(), version), this.node);
+        }
     }
 
-    protected synchronized void advertiseAll() throws Exception {
-        for (Registration each : this.topologyManagerInjector.getValue().registrationsForSourceKey(sourceKey(this.node))) {
-            doAdvertise(each);
+    void register(Registration registration, long epoch, long version) {
+        if (this.remote.register(registration, epoch, version) == RemoteRegistrations.Outcome.MISSING) {
+            requestChanges(registration.getSourceKey());
         }
     }
 
-    protected void doAdvertise(Registration registration) throws Exception {
-        this.dispatcher.executeOnGroup(new AdvertiseCommand(registration));
+    void unregister(Registration registration, long epoch, long version) {
+        if (this.remote.unregister(registration, epoch, version) == RemoteRegistrations.Outcome.MISSING) {
+            requestChanges(registration.getSourceKey());
+        }
     }
 
-    void register(Registration registration) {
-        this.topologyManagerInjector.getValue().register(registration);
+    void receiveDigest(String senderSourceKey, Map<String, MemberVersion> digest) throws Exception {
+        SyncCommand changes = this.local.changesSince(digest.get(sourceKey(this.node)));
+        if (changes == null) {
+            return;
+        }
+        Node sender = node(senderSourceKey);
+        if (sender != null) {
+            this.dispatcher.executeOnNode(changes, sender);
+        }
     }
 
-    void unregister(Registration registration) {
-        this.topologyManagerInjector.getValue().unregister(registration);
+    void sync(SyncCommand sync) {
+        if (this.remote.sync(sync) == RemoteRegistrations.Outcome.MISSING) {
+            requestChanges(sync.getSourceKey());
+        }
     }
 
     String sourceKey(Node node) {
@@ -135,14 +183,48 @@ public class JGroupsTopologyConnector implements Service<JGroupsTopologyConnecto
 
     }
 
+    /**
+     * Ask a member for the changes since the version we know of it, after missing some of them.
+     */
+    private void requestChanges(String sourceKey) {
+        Node member = node(sourceKey);
+        if (member == null) {
+            return;
+        }
+        try {
+            this.dispatcher.executeOnNode(new DigestCommand(sourceKey(this.node), Collections.singletonMap(sourceKey, this.remote.version(sourceKey))), member);
+        } catch (Exception e) {
+            TopologyMessages.MESSAGES.errorStartingAdvertisement(e);
+        }
+    }
+
+    private Node node(String sourceKey) {
+        for (Node each : this.group.getNodes()) {
+            if (sourceKey(each).equals(sourceKey)) {
+                return each;
+            }
+        }
+        return null;
+    }
+
+    private DigestCommand digest() {
+        return new DigestCommand(sourceKey(this.node), this.remote.digest());
+    }
+
     private InjectedValue<CommandDispatcherFactory> commandDispatcherFactoryInjector = new InjectedValue<>();
 
     private InjectedValue<TopologyManager> topologyManagerInjector = new InjectedValue<>();
 
     private CommandDispatcher<JGroupsTopologyConnector> dispatcher;
 
+    private Group group;
+
     private Node node;
 
     private Map<String, Registration> registrations = new ConcurrentHashMap<>();
 
+    private LocalRegistrations local;
+
+    private RemoteRegistrations remote;
+
 }
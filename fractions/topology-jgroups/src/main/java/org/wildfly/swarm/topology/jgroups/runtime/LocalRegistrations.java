@@ -0,0 +1,115 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.jgroups.runtime;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.wildfly.swarm.topology.runtime.Registration;
+
+/**
+ * The registrations advertised by the local member, with the version at which
+ * each of them last changed, so that a peer can be sent only what changed
+ * since the version it knows.
+ *
+ * <p>Removals are remembered as tombstones, up to {@value #MAX_TOMBSTONES} of
+ * them; a peer that is further behind is sent the complete set instead.</p>
+ */
+class LocalRegistrations {
+
+    LocalRegistrations(String sourceKey, long epoch) {
+        this.sourceKey = sourceKey;
+        this.epoch = epoch;
+    }
+
+    synchronized MemberVersion version() {
+        return new MemberVersion(this.epoch, this.version);
+    }
+
+    /**
+     * @return the version of the change, or 0 if the registration was already advertised
+     */
+    synchronized long advertise(Registration registration) {
+        if (this.advertised.containsKey(registration)) {
+            return 0;
+        }
+        this.tombstones.remove(registration);
+        this.advertised.put(registration, ++this.version);
+        return this.version;
+    }
+
+    /**
+     * @return the version of the change, or 0 if the registration was not advertised
+     */
+    synchronized long unadvertise(Registration registration) {
+        if (this.advertised.remove(registration) == null) {
+            return 0;
+        }
+        this.tombstones.put(registration, ++this.version);
+        if (this.tombstones.size() > MAX_TOMBSTONES) {
+            Iterator<Map.Entry<Registration, Long>> oldest = this.tombstones.entrySet().iterator();
+            this.tombstoneFloor = oldest.next().getValue();
+            oldest.remove();
+        }
+        return this.version;
+    }
+
+    /**
+     * The changes a peer is missing, given the version it knows of.
+     *
+     * @param known the version the peer knows, or {@code null} if it knows nothing of this member
+     * @return the changes since that version, the complete set if they cannot be told apart, or
+     * {@code null} if the peer is up to date
+     */
+    synchronized SyncCommand changesSince(MemberVersion known) {
+        if (known == null || known.getEpoch() != this.epoch || known.getVersion() > this.version || known.getVersion() < this.tombstoneFloor) {
+            return new SyncCommand(this.sourceKey, this.epoch, SyncCommand.FULL, this.version, new HashSet<>(this.advertised.keySet()), new HashSet<>());
+        }
+        if (known.getVersion() == this.version) {
+            return null;
+        }
+        return new SyncCommand(this.sourceKey, this.epoch, known.getVersion(), this.version,
+                               since(this.advertised, known.getVersion()), since(this.tombstones, known.getVersion()));
+    }
+
+    private static Set<Registration> since(Map<Registration, Long> changes, long version) {
+        Set<Registration> result = new HashSet<>();
+        for (Map.Entry<Registration, Long> each : changes.entrySet()) {
+            if (each.getValue() > version) {
+                result.add(each.getKey());
+            }
+        }
+        return result;
+    }
+
+    static final int MAX_TOMBSTONES = 1024;
+
+    private final String sourceKey;
+
+    private final long epoch;
+
+    private long version;
+
+    private long tombstoneFloor;
+
+    private final Map<Registration, Long> advertised = new LinkedHashMap<>();
+
+    // in the order of their versions
+    private final Map<Registration, Long> tombstones = new LinkedHashMap<>();
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.jgroups.runtime;
+
+import java.io.Serializable;
+
+/**
+ * The version of the registrations of a member, within one run of that
+ * member. A member starts each run with a new epoch and no registrations, at
+ * version 0, and bumps the version on every change.
+ */
+public final class MemberVersion implements Serializable {
+
+    public MemberVersion(long epoch, long version) {
+        this.epoch = epoch;
+        this.version = version;
+    }
+
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.epoch) * 31 + Long.hashCode(this.version);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MemberVersion)) {
+            return false;
+        }
+        MemberVersion that = (MemberVersion) obj;
+        return this.epoch == that.epoch && this.version == that.version;
+    }
+
+    @Override
+    public String toString() {
+        return this.epoch + "/" + this.version;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final long epoch;
+
+    private final long version;
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.jgroups.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+/**
+ * Applies the changes received from the other members to the topology, in
+ * version order per member.
+ *
+ * <p>A change that does not directly follow the version known of its member
+ * is not applied; the caller then asks that member for what it is missing.
+ * A member seen with a later epoch has restarted, and its registrations of
+ * the previous run are dropped; changes from an earlier epoch are stale.</p>
+ */
+class RemoteRegistrations {
+
+    enum Outcome {
+        APPLIED,
+        STALE,
+        MISSING
+    }
+
+    RemoteRegistrations(TopologyManager topologyManager) {
+        this.topologyManager = topologyManager;
+    }
+
+    synchronized Outcome register(Registration registration, long epoch, long version) {
+        Outcome outcome = accept(registration.getSourceKey(), epoch, version);
+        if (outcome == Outcome.APPLIED) {
+            this.topologyManager.register(registration);
+        }
+        return outcome;
+    }
+
+    synchronized Outcome unregister(Registration registration, long epoch, long version) {
+        Outcome outcome = accept(registration.getSourceKey(), epoch, version);
+        if (outcome == Outcome.APPLIED) {
+            this.topologyManager.unregister(registration);
+        }
+        return outcome;
+    }
+
+    synchronized Outcome sync(SyncCommand sync) {
+        if (isPreviousRun(sync.getSourceKey(), sync.getEpoch())) {
+            return Outcome.STALE;
+        }
+        MemberVersion known = known(sync.getSourceKey(), sync.getEpoch());
+        if (known != null && known.getVersion() >= sync.getToVersion()) {
+            return Outcome.STALE;
+        }
+        if (sync.isFull()) {
+            this.topologyManager.replaceAll(sync.getSourceKey(), sync.getAdded());
+        } else if (known != null && known.getVersion() >= sync.getFromVersion()) {
+            this.topologyManager.update(sync.getAdded(), sync.getRemoved());
+        } else {
+            return Outcome.MISSING;
+        }
+        this.versions.put(sync.getSourceKey(), new MemberVersion(sync.getEpoch(), sync.getToVersion()));
+        return Outcome.APPLIED;
+    }
+
+    synchronized void forget(String sourceKey) {
+        this.versions.remove(sourceKey);
+        this.topologyManager.unregisterAll(sourceKey);
+    }
+
+    synchronized MemberVersion version(String sourceKey) {
+        return this.versions.get(sourceKey);
+    }
+
+    synchronized Map<String, MemberVersion> digest() {
+        return new HashMap<>(this.versions);
+    }
+
+    private Outcome accept(String sourceKey, long epoch, long version) {
+        if (isPreviousRun(sourceKey, epoch)) {
+            return Outcome.STALE;
+        }
+        MemberVersion known = known(sourceKey, epoch);
+        long knownVersion = known == null ? 0 : known.getVersion();
+        if (version <= knownVersion) {
+            return Outcome.STALE;
+        }
+        if (version != knownVersion + 1) {
+            return Outcome.MISSING;
+        }
+        this.versions.put(sourceKey, new MemberVersion(epoch, version));
+        return Outcome.APPLIED;
+    }
+
+    private boolean isPreviousRun(String sourceKey, long epoch) {
+        MemberVersion known = this.versions.get(sourceKey);
+        return known != null && known.getEpoch() > epoch;
+    }
+
+    /**
+     * @return the version known of the given run of a member, if any
+     */
+    private MemberVersion known(String sourceKey, long epoch) {
+        MemberVersion known = this.versions.get(sourceKey);
+        if (known != null && known.getEpoch() != epoch) {
+            // the member restarted, what we know is from a previous run
+            forget(sourceKey);
+            return null;
+        }
+        return known;
+    }
+
+    private final TopologyManager topologyManager;
+
+    private final Map<String, MemberVersion> versions = new HashMap<>();
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.jgroups.runtime;
+
+import java.util.Set;
+
+import org.wildfly.clustering.dispatcher.Command;
+import org.wildfly.swarm.topology.runtime.Registration;
+
+/**
+ * Carries the registrations of a single member that a peer is missing, in
+ * one message: those added and removed since the version the peer knows, or
+ * the complete set when the peer knows nothing usable.
+ */
+public class SyncCommand implements Command<Void, JGroupsTopologyConnector> {
+
+    static final long FULL = -1;
+
+    public SyncCommand(String sourceKey, long epoch, long fromVersion, long toVersion, Set<Registration> added, Set<Registration> removed) {
+        this.sourceKey = sourceKey;
+        this.epoch = epoch;
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    @Override
+    public Void execute(JGroupsTopologyConnector context) throws Exception {
+        context.sync(this);
+        return null;
+    }
+
+    String getSourceKey() {
+        return this.sourceKey;
+    }
+
+    long getEpoch() {
+        return this.epoch;
+    }
+
+    boolean isFull() {
+        return this.fromVersion == FULL;
+    }
+
+    long getFromVersion() {
+        return this.fromVersion;
+    }
+
+    long getToVersion() {
+        return this.toVersion;
+    }
+
+    Set<Registration> getAdded() {
+        return this.added;
+    }
+
+    Set<Registration> getRemoved() {
+        return this.removed;
+    }
+
+    private final String sourceKey;
+
+    private final long epoch;
+
+    private final long fromVersion;
+
+    private final long toVersion;
+
+    private final Set<Registration> added;
+
+    private final Set<Registration> removed;
+}
@@ -23,15 +23,21 @@ import org.wildfly.swarm.topology.runtime.Registration;
  */
 public class UnadvertiseCommand implements Command<Void, JGroupsTopologyConnector> {
 
-    public UnadvertiseCommand(Registration registration) {
+    public UnadvertiseCommand(Registration registration, long epoch, long version) {
         this.registration = registration;
+        this.epoch = epoch;
+        this.version = version;
     }
 
     @Override
     public Void execute(JGroupsTopologyConnector context) throws Exception {
-        context.unregister(this.registration);
+        context.unregister(this.registration, this.epoch, this.version);
         return null;
     }
 
     private final Registration registration;
+
+    private final long epoch;
+
+    private final long version;
 }
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.jgroups.runtime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.wildfly.swarm.topology.jgroups.runtime.RemoteRegistrations.Outcome.APPLIED;
+import static org.wildfly.swarm.topology.jgroups.runtime.RemoteRegistrations.Outcome.MISSING;
+import static org.wildfly.swarm.topology.jgroups.runtime.RemoteRegistrations.Outcome.STALE;
+
+public class RegistrationSyncTest {
+
+    @Before
+    public void setUp() {
+        this.manager = new TopologyManager();
+        this.remote = new RemoteRegistrations(this.manager);
+        this.local = new LocalRegistrations(NODE, EPOCH);
+    }
+
+    @Test
+    public void testIncrementalChangesInOrder() {
+        assertThat(this.remote.register(FOO, EPOCH, this.local.advertise(FOO))).isEqualTo(APPLIED);
+        assertThat(this.remote.register(BAR, EPOCH, this.local.advertise(BAR))).isEqualTo(APPLIED);
+        assertThat(this.remote.unregister(FOO, EPOCH, this.local.unadvertise(FOO))).isEqualTo(APPLIED);
+
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(BAR);
+        assertThat(this.remote.version(NODE)).isEqualTo(this.local.version());
+        assertThat(this.local.changesSince(this.remote.version(NODE))).isNull();
+    }
+
+    @Test
+    public void testGapIsFilledWithOnlyTheMissingChanges() {
+        this.remote.register(FOO, EPOCH, this.local.advertise(FOO));
+        this.local.advertise(BAR);
+        this.local.unadvertise(FOO);
+        long version = this.local.advertise(BAZ);
+
+        // the advertisement of BAR and the removal of FOO were missed
+        assertThat(this.remote.register(BAZ, EPOCH, version)).isEqualTo(MISSING);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(FOO);
+
+        SyncCommand changes = this.local.changesSince(this.remote.version(NODE));
+        assertThat(changes.isFull()).isFalse();
+        assertThat(changes.getAdded()).containsOnly(BAR, BAZ);
+        assertThat(changes.getRemoved()).containsOnly(FOO);
+
+        assertThat(this.remote.sync(changes)).isEqualTo(APPLIED);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(BAR, BAZ);
+        assertThat(this.remote.version(NODE)).isEqualTo(this.local.version());
+    }
+
+    @Test
+    public void testUnknownMemberGetsFullSync() {
+        this.local.advertise(FOO);
+        this.local.advertise(BAR);
+        this.local.unadvertise(FOO);
+
+        SyncCommand changes = this.local.changesSince(null);
+        assertThat(changes.isFull()).isTrue();
+        assertThat(changes.getAdded()).containsOnly(BAR);
+
+        assertThat(this.remote.sync(changes)).isEqualTo(APPLIED);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(BAR);
+    }
+
+    @Test
+    public void testStaleChangesAreIgnored() {
+        this.remote.register(FOO, EPOCH, this.local.advertise(FOO));
+        SyncCommand old = this.local.changesSince(null);
+        assertThat(this.remote.sync(old)).isEqualTo(STALE);
+
+        this.remote.register(BAR, EPOCH, this.local.advertise(BAR));
+        assertThat(this.remote.sync(this.local.changesSince(new MemberVersion(EPOCH, 1)))).isEqualTo(STALE);
+        assertThat(this.remote.register(FOO, EPOCH, 1)).isEqualTo(STALE);
+        assertThat(this.remote.unregister(FOO, EPOCH, 2)).isEqualTo(STALE);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(FOO, BAR);
+    }
+
+    @Test
+    public void testDeltaAfterUnknownVersionIsNotApplied() {
+        this.remote.register(FOO, EPOCH, this.local.advertise(FOO));
+        MemberVersion known = this.local.version();
+        this.local.advertise(BAR);
+        this.local.advertise(BAZ);
+        SyncCommand fromTwo = this.local.changesSince(new MemberVersion(EPOCH, 2));
+
+        // we only know version 1, the changes since 2 do not follow on from it
+        assertThat(this.remote.version(NODE)).isEqualTo(known);
+        assertThat(this.remote.sync(fromTwo)).isEqualTo(MISSING);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(FOO);
+    }
+
+    @Test
+    public void testLeaveAndRejoin() {
+        this.remote.register(FOO, EPOCH, this.local.advertise(FOO));
+        this.remote.register(BAR, EPOCH, this.local.advertise(BAR));
+
+        this.remote.forget(NODE);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).isEmpty();
+        assertThat(this.remote.version(NODE)).isNull();
+
+        // back in the view, with the same run
+        assertThat(this.remote.sync(this.local.changesSince(this.remote.version(NODE)))).isEqualTo(APPLIED);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(FOO, BAR);
+    }
+
+    @Test
+    public void testRestartedMemberReplacesPreviousRun() {
+        this.remote.register(FOO, EPOCH, this.local.advertise(FOO));
+        this.remote.register(BAR, EPOCH, this.local.advertise(BAR));
+
+        // restarted, without the view change removing it ever being seen
+        LocalRegistrations restarted = new LocalRegistrations(NODE, EPOCH + 1);
+        assertThat(this.remote.register(BAZ, EPOCH + 1, restarted.advertise(BAZ))).isEqualTo(APPLIED);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(BAZ);
+
+        // late messages from the previous run
+        assertThat(this.remote.register(FOO, EPOCH, 3)).isEqualTo(STALE);
+        assertThat(this.remote.sync(this.local.changesSince(null))).isEqualTo(STALE);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(BAZ);
+    }
+
+    @Test
+    public void testTooManyRemovalsFallBackToFullSync() {
+        this.remote.register(FOO, EPOCH, this.local.advertise(FOO));
+        MemberVersion known = this.remote.version(NODE);
+        for (int i = 0; i <= LocalRegistrations.MAX_TOMBSTONES; ++i) {
+            Registration each = new Registration(NODE, "svc" + i, "10.0.0.1", 8080);
+            this.local.advertise(each);
+            this.local.unadvertise(each);
+        }
+
+        SyncCommand changes = this.local.changesSince(known);
+        assertThat(changes.isFull()).isTrue();
+        assertThat(changes.getAdded()).containsOnly(FOO);
+        assertThat(this.remote.sync(changes)).isEqualTo(APPLIED);
+        assertThat(this.manager.registrationsForSourceKey(NODE)).containsOnly(FOO);
+    }
+
+    @Test
+    public void testRepeatedAdvertisementIsNotAChange() {
+        assertThat(this.local.advertise(FOO)).isEqualTo(1L);
+        assertThat(this.local.advertise(FOO)).isEqualTo(0L);
+        assertThat(this.local.unadvertise(BAR)).isEqualTo(0L);
+        assertThat(this.local.version()).isEqualTo(new MemberVersion(EPOCH, 1));
+    }
+
+    private static final String NODE = "node1:10.0.0.1:7600";
+
+    private static final long EPOCH = 1000;
+
+    private static final Registration FOO = new Registration(NODE, "foo", "10.0.0.1", 8080, "http");
+
+    private static final Registration BAR = new Registration(NODE, "bar", "10.0.0.1", 8080, "http");
+
+    private static final Registration BAZ = new Registration(NODE, "baz", "10.0.0.1", 8443, "https");
+
+    private TopologyManager manager;
+
+    private RemoteRegistrations remote;
+
+    private LocalRegistrations local;
+}
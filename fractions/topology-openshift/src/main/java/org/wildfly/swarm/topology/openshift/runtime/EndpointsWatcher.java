@@ -0,0 +1,410 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.openshift.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.msc.inject.Injector;
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.jboss.msc.value.InjectedValue;
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+/**
+ * Informer-style topology source backed by a single resumable watch on the
+ * namespace's Kubernetes {@code Endpoints}.
+ *
+ * <p>A full list is only issued at start-up and when the API server reports
+ * that the last seen {@code resourceVersion} has expired. Otherwise the watch
+ * is resumed from the last event or bookmark, and each event only updates the
+ * registrations of the service it concerns.</p>
+ */
+public class EndpointsWatcher implements Service<EndpointsWatcher>, Runnable {
+
+    public static final ServiceName SERVICE_NAME = OpenShiftTopologyConnector.SERVICE_NAME.append("endpoints-watcher");
+
+    public static final int DEFAULT_HTTPS_PORT = ServiceWatcher.DEFAULT_HTTPS_PORT;
+
+    public static final int DEFAULT_HTTP_PORT = 8080;
+
+    static final String TOPOLOGY_SOURCE_KEY = "openshift";
+
+    private static final Path TOKEN_FILE = Paths.get("/var/run/secrets/kubernetes.io/serviceaccount/token");
+
+    private static final Path CA_FILE = Paths.get("/var/run/secrets/kubernetes.io/serviceaccount/ca.crt");
+
+    private static final int WATCH_TIMEOUT_SECONDS = 300;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    public EndpointsWatcher() {
+    }
+
+    EndpointsWatcher(String apiUrl, String token, String namespace, TopologyManager topologyManager) {
+        this.apiUrl = apiUrl;
+        this.token = token;
+        this.namespace = namespace;
+        this.topologyManager = topologyManager;
+    }
+
+    public Injector<String> getNamespaceInjector() {
+        return this.namespaceInjector;
+    }
+
+    public Injector<TopologyManager> getTopologyManagerInjector() {
+        return this.topologyManagerInjector;
+    }
+
+    @Override
+    public void start(StartContext context) throws StartException {
+        this.namespace = this.namespaceInjector.getValue();
+        this.topologyManager = this.topologyManagerInjector.getValue();
+        try {
+            String scheme = "http";
+            if (Files.exists(TOKEN_FILE)) {
+                this.token = new String(Files.readAllBytes(TOKEN_FILE), StandardCharsets.UTF_8).trim();
+                scheme = "https";
+            }
+            if (Files.exists(CA_FILE)) {
+                this.socketFactory = socketFactory(CA_FILE);
+            }
+            this.apiUrl = scheme + "://" + System.getenv("KUBERNETES_SERVICE_HOST") + ":" + ClientService.servicePort("kubernetes");
+        } catch (IOException | GeneralSecurityException e) {
+            throw new StartException(e);
+        }
+
+        this.running = true;
+        this.thread = new Thread(this, "topology-endpoints-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void stop(StopContext context) {
+        this.running = false;
+        if (this.thread != null) {
+            this.thread.interrupt();
+            this.thread = null;
+        }
+        HttpURLConnection connection = this.watchConnection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public EndpointsWatcher getValue() throws IllegalStateException, IllegalArgumentException {
+        return this;
+    }
+
+    @Override
+    public void run() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (this.running) {
+            try {
+                if (this.resourceVersion == null) {
+                    list();
+                }
+                if (watch()) {
+                    // server closed the watch after its timeout; resume right away
+                    backoff = INITIAL_BACKOFF_MILLIS;
+                } else if (this.resourceVersion != null) {
+                    // ended without a single event, don't reopen it in a loop
+                    if (!sleep(backoff)) {
+                        return;
+                    }
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!this.running) {
+                    return;
+                }
+                log.log(Level.WARNING, "Endpoints watch failed, retrying in " + backoff + "ms", e);
+                if (!sleep(backoff)) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    String resourceVersion() {
+        return this.resourceVersion;
+    }
+
+    /**
+     * Full list of the namespace's endpoints, used at start-up and whenever
+     * the watch can no longer be resumed. Services that disappeared while we
+     * were not watching are dropped from the topology.
+     */
+    void list() throws IOException {
+        HttpURLConnection connection = open(endpointsPath());
+        try (InputStream in = connection.getInputStream()) {
+            ModelNode list = ModelNode.fromJSONStream(in);
+            Set<String> seen = new HashSet<>();
+            ModelNode items = list.get("items");
+            if (items.isDefined()) {
+                for (ModelNode item : items.asList()) {
+                    String name = item.get("metadata", "name").asString();
+                    seen.add(name);
+                    update(name, registrationsFor(item));
+                }
+            }
+            for (String name : new HashSet<>(this.cache.keySet())) {
+                if (!seen.contains(name)) {
+                    update(name, new HashSet<>());
+                }
+            }
+            this.resourceVersion = list.get("metadata", "resourceVersion").asString();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Stream watch events from the last known resource version until the
+     * server ends the watch. An expired resource version clears it so that
+     * the next round re-lists, any other error event fails the watch.
+     *
+     * @return whether the watch delivered any event
+     */
+    boolean watch() throws IOException {
+        String path = endpointsPath()
+                + "?watch=true&allowWatchBookmarks=true&timeoutSeconds=" + WATCH_TIMEOUT_SECONDS
+                + "&resourceVersion=" + URLEncoder.encode(this.resourceVersion, "UTF-8");
+        HttpURLConnection connection = open(path);
+        this.watchConnection = connection;
+        try {
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_GONE) {
+                this.resourceVersion = null;
+                return false;
+            }
+            boolean delivered = false;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        if (!handle(ModelNode.fromJSONString(line))) {
+                            break;
+                        }
+                        delivered = true;
+                    }
+                }
+            }
+            return delivered;
+        } finally {
+            this.watchConnection = null;
+            connection.disconnect();
+        }
+    }
+
+    private boolean handle(ModelNode event) throws IOException {
+        String type = event.get("type").asString();
+        ModelNode object = event.get("object");
+
+        if ("ERROR".equals(type)) {
+            if (object.hasDefined("code") && object.get("code").asInt() == HttpURLConnection.HTTP_GONE) {
+                this.resourceVersion = null;
+                return false;
+            }
+            // e.g. a 403 or 500 from the API server, reopening right away would only fail again
+            throw new IOException("Endpoints watch error: " + object.get("code").asString() + " " + object.get("message").asString());
+        }
+
+        if (!"BOOKMARK".equals(type)) {
+            String name = object.get("metadata", "name").asString();
+            if ("DELETED".equals(type)) {
+                update(name, new HashSet<>());
+            } else {
+                update(name, registrationsFor(object));
+            }
+        }
+        this.resourceVersion = object.get("metadata", "resourceVersion").asString();
+        return true;
+    }
+
+    private void update(String name, Set<Registration> registrations) {
+        Set<Registration> previous = registrations.isEmpty() ? this.cache.remove(name) : this.cache.put(name, registrations);
+        if (previous == null && registrations.isEmpty()) {
+            return;
+        }
+        if (!registrations.equals(previous)) {
+            this.topologyManager.replaceAll(TOPOLOGY_SOURCE_KEY, name, registrations);
+        }
+    }
+
+    private Set<Registration> registrationsFor(ModelNode endpoints) {
+        String name = endpoints.get("metadata", "name").asString();
+        Set<Registration> registrations = new HashSet<>();
+        ModelNode subsets = endpoints.get("subsets");
+        if (subsets.getType() != ModelType.LIST) {
+            return registrations;
+        }
+        for (ModelNode subset : subsets.asList()) {
+            if (!subset.hasDefined("addresses") || !subset.hasDefined("ports")) {
+                continue;
+            }
+            List<ModelNode> ports = subset.get("ports").asList();
+            for (ModelNode address : subset.get("addresses").asList()) {
+                for (ModelNode port : ports) {
+                    String scheme = scheme(port, ports.size() == 1);
+                    if (scheme != null) {
+                        registrations.add(new Registration(TOPOLOGY_SOURCE_KEY,
+                                                           name,
+                                                           address.get("ip").asString(),
+                                                           port.get("port").asInt(),
+                                                           scheme));
+                    }
+                }
+            }
+        }
+        return registrations;
+    }
+
+    /**
+     * Like {@link ServiceWatcher}, only expose the web ports: those named or
+     * declaring an application protocol of http or https, the default ports,
+     * or the only port of a subset.
+     *
+     * @return the scheme of the port, or {@code null} if it is not exposed
+     */
+    static String scheme(ModelNode port, boolean onlyPort) {
+        String protocol = port.hasDefined("appProtocol") ? port.get("appProtocol").asString().toLowerCase(Locale.ROOT) : null;
+        String name = port.hasDefined("name") ? port.get("name").asString().toLowerCase(Locale.ROOT) : "";
+        int number = port.get("port").asInt();
+        if (protocol != null) {
+            // an explicit application protocol wins over the name and number
+            return "http".equals(protocol) || "https".equals(protocol) ? protocol : null;
+        }
+        if (isNamed(name, "https") || number == DEFAULT_HTTPS_PORT) {
+            return "https";
+        }
+        if (isNamed(name, "http") || number == DEFAULT_HTTP_PORT || onlyPort) {
+            return "http";
+        }
+        return null;
+    }
+
+    // e.g. "http" or "http-web", the Istio naming convention
+    private static boolean isNamed(String name, String scheme) {
+        return name.equals(scheme) || name.startsWith(scheme + "-");
+    }
+
+    private String endpointsPath() {
+        return "/api/v1/namespaces/" + this.namespace + "/endpoints";
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.apiUrl + path).openConnection();
+        if (this.socketFactory != null && connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(this.socketFactory);
+        }
+        if (this.token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + this.token);
+        }
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout((WATCH_TIMEOUT_SECONDS + 30) * 1000);
+        return connection;
+    }
+
+    private static SSLSocketFactory socketFactory(Path caFile) throws IOException, GeneralSecurityException {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        try (InputStream in = Files.newInputStream(caFile)) {
+            int i = 0;
+            for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                trustStore.setCertificateEntry("ca-" + (i++), certificate);
+            }
+        }
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+        return sslContext.getSocketFactory();
+    }
+
+    private static final Logger log = Logger.getLogger(EndpointsWatcher.class.getName());
+
+    private InjectedValue<String> namespaceInjector = new InjectedValue<>();
+
+    private InjectedValue<TopologyManager> topologyManagerInjector = new InjectedValue<>();
+
+    private final Map<String, Set<Registration>> cache = new HashMap<>();
+
+    private String apiUrl;
+
+    private String token;
+
+    private String namespace;
+
+    private TopologyManager topologyManager;
+
+    private SSLSocketFactory socketFactory;
+
+    private volatile String resourceVersion;
+
+    private volatile boolean running;
+
+    private volatile HttpURLConnection watchConnection;
+
+    private Thread thread;
+}
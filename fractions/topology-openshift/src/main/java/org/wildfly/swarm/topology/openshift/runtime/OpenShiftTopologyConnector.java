@@ -54,12 +54,26 @@ import org.wildfly.swarm.topology.runtime.TopologyManagerActivator;
  * can't be auto-detected and also is not set</li>
  * </ul>
  *
+ * By default Kubernetes Services are watched through the OpenShift client.
+ * Setting <code>thorntail.topology.openshift.watch-endpoints</code> to true
+ * switches to a cached, resumable watch on Endpoints instead, which exposes
+ * the individual pod addresses and avoids re-listing the namespace whenever
+ * the watch reconnects.
+ *
  * @author Ben Browning
  */
 public class OpenShiftTopologyConnector implements Service<OpenShiftTopologyConnector>, TopologyConnector {
 
     public static final ServiceName SERVICE_NAME = ServiceName.of("swarm.topology.openshift");
 
+    public OpenShiftTopologyConnector() {
+        this(false);
+    }
+
+    public OpenShiftTopologyConnector(boolean watchEndpoints) {
+        this.watchEndpoints = watchEndpoints;
+    }
+
     @Override
     public void start(StartContext context) throws StartException {
         ServiceTarget target = context.getChildTarget();
@@ -73,6 +87,15 @@ public class OpenShiftTopologyConnector implements Service<OpenShiftTopologyConn
                 .addDependency(ClientService.SERVICE_NAME, IClient.class, namespaceService.getClientInjector())
                 .install();
 
+        if (this.watchEndpoints) {
+            EndpointsWatcher watcher = new EndpointsWatcher();
+            target.addService(EndpointsWatcher.SERVICE_NAME, watcher)
+                    .addDependency(NamespaceService.SERVICE_NAME, String.class, watcher.getNamespaceInjector())
+                    .addDependency(TopologyManagerActivator.SERVICE_NAME, TopologyManager.class, watcher.getTopologyManagerInjector())
+                    .install();
+            return;
+        }
+
         ServiceWatcher watcher = new ServiceWatcher();
         target.addService(ServiceWatcher.SERVICE_NAME, watcher)
                 .addDependency(ClientService.SERVICE_NAME, IClient.class, watcher.getClientInjector())
@@ -106,4 +129,6 @@ public class OpenShiftTopologyConnector implements Service<OpenShiftTopologyConn
     }
 
     private InjectedValue<TopologyManager> topologyManagerInjector = new InjectedValue<>();
+
+    private final boolean watchEndpoints;
 }
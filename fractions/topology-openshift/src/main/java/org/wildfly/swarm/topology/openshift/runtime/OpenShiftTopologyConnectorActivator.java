@@ -15,23 +15,31 @@
  */
 package org.wildfly.swarm.topology.openshift.runtime;
 
+import java.util.Optional;
+
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 
 import org.jboss.msc.service.ServiceActivator;
 import org.jboss.msc.service.ServiceActivatorContext;
 import org.jboss.msc.service.ServiceRegistryException;
 import org.jboss.msc.service.ServiceTarget;
+import org.wildfly.swarm.spi.runtime.annotations.ConfigurationValue;
 import org.wildfly.swarm.topology.runtime.TopologyManager;
 import org.wildfly.swarm.topology.runtime.TopologyManagerActivator;
 
 @ApplicationScoped
 public class OpenShiftTopologyConnectorActivator implements ServiceActivator {
 
+    @Inject
+    @ConfigurationValue("thorntail.topology.openshift.watch-endpoints")
+    private Optional<Boolean> watchEndpoints;
+
     @Override
     public void activate(ServiceActivatorContext context) throws ServiceRegistryException {
         ServiceTarget target = context.getServiceTarget();
 
-        OpenShiftTopologyConnector connector = new OpenShiftTopologyConnector();
+        OpenShiftTopologyConnector connector = new OpenShiftTopologyConnector(this.watchEndpoints.orElse(false));
 
         target.addService(TopologyManagerActivator.CONNECTOR_SERVICE_NAME, connector)
                 .addDependency(TopologyManagerActivator.SERVICE_NAME, TopologyManager.class, connector.getTopologyManagerInjector())
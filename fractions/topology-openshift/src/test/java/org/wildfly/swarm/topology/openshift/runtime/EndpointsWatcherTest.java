@@ -0,0 +1,196 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.openshift.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class EndpointsWatcherTest {
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/api/v1/namespaces/test/endpoints", this::handle);
+        this.server.start();
+
+        this.topologyManager = new TopologyManager();
+        this.watcher = new EndpointsWatcher("http://localhost:" + this.server.getAddress().getPort(), null, "test", this.topologyManager);
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testListPopulatesTopology() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[" + endpoints("foo", "11", "10.0.0.1", 8080) + "]}";
+
+        this.watcher.list();
+
+        assertThat(this.watcher.resourceVersion()).isEqualTo("10");
+        assertThat(this.topologyManager.registrationsForService("foo")).hasSize(1);
+        Registration registration = this.topologyManager.registrationsForService("foo").iterator().next();
+        assertThat(registration.getAddress()).isEqualTo("10.0.0.1");
+        assertThat(registration.getPort()).isEqualTo(8080);
+        assertThat(registration.hasTag("http")).isTrue();
+    }
+
+    @Test
+    public void testWatchResumesFromBookmark() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[]}";
+        this.watchEvents.add("{\"type\":\"ADDED\",\"object\":" + endpoints("foo", "11", "10.0.0.1", 8443) + "}");
+        this.watchEvents.add("{\"type\":\"BOOKMARK\",\"object\":{\"metadata\":{\"resourceVersion\":\"15\"}}}");
+
+        this.watcher.list();
+        this.watcher.watch();
+
+        assertThat(this.lastQuery).contains("resourceVersion=10");
+        assertThat(this.watcher.resourceVersion()).isEqualTo("15");
+        assertThat(this.topologyManager.registrationsForService("foo", "https")).hasSize(1);
+
+        this.watchEvents.clear();
+        this.watchEvents.add("{\"type\":\"DELETED\",\"object\":" + endpoints("foo", "16", "10.0.0.1", 8443) + "}");
+
+        this.watcher.watch();
+
+        assertThat(this.lastQuery).contains("resourceVersion=15");
+        assertThat(this.listCount).isEqualTo(1);
+        assertThat(this.topologyManager.registrationsForService("foo")).isEmpty();
+    }
+
+    @Test
+    public void testExpiredResourceVersionForcesRelist() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[]}";
+        this.watchEvents.add("{\"type\":\"ERROR\",\"object\":{\"kind\":\"Status\",\"code\":410}}");
+
+        this.watcher.list();
+
+        assertThat(this.watcher.watch()).isFalse();
+        assertThat(this.watcher.resourceVersion()).isNull();
+    }
+
+    @Test
+    public void testOtherErrorsFailTheWatch() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[]}";
+        this.watchEvents.add("{\"type\":\"ERROR\",\"object\":{\"kind\":\"Status\",\"code\":403,\"message\":\"forbidden\"}}");
+
+        this.watcher.list();
+        try {
+            this.watcher.watch();
+            fail("Expected the watch to fail");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("403");
+        }
+
+        // the resource version is kept, the watch is resumed after the back-off
+        assertThat(this.watcher.resourceVersion()).isEqualTo("10");
+    }
+
+    @Test
+    public void testEmptyWatchDeliversNothing() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[]}";
+
+        this.watcher.list();
+
+        assertThat(this.watcher.watch()).isFalse();
+        this.watchEvents.add("{\"type\":\"BOOKMARK\",\"object\":{\"metadata\":{\"resourceVersion\":\"15\"}}}");
+        assertThat(this.watcher.watch()).isTrue();
+    }
+
+    @Test
+    public void testOnlyWebPortsOfMultiPortEndpointsAreRegistered() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[{"
+                + "\"metadata\":{\"name\":\"foo\",\"resourceVersion\":\"11\"},"
+                + "\"subsets\":[{\"addresses\":[{\"ip\":\"10.0.0.1\"},{\"ip\":\"10.0.0.2\"}],\"ports\":["
+                + "{\"name\":\"http\",\"port\":8080},"
+                + "{\"name\":\"https\",\"port\":9443},"
+                + "{\"name\":\"web\",\"port\":9000,\"appProtocol\":\"http\"},"
+                + "{\"name\":\"grpc\",\"port\":9090,\"appProtocol\":\"grpc\"},"
+                + "{\"name\":\"metrics\",\"port\":9779},"
+                + "{\"name\":\"postgresql\",\"port\":5432}"
+                + "]}]}]}";
+
+        this.watcher.list();
+
+        assertThat(this.topologyManager.registrationsForService("foo")).hasSize(6);
+        assertThat(this.topologyManager.registrationsForService("foo", "http")).hasSize(4);
+        assertThat(this.topologyManager.registrationsForService("foo", "https")).hasSize(2);
+        for (Registration registration : this.topologyManager.registrationsForService("foo")) {
+            assertThat(registration.getPort() == 8080 || registration.getPort() == 9443 || registration.getPort() == 9000).isTrue();
+        }
+    }
+
+    @Test
+    public void testSingleUnnamedPortIsRegistered() throws Exception {
+        this.listResponse = "{\"metadata\":{\"resourceVersion\":\"10\"},\"items\":[" + endpoints("foo", "11", "10.0.0.1", 9000) + "]}";
+
+        this.watcher.list();
+
+        assertThat(this.topologyManager.registrationsForService("foo", "http")).hasSize(1);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        String body;
+        if (query != null && query.contains("watch=true")) {
+            this.lastQuery = query;
+            body = String.join("\n", this.watchEvents) + "\n";
+        } else {
+            this.listCount++;
+            body = this.listResponse;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String endpoints(String name, String resourceVersion, String ip, int port) {
+        return "{\"metadata\":{\"name\":\"" + name + "\",\"resourceVersion\":\"" + resourceVersion + "\"},"
+                + "\"subsets\":[{\"addresses\":[{\"ip\":\"" + ip + "\"}],\"ports\":[{\"port\":" + port + "}]}]}";
+    }
+
+    private HttpServer server;
+
+    private TopologyManager topologyManager;
+
+    private EndpointsWatcher watcher;
+
+    private String listResponse;
+
+    private List<String> watchEvents = new ArrayList<>();
+
+    private String lastQuery;
+
+    private int listCount;
+}
@@ -86,10 +86,48 @@ public class TopologyWebAppFraction implements Fraction<TopologyWebAppFraction>
         return exposeTopologyEndpoint.get();
     }
 
+    /**
+     * Number of consecutive failed proxied requests (5xx responses) after
+     * which a proxied host is temporarily ejected from the load balancer.
+     *
+     * Defaults to 0 (outlier detection disabled).
+     *
+     * @param proxyEjectionFailureThreshold the number of consecutive failures
+     */
+    public void proxyEjectionFailureThreshold(int proxyEjectionFailureThreshold) {
+        this.proxyEjectionFailureThreshold.set(proxyEjectionFailureThreshold);
+    }
+
+    public int proxyEjectionFailureThreshold() {
+        return proxyEjectionFailureThreshold.get();
+    }
+
+    /**
+     * Time, in seconds, an ejected host stays out of the load balancer
+     * before it is re-added.
+     *
+     * Defaults to 30.
+     *
+     * @param proxyEjectionTime the ejection time in seconds
+     */
+    public void proxyEjectionTime(int proxyEjectionTime) {
+        this.proxyEjectionTime.set(proxyEjectionTime);
+    }
+
+    public int proxyEjectionTime() {
+        return proxyEjectionTime.get();
+    }
+
     @AttributeDocumentation("Service name to URL path proxy mappings")
     private Map<String, String> proxiedServiceMappings = new HashMap<>();
 
     @AttributeDocumentation("Flag to enable or disable the topology web endpoint")
     private Defaultable<Boolean> exposeTopologyEndpoint = bool(true);
 
+    @AttributeDocumentation("Consecutive failed proxied requests after which a proxied host is ejected (0 disables ejection)")
+    private Defaultable<Integer> proxyEjectionFailureThreshold = integer(0);
+
+    @AttributeDocumentation("Time in seconds an ejected proxied host stays out of the load balancer")
+    private Defaultable<Integer> proxyEjectionTime = integer(30);
+
 }
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.webapp.runtime;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
+
+/**
+ * Passive outlier detection for the proxied hosts: a host whose proxied
+ * requests fail a number of times in a row is taken out of the load balancer
+ * for the ejection time, and then re-admitted.
+ *
+ * <p>The outcome of each proxied request is reported by
+ * {@link ProxyOutlierHandler}. The hosts are only ever modified on the
+ * monitor thread, so adds, removals and ejections of a host are applied in
+ * the order they were requested; the request threads only read an immutable
+ * snapshot of them.</p>
+ *
+ * <p>Backends are reported by the address of the connection to them, while
+ * hosts are added by the URI of their topology entry, which may name them by
+ * host name. Each host is therefore indexed both under the host of its URI
+ * and under the addresses it resolved to when it was added.</p>
+ */
+class ProxyHostMonitor {
+
+    ProxyHostMonitor(int failureThreshold, int ejectionTimeSeconds) {
+        this.failureThreshold = Math.max(0, failureThreshold);
+        this.ejectionTimeMillis = TimeUnit.SECONDS.toMillis(Math.max(1, ejectionTimeSeconds));
+    }
+
+    /**
+     * @return the monitor of the running proxy service, if outlier detection is enabled
+     */
+    static ProxyHostMonitor active() {
+        return active;
+    }
+
+    boolean isEnabled() {
+        return this.failureThreshold > 0;
+    }
+
+    synchronized void start() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "topology-proxy-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // pending re-admissions are dropped on stop, the hosts go away with the proxy
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
+        active = this;
+    }
+
+    synchronized void stop() {
+        if (active == this) {
+            active = null;
+        }
+        if (this.executor != null) {
+            this.executor.execute(this.hosts::clear);
+            this.executor.shutdown();
+            this.executor = null;
+        }
+        this.snapshot = Collections.emptyMap();
+    }
+
+    void addHost(LoadBalancingProxyClient proxyClient, URI uri) {
+        if (!submit(() -> {
+            HostState state = new HostState(proxyClient, uri, keys(uri));
+            HostState previous = this.hosts.put(uri, state);
+            publish();
+            // a host that is still in the balancer is not added twice
+            if (previous == null || previous.ejected) {
+                proxyClient.addHost(uri);
+            }
+        })) {
+            proxyClient.addHost(uri);
+        }
+    }
+
+    void removeHost(LoadBalancingProxyClient proxyClient, URI uri) {
+        if (!submit(() -> {
+            HostState state = this.hosts.remove(uri);
+            if (state == null || !state.ejected) {
+                proxyClient.removeHost(uri);
+            }
+            publish();
+        })) {
+            proxyClient.removeHost(uri);
+        }
+    }
+
+    /**
+     * Record the outcome of a request proxied to the given backend.
+     *
+     * @param backend the address of the backend the request was sent to
+     * @param failed  whether the request failed, either to be sent or with a 5xx response
+     */
+    void requestCompleted(SocketAddress backend, boolean failed) {
+        HostState state = lookup(backend);
+        if (state == null) {
+            return;
+        }
+        if (!failed) {
+            if (state.consecutiveFailures.get() != 0) {
+                state.consecutiveFailures.set(0);
+            }
+        } else if (state.consecutiveFailures.incrementAndGet() == this.failureThreshold) {
+            submit(() -> eject(state));
+        }
+    }
+
+    private void eject(HostState state) {
+        if (this.hosts.get(state.uri) != state || state.ejected) {
+            return;
+        }
+        log.warning("Ejecting proxied host " + state.uri + " for " + TimeUnit.MILLISECONDS.toSeconds(this.ejectionTimeMillis)
+                            + "s after " + this.failureThreshold + " consecutive failures");
+        state.proxyClient.removeHost(state.uri);
+        state.ejected = true;
+        schedule(() -> readmit(state), this.ejectionTimeMillis);
+    }
+
+    private void readmit(HostState state) {
+        if (this.hosts.get(state.uri) != state || !state.ejected) {
+            return;
+        }
+        log.info("Re-adding proxied host " + state.uri + " after ejection");
+        state.ejected = false;
+        state.consecutiveFailures.set(0);
+        state.proxyClient.addHost(state.uri);
+    }
+
+    private void publish() {
+        Map<String, HostState> snapshot = new HashMap<>();
+        for (HostState state : this.hosts.values()) {
+            for (String key : state.keys) {
+                snapshot.put(key, state);
+            }
+        }
+        this.snapshot = Collections.unmodifiableMap(snapshot);
+    }
+
+    private synchronized boolean submit(Runnable task) {
+        return schedule(task, 0);
+    }
+
+    private synchronized boolean schedule(Runnable task, long delayMillis) {
+        if (this.executor == null) {
+            return false;
+        }
+        try {
+            this.executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private HostState lookup(SocketAddress backend) {
+        if (!(backend instanceof InetSocketAddress)) {
+            return null;
+        }
+        InetSocketAddress inet = (InetSocketAddress) backend;
+        Map<String, HostState> snapshot = this.snapshot;
+        HostState state = null;
+        if (inet.getAddress() != null) {
+            state = snapshot.get(key(inet.getAddress().getHostAddress(), inet.getPort()));
+        }
+        if (state == null) {
+            state = snapshot.get(key(inet.getHostString(), inet.getPort()));
+        }
+        return state;
+    }
+
+    // only called on the monitor thread, as it may have to resolve the host
+    static Set<String> keys(URI uri) {
+        Set<String> keys = new HashSet<>();
+        keys.add(key(uri.getHost(), uri.getPort()));
+        try {
+            for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                keys.add(key(address.getHostAddress(), uri.getPort()));
+            }
+        } catch (UnknownHostException e) {
+            // only matched by its name then
+        }
+        return keys;
+    }
+
+    private static String key(String host, int port) {
+        return host.toLowerCase(Locale.ROOT) + ":" + port;
+    }
+
+    private static final class HostState {
+        HostState(LoadBalancingProxyClient proxyClient, URI uri, Set<String> keys) {
+            this.proxyClient = proxyClient;
+            this.uri = uri;
+            this.keys = keys;
+        }
+
+        final LoadBalancingProxyClient proxyClient;
+
+        final URI uri;
+
+        final Set<String> keys;
+
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        // only accessed on the monitor thread
+        boolean ejected;
+    }
+
+    private static final Logger log = Logger.getLogger(ProxyHostMonitor.class.getName());
+
+    private static volatile ProxyHostMonitor active;
+
+    private final int failureThreshold;
+
+    private final long ejectionTimeMillis;
+
+    // only accessed on the monitor thread
+    private final Map<URI, HostState> hosts = new HashMap<>();
+
+    private volatile Map<String, HostState> snapshot = Collections.emptyMap();
+
+    private ScheduledExecutorService executor;
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.webapp.runtime;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.proxy.ProxyCallback;
+import io.undertow.server.handlers.proxy.ProxyClient;
+import io.undertow.server.handlers.proxy.ProxyConnection;
+import io.undertow.server.handlers.proxy.ProxyHandler;
+import io.undertow.util.AttachmentKey;
+
+/**
+ * Proxies the requests of a topology-backed location while reporting the
+ * outcome of each of them, per backend, to the {@link ProxyHostMonitor}.
+ *
+ * <p>Undertow does not tell which backend a proxied request went to, so this
+ * filter proxies the requests itself, through the load-balancing client of
+ * the reverse-proxy handler it wraps, and notes the backend of each
+ * connection it is handed. Connection failures are not attributed here, the
+ * client already backs off such hosts for the {@code problem-server-retry}
+ * time.</p>
+ *
+ * @see TopologyProxiedServiceCustomizer
+ */
+public class ProxyOutlierHandler implements HttpHandler {
+
+    public ProxyOutlierHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        ProxyHostMonitor monitor = ProxyHostMonitor.active();
+        HttpHandler proxy = monitor == null ? null : proxy(monitor);
+        if (proxy == null) {
+            this.next.handleRequest(exchange);
+        } else {
+            proxy.handleRequest(exchange);
+        }
+    }
+
+    private HttpHandler proxy(ProxyHostMonitor monitor) {
+        ProxyHandler proxy = this.proxy;
+        if (proxy == null || this.monitor != monitor) {
+            ProxyHandler configured = TopologyProxyService.proxyHandler(this.next);
+            if (configured == null) {
+                return null;
+            }
+            // the same settings as the configured reverse-proxy handler, only the client is wrapped
+            proxy = ProxyHandler.builder()
+                    .setProxyClient(new OutlierTrackingProxyClient(configured.getProxyClient(), monitor))
+                    .setMaxRequestTime(configured.getMaxRequestTime())
+                    .setNext(configured.getNext())
+                    .setRewriteHostHeader(configured.isRewriteHostHeader())
+                    .setReuseXForwarded(configured.isReuseXForwarded())
+                    .setMaxConnectionRetries(configured.getMaxConnectionRetries())
+                    .build();
+            this.monitor = monitor;
+            this.proxy = proxy;
+        }
+        return proxy;
+    }
+
+    static final class OutlierTrackingProxyClient implements ProxyClient {
+        OutlierTrackingProxyClient(ProxyClient delegate, ProxyHostMonitor monitor) {
+            this.delegate = delegate;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public ProxyTarget findTarget(HttpServerExchange exchange) {
+            return this.delegate.findTarget(exchange);
+        }
+
+        @Override
+        public void getConnection(ProxyTarget target, HttpServerExchange exchange, ProxyCallback<ProxyConnection> callback, long timeout, TimeUnit timeUnit) {
+            this.delegate.getConnection(target, exchange, new ProxyCallback<ProxyConnection>() {
+                @Override
+                public void completed(HttpServerExchange exchange, ProxyConnection connection) {
+                    // a retry may hand out another connection, the last one is the one that counts
+                    if (exchange.putAttachment(BACKEND, connection.getConnection().getPeerAddress()) == null) {
+                        exchange.addExchangeCompleteListener((completed, nextListener) -> {
+                            try {
+                                OutlierTrackingProxyClient.this.monitor.requestCompleted(completed.getAttachment(BACKEND), completed.getStatusCode() >= 500);
+                            } finally {
+                                nextListener.proceed();
+                            }
+                        });
+                    }
+                    callback.completed(exchange, connection);
+                }
+
+                @Override
+                public void failed(HttpServerExchange exchange) {
+                    callback.failed(exchange);
+                }
+
+                @Override
+                public void queuedRequestFailed(HttpServerExchange exchange) {
+                    callback.queuedRequestFailed(exchange);
+                }
+
+                @Override
+                public void couldNotResolveBackend(HttpServerExchange exchange) {
+                    callback.couldNotResolveBackend(exchange);
+                }
+            }, timeout, timeUnit);
+        }
+
+        private final ProxyClient delegate;
+
+        private final ProxyHostMonitor monitor;
+    }
+
+    private static final AttachmentKey<SocketAddress> BACKEND = AttachmentKey.create(SocketAddress.class);
+
+    private final HttpHandler next;
+
+    private volatile ProxyHandler proxy;
+
+    private volatile ProxyHostMonitor monitor;
+}
@@ -41,6 +41,8 @@ import static org.wildfly.swarm.topology.webapp.TopologyWebAppFraction.proxyHand
 @ApplicationScoped
 public class TopologyProxiedServiceCustomizer implements Customizer {
 
+    private static final String OUTLIER_FILTER_NAME = "wfs-topology-proxy-outlier";
+
     @SuppressWarnings("unused")
     @Inject @Any
     private UndertowFraction undertow;
@@ -53,13 +55,31 @@ public class TopologyProxiedServiceCustomizer implements Customizer {
         Map<String,String> mappings = this.fraction.proxiedServiceMappings();
         if (!mappings.isEmpty()) {
             HandlerConfiguration handlerConfig = undertow.subresources().handlerConfiguration();
+            boolean outlierDetection = this.fraction.proxyEjectionFailureThreshold() > 0;
+            if (outlierDetection) {
+                if (undertow.subresources().filterConfiguration() == null) {
+                    undertow.filterConfiguration();
+                }
+                undertow.subresources().filterConfiguration()
+                        .customFilter(OUTLIER_FILTER_NAME, customFilter -> {
+                            customFilter.module("org.wildfly.swarm.topology.webapp:runtime");
+                            customFilter.className(ProxyOutlierHandler.class.getName());
+                        });
+            }
             for (String serviceName : mappings.keySet()) {
                 ReverseProxy<?> proxy = new ReverseProxy<>(proxyHandlerName(serviceName)).hosts(Collections.emptyList());
+                if (outlierDetection) {
+                    // align Undertow's own back-off from hosts refusing connections with our ejection time
+                    proxy.problemServerRetry(this.fraction.proxyEjectionTime());
+                }
                 handlerConfig.reverseProxy(proxy);
 
                 String contextPath = mappings.get(serviceName);
                 for (Server server : undertow.subresources().servers()) {
                     Location location = new Location(contextPath).handler(proxyHandlerName(serviceName));
+                    if (outlierDetection) {
+                        location.filterRef(OUTLIER_FILTER_NAME);
+                    }
                     for (Host host : server.subresources().hosts()) {
                         host.location(location);
                     }
@@ -48,7 +48,12 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
     public static final ServiceName SERVICE_NAME = ServiceName.parse("swarm.topology.proxy");
 
     public TopologyProxyService(Set<String> serviceNames) {
+        this(serviceNames, 0, 0);
+    }
+
+    public TopologyProxyService(Set<String> serviceNames, int ejectionFailureThreshold, int ejectionTime) {
         this.serviceNames = serviceNames;
+        this.hostMonitor = new ProxyHostMonitor(ejectionFailureThreshold, ejectionTime);
     }
 
     public ServiceName mscServiceNameForServiceProxy(String serviceName) {
@@ -58,6 +63,9 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
 
     @Override
     public void start(StartContext context) throws StartException {
+        if (hostMonitor.isEnabled()) {
+            hostMonitor.start();
+        }
         try {
             Topology topology = Topology.lookup();
             topology.addListener(this);
@@ -73,6 +81,7 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
         } catch (NamingException e) {
             // Swallow, as we're closing anyway
         }
+        hostMonitor.stop();
     }
 
     @Override
@@ -111,17 +120,7 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
             return;
         }
 
-        LoadBalancingProxyClient proxyClient = null;
-
-        // with SWARM-189 the request controller subsystem does replace
-        // all HttpHandler (including ProxyHandler) with GlobalRequestControllerHandler,
-        // which then wraps the next handler in the chain
-        if (proxyHandler instanceof GlobalRequestControllerHandler) {
-            ProxyHandler proxy = (ProxyHandler) ((GlobalRequestControllerHandler) proxyHandler).getNext(); // next in the chain of handlers
-            proxyClient = (LoadBalancingProxyClient) proxy.getProxyClient();
-        } else {
-            proxyClient = (LoadBalancingProxyClient) ((ProxyHandler) proxyHandler).getProxyClient();
-        }
+        LoadBalancingProxyClient proxyClient = proxyClient(proxyHandler);
 
         List<Topology.Entry> oldEntries = proxyEntries.get(serviceName);
         List<Topology.Entry> entriesToRemove = new ArrayList<>();
@@ -142,14 +141,24 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
         }
         for (Topology.Entry entry : entriesToRemove) {
             try {
-                proxyClient.removeHost(entryToURI(entry));
+                URI uri = entryToURI(entry);
+                if (hostMonitor.isEnabled()) {
+                    hostMonitor.removeHost(proxyClient, uri);
+                } else {
+                    proxyClient.removeHost(uri);
+                }
             } catch (URISyntaxException ex) {
                 log.log(Level.WARNING, "Error converting topology entry to URI", ex);
             }
         }
         for (Topology.Entry entry : entriesToAdd) {
             try {
-                proxyClient.addHost(entryToURI(entry));
+                URI uri = entryToURI(entry);
+                if (hostMonitor.isEnabled()) {
+                    hostMonitor.addHost(proxyClient, uri);
+                } else {
+                    proxyClient.addHost(uri);
+                }
             } catch (URISyntaxException ex) {
                 log.log(Level.WARNING, "Error converting topology entry to URI", ex);
             }
@@ -157,6 +166,24 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
         proxyEntries.put(serviceName, entries);
     }
 
+    static LoadBalancingProxyClient proxyClient(HttpHandler proxyHandler) {
+        ProxyHandler handler = proxyHandler(proxyHandler);
+        return handler == null ? null : (LoadBalancingProxyClient) handler.getProxyClient();
+    }
+
+    static ProxyHandler proxyHandler(HttpHandler proxyHandler) {
+        // with SWARM-189 the request controller subsystem does replace
+        // all HttpHandler (including ProxyHandler) with GlobalRequestControllerHandler,
+        // which then wraps the next handler in the chain
+        if (proxyHandler instanceof GlobalRequestControllerHandler) {
+            proxyHandler = ((GlobalRequestControllerHandler) proxyHandler).getNext(); // next in the chain of handlers
+        }
+        if (proxyHandler instanceof ProxyHandler) {
+            return (ProxyHandler) proxyHandler;
+        }
+        return null;
+    }
+
     private URI entryToURI(Topology.Entry entry) throws URISyntaxException {
         List<String> tags = entry.getTags();
         String scheme = "http";
@@ -170,6 +197,8 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
 
     private final Set<String> serviceNames;
 
+    private final ProxyHostMonitor hostMonitor;
+
     private Map<String, InjectedValue<HttpHandler>> proxyHandlerMap = new HashMap<>();
 
     private Map<String, List<Topology.Entry>> proxyEntries = new HashMap<>();
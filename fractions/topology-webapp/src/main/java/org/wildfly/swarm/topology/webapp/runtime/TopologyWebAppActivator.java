@@ -45,11 +45,17 @@ public class TopologyWebAppActivator implements ServiceActivator {
     public void activate(ServiceActivatorContext context) throws ServiceRegistryException {
         ServiceTarget target = context.getServiceTarget();
 
+        TopologyProxyService proxyService;
         if (!topologyWebAppFractionInstance.isUnsatisfied()) {
-            serviceNames = topologyWebAppFractionInstance.get().proxiedServiceMappings().keySet();
+            TopologyWebAppFraction fraction = topologyWebAppFractionInstance.get();
+            serviceNames = fraction.proxiedServiceMappings().keySet();
+            proxyService = new TopologyProxyService(serviceNames,
+                                                    fraction.proxyEjectionFailureThreshold(),
+                                                    fraction.proxyEjectionTime());
+        } else {
+            proxyService = new TopologyProxyService(serviceNames);
         }
 
-        TopologyProxyService proxyService = new TopologyProxyService(serviceNames);
         ServiceBuilder<TopologyProxyService> serviceBuilder = target
                 .addService(TopologyProxyService.SERVICE_NAME, proxyService)
                 .addDependency(DefaultNamespaceContextSelectorService.SERVICE_NAME)
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.webapp.runtime;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProxyHostMonitorTest {
+
+    @Before
+    public void setUp() {
+        this.client = new RecordingProxyClient();
+        this.monitor = new ProxyHostMonitor(3, 1);
+        this.monitor.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.monitor.stop();
+    }
+
+    @Test
+    public void testEjectsAfterConsecutiveFailuresAndReadmits() throws Exception {
+        this.monitor.addHost(this.client, HOST);
+        await(() -> this.client.hosts.contains(HOST));
+
+        this.monitor.requestCompleted(BACKEND, true);
+        this.monitor.requestCompleted(BACKEND, true);
+        this.monitor.requestCompleted(BACKEND, true);
+        await(() -> !this.client.hosts.contains(HOST));
+
+        // back after the ejection time
+        await(() -> this.client.hosts.contains(HOST));
+        assertThat(this.client.hosts).hasSize(1);
+    }
+
+    @Test
+    public void testSuccessResetsFailures() throws Exception {
+        this.monitor.addHost(this.client, HOST);
+        await(() -> this.client.hosts.contains(HOST));
+
+        for (int i = 0; i < 10; ++i) {
+            this.monitor.requestCompleted(BACKEND, true);
+            this.monitor.requestCompleted(BACKEND, true);
+            this.monitor.requestCompleted(BACKEND, false);
+        }
+        Thread.sleep(100);
+        assertThat(this.client.removed).isEmpty();
+    }
+
+    @Test
+    public void testHostAddedByNameMatchesItsAddress() throws Exception {
+        URI byName = URI.create("http://localhost:8080");
+        this.monitor.addHost(this.client, byName);
+        await(() -> this.client.hosts.contains(byName));
+
+        InetSocketAddress backend = new InetSocketAddress(InetAddress.getByName("localhost"), 8080);
+        for (int i = 0; i < 3; ++i) {
+            this.monitor.requestCompleted(backend, true);
+        }
+        await(() -> !this.client.hosts.contains(byName));
+    }
+
+    @Test
+    public void testKeysIncludeNameAndAddresses() throws Exception {
+        assertThat(ProxyHostMonitor.keys(URI.create("http://LocalHost:8080"))).contains("localhost:8080");
+        assertThat(ProxyHostMonitor.keys(URI.create("http://[::1]:8080"))).contains("0:0:0:0:0:0:0:1:8080");
+        assertThat(ProxyHostMonitor.keys(URI.create("http://10.0.0.1:8080"))).containsOnly("10.0.0.1:8080");
+    }
+
+    @Test
+    public void testUnknownBackendIsIgnored() throws Exception {
+        this.monitor.addHost(this.client, HOST);
+        await(() -> this.client.hosts.contains(HOST));
+
+        InetSocketAddress other = new InetSocketAddress("10.0.0.1", 8081);
+        for (int i = 0; i < 10; ++i) {
+            this.monitor.requestCompleted(other, true);
+        }
+        Thread.sleep(100);
+        assertThat(this.client.removed).isEmpty();
+    }
+
+    @Test
+    public void testRemovingEjectedHost() throws Exception {
+        this.monitor.addHost(this.client, HOST);
+        await(() -> this.client.hosts.contains(HOST));
+        for (int i = 0; i < 3; ++i) {
+            this.monitor.requestCompleted(BACKEND, true);
+        }
+        await(() -> !this.client.hosts.contains(HOST));
+
+        this.monitor.removeHost(this.client, HOST);
+        Thread.sleep(1500);
+
+        // removed once on ejection, and neither removed again nor re-admitted
+        assertThat(this.client.removed).hasSize(1);
+        assertThat(this.client.hosts).isEmpty();
+    }
+
+    @Test
+    public void testHostsChangesAfterStop() {
+        this.monitor.stop();
+
+        this.monitor.addHost(this.client, HOST);
+        assertThat(this.client.hosts).containsOnly(HOST);
+        this.monitor.removeHost(this.client, HOST);
+        assertThat(this.client.hosts).isEmpty();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingProxyClient extends LoadBalancingProxyClient {
+        @Override
+        public synchronized LoadBalancingProxyClient addHost(URI host) {
+            this.hosts.add(host);
+            return this;
+        }
+
+        @Override
+        public synchronized LoadBalancingProxyClient removeHost(URI uri) {
+            this.hosts.remove(uri);
+            this.removed.add(uri);
+            return this;
+        }
+
+        final List<URI> hosts = new CopyOnWriteArrayList<>();
+
+        final List<URI> removed = new CopyOnWriteArrayList<>();
+    }
+
+    private static final URI HOST = URI.create("http://10.0.0.1:8080");
+
+    private static final InetSocketAddress BACKEND = new InetSocketAddress("10.0.0.1", 8080);
+
+    private RecordingProxyClient client;
+
+    private ProxyHostMonitor monitor;
+}
@@ -15,14 +15,60 @@
  */
 package org.wildfly.swarm.topology;
 
+import org.wildfly.swarm.config.runtime.AttributeDocumentation;
+import org.wildfly.swarm.spi.api.Defaultable;
 import org.wildfly.swarm.spi.api.Fraction;
+import org.wildfly.swarm.spi.api.annotations.Configurable;
 import org.wildfly.swarm.spi.api.annotations.DeploymentModule;
 
+import static org.wildfly.swarm.spi.api.Defaultable.integer;
+
 /**
  * @author Bob McWhirter
  */
 @DeploymentModule(name = "org.wildfly.swarm.topology")
 @DeploymentModule(name = "org.wildfly.swarm.topology", slot = "deployment")
+@Configurable("thorntail.topology")
 public class TopologyFraction implements Fraction<TopologyFraction> {
 
+    /**
+     * Persist the last known registrations to the given file, and load them
+     * back at boot as provisional entries until the topology connector
+     * reports the live ones.
+     *
+     * @param snapshotFile the snapshot file path, or null to disable snapshots
+     * @return this fraction
+     */
+    public TopologyFraction snapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    public String snapshotFile() {
+        return this.snapshotFile;
+    }
+
+    /**
+     * Time, in seconds, after which provisional registrations loaded from
+     * the snapshot are dropped if the topology connector has not replaced them.
+     *
+     * Defaults to 60.
+     *
+     * @param snapshotTtl the provisional entry lifetime in seconds
+     * @return this fraction
+     */
+    public TopologyFraction snapshotTtl(int snapshotTtl) {
+        this.snapshotTtl.set(snapshotTtl);
+        return this;
+    }
+
+    public int snapshotTtl() {
+        return this.snapshotTtl.get();
+    }
+
+    @AttributeDocumentation("File the last known registrations are persisted to and restored from at boot")
+    private String snapshotFile;
+
+    @AttributeDocumentation("Seconds after which restored provisional registrations expire")
+    private Defaultable<Integer> snapshotTtl = integer(60);
 }
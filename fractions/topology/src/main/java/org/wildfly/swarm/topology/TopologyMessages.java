@@ -49,4 +49,12 @@ public interface TopologyMessages extends BasicLogger {
     @LogMessage(level = Logger.Level.ERROR)
     @Message(id = 5, value = "Error sending check for %s.")
     void errorOnCheck(String clientId, @Cause Throwable cause);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 6, value = "Error reading topology snapshot %s.")
+    void errorReadingSnapshot(String file, @Cause Throwable cause);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 7, value = "Error writing topology snapshot %s.")
+    void errorWritingSnapshot(String file, @Cause Throwable cause);
 }
@@ -17,13 +17,16 @@ package org.wildfly.swarm.topology.runtime;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.jboss.msc.service.ServiceController;
@@ -41,6 +44,12 @@ public class TopologyManager implements Topology {
 
     public static final TopologyManager INSTANCE = new TopologyManager();
 
+    /**
+     * Source key of registrations restored from a snapshot. They are dropped
+     * service by service as soon as a live source registers that service.
+     */
+    public static final String PROVISIONAL_SOURCE_KEY = "provisional";
+
     public void setServiceTarget(ServiceTarget serviceTarget) {
         this.serviceTarget = serviceTarget;
     }
@@ -93,6 +102,7 @@ public class TopologyManager implements Topology {
 
     public synchronized void register(Registration registration) {
         if (!this.registrations.contains(registration)) {
+            dropProvisional(registration);
             this.registrations.add(registration);
             fireListeners();
         }
@@ -119,6 +129,82 @@ public class TopologyManager implements Topology {
         }
     }
 
+    /**
+     * Replace every registration held for the given source key with the
+     * supplied set, firing listeners at most once.
+     *
+     * @param sourceKey     the source whose registrations are replaced
+     * @param registrations the complete, current registrations of that source
+     */
+    public synchronized void replaceAll(String sourceKey, Collection<Registration> registrations) {
+        replace(e -> e.getSourceKey().equals(sourceKey), registrations);
+    }
+
+    /**
+     * Replace the registrations held for the given source key and service
+     * name with the supplied set, firing listeners at most once.
+     *
+     * @param sourceKey     the source whose registrations are replaced
+     * @param name          the service whose registrations are replaced
+     * @param registrations the complete, current registrations of that service
+     */
+    public synchronized void replaceAll(String sourceKey, String name, Collection<Registration> registrations) {
+        replace(e -> e.getSourceKey().equals(sourceKey) && e.getName().equals(name), registrations);
+    }
+
+    /**
+     * Add and remove the given registrations, firing listeners at most once.
+     *
+     * @param added   the registrations to add, if not already present
+     * @param removed the registrations to remove, if present
+     */
+    public synchronized void update(Collection<Registration> added, Collection<Registration> removed) {
+        boolean changed = this.registrations.removeAll(removed);
+        for (Registration registration : added) {
+            if (!this.registrations.contains(registration)) {
+                dropProvisional(registration);
+                this.registrations.add(registration);
+                changed = true;
+            }
+        }
+        if (changed) {
+            fireListeners();
+        }
+    }
+
+    private void replace(Predicate<Registration> scope, Collection<Registration> registrations) {
+        Set<Registration> replacements = new HashSet<>(registrations);
+        boolean changed = this.registrations.removeIf(e -> scope.test(e) && !replacements.contains(e));
+        Set<Registration> existing = new HashSet<>(this.registrations);
+        for (Registration registration : replacements) {
+            if (!existing.contains(registration)) {
+                dropProvisional(registration);
+                this.registrations.add(registration);
+                changed = true;
+            }
+        }
+        if (changed) {
+            fireListeners();
+        }
+    }
+
+    /**
+     * A counter that changes whenever the set of registrations changes, so
+     * callers can cheaply tell whether derived state is still current.
+     *
+     * @return the current topology version
+     */
+    public long version() {
+        return this.version;
+    }
+
+    private boolean dropProvisional(Registration registration) {
+        if (PROVISIONAL_SOURCE_KEY.equals(registration.getSourceKey())) {
+            return false;
+        }
+        return this.registrations.removeIf(e -> e.getSourceKey().equals(PROVISIONAL_SOURCE_KEY) && e.getName().equals(registration.getName()));
+    }
+
     @Override
     public synchronized Map<String, List<Entry>> asMap() {
         Map<String, List<Entry>> map = new HashMap<>();
@@ -136,6 +222,7 @@ public class TopologyManager implements Topology {
     }
 
     private void fireListeners() {
+        this.version++;
         List<TopologyListener> currentListeners = new ArrayList<>();
         currentListeners.addAll(this.listeners);
         currentListeners.forEach((e) -> {
@@ -158,5 +245,7 @@ public class TopologyManager implements Topology {
 
     private ServiceTarget serviceTarget;
 
+    private volatile long version;
+
 
 }
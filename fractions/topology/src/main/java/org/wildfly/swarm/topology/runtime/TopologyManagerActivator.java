@@ -15,7 +15,13 @@
  */
 package org.wildfly.swarm.topology.runtime;
 
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
 
 import org.jboss.as.naming.ImmediateManagedReferenceFactory;
 import org.jboss.as.naming.ServiceBasedNamingStore;
@@ -30,6 +36,7 @@ import org.jboss.msc.service.ServiceTarget;
 import org.jboss.msc.service.ValueService;
 import org.jboss.msc.value.ImmediateValue;
 import org.wildfly.swarm.topology.Topology;
+import org.wildfly.swarm.topology.TopologyFraction;
 
 /**
  * @author Bob McWhirter
@@ -41,12 +48,29 @@ public class TopologyManagerActivator implements ServiceActivator {
 
     public static final ServiceName CONNECTOR_SERVICE_NAME = ServiceName.of("swarm", "topology", "connector");
 
+    public static final ServiceName SNAPSHOT_SERVICE_NAME = ServiceName.of("swarm", "topology", "snapshot");
+
+    @Inject
+    @Any
+    private Instance<TopologyFraction> topologyFractionInstance;
+
     @Override
     public void activate(ServiceActivatorContext context) throws ServiceRegistryException {
         ServiceTarget target = context.getServiceTarget();
 
         TopologyManager.INSTANCE.setServiceTarget(target);
 
+        if (!this.topologyFractionInstance.isUnsatisfied()) {
+            TopologyFraction fraction = this.topologyFractionInstance.get();
+            if (fraction.snapshotFile() != null) {
+                TopologySnapshot snapshot = new TopologySnapshot(TopologyManager.INSTANCE, Paths.get(fraction.snapshotFile()));
+                snapshot.restore(fraction.snapshotTtl(), TimeUnit.SECONDS);
+                target.addService(SNAPSHOT_SERVICE_NAME, snapshot)
+                        .setInitialMode(ServiceController.Mode.ACTIVE)
+                        .install();
+            }
+        }
+
         target.addService(SERVICE_NAME, new ValueService<>(new ImmediateValue<>(TopologyManager.INSTANCE)))
                 .install();
 
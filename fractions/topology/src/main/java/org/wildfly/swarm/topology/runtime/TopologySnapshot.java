@@ -0,0 +1,186 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.runtime;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.wildfly.swarm.topology.Topology;
+import org.wildfly.swarm.topology.TopologyListener;
+import org.wildfly.swarm.topology.TopologyMessages;
+
+/**
+ * Persists the last known registrations to disk and restores them at boot
+ * as provisional entries.
+ *
+ * <p>Writes happen on a background thread; bursts of topology changes are
+ * coalesced into a single write. The file holds one registration per line:
+ * {@code name, address, port, tags} separated by tabs, tags separated by
+ * commas.</p>
+ *
+ * <p>As a service, it listens to the topology while started; stopping it
+ * writes any pending change and shuts the background thread down.</p>
+ */
+public class TopologySnapshot implements Service<TopologySnapshot>, TopologyListener {
+
+    public TopologySnapshot(TopologyManager topologyManager, Path file) {
+        this.topologyManager = topologyManager;
+        this.file = file;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "topology-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load the snapshot, if any, as provisional registrations that expire
+     * after the given time unless a live source replaces them first.
+     *
+     * @param ttl  the lifetime of the provisional registrations
+     * @param unit the unit of {@code ttl}
+     * @return the number of registrations restored
+     */
+    public int restore(long ttl, TimeUnit unit) {
+        List<Registration> restored = new ArrayList<>();
+        if (Files.exists(this.file)) {
+            try {
+                for (String line : Files.readAllLines(this.file, StandardCharsets.UTF_8)) {
+                    Registration registration = parse(line);
+                    if (registration != null) {
+                        restored.add(registration);
+                    }
+                }
+            } catch (IOException e) {
+                TopologyMessages.MESSAGES.errorReadingSnapshot(this.file.toString(), e);
+                return 0;
+            }
+        }
+        if (!restored.isEmpty()) {
+            this.topologyManager.replaceAll(TopologyManager.PROVISIONAL_SOURCE_KEY, restored);
+            this.executor.schedule(() -> this.topologyManager.unregisterAll(TopologyManager.PROVISIONAL_SOURCE_KEY), ttl, unit);
+        }
+        return restored.size();
+    }
+
+    @Override
+    public void onChange(Topology topology) {
+        if (this.pending.compareAndSet(false, true)) {
+            try {
+                this.executor.schedule(() -> {
+                    if (this.pending.getAndSet(false)) {
+                        try {
+                            write();
+                        } catch (IOException e) {
+                            TopologyMessages.MESSAGES.errorWritingSnapshot(this.file.toString(), e);
+                        }
+                    }
+                }, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closed, the change is written by close()
+            }
+        }
+    }
+
+    @Override
+    public void start(StartContext context) throws StartException {
+        this.topologyManager.addListener(this);
+    }
+
+    @Override
+    public void stop(StopContext context) {
+        this.topologyManager.removeListener(this);
+        close();
+    }
+
+    @Override
+    public TopologySnapshot getValue() throws IllegalStateException, IllegalArgumentException {
+        return this;
+    }
+
+    public void close() {
+        this.executor.shutdownNow();
+        if (this.pending.getAndSet(false)) {
+            try {
+                write();
+            } catch (IOException e) {
+                TopologyMessages.MESSAGES.errorWritingSnapshot(this.file.toString(), e);
+            }
+        }
+    }
+
+    synchronized void write() throws IOException {
+        Path parent = this.file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, List<Topology.Entry>> service : this.topologyManager.asMap().entrySet()) {
+                for (Topology.Entry entry : service.getValue()) {
+                    writer.write(service.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getAddress());
+                    writer.write('\t');
+                    writer.write(Integer.toString(entry.getPort()));
+                    writer.write('\t');
+                    writer.write(String.join(",", entry.getTags()));
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Registration parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            String[] tags = fields[3].isEmpty() ? new String[0] : fields[3].split(",");
+            return new Registration(TopologyManager.PROVISIONAL_SOURCE_KEY, fields[0], fields[1], Integer.parseInt(fields[2]), tags);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final long WRITE_DELAY_MILLIS = 500;
+
+    private final TopologyManager topologyManager;
+
+    private final Path file;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean pending = new AtomicBoolean();
+}
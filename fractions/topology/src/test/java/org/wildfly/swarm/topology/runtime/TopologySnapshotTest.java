@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.runtime;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.*;
+
+public class TopologySnapshotTest {
+
+    @Test
+    public void testRestoreAsProvisional() throws Exception {
+        Path file = Files.createTempDirectory("topology").resolve("snapshot");
+
+        TopologyManager before = new TopologyManager();
+        before.register(new Registration("node1", "foo", "10.0.0.1", 8080, "http"));
+        before.register(new Registration("node2", "foo", "10.0.0.2", 8443, "https"));
+        new TopologySnapshot(before, file).write();
+
+        TopologyManager after = new TopologyManager();
+        TopologySnapshot snapshot = new TopologySnapshot(after, file);
+        assertThat(snapshot.restore(1, TimeUnit.MINUTES)).isEqualTo(2);
+        snapshot.close();
+
+        assertThat(after.registrationsForService("foo")).hasSize(2);
+        assertThat(after.registrationsForService("foo", "https")).hasSize(1);
+        assertThat(after.registrationsForSourceKey(TopologyManager.PROVISIONAL_SOURCE_KEY)).hasSize(2);
+    }
+
+    @Test
+    public void testLiveRegistrationReplacesProvisional() throws Exception {
+        Path file = Files.createTempDirectory("topology").resolve("snapshot");
+        Files.write(file, "foo\t10.0.0.1\t8080\thttp\nbar\t10.0.0.3\t8080\thttp\n".getBytes("UTF-8"));
+
+        TopologyManager manager = new TopologyManager();
+        TopologySnapshot snapshot = new TopologySnapshot(manager, file);
+        snapshot.restore(1, TimeUnit.MINUTES);
+        snapshot.close();
+
+        manager.register(new Registration("node1", "foo", "10.0.0.5", 8080, "http"));
+
+        assertThat(manager.registrationsForService("foo")).hasSize(1);
+        assertThat(manager.registrationsForService("foo").iterator().next().getSourceKey()).isEqualTo("node1");
+        assertThat(manager.registrationsForService("bar")).hasSize(1);
+    }
+
+    @Test
+    public void testStopWritesPendingChangeAndStopsListening() throws Exception {
+        Path file = Files.createTempDirectory("topology").resolve("snapshot");
+
+        TopologyManager manager = new TopologyManager();
+        TopologySnapshot snapshot = new TopologySnapshot(manager, file);
+        snapshot.start(null);
+        manager.register(new Registration("node1", "foo", "10.0.0.1", 8080, "http"));
+        // listeners are notified asynchronously, stop well before the delayed write
+        Thread.sleep(100);
+        snapshot.stop(null);
+
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).containsOnly("foo\t10.0.0.1\t8080\thttp");
+
+        manager.register(new Registration("node1", "bar", "10.0.0.2", 8080, "http"));
+        Thread.sleep(600);
+
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).hasSize(1);
+    }
+}
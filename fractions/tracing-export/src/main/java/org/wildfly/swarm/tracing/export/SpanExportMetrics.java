@@ -0,0 +1,69 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tracing.export;
+
+/**
+ * Exposes the counters of span exporters in the vendor scope, when
+ * MicroProfile Metrics is available, under the same names for every tracing
+ * backend, told apart by an {@code exporter} tag.
+ */
+public final class SpanExportMetrics {
+
+    public static final String QUEUED = "tracing.spans.queued";
+
+    public static final String DROPPED = "tracing.spans.dropped";
+
+    public static final String SENT = "tracing.spans.sent";
+
+    public static final String FAILURES = "tracing.send.failures";
+
+    private SpanExportMetrics() {
+    }
+
+    /**
+     * Registers the counters of an exporter, taking over those of the
+     * exporter of a previous deployment.
+     *
+     * @param exporter the value of the {@code exporter} tag, such as {@code jaeger}
+     */
+    public static void register(String exporter, SpanExportStatistics statistics) {
+        if (AVAILABLE) {
+            VendorMetrics.register(exporter, statistics);
+        }
+    }
+
+    /**
+     * Removes the counters of an exporter, unless an exporter of a later
+     * deployment took them over.
+     */
+    public static void unregister(String exporter, SpanExportStatistics statistics) {
+        if (AVAILABLE) {
+            VendorMetrics.unregister(exporter, statistics);
+        }
+    }
+
+    // the metrics classes are only loaded once they are known to be there
+    private static boolean isAvailable() {
+        try {
+            Class.forName("io.smallrye.metrics.MetricRegistries", false, SpanExportMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static final boolean AVAILABLE = isAvailable();
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tracing.export;
+
+import java.util.function.LongConsumer;
+
+/**
+ * The counters of a span exporter, as exposed by {@link SpanExportMetrics}.
+ */
+public interface SpanExportStatistics {
+
+    /**
+     * @return the spans waiting to be sent
+     */
+    long queued();
+
+    /**
+     * @return the spans dropped because the queue was full or the backend failed
+     */
+    long dropped();
+
+    /**
+     * @return the spans sent to the backend
+     */
+    long sent();
+
+    /**
+     * @return the failed attempts to send spans to the backend
+     */
+    long failures();
+
+    /**
+     * Also count the dropped and sent spans, and the failures, into the given
+     * counters, typically metrics, as they happen.
+     */
+    void countInto(LongConsumer dropped, LongConsumer sent, LongConsumer failures);
+}
@@ -0,0 +1,321 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tracing.export;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Sends finished spans to a tracing backend without ever making the request
+ * threads wait for it.
+ *
+ * <p>Finished spans are offered to a bounded lock-free queue, and dropped
+ * when it is full. A single export thread drains the queue into the
+ * {@link Sender}, which packs them into messages, and flushes what is pending
+ * every {@code batchSize} spans, or once {@code flushInterval} has passed.
+ * While the backend is slow or down, only the export thread is held up, and
+ * the spans that do not fit in the queue are counted as dropped.</p>
+ *
+ * <p>Closing sends the spans still queued, waiting a bounded time for the
+ * backend; those left when the export thread has to be interrupted are
+ * dropped.</p>
+ *
+ * @param <T> the type of the spans
+ */
+public final class SpanExporter<T> implements SpanExportStatistics {
+
+    private static final Logger logger = Logger.getLogger(SpanExporter.class);
+
+    /**
+     * How long {@link #close()} waits for the export thread, before and after
+     * interrupting it.
+     */
+    public static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Packs spans into messages to the tracing backend. Only called by the
+     * export thread.
+     *
+     * @param <T> the type of the spans
+     */
+    public interface Sender<T> {
+
+        /**
+         * Adds a span to the current message, sending the message first if
+         * the span does not fit in it.
+         *
+         * @return the number of spans sent
+         */
+        int append(T span) throws SendException;
+
+        /**
+         * Sends the current message.
+         *
+         * @return the number of spans sent
+         */
+        int flush() throws SendException;
+
+        /**
+         * Sends the current message, if any, and releases the connection to
+         * the backend.
+         *
+         * @return the number of spans sent
+         */
+        int close() throws SendException;
+    }
+
+    /**
+     * A failure to send spans, which are dropped.
+     */
+    public static class SendException extends Exception {
+
+        public SendException(String message, Throwable cause, int droppedSpans) {
+            super(message, cause);
+            this.droppedSpans = droppedSpans;
+        }
+
+        public int getDroppedSpans() {
+            return this.droppedSpans;
+        }
+
+        private final int droppedSpans;
+    }
+
+    /**
+     * Starts the export thread.
+     *
+     * @param name the name of the export thread
+     */
+    public SpanExporter(String name, Sender<T> sender, int queueSize, int batchSize, int flushIntervalMillis) {
+        this.sender = sender;
+        this.buffer = new SpanRingBuffer<>(queueSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a finished span, or drops it if the queue is full or the
+     * exporter is closed.
+     */
+    public void export(T span) {
+        if (!this.running || !this.buffer.offer(span)) {
+            dropped(1);
+        } else if (this.idle && this.buffer.size() >= this.batchSize) {
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    /**
+     * Closes the exporter, waiting at most {@value #CLOSE_TIMEOUT_SECONDS}
+     * seconds for the export thread before and after interrupting it.
+     *
+     * @see #close(long, TimeUnit)
+     */
+    public void close() {
+        close(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sends the spans queued so far and closes the sender, waiting at most
+     * the given time for the export thread to finish doing so. If it has not
+     * by then, the export thread is interrupted, gives up on the spans still
+     * queued, and is waited for at most the given time again.
+     */
+    public void close(long timeout, TimeUnit unit) {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join(unit.toMillis(timeout));
+            if (this.thread.isAlive()) {
+                this.thread.interrupt();
+                this.thread.join(unit.toMillis(timeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!this.thread.isAlive()) {
+            // offered while the export thread was finishing, the queue has no consumer anymore
+            dropped(drain());
+        }
+    }
+
+    @Override
+    public long queued() {
+        return this.buffer.size() + this.pending;
+    }
+
+    @Override
+    public long dropped() {
+        return this.dropped.sum();
+    }
+
+    @Override
+    public long sent() {
+        return this.sent.sum();
+    }
+
+    @Override
+    public long failures() {
+        return this.failures.sum();
+    }
+
+    @Override
+    public void countInto(LongConsumer dropped, LongConsumer sent, LongConsumer failures) {
+        this.droppedCounter = dropped;
+        this.sentCounter = sent;
+        this.failuresCounter = failures;
+    }
+
+    private void run() {
+        long lastFlush = System.nanoTime();
+        while (true) {
+            if (!this.running && Thread.currentThread().isInterrupted()) {
+                // interrupted while closing, give up on the spans still queued
+                dropped(drain());
+                closeSender();
+                return;
+            }
+            T span = this.buffer.poll();
+            if (span != null) {
+                append(span);
+                if (this.pending >= this.batchSize) {
+                    flush();
+                    lastFlush = System.nanoTime();
+                }
+                continue;
+            }
+            if (!this.running) {
+                if (this.pending > 0) {
+                    flush();
+                }
+                closeSender();
+                return;
+            }
+            long waited = System.nanoTime() - lastFlush;
+            if (waited >= this.flushIntervalNanos) {
+                if (this.pending > 0) {
+                    flush();
+                }
+                lastFlush = System.nanoTime();
+                continue;
+            }
+            this.idle = true;
+            if (this.buffer.size() == 0 && this.running) {
+                LockSupport.parkNanos(this, this.flushIntervalNanos - waited);
+            }
+            this.idle = false;
+        }
+    }
+
+    private void append(T span) {
+        int done;
+        try {
+            done = this.sender.append(span);
+            sent(done);
+        } catch (SendException e) {
+            done = e.getDroppedSpans();
+            failed(e);
+        }
+        // appending a span which does not fit in the current message sends the spans before it
+        this.pending = Math.max(0, this.pending + 1 - done);
+    }
+
+    private void flush() {
+        try {
+            sent(this.sender.flush());
+        } catch (SendException e) {
+            failed(e);
+        }
+        this.pending = 0;
+    }
+
+    private void closeSender() {
+        try {
+            sent(this.sender.close());
+        } catch (SendException e) {
+            failed(e);
+        }
+        this.pending = 0;
+    }
+
+    private int drain() {
+        int drained = 0;
+        while (this.buffer.poll() != null) {
+            ++drained;
+        }
+        return drained;
+    }
+
+    private void dropped(long spans) {
+        if (spans > 0) {
+            this.dropped.add(spans);
+            this.droppedCounter.accept(spans);
+        }
+    }
+
+    private void sent(long spans) {
+        if (spans > 0) {
+            this.sent.add(spans);
+            this.sentCounter.accept(spans);
+        }
+    }
+
+    private void failed(SendException e) {
+        dropped(e.getDroppedSpans());
+        this.failures.increment();
+        this.failuresCounter.accept(1);
+        logger.debugf(e, "Failed to send %d spans", e.getDroppedSpans());
+    }
+
+    private static final LongConsumer NONE = n -> {
+    };
+
+    private final Sender<T> sender;
+
+    private final SpanRingBuffer<T> buffer;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final Thread thread;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private volatile LongConsumer droppedCounter = NONE;
+
+    private volatile LongConsumer sentCounter = NONE;
+
+    private volatile LongConsumer failuresCounter = NONE;
+
+    // only written by the export thread
+    private volatile int pending;
+
+    private volatile boolean idle;
+
+    private volatile boolean running = true;
+}
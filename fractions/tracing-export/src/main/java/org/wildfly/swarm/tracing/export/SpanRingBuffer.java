@@ -0,0 +1,101 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tracing.export;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multiple-producer single-consumer queue of finished
+ * spans. Offering never blocks: when the buffer is full, the span is refused.
+ *
+ * @param <T> the type of the spans
+ */
+public final class SpanRingBuffer<T> {
+
+    /**
+     * @param capacity the number of spans the buffer holds, rounded up to a power of two
+     */
+    public SpanRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.spans = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    public int size() {
+        return (int) Math.max(0, this.tail.get() - this.head.get());
+    }
+
+    /**
+     * @return {@code false} if the buffer is full
+     */
+    public boolean offer(T span) {
+        long position = this.tail.get();
+        for (;;) {
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.spans.set(index, span);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Only to be called by the single consumer.
+     *
+     * @return the oldest span, or {@code null} if there is none
+     */
+    public T poll() {
+        long position = this.head.get();
+        int index = (int) position & this.mask;
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        T span = this.spans.get(index);
+        this.spans.set(index, null);
+        this.sequences.set(index, position + this.mask + 1);
+        this.head.lazySet(position + 1);
+        return span;
+    }
+
+    private final int mask;
+
+    private final AtomicReferenceArray<T> spans;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+}
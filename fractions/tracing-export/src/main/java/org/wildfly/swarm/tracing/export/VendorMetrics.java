@@ -0,0 +1,82 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tracing.export;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+import static org.wildfly.swarm.tracing.export.SpanExportMetrics.DROPPED;
+import static org.wildfly.swarm.tracing.export.SpanExportMetrics.FAILURES;
+import static org.wildfly.swarm.tracing.export.SpanExportMetrics.QUEUED;
+import static org.wildfly.swarm.tracing.export.SpanExportMetrics.SENT;
+
+/**
+ * The part of {@link SpanExportMetrics} which links to MicroProfile Metrics.
+ */
+final class VendorMetrics {
+
+    private static final Map<String, SpanExportStatistics> registered = new HashMap<>();
+
+    private VendorMetrics() {
+    }
+
+    static synchronized void register(String exporter, SpanExportStatistics statistics) {
+        // the exporter of a new deployment takes over the names
+        Tag tag = new Tag("exporter", exporter);
+        MetricRegistry registry = MetricRegistries.get(MetricRegistry.Type.VENDOR);
+        remove(registry, tag);
+        registry.register(metadata(QUEUED, MetricType.GAUGE, "Spans waiting to be sent to the tracing backend"),
+                          (Gauge<Long>) statistics::queued, tag);
+        Counter dropped = registry.counter(metadata(DROPPED, MetricType.COUNTER, "Spans dropped because the queue was full or the backend failed"), tag);
+        Counter sent = registry.counter(metadata(SENT, MetricType.COUNTER, "Spans sent to the tracing backend"), tag);
+        Counter failures = registry.counter(metadata(FAILURES, MetricType.COUNTER, "Failed attempts to send spans to the tracing backend"), tag);
+        statistics.countInto(dropped::inc, sent::inc, failures::inc);
+        registered.put(exporter, statistics);
+    }
+
+    static synchronized void unregister(String exporter, SpanExportStatistics statistics) {
+        // the exporter of the previous deployment is closed after its successor registered, and must leave its metrics alone
+        if (registered.get(exporter) != statistics) {
+            return;
+        }
+        remove(MetricRegistries.get(MetricRegistry.Type.VENDOR), new Tag("exporter", exporter));
+        registered.remove(exporter);
+    }
+
+    private static void remove(MetricRegistry registry, Tag tag) {
+        registry.remove(new MetricID(QUEUED, tag));
+        registry.remove(new MetricID(DROPPED, tag));
+        registry.remove(new MetricID(SENT, tag));
+        registry.remove(new MetricID(FAILURES, tag));
+    }
+
+    private static Metadata metadata(String name, MetricType type, String description) {
+        return Metadata.builder()
+                .withName(name)
+                .withType(type)
+                .withDescription(description)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package org.wildfly.swarm.tracing.export;
+
+import java.util.function.LongConsumer;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SpanExportMetricsTest {
+
+    @After
+    public void tearDown() {
+        SpanExportMetrics.unregister(EXPORTER, this.statistics);
+    }
+
+    @Test
+    public void testCountersFollowTheExporter() {
+        this.statistics = new FakeStatistics();
+        SpanExportMetrics.register(EXPORTER, this.statistics);
+
+        this.statistics.queued = 4;
+        this.statistics.dropped.accept(3);
+        this.statistics.sent.accept(5);
+        this.statistics.sent.accept(2);
+        this.statistics.failures.accept(1);
+
+        assertThat(counter(SpanExportMetrics.DROPPED).getCount()).isEqualTo(3);
+        assertThat(counter(SpanExportMetrics.SENT).getCount()).isEqualTo(7);
+        assertThat(counter(SpanExportMetrics.FAILURES).getCount()).isEqualTo(1);
+        assertThat(registry().getGauges().get(id(SpanExportMetrics.QUEUED)).getValue()).isEqualTo(4L);
+    }
+
+    @Test
+    public void testCountersCanBeIncremented() {
+        this.statistics = new FakeStatistics();
+        SpanExportMetrics.register(EXPORTER, this.statistics);
+
+        counter(SpanExportMetrics.DROPPED).inc();
+        counter(SpanExportMetrics.DROPPED).inc(2);
+
+        assertThat(counter(SpanExportMetrics.DROPPED).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testPreviousExporterLeavesItsSuccessorRegistered() {
+        FakeStatistics first = new FakeStatistics();
+        SpanExportMetrics.register(EXPORTER, first);
+        first.sent.accept(10);
+
+        this.statistics = new FakeStatistics();
+        SpanExportMetrics.register(EXPORTER, this.statistics);
+        SpanExportMetrics.unregister(EXPORTER, first);
+        this.statistics.sent.accept(2);
+
+        assertThat(counter(SpanExportMetrics.SENT).getCount()).isEqualTo(2);
+        assertThat(registry().getGauges().containsKey(id(SpanExportMetrics.QUEUED))).isTrue();
+    }
+
+    @Test
+    public void testUnregister() {
+        FakeStatistics statistics = new FakeStatistics();
+        SpanExportMetrics.register(EXPORTER, statistics);
+        SpanExportMetrics.unregister(EXPORTER, statistics);
+
+        assertThat(registry().getCounters().containsKey(id(SpanExportMetrics.DROPPED))).isFalse();
+        assertThat(registry().getGauges().containsKey(id(SpanExportMetrics.QUEUED))).isFalse();
+    }
+
+    private static Counter counter(String name) {
+        return registry().getCounters().get(id(name));
+    }
+
+    private static MetricID id(String name) {
+        return new MetricID(name, new Tag("exporter", EXPORTER));
+    }
+
+    private static MetricRegistry registry() {
+        return MetricRegistries.get(MetricRegistry.Type.VENDOR);
+    }
+
+    private static final String EXPORTER = "test";
+
+    /**
+     * Hands out the counters it is given, as an exporter feeds them.
+     */
+    private static final class FakeStatistics implements SpanExportStatistics {
+
+        @Override
+        public long queued() {
+            return this.queued;
+        }
+
+        @Override
+        public long dropped() {
+            return 0;
+        }
+
+        @Override
+        public long sent() {
+            return 0;
+        }
+
+        @Override
+        public long failures() {
+            return 0;
+        }
+
+        @Override
+        public void countInto(LongConsumer dropped, LongConsumer sent, LongConsumer failures) {
+            this.dropped = dropped;
+            this.sent = sent;
+            this.failures = failures;
+        }
+
+        private volatile long queued;
+
+        private LongConsumer dropped;
+
+        private LongConsumer sent;
+
+        private LongConsumer failures;
+    }
+
+    private FakeStatistics statistics;
+}
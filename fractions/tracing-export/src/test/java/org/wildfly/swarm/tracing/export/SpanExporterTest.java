@@ -0,0 +1,288 @@
+package org.wildfly.swarm.tracing.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SpanExporterTest {
+
+    @After
+    public void tearDown() {
+        if (this.exporter != null) {
+            this.exporter.close();
+        }
+    }
+
+    @Test
+    public void testSendsInBatches() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 3, 3_600_000);
+
+        for (int i = 0; i < 7; ++i) {
+            this.exporter.export("span " + i);
+        }
+
+        await(() -> this.exporter.sent() == 6);
+        assertThat(sender.messages()).isEqualTo(Arrays.asList(
+                Arrays.asList("span 0", "span 1", "span 2"),
+                Arrays.asList("span 3", "span 4", "span 5")));
+        assertThat(this.exporter.queued()).isEqualTo(1);
+
+        this.exporter.close();
+
+        assertThat(sender.messages()).hasSize(3);
+        assertThat(sender.messages().get(2)).isEqualTo(Arrays.asList("span 6"));
+        assertThat(sender.closed).isTrue();
+        assertThat(this.exporter.sent()).isEqualTo(7);
+        assertThat(this.exporter.queued()).isEqualTo(0);
+        assertThat(this.exporter.dropped()).isEqualTo(0);
+        assertThat(this.exporter.failures()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFlushesAfterInterval() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 100, 10);
+
+        this.exporter.export("span 0");
+        this.exporter.export("span 1");
+
+        await(() -> this.exporter.sent() == 2);
+        assertThat(sender.messages()).isEqualTo(Arrays.asList(Arrays.asList("span 0", "span 1")));
+        assertThat(this.exporter.queued()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSpansNotFittingInAMessageSendTheOnesBefore() throws Exception {
+        FakeSender sender = new FakeSender(2);
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 5, 3_600_000);
+
+        for (int i = 0; i < 5; ++i) {
+            this.exporter.export("span " + i);
+        }
+        await(() -> this.exporter.sent() == 4);
+        // the last span waits in the message being packed
+        assertThat(this.exporter.queued()).isEqualTo(1);
+
+        this.exporter.close();
+
+        assertThat(sender.messages()).isEqualTo(Arrays.asList(
+                Arrays.asList("span 0", "span 1"),
+                Arrays.asList("span 2", "span 3"),
+                Arrays.asList("span 4")));
+        assertThat(this.exporter.sent()).isEqualTo(5);
+    }
+
+    @Test
+    public void testDropsWhenQueueIsFull() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        sender.blocked = new CountDownLatch(1);
+        this.exporter = new SpanExporter<>("test-export", sender, 4, 1, 3_600_000);
+
+        // taken by the export thread, which is held up by the backend
+        this.exporter.export("span 0");
+        assertThat(sender.appending.await(10, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 1; i <= 6; ++i) {
+            this.exporter.export("span " + i);
+        }
+        assertThat(this.exporter.dropped()).isEqualTo(2);
+        assertThat(this.exporter.queued()).isEqualTo(4);
+
+        sender.blocked.countDown();
+        this.exporter.close();
+
+        assertThat(this.exporter.sent()).isEqualTo(5);
+        assertThat(this.exporter.dropped()).isEqualTo(2);
+        assertThat(this.exporter.queued()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFailedSendsAreDropped() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        sender.failing = true;
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 3, 3_600_000);
+
+        for (int i = 0; i < 4; ++i) {
+            this.exporter.export("span " + i);
+        }
+        await(() -> this.exporter.failures() == 1);
+        assertThat(this.exporter.dropped()).isEqualTo(3);
+
+        sender.failing = false;
+        this.exporter.close();
+
+        assertThat(this.exporter.sent()).isEqualTo(1);
+        assertThat(this.exporter.dropped()).isEqualTo(3);
+        assertThat(this.exporter.failures()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNothingIsQueuedOnceClosed() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 100, 3_600_000);
+        this.exporter.export("before");
+        this.exporter.close();
+
+        this.exporter.export("after");
+
+        assertThat(sender.messages()).isEqualTo(Arrays.asList(Arrays.asList("before")));
+        assertThat(this.exporter.sent()).isEqualTo(1);
+        assertThat(this.exporter.dropped()).isEqualTo(1);
+        assertThat(this.exporter.queued()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCloseWaitsForTheBackend() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        sender.blocked = new CountDownLatch(1);
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 1, 3_600_000);
+        this.exporter.export("span 0");
+        assertThat(sender.appending.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Thread closing = new Thread(this.exporter::close);
+        closing.start();
+        closing.join(100);
+        assertThat(closing.isAlive()).isTrue();
+
+        sender.blocked.countDown();
+        closing.join(10_000);
+        assertThat(closing.isAlive()).isFalse();
+        assertThat(sender.closed).isTrue();
+        assertThat(this.exporter.sent()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCloseGivesUpOnAStuckBackend() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        sender.blocked = new CountDownLatch(1);
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 1, 3_600_000);
+        this.exporter.export("span 0");
+        assertThat(sender.appending.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= 3; ++i) {
+            this.exporter.export("span " + i);
+        }
+
+        long start = System.nanoTime();
+        this.exporter.close(100, TimeUnit.MILLISECONDS);
+
+        // interrupted, the export thread sends the span it holds and drops the queued ones
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+        assertThat(sender.closed).isTrue();
+        assertThat(this.exporter.sent()).isEqualTo(1);
+        assertThat(this.exporter.dropped()).isEqualTo(3);
+        assertThat(this.exporter.queued()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCountsIntoCounters() throws Exception {
+        FakeSender sender = new FakeSender(100);
+        sender.failing = true;
+        this.exporter = new SpanExporter<>("test-export", sender, 16, 2, 3_600_000);
+        LongAdder dropped = new LongAdder();
+        LongAdder sent = new LongAdder();
+        LongAdder failures = new LongAdder();
+        this.exporter.countInto(dropped::add, sent::add, failures::add);
+
+        this.exporter.export("span 0");
+        this.exporter.export("span 1");
+        await(() -> this.exporter.failures() == 1);
+        sender.failing = false;
+        this.exporter.export("span 2");
+        this.exporter.close();
+
+        assertThat(dropped.sum()).isEqualTo(2);
+        assertThat(sent.sum()).isEqualTo(1);
+        assertThat(failures.sum()).isEqualTo(1);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 10s");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Packs up to a number of spans in a message, and can hold up or fail the export thread.
+     */
+    private static final class FakeSender implements SpanExporter.Sender<String> {
+
+        FakeSender(int maxSpans) {
+            this.maxSpans = maxSpans;
+        }
+
+        @Override
+        public int append(String span) throws SpanExporter.SendException {
+            this.appending.countDown();
+            if (this.blocked != null) {
+                try {
+                    this.blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int sent = 0;
+            if (this.message.size() == this.maxSpans) {
+                sent = flush();
+            }
+            this.message.add(span);
+            return sent;
+        }
+
+        @Override
+        public int flush() throws SpanExporter.SendException {
+            int size = this.message.size();
+            if (size == 0) {
+                return 0;
+            }
+            List<String> message = new ArrayList<>(this.message);
+            this.message.clear();
+            if (this.failing) {
+                throw new SpanExporter.SendException("failed", null, size);
+            }
+            synchronized (this) {
+                this.messages.add(message);
+            }
+            return size;
+        }
+
+        @Override
+        public int close() throws SpanExporter.SendException {
+            this.closed = true;
+            return flush();
+        }
+
+        synchronized List<List<String>> messages() {
+            return new ArrayList<>(this.messages);
+        }
+
+        private final int maxSpans;
+
+        private final List<String> message = new ArrayList<>();
+
+        private final List<List<String>> messages = new ArrayList<>();
+
+        private final CountDownLatch appending = new CountDownLatch(1);
+
+        private volatile CountDownLatch blocked;
+
+        private volatile boolean failing;
+
+        private volatile boolean closed;
+    }
+
+    private SpanExporter<String> exporter;
+}
@@ -0,0 +1,82 @@
+package org.wildfly.swarm.tracing.export;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SpanRingBufferTest {
+
+    @Test
+    public void testCapacityIsAPowerOfTwo() {
+        assertThat(new SpanRingBuffer<String>(1).capacity()).isEqualTo(4);
+        assertThat(new SpanRingBuffer<String>(4).capacity()).isEqualTo(4);
+        assertThat(new SpanRingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new SpanRingBuffer<String>(10000).capacity()).isEqualTo(16384);
+    }
+
+    @Test
+    public void testFirstInFirstOut() {
+        SpanRingBuffer<String> buffer = new SpanRingBuffer<>(4);
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < 4; ++i) {
+                assertThat(buffer.offer("span " + i)).isTrue();
+            }
+            assertThat(buffer.offer("one too many")).isFalse();
+            assertThat(buffer.size()).isEqualTo(4);
+            for (int i = 0; i < 4; ++i) {
+                assertThat(buffer.poll()).isEqualTo("span " + i);
+            }
+            assertThat(buffer.poll()).isNull();
+            assertThat(buffer.size()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        SpanRingBuffer<String> buffer = new SpanRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; ++p) {
+            String producer = "producer " + p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; ++i) {
+                    while (!buffer.offer(producer + " span " + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        start.countDown();
+
+        Set<String> polled = new HashSet<>();
+        int[] next = new int[4];
+        while (polled.size() < 40_000) {
+            String span = buffer.poll();
+            if (span == null) {
+                Thread.yield();
+                continue;
+            }
+            assertThat(polled.add(span)).isTrue();
+            // the spans of each producer come out in the order it offered them
+            int producer = span.charAt("producer ".length()) - '0';
+            assertThat(span).isEqualTo("producer " + producer + " span " + next[producer]++);
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        assertThat(buffer.poll()).isNull();
+    }
+}
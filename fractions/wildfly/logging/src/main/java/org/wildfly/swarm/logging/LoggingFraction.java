@@ -51,6 +51,12 @@ public class LoggingFraction extends Logging<LoggingFraction> implements Fractio
 
     public static final String COLOR_PATTERN = "COLOR_PATTERN";
 
+    public static final String JSON = "JSON";
+
+    private static final String JSON_FORMATTER_MODULE = "org.wildfly.swarm.logging:runtime";
+
+    private static final String JSON_FORMATTER_CLASS = "org.wildfly.swarm.logging.runtime.JsonFormatter";
+
 
     public LoggingFraction applyDefaults() {
         Level level = Level.INFO;
@@ -174,6 +180,25 @@ public class LoggingFraction extends Logging<LoggingFraction> implements Fractio
         return formatter(COLOR_PATTERN, "%K{level}%d{yyyy-MM-dd HH:mm:ss,SSS} %-5p [%c] (%t) %s%e%n");
     }
 
+    /**
+     * Configure a formatter named {@code JSON}, writing each record as one line of JSON.
+     *
+     * <p>There is no need to call it for a handler configured with {@code named-formatter: JSON}, e.g.
+     * {@code thorntail.logging.console-handlers.CONSOLE.named-formatter}: the formatter is then configured at boot.
+     * It is left out otherwise, sparing applications that don't log JSON the loading of its module.</p>
+     *
+     * @return This fraction.
+     */
+    public LoggingFraction jsonFormatter() {
+        CustomFormatter<?> configured = subresources().customFormatter(JSON);
+        if (configured != null) {
+            // only its properties were configured, e.g. the metaData
+            configured.module(JSON_FORMATTER_MODULE).attributeClass(JSON_FORMATTER_CLASS);
+            return this;
+        }
+        return customFormatter(JSON, JSON_FORMATTER_MODULE, JSON_FORMATTER_CLASS, new Properties());
+    }
+
 
     /**
      * Add a new PatternFormatter to this Logger
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logging.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * The writer thread of an asynchronous handler sending its records to a log collector over TCP.
+ *
+ * <p>Takes up to a batch of records from the queue of the handler, has the subclass encode them, and writes them in
+ * a single write. A batch that fails to send is retried after reconnecting, with an exponential backoff, while new
+ * records keep queuing up to the capacity of the queue; the failure is reported once per outage, not once per
+ * attempt. When stopped, the records still queued are sent first, and those left when the thread is interrupted
+ * or the collector unreachable are dropped.</p>
+ *
+ * <p>Only the queue is shared with the logging threads, which call {@link #signal()} after queuing a record; the
+ * encoding buffers and the connection belong to the writer thread.</p>
+ */
+public abstract class BatchSender implements Runnable {
+
+    /**
+     * @param threadName    the name of the writer thread
+     * @param collector     the name of the log collector, for error messages
+     * @param errorReporter reports the errors of the writer thread, typically to the error manager of the handler
+     */
+    protected BatchSender(String threadName, String collector, String hostname, int port,
+                          BiConsumer<String, Exception> errorReporter) {
+        this.threadName = threadName;
+        this.collector = collector;
+        this.hostname = hostname;
+        this.port = port;
+        this.errorReporter = errorReporter;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this, this.threadName);
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+
+    /**
+     * Wake up the writer if it is waiting for records. Cheap enough to be called after each record.
+     */
+    public void signal() {
+        if (this.parked) {
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    /**
+     * Stop the writer once it has sent the records still queued, waiting at most the given time.
+     */
+    public void stop(long timeout, TimeUnit unit) {
+        this.running = false;
+        Thread thread = this.thread;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(unit.toMillis(timeout));
+            if (thread.isAlive()) {
+                thread.interrupt();
+                thread.join(unit.toMillis(timeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while ((this.running || !isEmpty()) && !Thread.currentThread().isInterrupted()) {
+                int count = encodeBatch();
+                if (count == 0) {
+                    if (this.running) {
+                        park();
+                    }
+                    continue;
+                }
+                send(count);
+            }
+            // interrupted while stopping, give up on what is left
+            int left = clear();
+            if (left > 0) {
+                dropped(left);
+            }
+        } finally {
+            closeSocket();
+        }
+    }
+
+    /**
+     * @return whether the queue of the handler is empty
+     */
+    protected abstract boolean isEmpty();
+
+    /**
+     * Take up to a batch of records from the queue and encode them, replacing the previous batch.
+     *
+     * @return the number of records encoded, {@code 0} if the queue is empty
+     */
+    protected abstract int encodeBatch();
+
+    /**
+     * Write the batch last encoded. Called again with the same batch after a failure.
+     */
+    protected abstract void writeBatch(OutputStream out) throws IOException;
+
+    /**
+     * Remove the records left in the queue.
+     *
+     * @return the number of records removed
+     */
+    protected abstract int clear();
+
+    /**
+     * Called with the number of records that could not be sent.
+     */
+    protected abstract void dropped(long records);
+
+    /**
+     * Called once a batch was sent.
+     */
+    protected void sent(int records) {
+    }
+
+    /**
+     * Called on each failed attempt to send a batch.
+     */
+    protected void failed() {
+    }
+
+    /**
+     * Called once the first batch was sent after an outage.
+     */
+    protected void recovered() {
+    }
+
+    protected void reportError(String message, Exception e) {
+        this.errorReporter.accept(message, e);
+    }
+
+    protected String destination() {
+        return this.collector + " at " + this.hostname + ":" + this.port;
+    }
+
+    private void park() {
+        this.parked = true;
+        if (isEmpty() && this.running) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        this.parked = false;
+    }
+
+    private void send(int count) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (;;) {
+            try {
+                OutputStream out = connect();
+                writeBatch(out);
+                out.flush();
+                sent(count);
+                if (this.failing) {
+                    this.failing = false;
+                    recovered();
+                }
+                return;
+            } catch (IOException e) {
+                closeSocket();
+                failed();
+                if (!this.failing) {
+                    reportError("Error sending records to " + destination(), e);
+                    this.failing = true;
+                }
+            }
+            if (!this.running || Thread.currentThread().isInterrupted()) {
+                dropped(count);
+                return;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private OutputStream connect() throws IOException {
+        if (this.out == null) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(this.hostname, this.port), CONNECT_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                this.out = socket.getOutputStream();
+                this.socket = socket;
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+        return this.out;
+    }
+
+    private void closeSocket() {
+        if (this.socket != null) {
+            try {
+                this.socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        this.socket = null;
+        this.out = null;
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private final String threadName;
+
+    private final String collector;
+
+    private final String hostname;
+
+    private final int port;
+
+    private final BiConsumer<String, Exception> errorReporter;
+
+    private volatile boolean running = true;
+
+    private volatile boolean parked;
+
+    private volatile Thread thread;
+
+    private boolean failing;
+
+    private Socket socket;
+
+    private OutputStream out;
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logging.runtime;
+
+/**
+ * Writes ISO-8601 UTC timestamps with milliseconds, e.g. {@code 2020-01-31T12:00:00.000Z}, without going through
+ * {@code java.time}, for the JSON log formats.
+ */
+public final class IsoTimestamp {
+
+    /**
+     * The length of a timestamp in ASCII characters.
+     */
+    public static final int LENGTH = 24;
+
+    private IsoTimestamp() {
+    }
+
+    /**
+     * Write the given time as {@link #LENGTH} ASCII characters, unquoted.
+     *
+     * @return {@code false}, having written nothing, when the year is outside 0000-9999, for which callers use
+     * {@link java.time.Instant#toString()} instead
+     */
+    public static boolean write(long millis, byte[] buffer, int offset) {
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+        // civil date from days since the epoch, in the proleptic Gregorian calendar
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) {
+            return false;
+        }
+        int pos = digits(buffer, offset, (int) year, 4);
+        buffer[pos++] = '-';
+        pos = digits(buffer, pos, month, 2);
+        buffer[pos++] = '-';
+        pos = digits(buffer, pos, day, 2);
+        buffer[pos++] = 'T';
+        pos = digits(buffer, pos, millisOfDay / 3_600_000, 2);
+        buffer[pos++] = ':';
+        pos = digits(buffer, pos, millisOfDay / 60_000 % 60, 2);
+        buffer[pos++] = ':';
+        pos = digits(buffer, pos, millisOfDay / 1000 % 60, 2);
+        buffer[pos++] = '.';
+        pos = digits(buffer, pos, millisOfDay % 1000, 3);
+        buffer[pos] = 'Z';
+        return true;
+    }
+
+    private static int digits(byte[] buffer, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; --i) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logging.runtime;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.logmanager.ExtFormatter;
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * Formats each log record as one line of JSON, for consoles read by log collectors.
+ *
+ * <p>The record is written field by field into a thread-local {@link StringBuilder}, with field names taken from a
+ * table of pre-escaped prefixes, so formatting allocates little more than the returned string: there is no
+ * intermediate map of fields or copy of the MDC, and the MDC, NDC and stack trace are written straight into the
+ * builder. The timestamp is written in ISO-8601 UTC, and the {@code metaData} property adds constant fields given as
+ * comma-separated {@code key=value} pairs.</p>
+ *
+ * @see org.wildfly.swarm.logging.LoggingFraction#jsonFormatter()
+ */
+public class JsonFormatter extends ExtFormatter {
+
+    enum Field {
+        TIMESTAMP("timestamp"),
+        SEQUENCE("sequence"),
+        LOGGER_CLASS_NAME("loggerClassName"),
+        LOGGER_NAME("loggerName"),
+        LEVEL("level"),
+        MESSAGE("message"),
+        THREAD_NAME("threadName"),
+        THREAD_ID("threadId"),
+        MDC("mdc"),
+        NDC("ndc"),
+        HOST_NAME("hostName"),
+        PROCESS_NAME("processName"),
+        PROCESS_ID("processId"),
+        EXCEPTION_TYPE("exceptionType"),
+        EXCEPTION_MESSAGE("exceptionMessage"),
+        STACK_TRACE("stackTrace");
+
+        Field(String name) {
+            StringBuilder prefix = new StringBuilder(",");
+            appendString(prefix, name);
+            prefix.append(':');
+            this.next = prefix.toString();
+            this.first = this.next.substring(1);
+        }
+
+        /**
+         * The escaped name, quoted and followed by a colon, for the first field of an object.
+         */
+        String first() {
+            return this.first;
+        }
+
+        /**
+         * The escaped name, preceded by a comma, quoted and followed by a colon.
+         */
+        String next() {
+            return this.next;
+        }
+
+        private final String first;
+
+        private final String next;
+    }
+
+    public void setMetaData(String metaData) {
+        StringBuilder out = new StringBuilder();
+        if (metaData != null) {
+            for (String entry : metaData.split(",")) {
+                int eq = entry.indexOf('=');
+                String key = (eq < 0 ? entry : entry.substring(0, eq)).trim();
+                if (key.isEmpty()) {
+                    continue;
+                }
+                out.append(',');
+                appendString(out, key);
+                out.append(':');
+                appendString(out, eq < 0 ? "" : entry.substring(eq + 1).trim());
+            }
+        }
+        this.metaData = out.toString();
+    }
+
+    @Override
+    public String format(ExtLogRecord record) {
+        StringBuilder out = BUILDER.get();
+        out.setLength(0);
+        out.append('{').append(Field.TIMESTAMP.first());
+        appendTimestamp(out, record.getMillis());
+        out.append(Field.SEQUENCE.next()).append(record.getSequenceNumber());
+        out.append(Field.LOGGER_CLASS_NAME.next());
+        appendString(out, record.getLoggerClassName());
+        out.append(Field.LOGGER_NAME.next());
+        appendString(out, record.getLoggerName());
+        out.append(Field.LEVEL.next());
+        appendString(out, record.getLevel().getName());
+        out.append(Field.MESSAGE.next());
+        appendString(out, record.getFormattedMessage());
+        out.append(Field.THREAD_NAME.next());
+        appendString(out, record.getThreadName());
+        out.append(Field.THREAD_ID.next()).append(record.getThreadID());
+        out.append(Field.MDC.next()).append('{');
+        Map<?, ?> mdc = RecordMdc.of(record);
+        if (!mdc.isEmpty()) {
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : mdc.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendString(out, (String) entry.getKey());
+                out.append(':');
+                Object value = entry.getValue();
+                appendString(out, value == null ? null : value.toString());
+            }
+        }
+        out.append('}');
+        String ndc = record.getNdc();
+        if (ndc != null && !ndc.isEmpty()) {
+            out.append(Field.NDC.next());
+            appendString(out, ndc);
+        }
+        String hostName = record.getHostName();
+        if (hostName != null) {
+            out.append(Field.HOST_NAME.next());
+            appendString(out, hostName);
+        }
+        String processName = record.getProcessName();
+        if (processName != null) {
+            out.append(Field.PROCESS_NAME.next());
+            appendString(out, processName);
+        }
+        out.append(Field.PROCESS_ID.next()).append(record.getProcessId());
+        Throwable thrown = record.getThrown();
+        if (thrown != null) {
+            out.append(Field.EXCEPTION_TYPE.next());
+            appendString(out, thrown.getClass().getName());
+            out.append(Field.EXCEPTION_MESSAGE.next());
+            appendString(out, thrown.getMessage());
+            out.append(Field.STACK_TRACE.next()).append('"');
+            appendStackTrace(out, thrown);
+            out.append('"');
+        }
+        out.append(this.metaData).append("}\n");
+
+        String formatted = out.toString();
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            // don't keep a huge buffer around for every thread after one huge record
+            BUILDER.remove();
+        }
+        return formatted;
+    }
+
+    /**
+     * Append the stack trace in the format of {@link Throwable#printStackTrace()}, causes included, as the content
+     * of a JSON string.
+     */
+    private static void appendStackTrace(StringBuilder out, Throwable thrown) {
+        Set<Throwable> seen = null;
+        boolean cause = false;
+        for (Throwable t = thrown; t != null; t = t.getCause()) {
+            if (cause) {
+                if (seen == null) {
+                    seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                    seen.add(thrown);
+                }
+                if (!seen.add(t)) {
+                    out.append("\\n[CIRCULAR REFERENCE]");
+                    return;
+                }
+                out.append("\\nCaused by: ");
+            }
+            cause = true;
+            appendEscaped(out, t.getClass().getName());
+            String message = t.getLocalizedMessage();
+            if (message != null) {
+                out.append(": ");
+                appendEscaped(out, message);
+            }
+            for (StackTraceElement element : t.getStackTrace()) {
+                out.append("\\n\\tat ");
+                appendEscaped(out, element.getClassName());
+                out.append('.');
+                appendEscaped(out, element.getMethodName());
+                out.append('(');
+                if (element.isNativeMethod()) {
+                    out.append("Native Method");
+                } else if (element.getFileName() == null) {
+                    out.append("Unknown Source");
+                } else {
+                    appendEscaped(out, element.getFileName());
+                    if (element.getLineNumber() >= 0) {
+                        out.append(':').append(element.getLineNumber());
+                    }
+                }
+                out.append(')');
+            }
+        }
+    }
+
+    static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        appendEscaped(out, value);
+        out.append('"');
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(value, start, i).append('\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append(c);
+                    break;
+                case '\n':
+                    out.append('n');
+                    break;
+                case '\r':
+                    out.append('r');
+                    break;
+                case '\t':
+                    out.append('t');
+                    break;
+                default:
+                    out.append("u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            }
+            start = i + 1;
+        }
+        out.append(value, start, length);
+    }
+
+    /**
+     * Append the given time as a quoted ISO-8601 UTC timestamp with milliseconds, e.g. {@code "2020-01-31T12:00:00.000Z"}.
+     */
+    static void appendTimestamp(StringBuilder out, long millis) {
+        byte[] timestamp = TIMESTAMP.get();
+        if (!IsoTimestamp.write(millis, timestamp, 0)) {
+            out.append('"').append(Instant.ofEpochMilli(millis)).append('"');
+            return;
+        }
+        out.append('"');
+        for (byte b : timestamp) {
+            out.append((char) b);
+        }
+        out.append('"');
+    }
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private static final ThreadLocal<byte[]> TIMESTAMP = ThreadLocal.withInitial(() -> new byte[IsoTimestamp.LENGTH]);
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private String metaData = "";
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logging.runtime;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+
+import org.wildfly.swarm.config.logging.CustomFormatter;
+import org.wildfly.swarm.logging.LoggingFraction;
+import org.wildfly.swarm.spi.api.Customizer;
+import org.wildfly.swarm.spi.runtime.annotations.Post;
+
+/**
+ * Configures the {@code JSON} formatter once a handler names it or its properties are set, so that applications not
+ * logging JSON don't pay for loading the formatter from its module at boot.
+ *
+ * @see LoggingFraction#jsonFormatter()
+ */
+@Post
+@ApplicationScoped
+public class JsonFormatterCustomizer implements Customizer {
+
+    @Inject
+    @Any
+    LoggingFraction fraction;
+
+    @Override
+    public void customize() {
+        CustomFormatter<?> configured = this.fraction.subresources().customFormatter(LoggingFraction.JSON);
+        if (configured != null && configured.attributeClass() != null) {
+            return;
+        }
+        boolean referenced = configured != null || Stream.of(
+                namedFormatters(this.fraction.subresources().consoleHandlers(), h -> h.namedFormatter()),
+                namedFormatters(this.fraction.subresources().fileHandlers(), h -> h.namedFormatter()),
+                namedFormatters(this.fraction.subresources().periodicRotatingFileHandlers(), h -> h.namedFormatter()),
+                namedFormatters(this.fraction.subresources().periodicSizeRotatingFileHandlers(), h -> h.namedFormatter()),
+                namedFormatters(this.fraction.subresources().sizeRotatingFileHandlers(), h -> h.namedFormatter()),
+                namedFormatters(this.fraction.subresources().customHandlers(), h -> h.namedFormatter()),
+                namedFormatters(this.fraction.subresources().syslogHandlers(), h -> h.namedFormatter()))
+                .flatMap(Function.identity())
+                .anyMatch(LoggingFraction.JSON::equals);
+        if (referenced) {
+            this.fraction.jsonFormatter();
+        }
+    }
+
+    private static <T> Stream<String> namedFormatters(List<T> handlers, Function<T, String> namedFormatter) {
+        return handlers.stream().map(namedFormatter);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.logging.runtime;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.MDC;
+
+/**
+ * Reads the MDC of a log record in place, rather than through {@link ExtLogRecord#getMdcCopy()}, which copies it into
+ * a new map on every call.
+ *
+ * <p>That is the record's own copy once a handler took one, otherwise the MDC of the logging thread, which is what
+ * {@code getMdcCopy()} would copy. Neither is exposed by the log manager, so they are looked up once, falling back to
+ * the copy if that fails.</p>
+ */
+final class RecordMdc {
+
+    private RecordMdc() {
+    }
+
+    /**
+     * The MDC of the record, with {@code String} keys; the map must not be modified.
+     */
+    static Map<?, ?> of(ExtLogRecord record) {
+        if (RECORD_MDC != null && THREAD_MDC != null) {
+            try {
+                Map<?, ?> copied = (Map<?, ?>) RECORD_MDC.get(record);
+                return copied != null ? copied : (Map<?, ?>) THREAD_MDC.get();
+            } catch (IllegalAccessException | RuntimeException e) {
+                // fall back to the copy
+            }
+        }
+        return record.getMdcCopy();
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadLocal<?> threadMdc() {
+        Field field = field(MDC.class, "mdc");
+        try {
+            return field == null ? null : (ThreadLocal<?>) field.get(null);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final Field RECORD_MDC = field(ExtLogRecord.class, "mdcCopy");
+
+    private static final ThreadLocal<?> THREAD_MDC = threadMdc();
+}
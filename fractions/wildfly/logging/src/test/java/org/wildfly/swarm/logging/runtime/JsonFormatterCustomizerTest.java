@@ -0,0 +1,82 @@
+package org.wildfly.swarm.logging.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.config.logging.CustomFormatter;
+import org.wildfly.swarm.config.logging.CustomHandler;
+import org.wildfly.swarm.config.logging.Level;
+import org.wildfly.swarm.logging.LoggingFraction;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JsonFormatterCustomizerTest {
+
+    private JsonFormatterCustomizer customizer;
+
+    @Before
+    public void setUp() {
+        this.customizer = new JsonFormatterCustomizer();
+        this.customizer.fraction = new LoggingFraction().applyDefaults(Level.INFO);
+    }
+
+    @Test
+    public void testNotConfiguredByDefault() {
+        this.customizer.customize();
+
+        assertThat(this.customizer.fraction.subresources().customFormatter(LoggingFraction.JSON)).isNull();
+    }
+
+    @Test
+    public void testConfiguredForConsole() {
+        this.customizer.fraction.subresources().consoleHandler(LoggingFraction.CONSOLE).namedFormatter(LoggingFraction.JSON);
+
+        this.customizer.customize();
+
+        CustomFormatter formatter = this.customizer.fraction.subresources().customFormatter(LoggingFraction.JSON);
+        assertThat(formatter).isNotNull();
+        assertThat(formatter.module()).isEqualTo("org.wildfly.swarm.logging:runtime");
+        assertThat(formatter.attributeClass()).isEqualTo(JsonFormatter.class.getName());
+    }
+
+    @Test
+    public void testConfiguredForOtherHandlers() {
+        this.customizer.fraction
+                .fileHandler("FILE", "app.log", Level.INFO, LoggingFraction.JSON)
+                .customHandler(new CustomHandler<>("CUSTOM").namedFormatter("PATTERN"));
+
+        this.customizer.customize();
+
+        assertThat(this.customizer.fraction.subresources().customFormatter(LoggingFraction.JSON)).isNotNull();
+    }
+
+    @Test
+    public void testCompletesFormatterWithOnlyProperties() {
+        Map<Object, Object> properties = new HashMap<>();
+        properties.put("metaData", "app=test");
+        this.customizer.fraction.customFormatter(new CustomFormatter<>(LoggingFraction.JSON).properties(properties));
+
+        this.customizer.customize();
+
+        CustomFormatter formatter = this.customizer.fraction.subresources().customFormatter(LoggingFraction.JSON);
+        assertThat(formatter.attributeClass()).isEqualTo(JsonFormatter.class.getName());
+        assertThat(formatter.properties().get("metaData")).isEqualTo("app=test");
+        assertThat(this.customizer.fraction.customFormatters()).hasSize(1);
+    }
+
+    @Test
+    public void testKeepsExplicitFormatter() {
+        this.customizer.fraction
+                .customFormatter(LoggingFraction.JSON, "com.example", "com.example.Formatter", new Properties());
+        this.customizer.fraction.subresources().consoleHandler(LoggingFraction.CONSOLE).namedFormatter(LoggingFraction.JSON);
+
+        this.customizer.customize();
+
+        CustomFormatter formatter = this.customizer.fraction.subresources().customFormatter(LoggingFraction.JSON);
+        assertThat(formatter.module()).isEqualTo("com.example");
+        assertThat(formatter.attributeClass()).isEqualTo("com.example.Formatter");
+    }
+}
@@ -0,0 +1,303 @@
+package org.wildfly.swarm.logging.runtime;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.MDC;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JsonFormatterTest {
+
+    @Test
+    public void testRecordFields() {
+        ExtLogRecord record = record(Level.WARNING, "a message");
+        record.setMillis(1_580_472_000_123L);
+        record.setLoggerName("org.example.Service");
+        record.setHostName("host.example.com");
+        record.setProcessName("app.jar");
+        record.setProcessId(4242);
+
+        String formatted = new JsonFormatter().format(record);
+        Map<String, Object> json = parse(formatted);
+
+        assertThat(json.get("timestamp")).isEqualTo("2020-01-31T12:00:00.123Z");
+        assertThat(json.get("sequence")).isEqualTo(record.getSequenceNumber());
+        assertThat(json.get("loggerClassName")).isEqualTo(JsonFormatterTest.class.getName());
+        assertThat(json.get("loggerName")).isEqualTo("org.example.Service");
+        assertThat(json.get("level")).isEqualTo("WARNING");
+        assertThat(json.get("message")).isEqualTo("a message");
+        assertThat(json.get("threadName")).isEqualTo(record.getThreadName());
+        assertThat(json.get("threadId")).isEqualTo((long) record.getThreadID());
+        assertThat(json.get("mdc")).isEqualTo(Collections.emptyMap());
+        assertThat(json.containsKey("ndc")).isFalse();
+        assertThat(json.get("hostName")).isEqualTo("host.example.com");
+        assertThat(json.get("processName")).isEqualTo("app.jar");
+        assertThat(json.get("processId")).isEqualTo(4242L);
+        assertThat(json.containsKey("exceptionType")).isFalse();
+        assertThat(json.containsKey("stackTrace")).isFalse();
+    }
+
+    @Test
+    public void testControlCharactersQuotesAndBackslashes() {
+        StringBuilder controls = new StringBuilder();
+        for (char c = 0; c < 0x20; ++c) {
+            controls.append(c);
+        }
+        String message = "quote \" backslash \\ slash / " + controls + " del \u007f";
+
+        String formatted = new JsonFormatter().format(record(Level.INFO, message));
+
+        assertThat(formatted).contains("\"message\":\"quote \\\" backslash \\\\ slash / "
+                                               + "\\u0000\\u0001\\u0002\\u0003\\u0004\\u0005\\u0006\\u0007\\u0008\\t\\n"
+                                               + "\\u000b\\u000c\\r\\u000e\\u000f\\u0010\\u0011\\u0012\\u0013\\u0014"
+                                               + "\\u0015\\u0016\\u0017\\u0018\\u0019\\u001a\\u001b\\u001c\\u001d\\u001e"
+                                               + "\\u001f del \u007f\"");
+        assertThat(parse(formatted).get("message")).isEqualTo(message);
+    }
+
+    @Test
+    public void testNonAsciiTextIsKept() {
+        // two, three and four byte UTF-8 sequences, the latter from a surrogate pair
+        String message = "caf\u00e9 \u20ac \u4e2d\u6587 \ud83d\ude00 \ud834\udd1e";
+
+        String formatted = new JsonFormatter().format(record(Level.INFO, message));
+
+        assertThat(formatted).contains("\"message\":\"" + message + "\"");
+        assertThat(parse(formatted).get("message")).isEqualTo(message);
+    }
+
+    @Test
+    public void testNullMessage() {
+        Map<String, Object> json = parse(new JsonFormatter().format(record(Level.INFO, null)));
+
+        assertThat(json.containsKey("message")).isTrue();
+        assertThat(json.get("message")).isNull();
+    }
+
+    @Test
+    public void testMdcAndNdc() {
+        ExtLogRecord record = record(Level.INFO, "with context");
+        record.putMdc("user", "j\"doe\n");
+        record.putMdc("tenant\t", "\ud83d\ude00");
+        record.setNdc("outer.\"inner\\\"");
+
+        Map<String, Object> json = parse(new JsonFormatter().format(record));
+
+        Map<?, ?> mdc = (Map<?, ?>) json.get("mdc");
+        assertThat(mdc).hasSize(2);
+        assertThat(mdc.get("user")).isEqualTo("j\"doe\n");
+        assertThat(mdc.get("tenant\t")).isEqualTo("\ud83d\ude00");
+        assertThat(json.get("ndc")).isEqualTo("outer.\"inner\\\"");
+    }
+
+    @Test
+    public void testMdcOfTheLoggingThread() {
+        ExtLogRecord record = new ExtLogRecord(Level.INFO, "not copied", ExtLogRecord.FormatStyle.NO_FORMAT, JsonFormatterTest.class.getName());
+        MDC.put("request", "42");
+        try {
+            assertThat(parse(new JsonFormatter().format(record)).get("mdc")).isEqualTo(Collections.singletonMap("request", "42"));
+
+            // once copied, the record keeps its own MDC
+            record.copyAll();
+            MDC.remove("request");
+            assertThat(parse(new JsonFormatter().format(record)).get("mdc")).isEqualTo(Collections.singletonMap("request", "42"));
+            assertThat(parse(new JsonFormatter().format(record(Level.INFO, "empty"))).get("mdc")).isEqualTo(Collections.emptyMap());
+        } finally {
+            MDC.remove("request");
+        }
+    }
+
+    @Test
+    public void testMetaData() {
+        JsonFormatter formatter = new JsonFormatter();
+        formatter.setMetaData("a=1, b = x=y ,c,, =ignored,d=\"quoted\"\\,e=line\nbreak");
+
+        Map<String, Object> json = parse(formatter.format(record(Level.INFO, "message")));
+
+        assertThat(json.get("a")).isEqualTo("1");
+        assertThat(json.get("b")).isEqualTo("x=y");
+        assertThat(json.get("c")).isEqualTo("");
+        assertThat(json.get("d")).isEqualTo("\"quoted\"\\");
+        assertThat(json.get("e")).isEqualTo("line\nbreak");
+        assertThat(json.containsKey("")).isFalse();
+
+        formatter.setMetaData(null);
+        assertThat(parse(formatter.format(record(Level.INFO, "message"))).containsKey("a")).isFalse();
+    }
+
+    @Test
+    public void testCauseChain() {
+        IOException root = exception(new IOException("root\tcause"),
+                                     new StackTraceElement("org.example.Io", "read", "Io.java", 12));
+        IllegalStateException middle = exception(new IllegalStateException("middle", root),
+                                                 new StackTraceElement("org.example.Native", "call", null, -2));
+        RuntimeException top = exception(new RuntimeException("top \"quoted\"", middle),
+                                         new StackTraceElement("org.example.Service", "run", "Service.java", 42),
+                                         new StackTraceElement("org.example.Generated", "invoke", null, -1),
+                                         new StackTraceElement("org.example.Stripped", "call", "Stripped.java", -1));
+        ExtLogRecord record = record(Level.SEVERE, "failed");
+        record.setThrown(top);
+
+        String formatted = new JsonFormatter().format(record);
+        Map<String, Object> json = parse(formatted);
+
+        assertThat(json.get("exceptionType")).isEqualTo("java.lang.RuntimeException");
+        assertThat(json.get("exceptionMessage")).isEqualTo("top \"quoted\"");
+        assertThat(json.get("stackTrace")).isEqualTo(
+                "java.lang.RuntimeException: top \"quoted\"\n"
+                        + "\tat org.example.Service.run(Service.java:42)\n"
+                        + "\tat org.example.Generated.invoke(Unknown Source)\n"
+                        + "\tat org.example.Stripped.call(Stripped.java)\n"
+                        + "Caused by: java.lang.IllegalStateException: middle\n"
+                        + "\tat org.example.Native.call(Native Method)\n"
+                        + "Caused by: java.io.IOException: root\tcause\n"
+                        + "\tat org.example.Io.read(Io.java:12)");
+        assertThat(formatted).contains("\"stackTrace\":\"java.lang.RuntimeException: top \\\"quoted\\\"\\n\\tat ");
+    }
+
+    @Test
+    public void testExceptionWithoutMessage() {
+        ExtLogRecord record = record(Level.SEVERE, "failed");
+        record.setThrown(exception(new NullPointerException()));
+
+        Map<String, Object> json = parse(new JsonFormatter().format(record));
+
+        assertThat(json.get("exceptionType")).isEqualTo("java.lang.NullPointerException");
+        assertThat(json.containsKey("exceptionMessage")).isTrue();
+        assertThat(json.get("exceptionMessage")).isNull();
+        assertThat(json.get("stackTrace")).isEqualTo("java.lang.NullPointerException");
+    }
+
+    @Test
+    public void testCircularCause() {
+        IllegalStateException first = exception(new IllegalStateException("first"),
+                                                new StackTraceElement("org.example.First", "run", "First.java", 1));
+        IllegalArgumentException second = exception(new IllegalArgumentException("second", first),
+                                                    new StackTraceElement("org.example.Second", "run", "Second.java", 2));
+        first.initCause(second);
+        ExtLogRecord record = record(Level.SEVERE, "failed");
+        record.setThrown(first);
+
+        Map<String, Object> json = parse(new JsonFormatter().format(record));
+
+        assertThat(json.get("stackTrace")).isEqualTo(
+                "java.lang.IllegalStateException: first\n"
+                        + "\tat org.example.First.run(First.java:1)\n"
+                        + "Caused by: java.lang.IllegalArgumentException: second\n"
+                        + "\tat org.example.Second.run(Second.java:2)\n"
+                        + "[CIRCULAR REFERENCE]");
+    }
+
+    @Test
+    public void testCircularCauseBelowTheLoggedException() {
+        // the loop does not go through the exception logged
+        IllegalStateException looping = exception(new IllegalStateException("looping"));
+        IllegalArgumentException loop = exception(new IllegalArgumentException("loop", looping));
+        looping.initCause(loop);
+        ExtLogRecord record = record(Level.SEVERE, "failed");
+        record.setThrown(exception(new RuntimeException("top", loop)));
+
+        Map<String, Object> json = parse(new JsonFormatter().format(record));
+
+        assertThat(json.get("stackTrace")).isEqualTo(
+                "java.lang.RuntimeException: top\n"
+                        + "Caused by: java.lang.IllegalArgumentException: loop\n"
+                        + "Caused by: java.lang.IllegalStateException: looping\n"
+                        + "[CIRCULAR REFERENCE]");
+    }
+
+    @Test
+    public void testTimestamps() {
+        assertThat(timestamp(0)).isEqualTo("1970-01-01T00:00:00.000Z");
+        assertThat(timestamp(-1)).isEqualTo("1969-12-31T23:59:59.999Z");
+        assertThat(timestamp(-86_400_000L)).isEqualTo("1969-12-31T00:00:00.000Z");
+        assertThat(timestamp(-86_400_001L)).isEqualTo("1969-12-30T23:59:59.999Z");
+        assertThat(timestamp(millis("1900-02-28T23:59:59.999"))).isEqualTo("1900-02-28T23:59:59.999Z");
+        assertThat(timestamp(millis("1900-02-28T23:59:59.999") + 1)).isEqualTo("1900-03-01T00:00:00.000Z");
+        assertThat(timestamp(millis("1600-02-29T12:34:56.789"))).isEqualTo("1600-02-29T12:34:56.789Z");
+        assertThat(timestamp(millis("2000-02-29T00:00:00.000"))).isEqualTo("2000-02-29T00:00:00.000Z");
+        assertThat(timestamp(millis("2016-02-29T23:59:59.999"))).isEqualTo("2016-02-29T23:59:59.999Z");
+        assertThat(timestamp(millis("2016-12-31T23:59:59.999"))).isEqualTo("2016-12-31T23:59:59.999Z");
+        assertThat(timestamp(millis("2100-02-28T23:59:59.999") + 1)).isEqualTo("2100-03-01T00:00:00.000Z");
+        assertThat(timestamp(millis("0000-01-01T00:00:00.000"))).isEqualTo("0000-01-01T00:00:00.000Z");
+        assertThat(timestamp(millis("9999-12-31T23:59:59.999"))).isEqualTo("9999-12-31T23:59:59.999Z");
+    }
+
+    @Test
+    public void testTimestampsAgainstJavaTime() {
+        DateTimeFormatter iso = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+        // every day from 1896 to 2104, at a different time of day each, crossing leap and century years
+        long start = millis("1896-01-01T00:00:00.000");
+        long end = millis("2104-12-31T00:00:00.000");
+        long offset = 0;
+        for (long day = start; day <= end; day += 86_400_000L) {
+            offset = (offset + 3_599_999L) % 86_400_000L;
+            long millis = day + offset;
+            assertThat(timestamp(millis)).isEqualTo(iso.format(Instant.ofEpochMilli(millis)));
+        }
+    }
+
+    @Test
+    public void testTimestampsOutOfRange() {
+        long afterYear9999 = millis("9999-12-31T23:59:59.999") + 1;
+        long beforeYear0 = millis("0000-01-01T00:00:00.000") - 1;
+
+        assertThat(timestamp(afterYear9999)).isEqualTo(Instant.ofEpochMilli(afterYear9999).toString());
+        assertThat(timestamp(afterYear9999)).isEqualTo("+10000-01-01T00:00:00Z");
+        assertThat(timestamp(beforeYear0)).isEqualTo(Instant.ofEpochMilli(beforeYear0).toString());
+        assertThat(timestamp(Long.MAX_VALUE)).isEqualTo(Instant.ofEpochMilli(Long.MAX_VALUE).toString());
+        assertThat(timestamp(Long.MIN_VALUE)).isEqualTo(Instant.ofEpochMilli(Long.MIN_VALUE).toString());
+    }
+
+    @Test
+    public void testOneLinePerRecordAfterHugeRecord() {
+        JsonFormatter formatter = new JsonFormatter();
+        StringBuilder huge = new StringBuilder();
+        for (int i = 0; i < 100_000; ++i) {
+            huge.append("line ").append(i).append('\n');
+        }
+
+        String first = formatter.format(record(Level.INFO, huge.toString()));
+        String second = formatter.format(record(Level.INFO, "small"));
+
+        assertThat(parse(first).get("message")).isEqualTo(huge.toString());
+        assertThat(parse(second).get("message")).isEqualTo("small");
+    }
+
+    private static String timestamp(long millis) {
+        StringBuilder out = new StringBuilder();
+        JsonFormatter.appendTimestamp(out, millis);
+        return (String) JsonParser.parse(out.toString());
+    }
+
+    private static long millis(String utc) {
+        return LocalDateTime.parse(utc).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static Map<String, Object> parse(String formatted) {
+        assertThat(formatted).endsWith("}\n");
+        // one line per record, whatever the content
+        assertThat(formatted.indexOf('\n')).isEqualTo(formatted.length() - 1);
+        return JsonParser.parseObject(formatted.substring(0, formatted.length() - 1));
+    }
+
+    private static <T extends Throwable> T exception(T exception, StackTraceElement... stackTrace) {
+        exception.setStackTrace(stackTrace);
+        return exception;
+    }
+
+    private static ExtLogRecord record(Level level, String message) {
+        ExtLogRecord record = new ExtLogRecord(level, message, ExtLogRecord.FormatStyle.NO_FORMAT, JsonFormatterTest.class.getName());
+        record.copyAll();
+        return record;
+    }
+}
@@ -0,0 +1,211 @@
+package org.wildfly.swarm.logging.runtime;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A strict JSON parser, to check the output of {@link JsonFormatter} and of the Logstash fraction: objects are read
+ * as {@link Map}, arrays as {@link List}, integers as {@link Long} and other numbers as {@link Double}. Raw control
+ * characters in strings and trailing content are rejected.
+ */
+public final class JsonParser {
+
+    private JsonParser(String json) {
+        this.json = json;
+    }
+
+    public static Object parse(String json) {
+        JsonParser parser = new JsonParser(json);
+        Object value = parser.value();
+        parser.whitespace();
+        if (parser.pos != json.length()) {
+            throw parser.error("trailing content");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String json) {
+        return (Map<String, Object>) parse(json);
+    }
+
+    private Object value() {
+        whitespace();
+        if (this.pos >= this.json.length()) {
+            throw error("unexpected end");
+        }
+        char c = this.json.charAt(this.pos);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        expect('{');
+        whitespace();
+        if (peek() == '}') {
+            ++this.pos;
+            return object;
+        }
+        for (;;) {
+            whitespace();
+            String key = string();
+            whitespace();
+            expect(':');
+            if (object.containsKey(key)) {
+                throw error("duplicate key " + key);
+            }
+            object.put(key, value());
+            whitespace();
+            if (peek() == ',') {
+                ++this.pos;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        expect('[');
+        whitespace();
+        if (peek() == ']') {
+            ++this.pos;
+            return array;
+        }
+        for (;;) {
+            array.add(value());
+            whitespace();
+            if (peek() == ',') {
+                ++this.pos;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        for (;;) {
+            char c = next();
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c < 0x20) {
+                throw error("unescaped control character");
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            c = next();
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    value.append(c);
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (this.pos + 4 > this.json.length()) {
+                        throw error("truncated escape");
+                    }
+                    value.append((char) Integer.parseInt(this.json.substring(this.pos, this.pos + 4), 16));
+                    this.pos += 4;
+                    break;
+                default:
+                    throw error("invalid escape \\" + c);
+            }
+        }
+    }
+
+    private Object number() {
+        int start = this.pos;
+        while (this.pos < this.json.length() && "+-0123456789.eE".indexOf(this.json.charAt(this.pos)) >= 0) {
+            ++this.pos;
+        }
+        String number = this.json.substring(start, this.pos);
+        if (number.isEmpty()) {
+            throw error("unexpected character");
+        }
+        if (number.matches("-?(0|[1-9][0-9]*)")) {
+            return Long.parseLong(number);
+        }
+        return Double.parseDouble(number);
+    }
+
+    private Object literal(String literal, Object value) {
+        if (!this.json.startsWith(literal, this.pos)) {
+            throw error("unexpected literal");
+        }
+        this.pos += literal.length();
+        return value;
+    }
+
+    private void whitespace() {
+        while (this.pos < this.json.length() && " \t\r\n".indexOf(this.json.charAt(this.pos)) >= 0) {
+            ++this.pos;
+        }
+    }
+
+    private char peek() {
+        if (this.pos >= this.json.length()) {
+            throw error("unexpected end");
+        }
+        return this.json.charAt(this.pos);
+    }
+
+    private char next() {
+        char c = peek();
+        ++this.pos;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            --this.pos;
+            throw error("expected '" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + this.pos + " of " + this.json);
+    }
+
+    private final String json;
+
+    private int pos;
+}
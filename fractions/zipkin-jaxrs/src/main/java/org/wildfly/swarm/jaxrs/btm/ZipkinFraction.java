@@ -16,6 +16,7 @@
 package org.wildfly.swarm.jaxrs.btm;
 
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import com.github.kristofa.brave.Brave;
 import com.github.kristofa.brave.LoggingReporter;
@@ -27,6 +28,7 @@ import org.wildfly.swarm.spi.api.annotations.DeploymentModule;
 import org.wildfly.swarm.spi.api.annotations.DeploymentModules;
 import zipkin.Span;
 import zipkin.reporter.AsyncReporter;
+import zipkin.reporter.ReporterMetrics;
 import zipkin.reporter.urlconnection.URLConnectionSender;
 
 /**
@@ -47,6 +49,14 @@ public class ZipkinFraction implements Fraction<ZipkinFraction> {
     }
 
     public Brave getBraveInstance() {
+        return getBraveInstance(null);
+    }
+
+    /**
+     * @param metrics receives the counters of the span reporter, if not null
+     * @return the Brave instance reporting to the configured Zipkin server
+     */
+    public Brave getBraveInstance(ReporterMetrics metrics) {
 
         Brave.Builder builder = new Brave.Builder(name.get());
 
@@ -54,7 +64,14 @@ public class ZipkinFraction implements Fraction<ZipkinFraction> {
             builder.reporter(new LoggingReporter())
                            .traceSampler(Sampler.create(1.0f));
         } else {
-            AsyncReporter<Span> asyncReporter = AsyncReporter.builder(URLConnectionSender.create(url.get())).build();
+            // The reporter drops spans rather than blocking the request threads when the queue is full
+            AsyncReporter.Builder reporterBuilder = AsyncReporter.builder(URLConnectionSender.create(url.get()))
+                    .queuedMaxSpans(queueSize.get())
+                    .messageTimeout(flushInterval.get(), TimeUnit.MILLISECONDS);
+            if (metrics != null) {
+                reporterBuilder.metrics(metrics);
+            }
+            AsyncReporter<Span> asyncReporter = reporterBuilder.build();
             builder.reporter(asyncReporter)
                     .traceSampler(Sampler.create(rate.get()));
         }
@@ -76,6 +93,16 @@ public class ZipkinFraction implements Fraction<ZipkinFraction> {
         return this;
     }
 
+    public ZipkinFraction setQueueSize(Integer queueSize) {
+        this.queueSize.set(queueSize);
+        return this;
+    }
+
+    public ZipkinFraction setFlushInterval(Integer flushInterval) {
+        this.flushInterval.set(flushInterval);
+        return this;
+    }
+
     @AttributeDocumentation("The service name used in reports")
     private Defaultable<String> name = Defaultable.string(UUID.randomUUID().toString());
 
@@ -85,6 +112,12 @@ public class ZipkinFraction implements Fraction<ZipkinFraction> {
     @AttributeDocumentation("The reporting rate")
     private Defaultable<Float> rate = Defaultable.floating(1.0f);
 
+    @AttributeDocumentation("The maximum number of spans waiting to be sent, further spans are dropped")
+    private Defaultable<Integer> queueSize = Defaultable.integer(10000);
+
+    @AttributeDocumentation("The maximum time (ms) spans wait before being sent")
+    private Defaultable<Integer> flushInterval = Defaultable.integer(1000);
+
 
 
 }
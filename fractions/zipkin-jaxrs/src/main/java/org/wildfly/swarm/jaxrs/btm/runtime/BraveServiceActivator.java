@@ -17,6 +17,7 @@ import org.jboss.msc.service.ServiceRegistryException;
 import org.jboss.msc.service.ServiceTarget;
 import org.wildfly.swarm.jaxrs.btm.BraveLookup;
 import org.wildfly.swarm.jaxrs.btm.ZipkinFraction;
+import org.wildfly.swarm.tracing.export.SpanExportMetrics;
 
 /**
  * @author Heiko Braun
@@ -33,7 +34,9 @@ public class BraveServiceActivator implements ServiceActivator {
 
         ServiceTarget target = context.getServiceTarget();
 
-        BraveService service = new BraveService(zipKinFractionInstance.get().getBraveInstance());
+        ZipkinReporterMetrics metrics = new ZipkinReporterMetrics();
+        SpanExportMetrics.register("zipkin", metrics);
+        BraveService service = new BraveService(zipKinFractionInstance.get().getBraveInstance(metrics));
 
         ServiceBuilder<BraveService> serviceBuilder = target.addService(BraveService.SERVICE_NAME, service);
 
@@ -0,0 +1,109 @@
+package org.wildfly.swarm.jaxrs.btm.runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+import org.wildfly.swarm.tracing.export.SpanExportStatistics;
+import zipkin.reporter.ReporterMetrics;
+
+/**
+ * Collects the counters of the Zipkin span reporter, exposed by
+ * {@link org.wildfly.swarm.tracing.export.SpanExportMetrics} under the same
+ * names as the Jaeger span exporter, with an {@code exporter=zipkin} tag.
+ */
+final class ZipkinReporterMetrics implements ReporterMetrics, SpanExportStatistics {
+
+    @Override
+    public void incrementMessages() {
+    }
+
+    @Override
+    public void incrementMessagesDropped(Throwable cause) {
+        this.failures.increment();
+        this.failuresCounter.accept(1);
+    }
+
+    @Override
+    public void incrementSpans(int quantity) {
+        this.reported.add(quantity);
+    }
+
+    @Override
+    public void incrementSpanBytes(int quantity) {
+    }
+
+    @Override
+    public void incrementMessageBytes(int quantity) {
+    }
+
+    @Override
+    public void incrementSpansDropped(int quantity) {
+        this.dropped.add(quantity);
+        this.droppedCounter.accept(quantity);
+    }
+
+    @Override
+    public void updateQueuedSpans(int update) {
+        this.queued.set(update);
+        // updated once the reporter drained its queue, count what was sent since
+        long sent = sent();
+        long counted = this.counted.getAndAccumulate(sent, Math::max);
+        if (sent > counted) {
+            this.sentCounter.accept(sent - counted);
+        }
+    }
+
+    @Override
+    public void updateQueuedBytes(int update) {
+    }
+
+    @Override
+    public long queued() {
+        return this.queued.get();
+    }
+
+    @Override
+    public long dropped() {
+        return this.dropped.sum();
+    }
+
+    // the reporter only counts the spans handed to it, the ones neither queued nor dropped were sent
+    @Override
+    public long sent() {
+        return Math.max(0, this.reported.sum() - this.dropped.sum() - this.queued.get());
+    }
+
+    @Override
+    public long failures() {
+        return this.failures.sum();
+    }
+
+    @Override
+    public void countInto(LongConsumer dropped, LongConsumer sent, LongConsumer failures) {
+        this.droppedCounter = dropped;
+        this.sentCounter = sent;
+        this.failuresCounter = failures;
+    }
+
+    private static final LongConsumer NONE = n -> {
+    };
+
+    private final LongAdder reported = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    // the sent spans already fed to the sent counter
+    private final AtomicLong counted = new AtomicLong();
+
+    private volatile LongConsumer droppedCounter = NONE;
+
+    private volatile LongConsumer sentCounter = NONE;
+
+    private volatile LongConsumer failuresCounter = NONE;
+}
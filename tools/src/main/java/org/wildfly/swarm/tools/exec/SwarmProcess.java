@@ -18,6 +18,7 @@ package org.wildfly.swarm.tools.exec;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.Field;
 import java.nio.file.Path;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -65,6 +66,25 @@ public class SwarmProcess {
         return process.getOutputStream();
     }
 
+    /**
+     * @return the operating system id of the process, or {@code -1} if the JVM does not expose it
+     */
+    public long pid() {
+        try {
+            // Process.pid() only exists as of Java 9
+            return (Long) Process.class.getMethod("pid").invoke(this.process);
+        } catch (ReflectiveOperationException e) {
+            // ignore, and try the field of the Java 8 UNIXProcess
+        }
+        try {
+            Field pid = this.process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(this.process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
     public void destroy() {
         process.destroy();
     }
@@ -89,8 +109,12 @@ public class SwarmProcess {
         return process.exitValue();
     }
 
-    public void awaitReadiness(long timeout, TimeUnit timeUnit) throws InterruptedException {
-        this.latch.await(timeout, timeUnit);
+    /**
+     * @return {@code true} if the process reported it was started, or that its deployment failed,
+     * and {@code false} if the timeout elapsed first
+     */
+    public boolean awaitReadiness(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        return this.latch.await(timeout, timeUnit);
     }
 
     public int stop() throws InterruptedException {